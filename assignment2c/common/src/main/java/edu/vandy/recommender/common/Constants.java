@@ -30,6 +30,13 @@ public class Constants {
         public static final String POST_SEARCHES = "searches";
         public static final String GET_SEARCHES = "searches";
         public static final String POST_SEARCHES_EX = "searchesEx";
+        public static final String GET_SEARCH_TITLES = "searchTitles";
+        public static final String POST_SEARCHES_TITLES = "searchesTitles";
+        public static final String POST_SEARCHES_EX_TITLES = "searchesExTitles";
+        public static final String GET_ALL_MOVIES_PAGE = "allMoviesPage";
+        public static final String GET_SEARCH_PAGE = "searchPage";
+        public static final String POST_SEARCHES_PAGE = "searchesPage";
+        public static final String POST_SEARCHES_EX_PAGE = "searchesExPage";
         public static final String SEARCH_QUERY = "{query}";
 
         /*
@@ -64,6 +71,9 @@ public class Constants {
      */
     public static class Params {
         public static final String QUERIES_PARAM = "queries";
+        public static final String AFTER_PARAM = "after";
+        public static final String LIMIT_PARAM = "limit";
+        public static final String COUNT_PARAM = "count";
         public static final String WATCHED_MOVIE_PARAM = "watchedMovie";
         public static final String MAX_COUNT_PARAM = "maxCount";
     }
@@ -69,13 +69,17 @@ public class RunTimer {
 
     /**
      * Call {@code supplier.get()} and time how long it takes to
-     * run. This method supports synchronous timings.
+     * run. This method supports synchronous timings.  If the result
+     * is a {@link Flux} or {@link Mono} it is timed from subscription
+     * to termination instead, since {@code supplier.get()} only
+     * assembles the reactive pipeline.
      *
      * @param identifier A {@link String} identifying what is being
      *                   timed
      * @param supplier The {@link Supplier} containing the code to run
      * @return The result returned by {@code supplier.get()}
      */
+    @SuppressWarnings("unchecked")
     public <U> U runAndRecordTime(String identifier,
                                   Supplier<U> supplier) {
         // Create a Timer instance and set its start time.
@@ -84,6 +88,13 @@ public class RunTimer {
         // Run the code that's being timed.
         U result = supplier.get();
 
+        // A reactive result has only been assembled at this point,
+        // so time it from subscription to completion instead.
+        if (result instanceof Flux<?> flux)
+            return (U) runAndRecordTime(identifier, flux);
+        else if (result instanceof Mono<?> mono)
+            return (U) runAndRecordTime(identifier, mono);
+
         // Stop the timer and post the result to the timer service.
         stopAndPost(timer);
 
@@ -115,7 +126,9 @@ public class RunTimer {
     /**
      * Adds a run timer to the passed {@code Flux} and post the
      * elapsed execution time to the timer service when the Flux
-     * completes.
+     * terminates.  Each subscription is timed separately, starting
+     * when it subscribes, and also records the time the first
+     * element was emitted and the number of elements.
      *
      * @param identifier A {@link String} identifying what is being
      *                   timed
@@ -123,17 +136,60 @@ public class RunTimer {
      */
     public <T> Flux<T> runAndRecordTime(String identifier,
                                         Flux<T> flux) {
+        return Flux
+            // Defer so a new Timer is started for each subscription.
+            .defer(() -> {
+                    // Generate a new started Timer instance.
+                    Timer timer = start(new Timer(identifier));
+
+                    return flux
+                        // Count each element and note the first one.
+                        .doOnNext(element -> recordElement(timer))
+
+                        // Lastly, stop the timer and post the timing
+                        // result to the timer service.
+                        .doFinally(signal -> stopAndPost(timer));
+                });
+    }
+
+    /**
+     * Adds a run timer to the passed {@code Mono} and post the
+     * elapsed execution time to the timer service when the Mono
+     * terminates.  Each subscription is timed separately, starting
+     * when it subscribes.
+     *
+     * @param identifier A {@link String} identifying what is being
+     *                   timed
+     * @param mono       The {@link Mono} to run and record
+     */
+    public <T> Mono<T> runAndRecordTime(String identifier,
+                                        Mono<T> mono) {
         return Mono
-            // Start with a supplier that will create a Timer
-            // instance.
-            .fromSupplier(// Generate a new started Timer instance.
-                          () -> start(new Timer(identifier)))
-
-            // Map the Timer instance to the output of the pass flux.
-            .flatMapMany(timer ->
-                         // Lastly, stop the timer and post the timing
-                         // result to the timer service.
-                         flux.doFinally(result -> stopAndPost(timer)));
+            // Defer so a new Timer is started for each subscription.
+            .defer(() -> {
+                    // Generate a new started Timer instance.
+                    Timer timer = start(new Timer(identifier));
+
+                    return mono
+                        // Note the element, if any.
+                        .doOnNext(element -> recordElement(timer))
+
+                        // Lastly, stop the timer and post the timing
+                        // result to the timer service.
+                        .doFinally(signal -> stopAndPost(timer));
+                });
+    }
+
+    /**
+     * Record that an element was emitted while {@code timer} was
+     * running.  Reactive Streams signals are serialized, so no
+     * synchronization is needed.
+     *
+     * @param timer The running {@link Timer}
+     */
+    private void recordElement(Timer timer) {
+        if (timer.elementCount++ == 0)
+            timer.firstElementTime = System.nanoTime();
     }
 
     /**
@@ -23,6 +23,17 @@ public class Timer {
      */
     public long stopTime;
 
+    /**
+     * The time the first element of a reactive result was emitted,
+     * or 0 if none was (or the timed code wasn't reactive).
+     */
+    public long firstElementTime;
+
+    /**
+     * The number of elements emitted by a reactive result.
+     */
+    public long elementCount;
+
     /**
      * Constructs a {@link Timer} object and automatically sets
      * its globally unique invocation id. Both start and stop
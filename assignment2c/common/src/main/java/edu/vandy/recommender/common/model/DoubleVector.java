@@ -0,0 +1,70 @@
+package edu.vandy.recommender.common.model;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An unmodifiable {@link List} of {@link Double} objects that's
+ * backed by a primitive {@code double} array, so a {@link Movie}
+ * vector decoded by the {@link VectorCodec} takes 8 bytes per element
+ * instead of a reference and a boxed {@link Double}.  Elements are
+ * only boxed when they're read via {@link #get(int)}, and callers
+ * that know the concrete type can use {@link #getDouble(int)} or
+ * {@link #toDoubleArray()} to avoid boxing altogether.
+ */
+public final class DoubleVector
+       extends AbstractList<Double>
+       implements RandomAccess {
+    /**
+     * The elements of the vector.
+     */
+    private final double[] mElements;
+
+    /**
+     * Constructor initializes the field without copying the {@code
+     * elements}, which the caller must no longer modify.
+     *
+     * @param elements The elements of the vector
+     */
+    public DoubleVector(double[] elements) {
+        mElements = elements;
+    }
+
+    /**
+     * @return The element at the {@code index}
+     */
+    @Override
+    public Double get(int index) {
+        return mElements[index];
+    }
+
+    /**
+     * @return The element at the {@code index} without boxing it
+     */
+    public double getDouble(int index) {
+        return mElements[index];
+    }
+
+    /**
+     * @return The number of elements
+     */
+    @Override
+    public int size() {
+        return mElements.length;
+    }
+
+    /**
+     * @return A copy of the elements
+     */
+    public double[] toDoubleArray() {
+        return mElements.clone();
+    }
+
+    /**
+     * @return The elements, which must not be modified
+     */
+    double[] elements() {
+        return mElements;
+    }
+}
@@ -0,0 +1,47 @@
+package edu.vandy.recommender.common.model;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * This Java utility class encodes the opaque cursors of the {@link
+ * MoviePage} objects returned by the paged endpoints of the database
+ * microservices.  A cursor identifies the last {@link Movie} of a
+ * page, so the next page starts right after it in the primary key
+ * index rather than skipping an OFFSET of rows.  Clients must treat
+ * a cursor as an opaque token, which leaves its encoding free to
+ * change.
+ */
+public final class MovieCursor {
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private MovieCursor() {
+    }
+
+    /**
+     * @param id The id (title) of the last {@link Movie} of a page
+     * @return The cursor of the next page
+     */
+    public static String encode(String id) {
+        return Base64
+            .getUrlEncoder()
+            .withoutPadding()
+            .encodeToString(id.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor The cursor of a page, which may be null
+     * @return The id (title) of the last {@link Movie} of the
+     *         previous page, or null if {@code cursor} is null, i.e.,
+     *         the first page is requested
+     * @throws IllegalArgumentException If the {@code cursor} wasn't
+     *                                  returned by {@link #encode}
+     */
+    public static String decode(String cursor) {
+        return cursor == null
+            ? null
+            : new String(Base64.getUrlDecoder().decode(cursor),
+                         StandardCharsets.UTF_8);
+    }
+}
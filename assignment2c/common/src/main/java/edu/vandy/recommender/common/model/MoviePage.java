@@ -0,0 +1,90 @@
+package edu.vandy.recommender.common.model;
+
+import java.util.List;
+
+/**
+ * One page of {@link Movie} objects returned by the keyset-paginated
+ * endpoints of the database microservices, together with the cursor
+ * of the next page and, if requested, the total number of matching
+ * movies.
+ */
+public class MoviePage {
+    /**
+     * The number of movies per page if the client doesn't ask for a
+     * limit.
+     */
+    public static final int DEFAULT_LIMIT = 100;
+
+    /**
+     * The largest number of movies per page.
+     */
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * The movies of this page sorted in ascending order by id.
+     */
+    public List<Movie> movies;
+
+    /**
+     * The opaque cursor of the next page, which is null if this is
+     * the last page.
+     */
+    public String next;
+
+    /**
+     * The number of movies on all pages, which is null unless it was
+     * requested.
+     */
+    public Long total;
+
+    /**
+     * A default constructor is needed.
+     */
+    public MoviePage() {
+    }
+
+    /**
+     * Initialize the fields of a {@link MoviePage}.
+     */
+    public MoviePage(List<Movie> movies,
+                     String next,
+                     Long total) {
+        this.movies = movies;
+        this.next = next;
+        this.total = total;
+    }
+
+    /**
+     * @param limit The requested number of movies per page, which
+     *              may be null
+     * @return The {@code limit} bounded by {@link #MAX_LIMIT}, or
+     *         {@link #DEFAULT_LIMIT} if it's null
+     */
+    public static int limit(Integer limit) {
+        return limit == null
+            ? DEFAULT_LIMIT
+            : Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Create a page from the rows read for it, which are one more
+     * than the {@code limit} if there's a next page.
+     *
+     * @param rows Up to {@code limit + 1} movies sorted in ascending
+     *             order by id
+     * @param limit The number of movies per page
+     * @param total The number of movies on all pages, or null
+     * @return The {@link MoviePage}
+     */
+    public static MoviePage of(List<Movie> rows,
+                               int limit,
+                               Long total) {
+        if (rows.size() <= limit)
+            return new MoviePage(rows, null, total);
+
+        var movies = rows.subList(0, limit);
+        return new MoviePage(movies,
+                             MovieCursor.encode(movies.get(limit - 1).id),
+                             total);
+    }
+}
@@ -1,5 +1,9 @@
 package edu.vandy.recommender.utils;
 
+import edu.vandy.recommender.common.model.DoubleVector;
+import edu.vandy.recommender.common.model.VectorCodec;
+
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -28,7 +32,9 @@ public class ArrayUtils {
     /**
      * Attempt to convert the {@link Object} param into a {@link List}
      * of {@link Class<T>}, which must be a subclass of {@link Number}
-     * (e.g., {@link Integer}, {@link Double}, etc.
+     * (e.g., {@link Integer}, {@link Double}, etc.  A {@code byte}
+     * array or {@link ByteBuffer} is treated as a vector packed by
+     * {@link VectorCodec} when {@code clazz} is {@link Double}.
      *
      * @param obj The array {@link Object} to attempt to convert
      * @param clazz The type to attempt to convert into
@@ -38,21 +44,36 @@ public class ArrayUtils {
      *         the conversion fails
      * @param <T> A subclass of {@link Number}
      */
+    @SuppressWarnings("unchecked")
     public static <T extends Number> List<T> obj2List(Object obj,
                                                       Class<T> clazz) {
+        if (clazz == Double.class) {
+            // Unpack packed vectors straight into primitive arrays.
+            if (obj instanceof byte[] packed)
+                return (List<T>) VectorCodec.unpack(packed);
+            else if (obj instanceof ByteBuffer packed)
+                return (List<T>) VectorCodec.unpack(packed);
+            else if (obj instanceof double[] doubles)
+                return (List<T>) new DoubleVector(doubles.clone());
+        }
+
         if (obj == null || !obj.getClass().isArray()) {
             // Return an empty List on failure.
             return Collections.emptyList();
+        } else if (!(obj instanceof Object[] objects)) {
+            // Other primitive arrays aren't supported.
+            return Collections.emptyList();
         } else {
             return Arrays
                 // Convert the 'obj' array into a Stream.
-                .stream((Object[]) obj)
+                .stream(objects)
 
-                // Map each Object to its String representation.
-                .map(Object::toString)
-
-                // Try to convert each string to a subclass of Number.
-                .map(string -> convertToNumber(string, clazz))
+                // Try to convert each element to a subclass of
+                // Number, avoiding a String round trip when it's
+                // already a Number.
+                .map(element -> element instanceof Number number
+                     ? convertNumber(number, clazz)
+                     : convertToNumber(String.valueOf(element), clazz))
 
                 // Ignore failure.
                 .filter(Objects::nonNull)
@@ -108,6 +129,34 @@ public class ArrayUtils {
         }
     }
 
+    /**
+     * Converts a {@link Number} to a {@link Number} subclass of type
+     * {@code T} without a {@link String} round trip.
+     *
+     * @param number The {@link Number} to convert
+     * @param clazz The {@link Class} object representing the desired
+     *              {@link Number} subclass
+     * @return A {@link Number} subclass of type {@code T} or {@code
+     *         null} if {@code clazz} isn't supported
+     */
+    private static <T extends Number> T convertNumber
+        (Number number,
+         Class<T> clazz) {
+        // Most drivers already return the desired type.
+        if (clazz.isInstance(number))
+            return clazz.cast(number);
+
+        return switch (clazz.getSimpleName()) {
+            case "Integer" -> clazz.cast(number.intValue());
+            case "Long" -> clazz.cast(number.longValue());
+            case "Float" -> clazz.cast(number.floatValue());
+            case "Double" -> clazz.cast(number.doubleValue());
+            case "Short" -> clazz.cast(number.shortValue());
+            case "Byte" -> clazz.cast(number.byteValue());
+            default -> null;
+        };
+    }
+
     /**
      * Converts a {@link String} to a {@link Number} subclass of type
      * {@code T}.
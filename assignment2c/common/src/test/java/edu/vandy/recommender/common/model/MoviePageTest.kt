@@ -0,0 +1,49 @@
+package edu.vandy.recommender.common.model
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+
+class MoviePageTest : AssignmentTests() {
+    private fun movies(vararg ids: String) = ids.map { Movie(it, listOf(1.0)) }
+
+    @Test
+    fun `an extra row yields a cursor after the last movie of the page`() {
+        val page = MoviePage.of(movies("A", "B", "C"), 2, 7L)
+
+        assertThat(page.movies.map { it.id }).containsExactly("A", "B")
+        assertThat(MovieCursor.decode(page.next)).isEqualTo("B")
+        assertThat(page.total).isEqualTo(7L)
+    }
+
+    @Test
+    fun `the last page has no cursor`() {
+        val page = MoviePage.of(movies("A", "B"), 2, null)
+
+        assertThat(page.movies.map { it.id }).containsExactly("A", "B")
+        assertThat(page.next).isNull()
+        assertThat(page.total as Long?).isNull()
+    }
+
+    @Test
+    fun `limits are bounded`() {
+        assertThat(MoviePage.limit(null)).isEqualTo(MoviePage.DEFAULT_LIMIT)
+        assertThat(MoviePage.limit(0)).isEqualTo(1)
+        assertThat(MoviePage.limit(Int.MAX_VALUE)).isEqualTo(MoviePage.MAX_LIMIT)
+        assertThat(MoviePage.limit(42)).isEqualTo(42)
+    }
+
+    @Test
+    fun `cursors are url safe and round trip any title`() {
+        listOf("The Matrix", "Amélie / 100% ?&=", "").forEach {
+            val cursor = MovieCursor.encode(it)
+
+            assertThat(cursor).matches("[A-Za-z0-9_-]*")
+            assertThat(MovieCursor.decode(cursor)).isEqualTo(it)
+        }
+        assertThat(MovieCursor.decode(null)).isNull()
+        assertThatThrownBy { MovieCursor.decode("not a cursor!") }
+            .isInstanceOf(IllegalArgumentException::class.java)
+    }
+}
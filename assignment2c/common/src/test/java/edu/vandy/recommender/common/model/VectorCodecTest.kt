@@ -0,0 +1,73 @@
+package edu.vandy.recommender.common.model
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.nio.ByteBuffer
+
+class VectorCodecTest : AssignmentTests() {
+    @Test
+    fun `vectors round trip through their packed form`() {
+        val vector = listOf(1.0, -2.5, 0.0, Double.MIN_VALUE, 1e300)
+
+        val packed = VectorCodec.pack(vector)
+        val unpacked = VectorCodec.unpack(packed)
+
+        assertThat(packed).hasSize(vector.size * 8)
+        assertThat(unpacked).isEqualTo(vector)
+        assertThat(unpacked.toDoubleArray()).containsExactly(*vector.toDoubleArray())
+        assertThat(VectorCodec.pack(unpacked)).isEqualTo(packed)
+    }
+
+    @Test
+    fun `packed vectors are little endian`() {
+        val packed = VectorCodec.pack(listOf(1.0))
+
+        assertThat(packed).containsExactly(0, 0, 0, 0, 0, 0, -16, 63)
+    }
+
+    @Test
+    fun `byte buffers are unpacked from their position`() {
+        val buffer = ByteBuffer.allocate(20)
+        buffer.position(4)
+        buffer.put(VectorCodec.pack(listOf(3.0, 4.0)))
+        buffer.position(4)
+
+        assertThat(VectorCodec.unpack(buffer)).containsExactly(3.0, 4.0)
+        assertThat(buffer.position()).isEqualTo(4)
+    }
+
+    @Test
+    fun `null vectors stay null`() {
+        assertThat(VectorCodec.pack(null)).isNull()
+        assertThat(VectorCodec.packSqlArray("m", null)).isNull()
+        assertThat(VectorCodec.unpack(null as ByteArray?)).isNull()
+    }
+
+    @Test
+    fun `SQL arrays are packed like lists`() {
+        val vector = arrayOf(1.0, -2.5, 0.0)
+
+        assertThat(VectorCodec.packSqlArray("m", vector))
+            .isEqualTo(VectorCodec.pack(vector.toList()))
+    }
+
+    @Test
+    fun `SQL arrays with a NULL element are rejected with the movie`() {
+        assertThatThrownBy { VectorCodec.packSqlArray("Heat", arrayOf(1.0, null)) }
+            .isInstanceOf(IllegalArgumentException::class.java)
+            .hasMessageContaining("\"Heat\"")
+            .hasMessageContaining("index 1")
+    }
+
+    @Test
+    fun `the converter packs and unpacks movie vectors`() {
+        val converter = PackedVectorConverter()
+        val vector = listOf(0.25, 0.5)
+
+        assertThat(converter.convertToEntityAttribute(converter.convertToDatabaseColumn(vector)))
+            .isEqualTo(vector)
+            .isInstanceOf(DoubleVector::class.java)
+    }
+}
@@ -0,0 +1,32 @@
+package edu.vandy.recommender.databaseex.common;
+
+import edu.vandy.recommender.databaseex.repository.MovieReadingConverter;
+import edu.vandy.recommender.databaseex.repository.MovieWritingConverter;
+import io.r2dbc.spi.ConnectionFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
+import org.springframework.data.r2dbc.dialect.DialectResolver;
+
+/**
+ * This class contains {@code Bean} annotated methods that can be
+ * injected into classes using the Spring {@code @Autowired}
+ * annotation.
+ */
+@Configuration
+public class ServerBeans {
+    /**
+     * @param connectionFactory The {@link ConnectionFactory} of the
+     *                          database
+     * @return The {@link R2dbcCustomConversions} that read and write
+     *         the packed vectors of the MOVIE table
+     */
+    @Bean
+    public R2dbcCustomConversions r2dbcCustomConversions
+        (ConnectionFactory connectionFactory) {
+        return R2dbcCustomConversions
+            .of(DialectResolver.getDialect(connectionFactory),
+                new MovieReadingConverter(),
+                new MovieWritingConverter());
+    }
+}
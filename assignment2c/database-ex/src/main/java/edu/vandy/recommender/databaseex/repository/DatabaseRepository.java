@@ -1,6 +1,7 @@
 package edu.vandy.recommender.databaseex.repository;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MovieTitle;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
@@ -35,4 +36,17 @@ public interface DatabaseRepository
      *         title)
      */
     // TODO -- you fill in here.
+
+    /**
+     * Find the titles of all {@link Movie} rows in the database that
+     * contain the {@code query} (ignoring case) sorted in ascending
+     * order.  Only the "id" column is selected for the {@link
+     * MovieTitle} projection.
+     *
+     * @param query The {@link String} query to search for
+     * @return A {@link Flux} that emits {@link MovieTitle}
+     *         projections containing the {@code query} (ignoring
+     *         case) sorted in ascending order
+     */
+    Flux<MovieTitle> findTitlesByIdContainingIgnoreCaseOrderByIdAsc(String query);
 }
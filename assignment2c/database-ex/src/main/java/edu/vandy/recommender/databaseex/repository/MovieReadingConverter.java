@@ -0,0 +1,38 @@
+package edu.vandy.recommender.databaseex.repository;
+
+import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MovieTitle;
+import edu.vandy.recommender.common.model.VectorCodec;
+import edu.vandy.recommender.utils.ArrayUtils;
+import io.r2dbc.spi.Row;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.ReadingConverter;
+
+/**
+ * This R2DBC {@link ReadingConverter} maps a row of the MOVIE table
+ * to a {@link Movie}, unpacking the packed "vector" column (see
+ * {@link VectorCodec}) straight into a primitive array, which Spring
+ * Data can't do for a {@code List<Double>} property on its own.  A
+ * row that only has the "id" column, e.g., one read for a {@link
+ * MovieTitle} projection, is mapped to a {@link Movie} whose vector
+ * is null, as is the vector of a row whose "vector" column is null.
+ */
+@ReadingConverter
+public class MovieReadingConverter
+       implements Converter<Row, Movie> {
+    /**
+     * Map the {@code row} to a {@link Movie}.
+     */
+    @Override
+    public Movie convert(Row row) {
+        var vector = row.getMetadata().contains("vector")
+            ? row.get("vector")
+            : null;
+
+        return new Movie(row.get("id", String.class),
+                         // Keep a null vector null rather than empty.
+                         vector == null
+                         ? null
+                         : ArrayUtils.obj2List(vector, Double.class));
+    }
+}
@@ -0,0 +1,28 @@
+package edu.vandy.recommender.databaseex.repository;
+
+import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.VectorCodec;
+import org.springframework.core.convert.converter.Converter;
+import org.springframework.data.convert.WritingConverter;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
+import org.springframework.r2dbc.core.Parameter;
+
+/**
+ * This R2DBC {@link WritingConverter} maps a {@link Movie} to a row
+ * of the MOVIE table, packing its vector via the {@link VectorCodec}.
+ */
+@WritingConverter
+public class MovieWritingConverter
+       implements Converter<Movie, OutboundRow> {
+    /**
+     * Map the {@code movie} to a row.
+     */
+    @Override
+    public OutboundRow convert(Movie movie) {
+        return new OutboundRow()
+            .append("id", Parameter.from(movie.id))
+            .append("vector",
+                    Parameter.fromOrEmpty(VectorCodec.pack(movie.vector),
+                                          byte[].class));
+    }
+}
@@ -1,7 +1,9 @@
 package edu.vandy.recommender.databaseex.repository;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MovieTitle;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -34,4 +36,93 @@ public interface MultiQueryRepository {
      *         (ignoring case) sorted in ascending order
      */
     public Flux<Movie> findAllByIdContainingAllInOrderByAsc(List<String> queries);
+
+    /**
+     * Find a {@link Flux} that emits the titles of the {@link Movie}
+     * objects in the database that match at least one of the {@code
+     * queries} (ignoring case) sorted in ascending order, without
+     * reading their vectors.
+     *
+     * @param queries List of queries
+     * @return A {@link Flux} that emits {@link MovieTitle}
+     *         projections containing at least one of the {@code
+     *         queries} (ignoring case) sorted in ascending order
+     */
+    Flux<MovieTitle> findTitlesContainingAny(List<String> queries);
+
+    /**
+     * Find a {@link Flux} that emits the titles of the {@link Movie}
+     * objects in the database containing all of the {@code queries}
+     * (ignoring case) sorted in ascending order, without reading
+     * their vectors.
+     *
+     * @param queries List of queries
+     * @return A {@link Flux} that emits {@link MovieTitle}
+     *         projections containing all of the {@code queries}
+     *         (ignoring case) sorted in ascending order
+     */
+    Flux<MovieTitle> findTitlesContainingAll(List<String> queries);
+
+    /**
+     * Find one page of the {@link Movie} objects in the database
+     * sorted in ascending order by id.  The page is read from the
+     * primary key index starting right after the {@code after} id,
+     * so no rows are skipped via an OFFSET.
+     *
+     * @param after The last id of the previous page, or null for the
+     *              first page
+     * @param limit The largest number of {@link Movie} objects to emit
+     * @return A {@link Flux} that emits up to {@code limit} {@link
+     *         Movie} objects sorted in ascending order
+     */
+    Flux<Movie> findPageAfter(String after, int limit);
+
+    /**
+     * Find one page of the {@link Movie} objects in the database
+     * containing at least one of the {@code queries} (ignoring case)
+     * sorted in ascending order, starting right after the {@code
+     * after} id.
+     *
+     * @param queries List of queries
+     * @param after The last id of the previous page, or null for the
+     *              first page
+     * @param limit The largest number of {@link Movie} objects to emit
+     * @return A {@link Flux} that emits up to {@code limit} {@link
+     *         Movie} objects sorted in ascending order
+     */
+    Flux<Movie> findPageByIdContainingAny(List<String> queries,
+                                          String after,
+                                          int limit);
+
+    /**
+     * Find one page of the {@link Movie} objects in the database
+     * containing all the {@code queries} (ignoring case) sorted in
+     * ascending order, starting right after the {@code after} id.
+     *
+     * @param queries List of queries
+     * @param after The last id of the previous page, or null for the
+     *              first page
+     * @param limit The largest number of {@link Movie} objects to emit
+     * @return A {@link Flux} that emits up to {@code limit} {@link
+     *         Movie} objects sorted in ascending order
+     */
+    Flux<Movie> findPageByIdContainingAll(List<String> queries,
+                                          String after,
+                                          int limit);
+
+    /**
+     * @param queries List of queries
+     * @return A {@link Mono} that emits the number of {@link Movie}
+     *         objects containing at least one of the {@code queries}
+     *         (ignoring case)
+     */
+    Mono<Long> countByIdContainingAny(List<String> queries);
+
+    /**
+     * @param queries List of queries
+     * @return A {@link Mono} that emits the number of {@link Movie}
+     *         objects containing all the {@code queries} (ignoring
+     *         case)
+     */
+    Mono<Long> countByIdContainingAll(List<String> queries);
 }
@@ -1,13 +1,20 @@
 package edu.vandy.recommender.databaseex.repository;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MovieTitle;
 import edu.vandy.recommender.utils.ArrayUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 /**
  * This implementation defines methods that return a {@link Flux} of
@@ -15,6 +22,12 @@ import java.util.List;
  */
 public class MultiQueryRepositoryImpl
        implements MultiQueryRepository {
+    /**
+     * Maps the rows of the page queries to {@link Movie} objects.
+     */
+    private static final MovieReadingConverter MOVIE_READER =
+        new MovieReadingConverter();
+
     /**
      * This field is a reactive R2DBC-based client for executing SQL
      * queries against a database using reactive programming
@@ -25,6 +38,13 @@ public class MultiQueryRepositoryImpl
     @Autowired
     private DatabaseClient mDatabaseClient;
 
+    /**
+     * Creates the {@link MovieTitle} projections in the same way as
+     * Spring Data does for the derived query methods.
+     */
+    private final ProjectionFactory mProjectionFactory =
+        new SpelAwareProxyProjectionFactory();
+
     /**
      * Find a {@link Flux} that emits {@link Movie} objects in the
      * database containing at least one of the {@code queries}
@@ -124,6 +144,245 @@ public class MultiQueryRepositoryImpl
 
         return null;
     }
-}
 
+    /**
+     * Find a {@link Flux} that emits the titles of the {@link Movie}
+     * objects in the database containing at least one of the {@code
+     * queries} (ignoring case) sorted in ascending order.
+     *
+     * @param queries {@link List} of {@code queries}
+     * @return A {@link Flux} that emits {@link MovieTitle}
+     *         projections containing at least one of the {@code
+     *         queries} (ignoring case) sorted in ascending order
+     */
+    @Override
+    public Flux<MovieTitle> findTitlesContainingAny(List<String> queries) {
+        return getTitleFlux(" or ", queries);
+    }
+
+    /**
+     * Find a {@link Flux} that emits the titles of the {@link Movie}
+     * objects in the database containing all of the {@code queries}
+     * (ignoring case) sorted in ascending order.
+     *
+     * @param queries {@link List} of {@code queries}
+     * @return A {@link Flux} that emits {@link MovieTitle}
+     *         projections containing all the {@code queries}
+     *         (ignoring case) sorted in ascending order
+     */
+    @Override
+    public Flux<MovieTitle> findTitlesContainingAll(List<String> queries) {
+        return getTitleFlux(" and ", queries);
+    }
+
+    /**
+     * Find one page of the {@link Movie} objects in the database
+     * sorted in ascending order by id, starting right after the
+     * {@code after} id.
+     */
+    @Override
+    public Flux<Movie> findPageAfter(String after, int limit) {
+        return getPageFlux("", List.of(), after, limit);
+    }
+
+    /**
+     * Find one page of the {@link Movie} objects in the database
+     * containing at least one of the {@code queries} (ignoring case)
+     * sorted in ascending order, starting right after the {@code
+     * after} id.
+     */
+    @Override
+    public Flux<Movie> findPageByIdContainingAny(List<String> queries,
+                                                 String after,
+                                                 int limit) {
+        return queries.isEmpty()
+            ? Flux.empty()
+            : getPageFlux(" or ", queries, after, limit);
+    }
+
+    /**
+     * Find one page of the {@link Movie} objects in the database
+     * containing all the {@code queries} (ignoring case) sorted in
+     * ascending order, starting right after the {@code after} id.
+     */
+    @Override
+    public Flux<Movie> findPageByIdContainingAll(List<String> queries,
+                                                 String after,
+                                                 int limit) {
+        return queries.isEmpty()
+            ? Flux.empty()
+            : getPageFlux(" and ", queries, after, limit);
+    }
+
+    /**
+     * Count the {@link Movie} objects in the database containing at
+     * least one of the {@code queries} (ignoring case).
+     */
+    @Override
+    public Mono<Long> countByIdContainingAny(List<String> queries) {
+        return getCount(" or ", queries);
+    }
 
+    /**
+     * Count the {@link Movie} objects in the database containing all
+     * the {@code queries} (ignoring case).
+     */
+    @Override
+    public Mono<Long> countByIdContainingAll(List<String> queries) {
+        return getCount(" and ", queries);
+    }
+
+    /**
+     * Select only the "id" column of the rows whose title matches the
+     * {@code queries} combined with the {@code whereFilter}, binding
+     * each query as a parameter.
+     *
+     * @param whereFilter Either {@code " or "} or {@code " and "}
+     * @param queries The {@link List} of queries to match
+     * @return A {@link Flux} that emits the {@link MovieTitle}
+     *         projections of the matching rows sorted in ascending
+     *         order
+     */
+    private Flux<MovieTitle> getTitleFlux(String whereFilter,
+                                          List<String> queries) {
+        if (queries.isEmpty())
+            return Flux.empty();
+
+        return bind(mDatabaseClient
+                    .sql("select id from MOVIE"
+                         + where(whereFilter, queries, null)
+                         + " order by id"),
+                    queries,
+                    null)
+            // Only read the title of each row.
+            .map(row -> row.get("id", String.class))
+            .all()
+
+            // Project each title without reading its vector.
+            .map(title -> mProjectionFactory
+                 .createProjection(MovieTitle.class,
+                                   Map.of("id", title)));
+    }
+
+    /**
+     * Select one page of the rows whose title matches the {@code
+     * queries} combined with the {@code whereFilter}.  The page is
+     * read from the primary key index starting right after the
+     * {@code after} id, so no rows are skipped via an OFFSET.
+     *
+     * @param whereFilter Either {@code " or "} or {@code " and "}
+     * @param queries The {@link List} of queries to match, which is
+     *                empty to match all rows
+     * @param after The last id of the previous page, or null for the
+     *              first page
+     * @param limit The largest number of rows to read
+     * @return A {@link Flux} that emits the {@link Movie} objects of
+     *         the page sorted in ascending order
+     */
+    private Flux<Movie> getPageFlux(String whereFilter,
+                                    List<String> queries,
+                                    String after,
+                                    int limit) {
+        return bind(mDatabaseClient
+                    .sql("select id, vector from MOVIE"
+                         + where(whereFilter, queries, after)
+                         + " order by id fetch first :limit rows only"),
+                    queries,
+                    after)
+            .bind("limit", limit)
+
+            // Unpack the vector of each row.
+            .map((row, metadata) -> MOVIE_READER.convert(row))
+            .all();
+    }
+
+    /**
+     * Count the rows whose title matches the {@code queries} combined
+     * with the {@code whereFilter}.
+     *
+     * @param whereFilter Either {@code " or "} or {@code " and "}
+     * @param queries The {@link List} of queries to match
+     * @return A {@link Mono} that emits the number of matching rows
+     */
+    private Mono<Long> getCount(String whereFilter,
+                                List<String> queries) {
+        if (queries.isEmpty())
+            return Mono.just(0L);
+
+        return bind(mDatabaseClient
+                    .sql("select count(*) from MOVIE"
+                         + where(whereFilter, queries, null)),
+                    queries,
+                    null)
+            .map(row -> row.get(0, Long.class))
+            .one();
+    }
+
+    /**
+     * Build a where clause that matches the titles containing the
+     * {@code queries} combined with the {@code whereFilter} and, if
+     * {@code after} isn't null, following the {@code after} id.
+     *
+     * @param whereFilter Either {@code " or "} or {@code " and "}
+     * @param queries The {@link List} of queries to match
+     * @param after The id the titles must follow, or null
+     * @return The where clause, which is empty if there's nothing to
+     *         match
+     */
+    private static String where(String whereFilter,
+                                List<String> queries,
+                                String after) {
+        var predicates = new ArrayList<String>();
+        if (!queries.isEmpty()) {
+            var likes = new StringBuilder("(");
+            for (int i = 0; i < queries.size(); i++)
+                likes.append(i == 0 ? "" : whereFilter)
+                    .append("lower(id) like :query")
+                    .append(i)
+                    .append(" escape '\\'");
+            predicates.add(likes.append(")").toString());
+        }
+
+        if (after != null)
+            predicates.add("id > :after");
+
+        return predicates.isEmpty()
+            ? ""
+            : " where " + String.join(" and ", predicates);
+    }
+
+    /**
+     * Bind the parameters of a where clause built by {@link #where}.
+     *
+     * @param spec The {@link GenericExecuteSpec} of the SQL query
+     * @param queries The {@link List} of queries to match
+     * @param after The id the titles must follow, or null
+     * @return The {@code spec} with its parameters bound
+     */
+    private static GenericExecuteSpec bind(GenericExecuteSpec spec,
+                                           List<String> queries,
+                                           String after) {
+        for (int i = 0; i < queries.size(); i++)
+            spec = spec.bind("query" + i,
+                             "%" + escape(queries.get(i)
+                                          .toLowerCase(Locale.ROOT)) + "%");
+
+        return after == null
+            ? spec
+            : spec.bind("after", after);
+    }
+
+    /**
+     * @return The {@code query} with its {@code LIKE} wildcards
+     *         escaped
+     */
+    private static String escape(String query) {
+        var escaped = new StringBuilder(query.length());
+        for (char c : query.toCharArray()) {
+            if (c == '\\' || c == '%' || c == '_')
+                escaped.append('\\');
+            escaped.append(c);
+        }
+        return escaped.toString();
+    }
+}
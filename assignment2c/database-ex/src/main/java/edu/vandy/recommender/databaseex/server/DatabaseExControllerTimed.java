@@ -2,14 +2,18 @@ package edu.vandy.recommender.databaseex.server;
 
 import edu.vandy.recommender.common.RunTimer;
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MoviePage;
+import edu.vandy.recommender.common.model.MovieTitle;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
 import static edu.vandy.recommender.common.Constants.EndPoint.*;
+import static edu.vandy.recommender.common.Constants.Params.*;
 
 /**
  * The Spring controller for the {@link DatabaseExService}, whose timed
@@ -124,4 +128,180 @@ public class DatabaseExControllerTimed {
                               + POST_SEARCHES_EX,
                 () -> mController.searchEx(queries));
     }
+
+    /**
+     * Search for movie titles in the database containing the given
+     * query {@link String} without returning their vectors.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param query The search query
+     * @return A {@link Flux} that emits movie titles containing the
+     *         query represented as {@link MovieTitle} objects
+     */
+    @GetMapping(GET_SEARCH_TITLES + "/" + SEARCH_QUERY)
+    public Flux<MovieTitle> searchTitlesTimed(@PathVariable String query) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + GET_SEARCH_TITLES,
+                              () -> mController.searchTitles(query));
+    }
+
+    /**
+     * Search for movie titles in the database containing any given
+     * {@link String} queries without returning their vectors.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param queries The search queries
+     * @return A {@link Flux} that emits movie titles containing any
+     *         queries represented as {@link MovieTitle} objects
+     */
+    @PostMapping(POST_SEARCHES_TITLES)
+    public Flux<MovieTitle> searchTitlesTimed(@RequestBody List<String> queries) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + POST_SEARCHES_TITLES,
+                              () -> mController.searchTitles(queries));
+    }
+
+    /**
+     * Search for movie titles in the database containing all given
+     * {@link String} queries without returning their vectors.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param queries The search queries
+     * @return A {@link Flux} that emits movie titles containing all
+     *         queries represented as {@link MovieTitle} objects
+     */
+    @PostMapping(POST_SEARCHES_EX_TITLES)
+    public Flux<MovieTitle> searchExTitlesTimed(@RequestBody List<String> queries) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + POST_SEARCHES_EX_TITLES,
+                              () -> mController.searchExTitles(queries));
+    }
+
+    /**
+     * Returns one page of all movies in the database.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              default
+     * @param count True if the total number of movies is requested
+     * @return A {@link Mono} that emits the {@link MoviePage}
+     */
+    @GetMapping(GET_ALL_MOVIES_PAGE)
+    public Mono<MoviePage> getMoviesPageTimed
+        (@RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + GET_ALL_MOVIES_PAGE,
+                              () -> mController.getMoviesPage(after, limit, count));
+    }
+
+    /**
+     * Search for one page of the movie titles in the database
+     * containing the given query {@link String}.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param query The search query
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              default
+     * @param count True if the total number of matches is requested
+     * @return A {@link Mono} that emits the {@link MoviePage}
+     */
+    @GetMapping(GET_SEARCH_PAGE + "/" + SEARCH_QUERY)
+    public Mono<MoviePage> searchPageTimed
+        (@PathVariable String query,
+         @RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + GET_SEARCH_PAGE,
+                              () -> mController.searchPage(query, after, limit, count));
+    }
+
+    /**
+     * Search for one page of the movie titles in the database
+     * containing any given {@link String} queries.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param queries The search queries
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              default
+     * @param count True if the total number of matches is requested
+     * @return A {@link Mono} that emits the {@link MoviePage}
+     */
+    @PostMapping(POST_SEARCHES_PAGE)
+    public Mono<MoviePage> searchPageTimed
+        (@RequestBody List<String> queries,
+         @RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + POST_SEARCHES_PAGE,
+                              () -> mController.searchPage(queries, after, limit, count));
+    }
+
+    /**
+     * Search for one page of the movie titles in the database
+     * containing all given {@link String} queries.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param queries The search queries
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              default
+     * @param count True if the total number of matches is requested
+     * @return A {@link Mono} that emits the {@link MoviePage}
+     */
+    @PostMapping(POST_SEARCHES_EX_PAGE)
+    public Mono<MoviePage> searchExPageTimed
+        (@RequestBody List<String> queries,
+         @RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + POST_SEARCHES_EX_PAGE,
+                              () -> mController.searchExPage(queries, after, limit, count));
+    }
 }
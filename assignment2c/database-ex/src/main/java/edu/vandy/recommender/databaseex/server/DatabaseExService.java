@@ -1,12 +1,16 @@
 package edu.vandy.recommender.databaseex.server;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MoviePage;
+import edu.vandy.recommender.common.model.MovieTitle;
 import edu.vandy.recommender.databaseex.repository.DatabaseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Optional;
 
 /**
  * This class defines implementation methods that are called by the
@@ -91,4 +95,155 @@ public class DatabaseExService {
         // the proper code.
         return null;
     }
+
+    /**
+     * Search for movie titles containing the given query {@link
+     * String} without reading their vectors.
+     *
+     * @param query The search query
+     * @return A {@link Flux} of {@link MovieTitle} projections
+     *         containing the {@code query} sorted in ascending order
+     */
+    public Flux<MovieTitle> searchTitles(String query) {
+        return mRepository
+            // Only select the title column.
+            .findTitlesByIdContainingIgnoreCaseOrderByIdAsc(query);
+    }
+
+    /**
+     * Search for movie titles containing any of the given {@link
+     * String} queries without reading their vectors.
+     *
+     * @param queries The {@link List} of search queries
+     * @return A {@link Flux} of {@link MovieTitle} projections
+     *         containing any of the {@code queries} sorted in
+     *         ascending order
+     */
+    public Flux<MovieTitle> searchTitles(List<String> queries) {
+        return mRepository
+            // Only select the title column.
+            .findTitlesContainingAny(queries);
+    }
+
+    /**
+     * Search for movie titles containing all the given {@link
+     * String} queries without reading their vectors.
+     *
+     * @param queries The {@link List} of search queries
+     * @return A {@link Flux} of {@link MovieTitle} projections
+     *         containing all the {@code queries} sorted in ascending
+     *         order
+     */
+    public Flux<MovieTitle> searchExTitles(List<String> queries) {
+        return mRepository
+            // Only select the title column.
+            .findTitlesContainingAll(queries);
+    }
+
+    /**
+     * Get one page of all the {@link Movie} database entries sorted
+     * in ascending order by the {@link Movie} title (id).
+     *
+     * @param after The last title of the previous page, or null for
+     *              the first page
+     * @param limit The number of {@link Movie} objects per page
+     * @param count True if the total number of movies is requested
+     * @return A {@link Mono} that emits the {@link MoviePage}
+     */
+    public Mono<MoviePage> getMoviesPage(String after,
+                                         int limit,
+                                         boolean count) {
+        return page(mRepository
+                    // Read one extra row to find out if there's a
+                    // next page.
+                    .findPageAfter(after, limit + 1),
+                    limit,
+                    count ? mRepository.count() : null);
+    }
+
+    /**
+     * Get one page of the movies whose title contains the given query
+     * {@link String} sorted in ascending order by title.
+     *
+     * @param query The search query
+     * @param after The last title of the previous page, or null for
+     *              the first page
+     * @param limit The number of {@link Movie} objects per page
+     * @param count True if the total number of matches is requested
+     * @return A {@link Mono} that emits the {@link MoviePage}
+     */
+    public Mono<MoviePage> searchPage(String query,
+                                      String after,
+                                      int limit,
+                                      boolean count) {
+        return searchExPage(List.of(query), after, limit, count);
+    }
+
+    /**
+     * Get one page of the movies whose title contains any of the
+     * given {@link String} queries sorted in ascending order by title.
+     *
+     * @param queries The {@link List} of search queries
+     * @param after The last title of the previous page, or null for
+     *              the first page
+     * @param limit The number of {@link Movie} objects per page
+     * @param count True if the total number of matches is requested
+     * @return A {@link Mono} that emits the {@link MoviePage}
+     */
+    public Mono<MoviePage> searchPage(List<String> queries,
+                                      String after,
+                                      int limit,
+                                      boolean count) {
+        return page(mRepository
+                    // Read one extra row to find out if there's a
+                    // next page.
+                    .findPageByIdContainingAny(queries, after, limit + 1),
+                    limit,
+                    count ? mRepository.countByIdContainingAny(queries) : null);
+    }
+
+    /**
+     * Get one page of the movies whose title contains all the given
+     * {@link String} queries sorted in ascending order by title.
+     *
+     * @param queries The {@link List} of search queries
+     * @param after The last title of the previous page, or null for
+     *              the first page
+     * @param limit The number of {@link Movie} objects per page
+     * @param count True if the total number of matches is requested
+     * @return A {@link Mono} that emits the {@link MoviePage}
+     */
+    public Mono<MoviePage> searchExPage(List<String> queries,
+                                        String after,
+                                        int limit,
+                                        boolean count) {
+        return page(mRepository
+                    // Read one extra row to find out if there's a
+                    // next page.
+                    .findPageByIdContainingAll(queries, after, limit + 1),
+                    limit,
+                    count ? mRepository.countByIdContainingAll(queries) : null);
+    }
+
+    /**
+     * Combine the rows of a page with the total count, which are
+     * read concurrently.
+     *
+     * @param rows Up to {@code limit + 1} {@link Movie} objects
+     * @param limit The number of {@link Movie} objects per page
+     * @param total A {@link Mono} that emits the total count, or null
+     *              if it wasn't requested
+     * @return A {@link Mono} that emits the {@link MoviePage}
+     */
+    private static Mono<MoviePage> page(Flux<Movie> rows,
+                                        int limit,
+                                        Mono<Long> total) {
+        return Mono
+            .zip(rows.collectList(),
+                 total == null
+                 ? Mono.just(Optional.<Long>empty())
+                 : total.map(Optional::of),
+                 (movies, count) -> MoviePage
+                 .of(movies, limit, count.orElse(null)));
+    }
 }
@@ -1,3 +1,5 @@
+-- The vectors are loaded as arrays and then packed into VARBINARY
+-- by db/pack-vectors.sql.
 drop table if exists MOVIE;
 create table MOVIE (
     id varchar(255) not null,
@@ -0,0 +1,154 @@
+package edu.vandy.recommender.databaseex.repository
+
+import edu.vandy.recommender.common.model.DoubleVector
+import edu.vandy.recommender.common.model.Movie
+import edu.vandy.recommender.databaseex.common.ServerBeans
+import io.r2dbc.h2.H2ConnectionFactory
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import org.springframework.core.io.ByteArrayResource
+import org.springframework.core.io.ClassPathResource
+import org.springframework.data.r2dbc.convert.MappingR2dbcConverter
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate
+import org.springframework.data.r2dbc.dialect.DialectResolver
+import org.springframework.data.r2dbc.mapping.R2dbcMappingContext
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator
+import org.springframework.r2dbc.core.DatabaseClient
+import test.admin.AssignmentTests
+import test.admin.injectInto
+import java.util.UUID
+
+/**
+ * Runs the R2DBC mapping of the packed MOVIE table against an
+ * in-memory H2 database, i.e., the schema and migration scripts, the
+ * converters registered by [ServerBeans], the title queries of
+ * [DatabaseRepository] and [MultiQueryRepositoryImpl], and the page
+ * and count queries of the latter.
+ */
+class MovieRoundTripTest : AssignmentTests() {
+    private lateinit var template: R2dbcEntityTemplate
+    private lateinit var repository: DatabaseRepository
+
+    @BeforeEach
+    fun before() {
+        val connectionFactory = H2ConnectionFactory
+            .inMemory("movies-" + UUID.randomUUID())
+        val conversions = ServerBeans()
+            .r2dbcCustomConversions(connectionFactory)
+        val mappingContext = R2dbcMappingContext()
+            .apply { setSimpleTypeHolder(conversions.simpleTypeHolder) }
+        val client = DatabaseClient.create(connectionFactory)
+
+        template = R2dbcEntityTemplate(
+            client,
+            DialectResolver.getDialect(connectionFactory),
+            MappingR2dbcConverter(mappingContext, conversions)
+        )
+
+        val multiQueryRepository = MultiQueryRepositoryImpl()
+        client.injectInto(multiQueryRepository)
+        repository = R2dbcRepositoryFactory(template).getRepository(
+            DatabaseRepository::class.java,
+            RepositoryFragments.just(multiQueryRepository)
+        )
+
+        // Load arrays as data.sql does and then pack them.
+        ResourceDatabasePopulator(
+            ClassPathResource("schema.sql"),
+            ByteArrayResource(
+                ("insert into MOVIE values ('The Matrix', ARRAY[1.0, 2.5]);" +
+                 "insert into MOVIE values ('The Matrix Reloaded', ARRAY[-3.0]);" +
+                 "insert into MOVIE values ('Godzilla', ARRAY[0.5, 0.25, 4.0]);" +
+                 "insert into MOVIE values ('100% Love', ARRAY[7.0]);")
+                    .toByteArray()
+            ),
+            ClassPathResource("db/pack-vectors.sql")
+        ).populate(connectionFactory).block()
+    }
+
+    private fun all() =
+        template.select(Movie::class.java).all().collectList().block()!!
+            .associate { it.id to it.vector }
+
+    private fun ids(movies: List<Movie>) = movies.map { it.id }
+
+    @Test
+    fun `migrated arrays are read back as packed vectors`() {
+        val movies = all()
+
+        assertThat(movies["The Matrix"]).isInstanceOf(DoubleVector::class.java)
+        assertThat(movies["The Matrix"]).containsExactly(1.0, 2.5)
+        assertThat(movies["The Matrix Reloaded"]).containsExactly(-3.0)
+        assertThat(movies["Godzilla"]).containsExactly(0.5, 0.25, 4.0)
+    }
+
+    @Test
+    fun `inserted movies round trip through the packed column`() {
+        template.insert(Movie("Alien", listOf(Math.PI, -0.0, 1e300))).block()
+        template.insert(Movie("Aliens", null)).block()
+
+        val movies = all()
+        assertThat(movies["Alien"]).containsExactly(Math.PI, -0.0, 1e300)
+        assertThat(movies["Aliens"]).isNull()
+
+        val vector = template.databaseClient
+            .sql("select vector from MOVIE where id = 'Alien'")
+            .map { row -> row.get(0) }
+            .one()
+            .block()
+        assertThat(vector).isInstanceOf(ByteArray::class.java)
+        assertThat(vector as ByteArray).hasSize(3 * java.lang.Double.BYTES)
+    }
+
+    @Test
+    fun `pages follow each other in title order`() {
+        val first = repository.findPageAfter(null, 3).collectList().block()!!
+        val second = repository.findPageAfter(first.last().id, 3).collectList().block()!!
+
+        assertThat(ids(first))
+            .containsExactly("100% Love", "Godzilla", "The Matrix")
+        assertThat(ids(second)).containsExactly("The Matrix Reloaded")
+        assertThat(second.single().vector).containsExactly(-3.0)
+    }
+
+    @Test
+    fun `search pages match, escape, and count queries`() {
+        val any = repository
+            .findPageByIdContainingAny(listOf("matrix", "ZILLA"), "Godzilla", 1)
+            .collectList().block()!!
+        assertThat(ids(any)).containsExactly("The Matrix")
+        assertThat(any.single().vector).containsExactly(1.0, 2.5)
+
+        val all = repository
+            .findPageByIdContainingAll(listOf("the", "reloaded"), null, 10)
+            .collectList().block()!!
+        assertThat(ids(all)).containsExactly("The Matrix Reloaded")
+
+        assertThat(repository.countByIdContainingAny(listOf("matrix", "zilla")).block())
+            .isEqualTo(3L)
+        assertThat(repository.countByIdContainingAll(listOf("the", "reloaded")).block())
+            .isEqualTo(1L)
+        assertThat(repository.countByIdContainingAny(listOf("0%")).block())
+            .isEqualTo(1L)
+        assertThat(repository.countByIdContainingAny(listOf("_")).block())
+            .isEqualTo(0L)
+    }
+
+    @Test
+    fun `titles are read without their vectors`() {
+        val titles = repository
+            .findTitlesContainingAny(listOf("matrix"))
+            .map { it.id }
+            .collectList().block()
+        assertThat(titles).containsExactly("The Matrix", "The Matrix Reloaded")
+
+        val derived = repository
+            .findTitlesByIdContainingIgnoreCaseOrderByIdAsc("GOD")
+            .map { it.id }
+            .collectList().block()
+        assertThat(derived).containsExactly("Godzilla")
+    }
+}
@@ -10,6 +10,7 @@ import java.util.Comparator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class defines implementation methods that are called by the
@@ -65,6 +66,9 @@ public class TimerService {
                      / (timing.invocationCount.get()));
         }
 
+        // Record the reactive statistics, if any.
+        timing.recordElements(timer);
+
         return timer;
     }
 
@@ -108,7 +112,9 @@ public class TimerService {
                      .append(entry.getValue())
                      .append(" executed in an average of ")
                      .append(entry.getKey().averageTime)
-                     .append(" msecs\n"));
+                     .append(" msecs")
+                     .append(entry.getKey().elementsSummary())
+                     .append("\n"));
 
         // Convert stringBuffer to a String and return it.
         var results = stringBuffer.toString();
@@ -139,6 +145,22 @@ public class TimerService {
          */
         final AtomicLong invocationCount;
 
+        /**
+         * The total time in microseconds from subscription to the
+         * first element for reactive results.
+         */
+        final LongAdder firstElementTime = new LongAdder();
+
+        /**
+         * The number of reactive results that emitted an element.
+         */
+        final LongAdder firstElementCount = new LongAdder();
+
+        /**
+         * The total number of elements emitted by reactive results.
+         */
+        final LongAdder elementCount = new LongAdder();
+
         /**
          * Constructor initializes the fields.
          */
@@ -147,6 +169,40 @@ public class TimerService {
             this.invocationCount = new AtomicLong(1);
         }
 
+        /**
+         * Record the time-to-first-element and element count of the
+         * reactive result timed by {@code timer}.
+         *
+         * @param timer A {@link Timer} instance
+         */
+        void recordElements(Timer timer) {
+            if (timer.firstElementTime != 0) {
+                firstElementTime
+                    .add((timer.firstElementTime - timer.startTime)
+                         / 1_000);
+                firstElementCount.increment();
+            }
+            elementCount.add(timer.elementCount);
+        }
+
+        /**
+         * @return A {@link String} summarizing the time-to-first-element
+         *         and element counts, or an empty {@link String} if
+         *         no elements were recorded
+         */
+        String elementsSummary() {
+            long results = firstElementCount.sum();
+            if (results == 0)
+                return "";
+
+            return String
+                .format(" (first element after an average of %.3f msecs,"
+                        + " %.1f elements on average)",
+                        firstElementTime.sum() / 1_000.0 / results,
+                        (double) elementCount.sum()
+                        / invocationCount.get());
+        }
+
         /**
          * Compares this {@link Timing} with the specified {@link
          * Timing} for order using the {@code averageTime()} method.
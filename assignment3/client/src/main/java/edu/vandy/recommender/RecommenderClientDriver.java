@@ -1,6 +1,8 @@
 package edu.vandy.recommender;
 
+import edu.vandy.recommender.client.LoadGeneratorProperties;
 import edu.vandy.recommender.client.RecommenderAsyncClient;
+import edu.vandy.recommender.client.RecommenderLoadClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
@@ -20,6 +22,19 @@ public class RecommenderClientDriver
     @Autowired
     private RecommenderAsyncClient testAsyncClient;
 
+    /**
+     * This object connects {@link RecommenderClientDriver} to the
+     * {@code RecommenderLoadClient}.
+     */
+    @Autowired
+    private RecommenderLoadClient loadClient;
+
+    /**
+     * The properties that select and configure load generation.
+     */
+    @Autowired
+    private LoadGeneratorProperties loadProperties;
+
     /**
      * The main entry point into the Spring applicaition.
      */
@@ -31,10 +46,20 @@ public class RecommenderClientDriver
     /**
      * Spring Boot automatically calls this method after the
      * application context has been loaded to exercise the
-     * recommender-server microservices.
+     * recommender-server microservices.  If "app.load.enabled" is
+     * true it generates load instead of running the tests.
      */
     @Override
     public void run(String... args) {
+        if (loadProperties.isEnabled()) {
+            System.out.println("Entering the RecommenderClientDriver load");
+
+            loadClient.runLoad();
+
+            System.out.println("Leaving the RecommenderClientDriver load");
+            System.exit(0);
+        }
+
         System.out.println("Entering the RecommenderClientDriver tests");
 
         testAsyncClient.runTests("parallelflux");
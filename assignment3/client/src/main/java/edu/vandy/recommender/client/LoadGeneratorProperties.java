@@ -0,0 +1,197 @@
+package edu.vandy.recommender.client;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * This class contains the "app.load" properties that configure the
+ * load-generation mode of the {@code RecommenderClientDriver}.
+ *
+ * When {@code rps} is 0 the {@link RecommenderLoadClient} runs a
+ * closed loop, i.e., {@code concurrency} workers each issue their
+ * next request as soon as the previous one completes.  Otherwise it
+ * runs an open loop that issues {@code rps} requests per second
+ * regardless of how quickly the servers respond, which is the only
+ * way to observe latency as an arriving user would.
+ */
+@Component
+@ConfigurationProperties("app.load")
+public class LoadGeneratorProperties {
+    /**
+     * True if the driver should generate load rather than run the
+     * correctness tests.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The implementation strategy to load (e.g., "parallelflux").
+     */
+    private String strategy = "parallelflux";
+
+    /**
+     * True if the "timed" variants of the endpoints should be used.
+     */
+    private boolean timed = false;
+
+    /**
+     * The number of closed-loop workers or, in open-loop mode, the
+     * maximum number of requests that may be outstanding at once.
+     */
+    private int concurrency = 16;
+
+    /**
+     * The target requests per second (0 selects a closed loop).
+     */
+    private int rps = 0;
+
+    /**
+     * The interval a closed-loop worker is expected to wait between
+     * requests, which is used to correct for coordinated omission
+     * (0 disables the correction).
+     */
+    private Duration expectedInterval = Duration.ZERO;
+
+    /**
+     * How long to generate load before recording any latencies.
+     */
+    private Duration warmup = Duration.ofSeconds(10);
+
+    /**
+     * How long to generate load while recording latencies.
+     */
+    private Duration duration = Duration.ofSeconds(30);
+
+    /**
+     * The upper limit for the number of recommendations returned.
+     */
+    private int maxCount = 25;
+
+    /**
+     * The relative weights of each operation in the request mix.
+     */
+    private final Mix mix = new Mix();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(String strategy) {
+        this.strategy = strategy;
+    }
+
+    public boolean isTimed() {
+        return timed;
+    }
+
+    public void setTimed(boolean timed) {
+        this.timed = timed;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public void setConcurrency(int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    public int getRps() {
+        return rps;
+    }
+
+    public void setRps(int rps) {
+        this.rps = rps;
+    }
+
+    public Duration getExpectedInterval() {
+        return expectedInterval;
+    }
+
+    public void setExpectedInterval(Duration expectedInterval) {
+        this.expectedInterval = expectedInterval;
+    }
+
+    public Duration getWarmup() {
+        return warmup;
+    }
+
+    public void setWarmup(Duration warmup) {
+        this.warmup = warmup;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+    public void setDuration(Duration duration) {
+        this.duration = duration;
+    }
+
+    public int getMaxCount() {
+        return maxCount;
+    }
+
+    public void setMaxCount(int maxCount) {
+        this.maxCount = maxCount;
+    }
+
+    public Mix getMix() {
+        return mix;
+    }
+
+    /**
+     * The relative weights of the operations in the request mix,
+     * e.g., a weight of 0 removes an operation from the mix.
+     */
+    public static class Mix {
+        private int allMovies = 1;
+
+        private int search = 3;
+
+        private int recommendation = 4;
+
+        private int recommendations = 2;
+
+        public int getAllMovies() {
+            return allMovies;
+        }
+
+        public void setAllMovies(int allMovies) {
+            this.allMovies = allMovies;
+        }
+
+        public int getSearch() {
+            return search;
+        }
+
+        public void setSearch(int search) {
+            this.search = search;
+        }
+
+        public int getRecommendation() {
+            return recommendation;
+        }
+
+        public void setRecommendation(int recommendation) {
+            this.recommendation = recommendation;
+        }
+
+        public int getRecommendations() {
+            return recommendations;
+        }
+
+        public void setRecommendations(int recommendations) {
+            this.recommendations = recommendations;
+        }
+    }
+}
@@ -3,6 +3,8 @@ package edu.vandy.recommender.client;
 import edu.vandy.recommender.client.proxies.RecommenderAsyncProxy;
 import edu.vandy.recommender.client.proxies.TimerSyncProxy;
 import edu.vandy.recommender.common.MovieTestCheckers;
+import edu.vandy.recommender.common.RunTimer;
+import edu.vandy.recommender.common.autoconfigure.RunTimerProperties;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.stereotype.Component;
@@ -32,6 +34,12 @@ import static edu.vandy.recommender.common.MovieTestCheckers.checkResults;
 @Component
 @ComponentScan("edu.vandy.recommender")
 public class RecommenderAsyncClient {
+    /**
+     * The time allowed for a flushed batch to be recorded by the
+     * 'timer' microservice.
+     */
+    private static final long FLUSH_MARGIN_MILLIS = 500;
+
     /**
      * This auto-wired field contains a {@link Map} of all the movies.
      */
@@ -54,6 +62,15 @@ public class RecommenderAsyncClient {
     @Autowired
     private TimerSyncProxy mTimerSyncProxy;
 
+    /**
+     * The properties shared with the {@link RunTimer} of each
+     * microservice, whose "app.timer.flush-interval" bounds how long
+     * a timing stays buffered before it's sent to the 'timer'
+     * microservice.
+     */
+    @Autowired
+    private RunTimerProperties mRunTimerProperties;
+
     public void testGetMoviesSize(String strategy, boolean timed) {
         StepVerifier
             .create(mRecommenderAsyncProxy
@@ -173,9 +190,20 @@ public class RecommenderAsyncClient {
     }
 
     /**
-     * Print the timing results.
+     * Print the timing results.  The microservices send their
+     * timings in the background, so this method first waits one
+     * flush interval (plus a small margin) for the timings of the
+     * last tests to reach the 'timer' microservice.
      */
     public void printTestResults() {
+        try {
+            Thread.sleep(mRunTimerProperties
+                         .getFlushInterval()
+                         .plusMillis(FLUSH_MARGIN_MILLIS));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
         var timings = mTimerSyncProxy
             .getTimings();
 
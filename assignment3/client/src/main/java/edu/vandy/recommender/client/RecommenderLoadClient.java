@@ -0,0 +1,390 @@
+package edu.vandy.recommender.client;
+
+import edu.vandy.recommender.client.proxies.RecommenderAsyncProxy;
+import edu.vandy.recommender.common.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * This client generates load against the {@code GatewayApplication}
+ * and the recommender microservices it encapsulates and reports
+ * latency percentiles and throughput for each operation.
+ *
+ * It supports two modes, which are selected via {@link
+ * LoadGeneratorProperties}:
+ *
+ * <ul>
+ *   <li>A closed loop, where a fixed number of workers (each running
+ *   in its own Java virtual thread) issue a new request as soon as
+ *   the previous one completes.  This mode measures the capacity of
+ *   the fleet.</li>
+ *
+ *   <li>An open loop, where requests are issued at a fixed rate
+ *   regardless of how the servers respond.  Each latency is measured
+ *   from the time the request was <em>supposed</em> to be sent, so
+ *   stalls that delay subsequent requests are charged to those
+ *   requests rather than silently omitted (i.e., the results are
+ *   corrected for "coordinated omission").</li>
+ * </ul>
+ */
+@Component
+public class RecommenderLoadClient {
+    /**
+     * The operations in the request mix.
+     */
+    enum Operation {
+        ALL_MOVIES,
+        SEARCH,
+        RECOMMENDATION,
+        RECOMMENDATIONS
+    }
+
+    /**
+     * This auto-wired field contains a {@link Map} of all the movies,
+     * which is used to choose realistic queries.
+     */
+    @Autowired
+    Map<String, List<Double>> mMovies;
+
+    /**
+     * This auto-wired field connects the {@link
+     * RecommenderLoadClient} to the {@link RecommenderAsyncProxy}
+     * that performs HTTP requests asynchronously.
+     */
+    @Autowired
+    private RecommenderAsyncProxy mRecommenderAsyncProxy;
+
+    /**
+     * The properties that configure the generated load.
+     */
+    @Autowired
+    private LoadGeneratorProperties mProperties;
+
+    /**
+     * The movie titles used to build queries.
+     */
+    private List<String> mTitles;
+
+    /**
+     * The latency histogram for each {@link Operation}.
+     */
+    private final Map<Operation, LatencyHistogram> mHistograms =
+        new EnumMap<>(Operation.class);
+
+    /**
+     * The number of failed requests for each {@link Operation}.
+     */
+    private final Map<Operation, LongAdder> mErrors =
+        new EnumMap<>(Operation.class);
+
+    /**
+     * The number of requests for each {@link Operation} that were
+     * issued during the measurement window and succeeded, which can
+     * be lower than the histogram count when coordinated omission is
+     * corrected.
+     */
+    private final Map<Operation, LongAdder> mRequests =
+        new EnumMap<>(Operation.class);
+
+    /**
+     * Generate the configured load and then print the results.
+     */
+    public void runLoad() {
+        // Initialize the per-operation statistics.
+        Stream
+            .of(Operation.values())
+            .forEach(operation -> {
+                    mHistograms.put(operation, new LatencyHistogram());
+                    mErrors.put(operation, new LongAdder());
+                    mRequests.put(operation, new LongAdder());
+                });
+
+        mTitles = new ArrayList<>(mMovies.keySet());
+
+        long warmupNanos = mProperties.getWarmup().toNanos();
+        long durationNanos = mProperties.getDuration().toNanos();
+
+        // Latencies are only recorded for requests that are (or
+        // should have been) issued between these two times.
+        long start = System.nanoTime();
+        long measureStart = start + warmupNanos;
+        long measureEnd = measureStart + durationNanos;
+
+        System.out.println("Generating "
+                           + (mProperties.getRps() > 0
+                              ? mProperties.getRps() + " requests/sec"
+                              : mProperties.getConcurrency() + " concurrent workers")
+                           + " against \""
+                           + mProperties.getStrategy()
+                           + "\" for "
+                           + mProperties.getDuration()
+                           + " after a "
+                           + mProperties.getWarmup()
+                           + " warmup");
+
+        if (mProperties.getRps() > 0)
+            runOpenLoop(start, measureStart, measureEnd);
+        else
+            runClosedLoop(measureStart, measureEnd);
+
+        // Compute throughput over the time actually spent measuring,
+        // which includes waiting for the last requests to complete.
+        printLoadResults(System.nanoTime() - measureStart);
+    }
+
+    /**
+     * Issue requests at a fixed rate until {@code measureEnd}.
+     *
+     * @param start The time the load started
+     * @param measureStart The time latencies start being recorded
+     * @param measureEnd The time load generation stops
+     */
+    private void runOpenLoop(long start,
+                             long measureStart,
+                             long measureEnd) {
+        long intervalNanos = 1_000_000_000L / mProperties.getRps();
+
+        // Bound the number of outstanding requests so an overloaded
+        // fleet can't exhaust the client.  Since latency is measured
+        // from the intended start time, waiting here is still
+        // charged to the requests that were delayed.
+        var permits = new Semaphore(mProperties.getConcurrency());
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long intended = start;
+                 intended < measureEnd;
+                 intended += intervalNanos) {
+                // Wait until this request is due.
+                for (long delay = intended - System.nanoTime();
+                     delay > 0;
+                     delay = intended - System.nanoTime())
+                    LockSupport.parkNanos(delay);
+
+                permits.acquireUninterruptibly();
+
+                long intendedStart = intended;
+                boolean measured = intended >= measureStart;
+
+                executor.execute(() -> {
+                        try {
+                            execute(chooseOperation(),
+                                    intendedStart,
+                                    measured,
+                                    0L);
+                        } finally {
+                            permits.release();
+                        }
+                    });
+            }
+        }
+    }
+
+    /**
+     * Issue requests from {@code concurrency} workers, each of
+     * which sends its next request as soon as the previous one
+     * completes, until {@code measureEnd}.
+     *
+     * @param measureStart The time latencies start being recorded
+     * @param measureEnd The time load generation stops
+     */
+    private void runClosedLoop(long measureStart,
+                               long measureEnd) {
+        long expectedIntervalMicros = mProperties
+            .getExpectedInterval()
+            .toNanos() / 1_000L;
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < mProperties.getConcurrency(); i++)
+                executor.execute(() -> {
+                        for (long now = System.nanoTime();
+                             now < measureEnd;
+                             now = System.nanoTime())
+                            execute(chooseOperation(),
+                                    now,
+                                    now >= measureStart,
+                                    expectedIntervalMicros);
+                    });
+        }
+    }
+
+    /**
+     * Perform a single {@code operation} and record its latency if
+     * it succeeds or count it as an error if it fails.
+     *
+     * @param operation The {@link Operation} to perform
+     * @param intendedStart The time the request should have started
+     * @param measured True if the latency should be recorded
+     * @param expectedIntervalMicros The expected interval between
+     *                               requests used to correct for
+     *                               coordinated omission (0 if none)
+     */
+    private void execute(Operation operation,
+                         long intendedStart,
+                         boolean measured,
+                         long expectedIntervalMicros) {
+        try {
+            // Block the calling virtual thread until the whole
+            // response has been received.
+            switch (operation) {
+                case ALL_MOVIES -> mRecommenderAsyncProxy
+                    .getMovies(mProperties.getStrategy(),
+                               mProperties.isTimed())
+                    .blockLast();
+                case SEARCH -> mRecommenderAsyncProxy
+                    .search(mProperties.getStrategy(),
+                            randomWord(),
+                            mProperties.isTimed())
+                    .blockLast();
+                case RECOMMENDATION -> mRecommenderAsyncProxy
+                    .getRecommendations(mProperties.getStrategy(),
+                                        randomTitle(),
+                                        mProperties.getMaxCount(),
+                                        mProperties.isTimed())
+                    .blockLast();
+                case RECOMMENDATIONS -> mRecommenderAsyncProxy
+                    .getRecommendations(mProperties.getStrategy(),
+                                        List.of(randomTitle(),
+                                                randomTitle(),
+                                                randomTitle(),
+                                                randomTitle()),
+                                        mProperties.getMaxCount(),
+                                        mProperties.isTimed())
+                    .blockLast();
+            }
+        } catch (Exception exception) {
+            // Keep failures out of the latencies, since a request
+            // that fails fast would make the fleet look faster.
+            if (measured)
+                mErrors.get(operation).increment();
+            return;
+        }
+
+        if (measured) {
+            mRequests.get(operation).increment();
+
+            // Record the latency from the intended start time.
+            mHistograms
+                .get(operation)
+                .recordWithExpectedInterval((System.nanoTime()
+                                             - intendedStart) / 1_000L,
+                                            expectedIntervalMicros);
+        }
+    }
+
+    /**
+     * @return An {@link Operation} chosen at random according to the
+     *         configured mix
+     */
+    private Operation chooseOperation() {
+        var mix = mProperties.getMix();
+        int[] weights = {
+            mix.getAllMovies(),
+            mix.getSearch(),
+            mix.getRecommendation(),
+            mix.getRecommendations()
+        };
+
+        int total = 0;
+        for (int weight : weights)
+            total += Math.max(0, weight);
+
+        if (total == 0)
+            throw new IllegalStateException("app.load.mix has no weights");
+
+        int choice = ThreadLocalRandom.current().nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            choice -= Math.max(0, weights[i]);
+            if (choice < 0)
+                return Operation.values()[i];
+        }
+
+        return Operation.RECOMMENDATION;
+    }
+
+    /**
+     * @return A random movie title
+     */
+    private String randomTitle() {
+        return mTitles
+            .get(ThreadLocalRandom.current().nextInt(mTitles.size()));
+    }
+
+    /**
+     * @return A random word from a random movie title
+     */
+    private String randomWord() {
+        var words = randomTitle().split("\\s+");
+        return words[ThreadLocalRandom.current().nextInt(words.length)];
+    }
+
+    /**
+     * Print the latency percentiles and throughput of each
+     * operation and of all operations combined.  Only successful
+     * requests are counted in these statistics, and failed requests
+     * are reported in a separate column.
+     *
+     * @param elapsedNanos The time from the start of the measurement
+     *                     window until the last request completed
+     */
+    private void printLoadResults(long elapsedNanos) {
+        double seconds = Math.max(1L, elapsedNanos) / 1_000_000_000.0;
+        var total = LatencyHistogram.Snapshot.empty();
+        long totalRequests = 0;
+        long totalErrors = 0;
+
+        System.out.println("The load results (latencies in msecs) are:");
+        System.out.printf("%-16s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                          "operation", "count", "errors", "req/sec",
+                          "mean", "p50", "p99", "p99.9", "max");
+
+        for (var operation : Operation.values()) {
+            var snapshot = mHistograms.get(operation).snapshot();
+            long requests = mRequests.get(operation).sum();
+            long errors = mErrors.get(operation).sum();
+
+            printLine(operation.name(), snapshot, requests, errors, seconds);
+
+            total = total.merge(snapshot);
+            totalRequests += requests;
+            totalErrors += errors;
+        }
+
+        printLine("TOTAL", total, totalRequests, totalErrors, seconds);
+
+        System.out.println("The server-side stages (latencies in msecs) are:");
+        System.out.printf("%-16s %9s %9s %9s %9s %9s%n",
+                          "stage", "count", "mean", "p50", "p99", "max");
+        System.out.print(mRecommenderAsyncProxy.getServerTimings());
+    }
+
+    /**
+     * Print one line of the results table.
+     */
+    private static void printLine(String name,
+                                  LatencyHistogram.Snapshot snapshot,
+                                  long requests,
+                                  long errors,
+                                  double seconds) {
+        System.out.printf("%-16s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                          name,
+                          requests,
+                          errors,
+                          requests / seconds,
+                          snapshot.mean() / 1_000.0,
+                          snapshot.percentile(50.0) / 1_000.0,
+                          snapshot.percentile(99.0) / 1_000.0,
+                          snapshot.percentile(99.9) / 1_000.0,
+                          snapshot.max() / 1_000.0);
+    }
+}
@@ -1,17 +1,19 @@
 package edu.vandy.recommender.client.proxies;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MoviePage;
 import retrofit2.Call;
 import retrofit2.http.Body;
 import retrofit2.http.GET;
 import retrofit2.http.POST;
 import retrofit2.http.Path;
+import retrofit2.http.Query;
 
 import java.util.List;
 import java.util.Map;
 
 import static edu.vandy.recommender.common.Constants.EndPoint.*;
-import static edu.vandy.recommender.common.Constants.Params.ROUTE_NAME;
+import static edu.vandy.recommender.common.Constants.Params.*;
 
 /**
  * This interface provides the contract for the RESTful {@code
@@ -193,4 +195,155 @@ public interface DatabaseAPI {
      *         failure
      */
     // TODO -- you fill in here.
+
+    /**
+     * Get a {@link List} containing the titles of the {@link Movie}
+     * objects that match the {@code query}.  Only the title column
+     * is read and transmitted, so each {@link Movie} has a null
+     * vector.
+     *
+     * @param routename The microservice that performs the request,
+     *                  which is dynamically inserted into the URI via
+     *                  the {@code Path} annotation
+     * @param query The {@link String} to search for
+     * @return A {@link Call} object that yields a {@link List}
+     *         containing the {@link Movie} titles on success and an
+     *         error message on failure
+     */
+    @GET(ROUTE_NAME + "/" + GET_SEARCH_TITLES + "/" + SEARCH_QUERY)
+    Call<List<Movie>> searchMovieTitles(@Path("routename") String routename,
+                                        @Path(PATH_QUERY) String query);
+
+    /**
+     * Search for the titles of movies containing any given {@link
+     * List} of {@code queries}.  Only the title column is read and
+     * transmitted, so each {@link Movie} has a null vector.
+     *
+     * @param routename The microservice that performs the request,
+     *                  which is dynamically inserted into the URI via
+     *                  the {@code Path} annotation
+     * @param queries The {@link List} of {@code queries} to search
+     *                for, which is passed in the body of the {@code
+     *                POST} request
+     * @return A {@link Call} object that yields a {@link List}
+     *         containing the {@link Movie} titles that match any
+     *         {@code queries} on success and an error message on
+     *         failure
+     */
+    @POST(ROUTE_NAME + "/" + POST_SEARCHES_TITLES)
+    Call<List<Movie>> searchMovieTitles(@Path("routename") String routename,
+                                        @Body List<String> queries);
+
+    /**
+     * Search for the titles of movies containing all given {@link
+     * List} of {@code queries}.  Only the title column is read and
+     * transmitted, so each {@link Movie} has a null vector.
+     *
+     * @param routename The microservice that performs the request,
+     *                  which is dynamically inserted into the URI via
+     *                  the {@code Path} annotation
+     * @param queries The {@link List} of {@code queries} to search
+     *                for, which is passed in the body of the {@code
+     *                POST} request
+     * @return A {@link Call} object that yields a {@link List}
+     *         containing the {@link Movie} titles that match all
+     *         {@code queries} on success and an error message on
+     *         failure
+     */
+    @POST(ROUTE_NAME + "/" + POST_SEARCHES_EX_TITLES)
+    Call<List<Movie>> searchMovieTitlesEx(@Path("routename") String routename,
+                                          @Body List<String> queries);
+
+    /**
+     * Get one page of all the movies sorted by title.
+     *
+     * @param routename The microservice that performs the request,
+     *                  which is dynamically inserted into the URI via
+     *                  the {@code Path} annotation
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              server's default
+     * @param count True if the total number of movies is requested
+     * @return A {@link Call} object that yields the {@link MoviePage}
+     *         on success and an error message on failure
+     */
+    @GET(ROUTE_NAME + "/" + GET_ALL_MOVIES_PAGE)
+    Call<MoviePage> getMoviesPage(@Path("routename") String routename,
+                                  @Query(AFTER_PARAM) String after,
+                                  @Query(LIMIT_PARAM) Integer limit,
+                                  @Query(COUNT_PARAM) boolean count);
+
+    /**
+     * Get one page of the movies whose title contains the given
+     * query {@link String}.
+     *
+     * @param routename The microservice that performs the request,
+     *                  which is dynamically inserted into the URI via
+     *                  the {@code Path} annotation
+     * @param query The search query
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              server's default
+     * @param count True if the total number of matches is requested
+     * @return A {@link Call} object that yields the {@link MoviePage}
+     *         on success and an error message on failure
+     */
+    @GET(ROUTE_NAME + "/" + GET_SEARCH_PAGE + "/" + SEARCH_QUERY)
+    Call<MoviePage> searchMoviesPage(@Path("routename") String routename,
+                                     @Path(PATH_QUERY) String query,
+                                     @Query(AFTER_PARAM) String after,
+                                     @Query(LIMIT_PARAM) Integer limit,
+                                     @Query(COUNT_PARAM) boolean count);
+
+    /**
+     * Get one page of the movies whose title contains any given
+     * {@link List} of queries.
+     *
+     * @param routename The microservice that performs the request,
+     *                  which is dynamically inserted into the URI via
+     *                  the {@code Path} annotation
+     * @param queries The {@link List} of {@code queries} to search
+     *                for, which is passed in the body of the {@code
+     *                POST} request
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              server's default
+     * @param count True if the total number of matches is requested
+     * @return A {@link Call} object that yields the {@link MoviePage}
+     *         on success and an error message on failure
+     */
+    @POST(ROUTE_NAME + "/" + POST_SEARCHES_PAGE)
+    Call<MoviePage> searchMoviesPage(@Path("routename") String routename,
+                                     @Body List<String> queries,
+                                     @Query(AFTER_PARAM) String after,
+                                     @Query(LIMIT_PARAM) Integer limit,
+                                     @Query(COUNT_PARAM) boolean count);
+
+    /**
+     * Get one page of the movies whose title contains all given
+     * {@link List} of queries.
+     *
+     * @param routename The microservice that performs the request,
+     *                  which is dynamically inserted into the URI via
+     *                  the {@code Path} annotation
+     * @param queries The {@link List} of {@code queries} to search
+     *                for, which is passed in the body of the {@code
+     *                POST} request
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              server's default
+     * @param count True if the total number of matches is requested
+     * @return A {@link Call} object that yields the {@link MoviePage}
+     *         on success and an error message on failure
+     */
+    @POST(ROUTE_NAME + "/" + POST_SEARCHES_EX_PAGE)
+    Call<MoviePage> searchMoviesExPage(@Path("routename") String routename,
+                                       @Body List<String> queries,
+                                       @Query(AFTER_PARAM) String after,
+                                       @Query(LIMIT_PARAM) Integer limit,
+                                       @Query(COUNT_PARAM) boolean count);
 }
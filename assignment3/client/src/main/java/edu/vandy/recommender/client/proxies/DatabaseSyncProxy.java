@@ -1,14 +1,20 @@
 package edu.vandy.recommender.client.proxies;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MoviePage;
 import edu.vandy.recommender.utils.CallUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.stereotype.Component;
+import retrofit2.Call;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * This class is a proxy to the {@code Database} microservice.
@@ -215,6 +221,173 @@ public class DatabaseSyncProxy {
 
         return null;
     }
-}
 
+    /**
+     * Search for the titles of the movies in the database containing
+     * the given query {@link String} on success or throws {@link
+     * IOException} on failure.  The vectors aren't read or
+     * transmitted, so each {@link Movie} has a null vector.
+     *
+     * @param route The microservice that performs the request
+     * @param query The {@link String} to search for
+     * @return A {@link List} containing the {@link Movie} titles that
+     *         match the {@code query} on success
+     */
+    public List<Movie> searchMovieTitles(String route,
+                                         String query) {
+        return CallUtils
+            .executeCall(mDatabaseAPI
+                         .searchMovieTitles(route, query));
+    }
+
+    /**
+     * Search for the titles of the movies in the database containing
+     * any given {@link List} of queries on success or throws {@link
+     * IOException} on failure.  The vectors aren't read or
+     * transmitted, so each {@link Movie} has a null vector.
+     *
+     * @param route The microservice that performs the request
+     * @param queries The {@link List} queries to search for
+     * @return A {@link List} containing the {@link Movie} titles that
+     *         match any {@code queries} on success
+     */
+    public List<Movie> searchMovieTitles(String route,
+                                         List<String> queries) {
+        return CallUtils
+            .executeCall(mDatabaseAPI
+                         .searchMovieTitles(route, queries));
+    }
+
+    /**
+     * Search for the titles of the movies in the database containing
+     * all given {@link List} of queries on success or throws {@link
+     * IOException} on failure.  The vectors aren't read or
+     * transmitted, so each {@link Movie} has a null vector.
+     *
+     * @param route The microservice that performs the request
+     * @param queries The {@link List} queries to search for
+     * @return A {@link List} containing the {@link Movie} titles that
+     *         match all {@code queries} on success
+     */
+    public List<Movie> searchMovieTitlesEx(String route,
+                                           List<String> queries) {
+        return CallUtils
+            .executeCall(mDatabaseAPI
+                         .searchMovieTitlesEx(route, queries));
+    }
+
+    /**
+     * Pass each page of all the movies sorted by title to the {@code
+     * consumer}.  The next page is requested while the current page
+     * is being consumed, so the round trip overlaps with the work.
+     *
+     * @param route The microservice that performs the request
+     * @param limit The number of movies per page, or null for the
+     *              server's default
+     * @param consumer Consumes the {@link Movie} objects of each page
+     */
+    public void forEachMoviesPage(String route,
+                                  Integer limit,
+                                  Consumer<List<Movie>> consumer) {
+        forEachPage(after -> mDatabaseAPI
+                    .getMoviesPage(route, after, limit, false),
+                    consumer);
+    }
 
+    /**
+     * Pass each page of the movies whose title contains the given
+     * query {@link String} to the {@code consumer}, requesting the
+     * next page while the current page is being consumed.
+     *
+     * @param route The microservice that performs the request
+     * @param query The {@link String} to search for
+     * @param limit The number of movies per page, or null for the
+     *              server's default
+     * @param consumer Consumes the {@link Movie} objects of each page
+     */
+    public void forEachSearchPage(String route,
+                                  String query,
+                                  Integer limit,
+                                  Consumer<List<Movie>> consumer) {
+        forEachPage(after -> mDatabaseAPI
+                    .searchMoviesPage(route, query, after, limit, false),
+                    consumer);
+    }
+
+    /**
+     * Pass each page of the movies whose title contains any given
+     * {@link List} of queries to the {@code consumer}, requesting the
+     * next page while the current page is being consumed.
+     *
+     * @param route The microservice that performs the request
+     * @param queries The {@link List} queries to search for
+     * @param limit The number of movies per page, or null for the
+     *              server's default
+     * @param consumer Consumes the {@link Movie} objects of each page
+     */
+    public void forEachSearchesPage(String route,
+                                    List<String> queries,
+                                    Integer limit,
+                                    Consumer<List<Movie>> consumer) {
+        forEachPage(after -> mDatabaseAPI
+                    .searchMoviesPage(route, queries, after, limit, false),
+                    consumer);
+    }
+
+    /**
+     * Pass each page of the movies whose title contains all given
+     * {@link List} of queries to the {@code consumer}, requesting the
+     * next page while the current page is being consumed.
+     *
+     * @param route The microservice that performs the request
+     * @param queries The {@link List} queries to search for
+     * @param limit The number of movies per page, or null for the
+     *              server's default
+     * @param consumer Consumes the {@link Movie} objects of each page
+     */
+    public void forEachSearchesExPage(String route,
+                                      List<String> queries,
+                                      Integer limit,
+                                      Consumer<List<Movie>> consumer) {
+        forEachPage(after -> mDatabaseAPI
+                    .searchMoviesExPage(route, queries, after, limit, false),
+                    consumer);
+    }
+
+    /**
+     * Follow the {@link MoviePage#next} cursors from the first page
+     * to the last one.  Since each page needs the cursor of the
+     * previous one the pages can't be requested in parallel, but the
+     * next page is requested on a virtual thread before the current
+     * one is passed to the {@code consumer}.
+     *
+     * @param pageCall Makes the {@link Call} for the page after the
+     *                 given cursor (null for the first page)
+     * @param consumer Consumes the {@link Movie} objects of each page
+     * @throws java.util.concurrent.CompletionException If a request
+     *         fails, wrapping its {@link IOException}
+     */
+    private static void forEachPage(Function<String, Call<MoviePage>> pageCall,
+                                    Consumer<List<Movie>> consumer) {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var next = CompletableFuture
+                .supplyAsync(() -> CallUtils
+                             .executeCall(pageCall.apply(null)),
+                             executor);
+
+            while (next != null) {
+                var page = next.join();
+
+                // Request the next page before consuming this one.
+                next = page.next == null
+                    ? null
+                    : CompletableFuture
+                    .supplyAsync(() -> CallUtils
+                                 .executeCall(pageCall.apply(page.next)),
+                                 executor);
+
+                consumer.accept(page.movies);
+            }
+        }
+    }
+}
@@ -23,6 +23,22 @@ public class RecommenderAsyncProxy {
     @Autowired
     ParallelFluxAPI mParallelFluxAPI;
 
+    /**
+     * This auto-wired field records the "Server-Timing" headers
+     * returned by the {@link ParallelFluxAPI} {@code WebClient}.
+     */
+    @Autowired
+    ServerTimings mServerTimings;
+
+    /**
+     * @return A {@link String} containing the per-stage durations
+     *         reported by the microservices via their "Server-Timing"
+     *         headers
+     */
+    public String getServerTimings() {
+        return mServerTimings.getReport();
+    }
+
     /**
      * Return a {@link List} of all movie titles.
      *
@@ -0,0 +1,137 @@
+package edu.vandy.recommender.client.proxies;
+
+import edu.vandy.recommender.common.LatencyHistogram;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This {@link ExchangeFilterFunction} captures the "Server-Timing"
+ * headers returned by the microservices (when they're enabled via
+ * the "app.server-timing.enabled" property) and records each stage's
+ * duration in a {@link LatencyHistogram}, which shows where the
+ * server-side time of the requests issued by a {@link WebClient} was
+ * spent.  As a {@link WebClientCustomizer} it's added to every
+ * {@link WebClient.Builder} that Spring injects, and it can be added
+ * to other builders via their {@code filter()} method.
+ */
+@Component
+public class ServerTimings
+       implements ExchangeFilterFunction, WebClientCustomizer {
+    /**
+     * The name of the W3C response header.
+     */
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    /**
+     * The parameter that contains a stage's duration in msecs.
+     */
+    private static final String DURATION = "dur=";
+
+    /**
+     * Associates each stage with its durations in microseconds.
+     */
+    private final Map<String, LatencyHistogram> mStages =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Add this filter to a {@link WebClient.Builder} injected by
+     * Spring.
+     */
+    @Override
+    public void customize(WebClient.Builder webClientBuilder) {
+        webClientBuilder.filter(this);
+    }
+
+    /**
+     * Record the "Server-Timing" headers of each response.
+     */
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request,
+                                       ExchangeFunction next) {
+        return next
+            .exchange(request)
+            .doOnNext(response -> response
+                      .headers()
+                      .header(SERVER_TIMING)
+                      .forEach(this::record));
+    }
+
+    /**
+     * Record the durations in one "Server-Timing" header, e.g.,
+     * "load;dur=12.5, serialize;dur=0.8, total;dur=14.1".
+     *
+     * @param header The value of the header
+     */
+    void record(String header) {
+        for (String metric : header.split(",")) {
+            String[] params = metric.split(";");
+            String name = params[0].trim();
+            if (name.isEmpty())
+                continue;
+
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (!param.startsWith(DURATION))
+                    continue;
+
+                try {
+                    double msecs = Double
+                        .parseDouble(param.substring(DURATION.length()));
+                    mStages
+                        // Atomically find or create the histogram.
+                        .computeIfAbsent(name, __ -> new LatencyHistogram())
+
+                        // Record the duration in microseconds.
+                        .record(Math.round(msecs * 1_000));
+                } catch (NumberFormatException ignored) {
+                    // Skip malformed durations.
+                }
+            }
+        }
+    }
+
+    /**
+     * @return A {@link String} containing the statistics of each
+     *         stage reported by the microservices (in msecs)
+     */
+    public String getReport() {
+        if (mStages.isEmpty())
+            return "No Server-Timing headers have been received.";
+
+        StringBuilder stringBuffer =
+            new StringBuilder();
+
+        new TreeMap<>(mStages)
+            .forEach((stage, histogram) -> {
+                    var snapshot = histogram.snapshot();
+                    stringBuffer
+                        .append(String
+                                .format("%-16s %9d %9.2f %9.2f %9.2f %9.2f%n",
+                                        stage,
+                                        snapshot.count(),
+                                        snapshot.mean() / 1_000.0,
+                                        snapshot.percentile(50.0) / 1_000.0,
+                                        snapshot.percentile(99.0) / 1_000.0,
+                                        snapshot.max() / 1_000.0));
+                });
+
+        return stringBuffer.toString();
+    }
+
+    /**
+     * Clears all previously recorded durations.
+     */
+    public void clear() {
+        mStages.clear();
+    }
+}
@@ -31,6 +31,13 @@ public class Constants {
         public static final String POST_SEARCHES = "searches";
         public static final String GET_SEARCHES = "searches";
         public static final String POST_SEARCHES_EX = "searchesEx";
+        public static final String GET_SEARCH_TITLES = "searchTitles";
+        public static final String POST_SEARCHES_TITLES = "searchesTitles";
+        public static final String POST_SEARCHES_EX_TITLES = "searchesExTitles";
+        public static final String GET_ALL_MOVIES_PAGE = "allMoviesPage";
+        public static final String GET_SEARCH_PAGE = "searchPage";
+        public static final String POST_SEARCHES_PAGE = "searchesPage";
+        public static final String POST_SEARCHES_EX_PAGE = "searchesExPage";
         public static final String SEARCH_QUERY = "{query}";
         public static final String PATH_QUERY = "query";
 
@@ -44,8 +51,14 @@ public class Constants {
         * Timer microservice endpoints.
          */
         public static final String POST_TIMING = "postTiming";
+        public static final String POST_TIMINGS = "postTimings";
         public static final String CLEAR_TIMINGS = "clearTimings";
         public static final String GET_TIMINGS = "getTimings";
+        public static final String GET_WINDOWED_TIMINGS = "getWindowedTimings";
+        public static final String GET_TIMING_HISTORY = "getTimingHistory";
+        public static final String METRICS = "metrics";
+        public static final String STREAM_TIMINGS = "streamTimings";
+        public static final String GET_TRACE_BREAKDOWN = "getTraceBreakdown";
     }
 
     /**
@@ -65,9 +78,13 @@ public class Constants {
      */
     public static class Params {
         public static final String QUERIES_PARAM = "queries";
+        public static final String AFTER_PARAM = "after";
+        public static final String LIMIT_PARAM = "limit";
+        public static final String COUNT_PARAM = "count";
         public static final String WATCHED_MOVIE_PARAM = "watchedMovie";
         public static final String MAX_COUNT_PARAM = "maxCount";
         public static final String MOVIES_CACHE = "moviesCache";
+        public static final String SEARCH_CACHE = "searchCache";
         public static final String ROUTE_NAME = "{routename}";
     }
 }
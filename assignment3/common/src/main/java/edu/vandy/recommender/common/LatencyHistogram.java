@@ -0,0 +1,426 @@
+package edu.vandy.recommender.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class implements a concurrent log-linear latency histogram
+ * with microsecond resolution in the spirit of HdrHistogram.
+ *
+ * Values below {@code SUB_BUCKET_COUNT} microseconds are recorded
+ * exactly.  Larger values are grouped by their power of two (the
+ * "log" part) and then split into {@code SUB_BUCKET_COUNT} equal
+ * sub-buckets (the "linear" part), which bounds the relative error
+ * of every reported percentile to roughly 1/{@code
+ * SUB_BUCKET_COUNT}.  Recording is lock-free and wait-free: each
+ * bucket is an element of an {@link AtomicLongArray} and the count,
+ * sum, and maximum are striped via {@link LongAdder} and {@link
+ * LongAccumulator} so concurrent writers rarely contend.
+ */
+public class LatencyHistogram {
+    /**
+     * The number of bits used for the linear sub-buckets.
+     */
+    private static final int SUB_BUCKET_BITS = 4;
+
+    /**
+     * The number of linear sub-buckets per power of two.
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The largest power of two that can be tracked, i.e., values up
+     * to 2^40 microseconds (roughly 12 days) are recorded precisely
+     * and anything larger is clamped into the last bucket.
+     */
+    private static final int MAX_EXPONENT = 40;
+
+    /**
+     * The total number of buckets in each histogram.
+     */
+    static final int BUCKET_COUNT =
+        (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKET_COUNT;
+
+    /**
+     * The per-bucket counts.
+     */
+    private final AtomicLongArray mBuckets =
+        new AtomicLongArray(BUCKET_COUNT);
+
+    /**
+     * The total number of recorded values.
+     */
+    private final LongAdder mCount = new LongAdder();
+
+    /**
+     * The sum of all recorded values in microseconds.
+     */
+    private final LongAdder mSum = new LongAdder();
+
+    /**
+     * The largest recorded value in microseconds.
+     */
+    private final LongAccumulator mMax =
+        new LongAccumulator(Math::max, 0L);
+
+    /**
+     * Record a single {@code micros} value.
+     *
+     * @param micros The value to record in microseconds
+     */
+    public void record(long micros) {
+        // Negative values can only come from clock skew.
+        long value = Math.max(0L, micros);
+
+        // Increment the bucket this value falls into.
+        mBuckets.incrementAndGet(indexOf(value));
+
+        // Update the striped aggregates.
+        mCount.increment();
+        mSum.add(value);
+        mMax.accumulate(value);
+    }
+
+    /**
+     * Record a single elapsed time given in nanoseconds.
+     *
+     * @param nanos The value to record in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        record(nanos / 1_000L);
+    }
+
+    /**
+     * Record {@code micros} and correct for coordinated omission by
+     * also recording the values that would have been observed had
+     * requests been issued every {@code expectedIntervalMicros}
+     * while the slow request was outstanding.
+     *
+     * @param micros The value to record in microseconds
+     * @param expectedIntervalMicros The expected interval between
+     *                               requests in microseconds
+     */
+    public void recordWithExpectedInterval(long micros,
+                                           long expectedIntervalMicros) {
+        // Record the observed value.
+        record(micros);
+
+        // Back-fill the requests that were never sent because the
+        // caller was stalled waiting for this one.
+        if (expectedIntervalMicros > 0)
+            for (long missing = micros - expectedIntervalMicros;
+                 missing >= expectedIntervalMicros;
+                 missing -= expectedIntervalMicros)
+                record(missing);
+    }
+
+    /**
+     * Merge the contents of {@code other} into this histogram.
+     *
+     * @param other The {@link LatencyHistogram} to merge
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.mBuckets.get(i);
+            if (count != 0)
+                mBuckets.addAndGet(i, count);
+        }
+
+        mCount.add(other.mCount.sum());
+        mSum.add(other.mSum.sum());
+        mMax.accumulate(other.mMax.get());
+    }
+
+    /**
+     * Merge the contents of a {@link Snapshot} into this histogram.
+     *
+     * @param snapshot The {@link Snapshot} to merge
+     */
+    public void add(Snapshot snapshot) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = snapshot.mBuckets[i];
+            if (count != 0)
+                mBuckets.addAndGet(i, count);
+        }
+
+        mCount.add(snapshot.mCount);
+        mSum.add(snapshot.mSum);
+        mMax.accumulate(snapshot.mMax);
+    }
+
+    /**
+     * Reset this histogram.  Concurrent writers may race with a
+     * reset, in which case their values may be partially retained.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++)
+            mBuckets.set(i, 0L);
+
+        mCount.reset();
+        mSum.reset();
+        mMax.reset();
+    }
+
+    /**
+     * @return The number of values recorded so far
+     */
+    public long count() {
+        return mCount.sum();
+    }
+
+    /**
+     * @return The sum of the values recorded so far in microseconds
+     */
+    public long sum() {
+        return mSum.sum();
+    }
+
+    /**
+     * @return An immutable point-in-time {@link Snapshot} of this
+     *         histogram
+     */
+    public Snapshot snapshot() {
+        var buckets = new long[BUCKET_COUNT];
+        long count = 0;
+
+        // Copy the buckets and derive the count from them so the
+        // snapshot is internally consistent.
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = mBuckets.get(i);
+            count += buckets[i];
+        }
+
+        return new Snapshot(buckets,
+                            count,
+                            mSum.sum(),
+                            mMax.get());
+    }
+
+    /**
+     * Map a value to the index of the bucket containing it.
+     *
+     * @param value A non-negative value in microseconds
+     * @return The index of the bucket containing {@code value}
+     */
+    static int indexOf(long value) {
+        // Small values are recorded exactly.
+        if (value < SUB_BUCKET_COUNT)
+            return (int) value;
+
+        // Find the power of two and clamp it to the tracked range.
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT)
+            return BUCKET_COUNT - 1;
+
+        // Select the linear sub-bucket within that power of two.
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS))
+            & (SUB_BUCKET_COUNT - 1);
+
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT
+            + subBucket;
+    }
+
+    /**
+     * Map a bucket index to the highest value it can contain.
+     *
+     * @param index A bucket index
+     * @return The highest value in microseconds that maps to the
+     *         bucket at {@code index}
+     */
+    static long highestValueOf(int index) {
+        // Small values are recorded exactly.
+        if (index < SUB_BUCKET_COUNT)
+            return index;
+
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+
+        return ((SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS))
+            + width - 1;
+    }
+
+    /**
+     * An immutable point-in-time copy of a {@link LatencyHistogram}
+     * that answers count, mean, maximum, and percentile queries.
+     */
+    public static class Snapshot {
+        /**
+         * The per-bucket counts.
+         */
+        private final long[] mBuckets;
+
+        /**
+         * The total number of recorded values.
+         */
+        private final long mCount;
+
+        /**
+         * The sum of all recorded values in microseconds.
+         */
+        private final long mSum;
+
+        /**
+         * The largest recorded value in microseconds.
+         */
+        private final long mMax;
+
+        /**
+         * Constructor initializes the fields.
+         */
+        Snapshot(long[] buckets, long count, long sum, long max) {
+            mBuckets = buckets;
+            mCount = count;
+            mSum = sum;
+            mMax = max;
+        }
+
+        /**
+         * @return An empty {@link Snapshot}
+         */
+        public static Snapshot empty() {
+            return new Snapshot(new long[BUCKET_COUNT], 0, 0, 0);
+        }
+
+        /**
+         * @return The number of recorded values
+         */
+        public long count() {
+            return mCount;
+        }
+
+        /**
+         * @return The sum of all recorded values in microseconds
+         */
+        public long sum() {
+            return mSum;
+        }
+
+        /**
+         * @return The largest recorded value in microseconds
+         */
+        public long max() {
+            return mMax;
+        }
+
+        /**
+         * @return The arithmetic mean of all recorded values in
+         *         microseconds
+         */
+        public double mean() {
+            return mCount == 0 ? 0.0 : (double) mSum / mCount;
+        }
+
+        /**
+         * Return the value at the given {@code percentile}.
+         *
+         * @param percentile A percentile between 0.0 and 100.0
+         * @return The highest value in microseconds that is
+         *         equivalent to the value at {@code percentile}
+         */
+        public long percentile(double percentile) {
+            if (mCount == 0)
+                return 0L;
+
+            // Compute the rank of the requested percentile.
+            long rank = Math
+                .max(1L,
+                     (long) Math.ceil(percentile / 100.0 * mCount));
+
+            // Walk the buckets until the rank is reached.
+            long seen = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank)
+                    // Never report more than the observed maximum.
+                    return Math.min(highestValueOf(i), mMax);
+            }
+
+            return mMax;
+        }
+
+        /**
+         * Return the number of values that are less than or equal to
+         * {@code micros}, which is useful for exporting cumulative
+         * bucket counts.
+         *
+         * @param micros The upper bound in microseconds
+         * @return The number of recorded values less than or equal to
+         *         {@code micros}
+         */
+        public long countAtOrBelow(long micros) {
+            int last = indexOf(Math.max(0L, micros));
+            long seen = 0;
+            for (int i = 0; i <= last; i++)
+                seen += mBuckets[i];
+            return seen;
+        }
+
+        /**
+         * Write this {@link Snapshot} to {@code out}, storing only the
+         * non-empty buckets.
+         *
+         * @param out The {@link DataOutput} to write to
+         */
+        public void writeTo(DataOutput out) throws IOException {
+            int nonEmpty = 0;
+            for (long bucket : mBuckets)
+                if (bucket != 0)
+                    nonEmpty++;
+
+            out.writeLong(mCount);
+            out.writeLong(mSum);
+            out.writeLong(mMax);
+            out.writeShort(nonEmpty);
+            for (int i = 0; i < mBuckets.length; i++)
+                if (mBuckets[i] != 0) {
+                    out.writeShort(i);
+                    out.writeLong(mBuckets[i]);
+                }
+        }
+
+        /**
+         * Read a {@link Snapshot} written by {@link
+         * #writeTo(DataOutput)}.
+         *
+         * @param in The {@link DataInput} to read from
+         * @return The {@link Snapshot} that was read
+         */
+        public static Snapshot readFrom(DataInput in) throws IOException {
+            long count = in.readLong();
+            long sum = in.readLong();
+            long max = in.readLong();
+
+            var buckets = new long[BUCKET_COUNT];
+            for (int i = in.readUnsignedShort(); i > 0; i--) {
+                int index = in.readUnsignedShort();
+                if (index >= BUCKET_COUNT)
+                    throw new IOException("Invalid bucket " + index);
+                buckets[index] = in.readLong();
+            }
+
+            return new Snapshot(buckets, count, sum, max);
+        }
+
+        /**
+         * Merge this {@link Snapshot} with {@code other}.
+         *
+         * @param other The {@link Snapshot} to merge with
+         * @return A new {@link Snapshot} containing both
+         */
+        public Snapshot merge(Snapshot other) {
+            var buckets = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++)
+                buckets[i] = mBuckets[i] + other.mBuckets[i];
+
+            return new Snapshot(buckets,
+                                mCount + other.mCount,
+                                mSum + other.mSum,
+                                Math.max(mMax, other.mMax));
+        }
+    }
+}
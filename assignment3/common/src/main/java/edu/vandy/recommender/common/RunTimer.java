@@ -1,23 +1,59 @@
 package edu.vandy.recommender.common;
 
+import edu.vandy.recommender.common.autoconfigure.RunTimerProperties;
+import edu.vandy.recommender.common.trace.Allocations;
+import edu.vandy.recommender.common.trace.TraceContext;
 import edu.vandy.recommender.utils.WebUtils;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Supplier;
 
 import static edu.vandy.recommender.common.Constants.EndPoint.GET_TIMINGS;
-import static edu.vandy.recommender.common.Constants.EndPoint.POST_TIMING;
+import static edu.vandy.recommender.common.Constants.EndPoint.POST_TIMINGS;
 import static edu.vandy.recommender.common.Constants.*;
 import static edu.vandy.recommender.common.Constants.Service.TIMER;
 
 /**
  * This class provides asynchronous and synchronous computation of
  * method execution times.
+ *
+ * Stopped {@link Timer} objects are not posted to the 'timer'
+ * microservice by the thread that was timed.  Instead, they are
+ * added to a lock-free bounded buffer and a background sender thread
+ * flushes the buffer whenever it holds a batch of timings or the
+ * flush interval elapses, so the cost of timing a request is a few
+ * nanoseconds rather than a network round trip.  Timings that arrive
+ * when the buffer is full are dropped and counted.  Flushes are
+ * serialized by a {@link ReentrantLock} rather than a monitor, so the
+ * virtual sender thread doesn't pin its carrier while it blocks on
+ * network I/O.
+ *
+ * If "app.timer.socket-path" (or "app.timer.udp-port") is set, the
+ * sender writes each batch to the timer service's local socket via a
+ * {@link SocketTimingTransport} and only falls back to HTTP when the
+ * socket is unavailable.  Since UDP datagrams aren't acknowledged,
+ * timings sent via UDP are counted separately from those known to
+ * be delivered.
  */
-public class RunTimer {
+public class RunTimer
+       implements AutoCloseable {
     /**
      * The {@link RestTemplate} used to communicate with
      * the {@code Timer} microservice.
@@ -25,10 +61,107 @@ public class RunTimer {
     private final RestTemplate mRestTemplate;
 
     /**
-     * The constructor initializes the {@link RestTemplate}.
+     * The properties that control buffering and sampling.
+     */
+    private final RunTimerProperties mProperties;
+
+    /**
+     * The buffer of stopped timings waiting to be sent.
+     */
+    private final Queue<Timer> mBuffer = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of timings in {@code mBuffer}, which is tracked
+     * separately since {@link ConcurrentLinkedQueue#size()} is O(n).
+     */
+    private final AtomicInteger mBuffered = new AtomicInteger();
+
+    /**
+     * The number of timings dropped because the buffer was full.
+     */
+    private final LongAdder mDropped = new LongAdder();
+
+    /**
+     * The number of timings skipped due to sampling.
+     */
+    private final LongAdder mSampledOut = new LongAdder();
+
+    /**
+     * The number of timings successfully sent.
+     */
+    private final LongAdder mSent = new LongAdder();
+
+    /**
+     * The number of timings sent via UDP, which may have been lost.
+     */
+    private final LongAdder mUnacknowledged = new LongAdder();
+
+    /**
+     * The number of timings that could not be sent.
+     */
+    private final LongAdder mFailed = new LongAdder();
+
+    /**
+     * The number of timings dropped because the socket was busy.
+     */
+    private final LongAdder mSocketDropped = new LongAdder();
+
+    /**
+     * The transport used to reach a timer service on this host, or
+     * null if timings are only sent via HTTP.
+     */
+    private final SocketTimingTransport mTransport;
+
+    /**
+     * Serializes flushes so batches are sent one at a time.  A
+     * {@code synchronized} method would pin the carrier of a virtual
+     * thread for the duration of the network I/O.
+     */
+    private final Lock mFlushLock = new ReentrantLock();
+
+    /**
+     * The thread that sends buffered timings.
+     */
+    private final Thread mSender;
+
+    /**
+     * Set to true when this {@link RunTimer} is closed.
+     */
+    private volatile boolean mClosed;
+
+    /**
+     * The constructor initializes the {@link RestTemplate} and uses
+     * the default {@link RunTimerProperties}.
      */
     public RunTimer(RestTemplate restTemplate) {
+        this(restTemplate, new RunTimerProperties());
+    }
+
+    /**
+     * The constructor initializes the fields and starts the
+     * background sender thread.
+     */
+    public RunTimer(RestTemplate restTemplate,
+                    RunTimerProperties properties) {
         this.mRestTemplate = restTemplate;
+        this.mProperties = properties;
+
+        // Prefer a local socket to HTTP if one is configured.
+        if (properties.getSocketPath() != null
+            && !properties.getSocketPath().isBlank())
+            mTransport = SocketTimingTransport
+                .unixDomain(Path.of(properties.getSocketPath()));
+        else if (properties.getUdpPort() > 0)
+            mTransport = SocketTimingTransport
+                .udp(properties.getUdpPort());
+        else
+            mTransport = null;
+
+        mSender = Thread
+            // Use a virtual thread since the sender mostly blocks.
+            .ofVirtual()
+            .name("RunTimer-sender")
+            .start(this::sendLoop);
     }
 
     /**
@@ -67,22 +200,35 @@ public class RunTimer {
 
     /**
      * Call {@code supplier.get()} and time how long it takes to
-     * run. This method supports synchronous timings.
+     * run. This method supports synchronous timings.  If the result
+     * is a {@link Flux} or {@link Mono} it is timed from subscription
+     * to termination instead, since {@code supplier.get()} only
+     * assembles the reactive pipeline.
      *
      * @param identifier A {@link String} identifying what is being
      *                   timed
      * @param supplier The {@link Supplier} containing the code to run
      * @return The result returned by {@code supplier.get()}
      */
+    @SuppressWarnings("unchecked")
     public <U> U runAndRecordTime(String identifier,
                                   Supplier<U> supplier) {
         // Create a Timer instance and set its start time.
         Timer timer = start(new Timer(identifier));
+        var allocations = Allocations.measure(TraceContext.current());
 
         // Run the code that's being timed.
         U result = supplier.get();
 
+        // A reactive result has only been assembled at this point,
+        // so time it from subscription to completion instead.
+        if (result instanceof Flux<?> flux)
+            return (U) runAndRecordTime(identifier, flux);
+        else if (result instanceof Mono<?> mono)
+            return (U) runAndRecordTime(identifier, mono);
+
         // Stop the timer and post the result to the timer service.
+        timer.allocatedBytes = allocations.bytes();
         stopAndPost(timer);
 
         // Return the result from the code that was being timed.
@@ -102,18 +248,22 @@ public class RunTimer {
                                  Runnable runnable) {
         // Create a TimerInfo instance and set its start time.
         Timer timer = start(new Timer(identifier));
+        var allocations = Allocations.measure(TraceContext.current());
 
         // Run the code that's being timed.
         runnable.run();
 
         // Stop the timer and post the result to the timer service.
+        timer.allocatedBytes = allocations.bytes();
         stopAndPost(timer);
     }
 
     /**
      * Adds a run timer to the passed {@code Flux} and post the
      * elapsed execution time to the timer service when the Flux
-     * completes.
+     * terminates.  Each subscription is timed separately, starting
+     * when it subscribes, and also records the time the first
+     * element was emitted and the number of elements.
      *
      * @param identifier A {@link String} identifying what is being
      *                   timed
@@ -121,24 +271,93 @@ public class RunTimer {
      */
     public <T> Flux<T> runAndRecordTime(String identifier,
                                         Flux<T> flux) {
+        // Capture the caller's trace, if any, for the subscriber.
+        var trace = TraceContext.current();
+
+        return Flux
+            // Defer so a new Timer is started for each subscription.
+            .defer(() -> {
+                    // Generate a new started Timer instance.
+                    Timer timer = start(new Timer(identifier));
+                    var allocations = Allocations.measure(trace);
+
+                    return flux
+                        // Count each element and note the first one.
+                        .doOnNext(element -> recordElement(timer))
+
+                        // Lastly, stop the timer and post the timing
+                        // result to the timer service.
+                        .doFinally(signal -> {
+                                timer.allocatedBytes = allocations.bytes();
+                                stopAndPost(timer);
+                            });
+                })
+
+            // Make the trace visible to reactive web clients.
+            .contextWrite(TraceContext.propagate(trace));
+    }
+
+    /**
+     * Adds a run timer to the passed {@code Mono} and post the
+     * elapsed execution time to the timer service when the Mono
+     * terminates.  Each subscription is timed separately, starting
+     * when it subscribes.
+     *
+     * @param identifier A {@link String} identifying what is being
+     *                   timed
+     * @param mono       The {@link Mono} to run and record
+     */
+    public <T> Mono<T> runAndRecordTime(String identifier,
+                                        Mono<T> mono) {
+        // Capture the caller's trace, if any, for the subscriber.
+        var trace = TraceContext.current();
+
         return Mono
-            // Start with a supplier that will create a Timer
-            // instance.
-            .fromSupplier(// Generate a new started Timer instance.
-                          () -> start(new Timer(identifier)))
+            // Defer so a new Timer is started for each subscription.
+            .defer(() -> {
+                    // Generate a new started Timer instance.
+                    Timer timer = start(new Timer(identifier));
+                    var allocations = Allocations.measure(trace);
+
+                    return mono
+                        // Note the element, if any.
+                        .doOnNext(element -> recordElement(timer))
 
-            // Map the Timer instance to the output of the pass flux.
-            .flatMapMany(timer ->
-                         // Lastly, stop the timer and post the timing
-                         // result to the timer service.
-                         flux.doFinally(result -> stopAndPost(timer)));
+                        // Lastly, stop the timer and post the timing
+                        // result to the timer service.
+                        .doFinally(signal -> {
+                                timer.allocatedBytes = allocations.bytes();
+                                stopAndPost(timer);
+                            });
+                })
+
+            // Make the trace visible to reactive web clients.
+            .contextWrite(TraceContext.propagate(trace));
+    }
+
+    /**
+     * Record that an element was emitted while {@code timer} was
+     * running.  Reactive Streams signals are serialized, so no
+     * synchronization is needed.
+     *
+     * @param timer The running {@link Timer}
+     */
+    private void recordElement(Timer timer) {
+        if (timer.elementCount++ == 0)
+            timer.firstElementTime = System.nanoTime();
     }
 
     /**
      * @return A {@link String} containing the timing results for all
-     * timings ordered from fastest to slowest
+     * timings ordered from fastest to slowest.  The buffered timings
+     * are sent via HTTP before the results are requested, so the
+     * results include every timing recorded by this {@link RunTimer}.
      */
     public String getTimings() {
+        // Send the buffered timings via HTTP, which returns only
+        // once the 'timer' service has recorded them.
+        flush(null);
+
         return WebUtils
             // Make an HTTP GET call to the server passing in the URL
             // containing the GET_TIMINGS request and returning a
@@ -169,23 +388,242 @@ public class RunTimer {
     }
 
     /**
-     * Stops this {@link Timer} instance and also posts the result to
-     * the 'timer' service.
+     * Stops this {@link Timer} instance and buffers it so the
+     * background sender will post it to the 'timer' service.
      */
     public void stopAndPost(Timer timer) {
-        // Make a URL for the Timer microservice.
-        String url = makeTimerUrl(POST_TIMING);
+        stop(timer);
 
-        System.out.println("Posting to Timer service at URL = " 
-                           + url);
+        // Skip this timing if it isn't part of the sample.
+        if (mProperties.getSampleRate() < 1.0
+            && ThreadLocalRandom.current().nextDouble()
+               >= mProperties.getSampleRate()) {
+            mSampledOut.increment();
+            return;
+        }
 
-        var uri = WebUtils
-            // Sent a POST request to the 'timer' microservice.
-            .makePostRequestLocation(mRestTemplate,
-                                     url,
-                                     stop(timer));
+        post(timer);
+    }
 
-        System.out.println("The Timer service returned this URI "
-                           + uri);
+    /**
+     * Buffers a stopped {@link Timer} so the background sender will
+     * post it to the 'timer' service.  Unlike {@link
+     * #stopAndPost(Timer)} this method doesn't sample, which keeps
+     * the spans of a traced request together.
+     *
+     * @param timer A stopped {@link Timer} instance
+     */
+    public void post(Timer timer) {
+        // Reserve a slot, dropping the timing if the buffer is full.
+        int buffered = mBuffered.incrementAndGet();
+        if (buffered > mProperties.getCapacity()) {
+            mBuffered.decrementAndGet();
+            mDropped.increment();
+            return;
+        }
+
+        mBuffer.offer(timer);
+
+        // Wake up the sender as soon as a full batch is waiting.
+        if (buffered == mProperties.getBatchSize())
+            LockSupport.unpark(mSender);
+    }
+
+    /**
+     * Send all buffered timings to the 'timer' service in batches of
+     * at most {@code batchSize} timings.  This method is normally
+     * only called by the sender thread and by {@link #close()}.
+     */
+    public void flush() {
+        flush(mTransport);
+    }
+
+    /**
+     * Send all buffered timings as described by {@link #flush()}.
+     *
+     * @param transport The {@link SocketTimingTransport} to try
+     *                  first, or null to only use HTTP
+     */
+    private void flush(SocketTimingTransport transport) {
+        List<Timer> batch = new ArrayList<>(mProperties.getBatchSize());
+
+        mFlushLock.lock();
+        try {
+            for (;;) {
+                // Drain the next batch from the buffer.
+                for (Timer timer;
+                     batch.size() < mProperties.getBatchSize()
+                         && (timer = mBuffer.poll()) != null; ) {
+                    mBuffered.decrementAndGet();
+                    batch.add(timer);
+                }
+
+                if (batch.isEmpty())
+                    return;
+
+                send(batch, transport);
+                batch.clear();
+            }
+        } finally {
+            mFlushLock.unlock();
+        }
+    }
+
+    /**
+     * Send a batch of timings to the 'timer' service in a single
+     * message using the compact {@link TimerBatchCodec} format.  The
+     * local socket is used if it's configured and available, else
+     * the batch is posted via HTTP.  A batch that can't be sent for
+     * any reason is counted as failed, so it doesn't prevent the
+     * remaining batches from being sent.
+     *
+     * @param batch The {@link List} of {@link Timer} objects to send
+     * @param transport The {@link SocketTimingTransport} to try
+     *                  first, or null to only use HTTP
+     */
+    private void send(List<Timer> batch,
+                      SocketTimingTransport transport) {
+        try {
+            sendOrThrow(batch, transport);
+        } catch (RuntimeException exception) {
+            mFailed.add(batch.size());
+        }
+    }
+
+    /**
+     * Send a batch of timings as described by {@link
+     * #send(List, SocketTimingTransport)}.
+     *
+     * @param batch The {@link List} of {@link Timer} objects to send
+     * @param transport The {@link SocketTimingTransport} to try
+     *                  first, or null to only use HTTP
+     * @throws RuntimeException If the batch can't be sent
+     */
+    private void sendOrThrow(List<Timer> batch,
+                             SocketTimingTransport transport) {
+        var encoded = TimerBatchCodec.encode(batch);
+
+        if (transport != null)
+            switch (transport.send(encoded)) {
+                case SENT -> {
+                    mSent.add(batch.size());
+                    return;
+                }
+                case UNACKNOWLEDGED -> {
+                    mUnacknowledged.add(batch.size());
+                    return;
+                }
+                case DROPPED -> {
+                    mSocketDropped.add(batch.size());
+                    return;
+                }
+                case UNAVAILABLE -> {
+                    // Fall back to HTTP below.
+                }
+            }
+
+        var headers = new HttpHeaders();
+        headers.setContentType(MediaType
+                               .parseMediaType(TimerBatchCodec.MEDIA_TYPE));
+
+        mRestTemplate
+            // Send a POST request to the 'timer' microservice.
+            .postForObject(makeTimerUrl(POST_TIMINGS),
+                           new HttpEntity<>(encoded, headers),
+                           Integer.class);
+        mSent.add(batch.size());
+    }
+
+    /**
+     * The body of the sender thread, which flushes the buffer every
+     * {@code flushInterval} or whenever a full batch is waiting.
+     */
+    private void sendLoop() {
+        long intervalNanos = mProperties.getFlushInterval().toNanos();
+
+        while (!mClosed) {
+            // Wait for the interval to elapse or to be unparked.
+            LockSupport.parkNanos(this, intervalNanos);
+
+            try {
+                flush();
+            } catch (RuntimeException exception) {
+                // Keep exporting timings even if a flush fails.
+            }
+        }
+    }
+
+    /**
+     * Stop the sender thread after sending any buffered timings.
+     * Spring calls this method when the application context closes.
+     */
+    @Override
+    public void close() {
+        mClosed = true;
+        LockSupport.unpark(mSender);
+
+        try {
+            mSender.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+
+        if (mTransport != null)
+            mTransport.close();
+    }
+
+    /**
+     * @return The number of timings dropped because the buffer was
+     *         full
+     */
+    public long getDroppedCount() {
+        return mDropped.sum();
+    }
+
+    /**
+     * @return The number of timings dropped because the local socket
+     *         was busy
+     */
+    public long getSocketDroppedCount() {
+        return mSocketDropped.sum();
+    }
+
+    /**
+     * @return The number of timings skipped due to sampling
+     */
+    public long getSampledOutCount() {
+        return mSampledOut.sum();
+    }
+
+    /**
+     * @return The number of timings delivered to the 'timer' service
+     */
+    public long getSentCount() {
+        return mSent.sum();
+    }
+
+    /**
+     * @return The number of timings sent to the 'timer' service via
+     *         UDP, whose delivery isn't acknowledged
+     */
+    public long getUnacknowledgedCount() {
+        return mUnacknowledged.sum();
+    }
+
+    /**
+     * @return The number of timings that couldn't be sent to the
+     *         'timer' service
+     */
+    public long getFailedCount() {
+        return mFailed.sum();
+    }
+
+    /**
+     * @return The number of timings waiting to be sent
+     */
+    public int getBufferedCount() {
+        return mBuffered.get();
     }
 }
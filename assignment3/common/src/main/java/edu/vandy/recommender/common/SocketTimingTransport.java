@@ -0,0 +1,222 @@
+package edu.vandy.recommender.common;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * This class sends {@link TimerBatchCodec} batches to a timer service
+ * running on the same host via a Unix domain socket or a loopback UDP
+ * port, which avoids the HTTP and gateway overhead entirely.
+ *
+ * All writes are non-blocking.  On a Unix domain socket each batch is
+ * sent as a frame consisting of its length followed by its bytes; a
+ * frame that can only be partly written is finished by later calls,
+ * and batches that arrive while a frame is still pending are dropped.
+ * On UDP each batch is sent as one datagram, which is dropped if the
+ * socket buffer is full.  Nothing acknowledges a datagram, so one
+ * sent while no timer service is listening is lost; the "port
+ * unreachable" error it causes makes the next send report {@link
+ * Result#UNAVAILABLE}, so the caller falls back to HTTP from then on
+ * until the retry delay elapses.
+ *
+ * This class is not thread-safe, i.e., it's intended to be used only
+ * by the {@link RunTimer} sender thread.
+ */
+public class SocketTimingTransport
+       implements AutoCloseable {
+    /**
+     * The largest batch that fits in a single UDP datagram.
+     */
+    public static final int MAX_DATAGRAM = 65_507;
+
+    /**
+     * How long to wait before reconnecting after a failure.
+     */
+    private static final long RETRY_MILLIS = 5_000;
+
+    /**
+     * The outcome of {@link #send(byte[])}.
+     */
+    public enum Result {
+        /**
+         * The batch was (or will be) written to the Unix domain
+         * socket.
+         */
+        SENT,
+
+        /**
+         * The batch was handed to the network as a UDP datagram,
+         * which may still be lost.
+         */
+        UNACKNOWLEDGED,
+
+        /**
+         * The socket was busy, so the batch was dropped.
+         */
+        DROPPED,
+
+        /**
+         * The socket isn't available, so the batch should be sent
+         * some other way.
+         */
+        UNAVAILABLE
+    }
+
+    /**
+     * The Unix domain socket path, or null when using UDP.
+     */
+    private final Path mSocketPath;
+
+    /**
+     * The loopback UDP port, or 0 when using a Unix domain socket.
+     */
+    private final int mUdpPort;
+
+    /**
+     * The connected channel, or null if not connected.
+     */
+    private WritableByteChannel mChannel;
+
+    /**
+     * The rest of a frame that couldn't be written completely.
+     */
+    private ByteBuffer mPending;
+
+    /**
+     * The earliest time to try connecting again.
+     */
+    private long mRetryAt;
+
+    /**
+     * Create a transport that writes to the Unix domain socket at
+     * {@code socketPath}.
+     */
+    public static SocketTimingTransport unixDomain(Path socketPath) {
+        return new SocketTimingTransport(socketPath, 0);
+    }
+
+    /**
+     * Create a transport that writes to the loopback UDP {@code port}.
+     */
+    public static SocketTimingTransport udp(int port) {
+        return new SocketTimingTransport(null, port);
+    }
+
+    /**
+     * Constructor initializes the fields.
+     */
+    private SocketTimingTransport(Path socketPath, int udpPort) {
+        mSocketPath = socketPath;
+        mUdpPort = udpPort;
+    }
+
+    /**
+     * Send {@code batch} without blocking.
+     *
+     * @param batch A batch encoded by {@link TimerBatchCodec}
+     * @return The {@link Result} of sending {@code batch}
+     */
+    public Result send(byte[] batch) {
+        if (mSocketPath == null && batch.length > MAX_DATAGRAM)
+            return Result.UNAVAILABLE;
+
+        if (mChannel == null && !connect())
+            return Result.UNAVAILABLE;
+
+        try {
+            // Finish any partly written frame first.
+            if (mPending != null) {
+                mChannel.write(mPending);
+                if (mPending.hasRemaining())
+                    return Result.DROPPED;
+                mPending = null;
+            }
+
+            if (mSocketPath == null)
+                // A datagram is either sent whole or not at all.
+                return mChannel.write(ByteBuffer.wrap(batch)) == 0
+                    ? Result.DROPPED
+                    : Result.UNACKNOWLEDGED;
+
+            var frame = ByteBuffer
+                .allocate(Integer.BYTES + batch.length)
+                .putInt(batch.length)
+                .put(batch)
+                .flip();
+
+            mChannel.write(frame);
+            if (frame.hasRemaining())
+                mPending = frame;
+
+            return Result.SENT;
+        } catch (IOException exception) {
+            // The timer service went away (or, for UDP, an earlier
+            // datagram was refused), so reconnect later.
+            disconnect();
+            return Result.UNAVAILABLE;
+        }
+    }
+
+    /**
+     * Close the socket.
+     */
+    @Override
+    public void close() {
+        disconnect();
+    }
+
+    /**
+     * Connect to the timer service unless a recent attempt failed.
+     *
+     * @return True if connected
+     */
+    private boolean connect() {
+        long now = System.currentTimeMillis();
+        if (now < mRetryAt)
+            return false;
+
+        try {
+            if (mSocketPath != null) {
+                var channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+                channel.connect(UnixDomainSocketAddress.of(mSocketPath));
+                channel.configureBlocking(false);
+                mChannel = channel;
+            } else {
+                var channel = DatagramChannel.open();
+                channel.connect(new InetSocketAddress(InetAddress
+                                                      .getLoopbackAddress(),
+                                                      mUdpPort));
+                channel.configureBlocking(false);
+                mChannel = channel;
+            }
+            return true;
+        } catch (IOException exception) {
+            mRetryAt = now + RETRY_MILLIS;
+            return false;
+        }
+    }
+
+    /**
+     * Close the channel and forget any partly written frame.
+     */
+    private void disconnect() {
+        if (mChannel != null)
+            try {
+                mChannel.close();
+            } catch (IOException exception) {
+                // Ignore since the channel is being discarded.
+            }
+
+        mChannel = null;
+        mPending = null;
+        mRetryAt = System.currentTimeMillis() + RETRY_MILLIS;
+    }
+}
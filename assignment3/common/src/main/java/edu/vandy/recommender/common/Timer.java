@@ -23,6 +23,47 @@ public class Timer {
      */
     public long stopTime;
 
+    /**
+     * The time the first element of a reactive result was emitted,
+     * or 0 if none was (or the timed code wasn't reactive).
+     */
+    public long firstElementTime;
+
+    /**
+     * The number of elements emitted by a reactive result.
+     */
+    public long elementCount;
+
+    /**
+     * The W3C trace id (32 hex digits) if this {@link Timer} is a
+     * span of a traced request, else null.
+     */
+    public String traceId;
+
+    /**
+     * The span id (16 hex digits) of a traced {@link Timer}.
+     */
+    public String spanId;
+
+    /**
+     * The id of the parent span of a traced {@link Timer}, or null
+     * if it's the root span.
+     */
+    public String parentId;
+
+    /**
+     * The stage of the traced request this {@link Timer} measures,
+     * e.g., "recommenders:score", in which case {@code id} names the
+     * request type rather than the stage.
+     */
+    public String stage;
+
+    /**
+     * The bytes of heap memory allocated while handling the request,
+     * or 0 if they weren't measured.
+     */
+    public long allocatedBytes;
+
     /**
      * Constructs a {@link Timer} object and automatically sets
      * its globally unique invocation id. Both start and stop
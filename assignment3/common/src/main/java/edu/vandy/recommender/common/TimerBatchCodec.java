@@ -0,0 +1,233 @@
+package edu.vandy.recommender.common;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This utility class encodes and decodes batches of {@link Timer}
+ * objects in a compact binary format that's much cheaper to send and
+ * parse than JSON.
+ *
+ * A batch starts with a magic number and a table of the distinct
+ * {@link Timer} ids and stages, each of which is written only once,
+ * followed by one record per {@link Timer}.  Trace and span ids are
+ * written as binary rather than hex:
+ *
+ * <pre>
+ * int    MAGIC
+ * int    idCount
+ * UTF    id[idCount]
+ * int    timerCount
+ * record timer[timerCount]:
+ *     int  idIndex
+ *     long startTime
+ *     long elapsed           (stopTime - startTime)
+ *     long firstElementDelta (firstElementTime - startTime, or -1)
+ *     long elementCount
+ *     long allocatedBytes
+ *     byte traced            (1 if the span fields follow, else 0)
+ *     int  stageIndex
+ *     long traceIdHigh
+ *     long traceIdLow
+ *     long spanId
+ *     long parentId          (0 if none)
+ * </pre>
+ */
+public final class TimerBatchCodec {
+    /**
+     * The magic number ("TMB3") that identifies a batch.
+     */
+    public static final int MAGIC = 0x544D4233;
+
+    /**
+     * The media type used to send encoded batches via HTTP.
+     */
+    public static final String MEDIA_TYPE = "application/octet-stream";
+
+    /**
+     * The smallest number of bytes taken by an entry of the id table,
+     * i.e., the length of an empty UTF {@link String}.
+     */
+    private static final int MIN_ID_BYTES = 2;
+
+    /**
+     * The smallest number of bytes taken by a record, i.e., one
+     * without the span fields.
+     */
+    private static final int MIN_RECORD_BYTES =
+        Integer.BYTES + 5 * Long.BYTES + 1;
+
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private TimerBatchCodec() {}
+
+    /**
+     * Formats and parses trace and span ids.
+     */
+    private static final HexFormat sHex = HexFormat.of();
+
+    /**
+     * Encode the {@code timers} as a binary batch.
+     *
+     * @param timers The {@link List} of {@link Timer} objects to encode
+     * @return A byte array containing the encoded batch
+     */
+    public static byte[] encode(List<Timer> timers) {
+        // Assign each distinct id and stage an index in the id table.
+        Map<String, Integer> ids = new HashMap<>();
+        List<String> table = new ArrayList<>();
+        int[] indices = new int[timers.size()];
+        int[] stages = new int[timers.size()];
+
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = index(timers.get(i).id, ids, table);
+            stages[i] = timers.get(i).traceId == null
+                ? -1
+                : index(timers.get(i).stage, ids, table);
+        }
+
+        var bytes = new ByteArrayOutputStream(16 + indices.length * 45);
+        try (var out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+
+            // Write the id table.
+            out.writeInt(table.size());
+            for (var id : table)
+                out.writeUTF(id);
+
+            // Write one record per Timer.
+            out.writeInt(indices.length);
+            for (int i = 0; i < indices.length; i++) {
+                var timer = timers.get(i);
+                out.writeInt(indices[i]);
+                out.writeLong(timer.startTime);
+                out.writeLong(timer.stopTime - timer.startTime);
+                out.writeLong(timer.firstElementTime == 0
+                              ? -1
+                              : timer.firstElementTime - timer.startTime);
+                out.writeLong(timer.elementCount);
+                out.writeLong(timer.allocatedBytes);
+
+                if (stages[i] < 0)
+                    out.writeByte(0);
+                else {
+                    out.writeByte(1);
+                    out.writeInt(stages[i]);
+                    out.writeLong(sHex.fromHexDigitsToLong(timer.traceId, 0, 16));
+                    out.writeLong(sHex.fromHexDigitsToLong(timer.traceId, 16, 32));
+                    out.writeLong(sHex.fromHexDigitsToLong(timer.spanId));
+                    out.writeLong(timer.parentId == null
+                                  ? 0
+                                  : sHex.fromHexDigitsToLong(timer.parentId));
+                }
+            }
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return The index of {@code value} in the id {@code table},
+     *         which is added to the {@code table} if necessary
+     */
+    private static int index(String value,
+                             Map<String, Integer> ids,
+                             List<String> table) {
+        return ids
+            .computeIfAbsent(value,
+                             __ -> {
+                                 table.add(value);
+                                 return table.size() - 1;
+                             });
+    }
+
+    /**
+     * Decode a binary batch created by {@link #encode(List)}.  The
+     * lengths in the batch are checked against the number of bytes
+     * left before anything is allocated, so a malformed or hostile
+     * batch can't make the caller allocate more than the batch
+     * itself could hold.
+     *
+     * @param batch A byte array containing the encoded batch
+     * @return The {@link List} of decoded {@link Timer} objects
+     * @throws IllegalArgumentException If {@code batch} is malformed
+     */
+    public static List<Timer> decode(byte[] batch) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(batch))) {
+            if (in.readInt() != MAGIC)
+                throw new IllegalArgumentException("Not a timer batch");
+
+            // Read the id table.
+            var table = new String[checkLength(in.readInt(),
+                                               MIN_ID_BYTES,
+                                               in.available())];
+            for (int i = 0; i < table.length; i++)
+                table[i] = in.readUTF();
+
+            // Read one record per Timer.
+            int count = checkLength(in.readInt(),
+                                    MIN_RECORD_BYTES,
+                                    in.available());
+            List<Timer> timers = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                var timer = new Timer(table[in.readInt()]);
+                timer.startTime = in.readLong();
+                timer.stopTime = timer.startTime + in.readLong();
+                long firstElementDelta = in.readLong();
+                if (firstElementDelta >= 0)
+                    timer.firstElementTime =
+                        timer.startTime + firstElementDelta;
+                timer.elementCount = in.readLong();
+                timer.allocatedBytes = in.readLong();
+
+                if (in.readByte() != 0) {
+                    timer.stage = table[in.readInt()];
+                    timer.traceId = sHex.toHexDigits(in.readLong())
+                        + sHex.toHexDigits(in.readLong());
+                    timer.spanId = sHex.toHexDigits(in.readLong());
+                    long parentId = in.readLong();
+                    if (parentId != 0)
+                        timer.parentId = sHex.toHexDigits(parentId);
+                }
+                timers.add(timer);
+            }
+
+            return timers;
+        } catch (IOException | IndexOutOfBoundsException exception) {
+            throw new IllegalArgumentException("Malformed timer batch",
+                                               exception);
+        }
+    }
+
+    /**
+     * Check a length read from a batch.
+     *
+     * @param length The number of entries
+     * @param minBytes The smallest number of bytes an entry takes
+     * @param available The number of bytes left in the batch
+     * @return The {@code length}
+     * @throws IllegalArgumentException If {@code length} is negative
+     *         or the entries can't fit in the {@code available} bytes
+     */
+    private static int checkLength(int length,
+                                   int minBytes,
+                                   int available) {
+        if (length < 0 || (long) length * minBytes > available)
+            throw new IllegalArgumentException
+                ("Malformed timer batch: " + length
+                 + " entries don't fit in " + available + " bytes");
+        return length;
+    }
+}
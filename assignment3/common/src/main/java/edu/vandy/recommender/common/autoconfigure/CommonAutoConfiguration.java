@@ -3,10 +3,14 @@ package edu.vandy.recommender.common.autoconfigure;
 import edu.vandy.recommender.common.RunTimer;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
+import org.springframework.boot.autoconfigure.condition.AllNestedConditions;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.core.Ordered;
 import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.core.task.support.TaskExecutorAdapter;
@@ -36,17 +40,21 @@ import static org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfi
  */
 @AutoConfiguration
 @AutoConfigureOrder(Ordered.HIGHEST_PRECEDENCE)
+@EnableConfigurationProperties(RunTimerProperties.class)
 public class CommonAutoConfiguration {
     /**
      * Constructor for {@link RunTimer}.
      *
      * @param restTemplateBuilder A {@link RestTemplateBuilder}
+     * @param properties The {@link RunTimerProperties} that control
+     *                   how timings are buffered and sent
      * @return An initialized {@link RestTemplate}
      */
     @Bean
     @ConditionalOnMissingBean
-    RunTimer runTimer(RestTemplateBuilder restTemplateBuilder) {
-        return new RunTimer(restTemplateBuilder.build());
+    RunTimer runTimer(RestTemplateBuilder restTemplateBuilder,
+                      RunTimerProperties properties) {
+        return new RunTimer(restTemplateBuilder.build(), properties);
     }
 
     /**
@@ -55,6 +63,7 @@ public class CommonAutoConfiguration {
      */
     @Bean(APPLICATION_TASK_EXECUTOR_BEAN_NAME)
     @ConditionalOnMissingBean
+    @Conditional(VirtualThreads.class)
     public AsyncTaskExecutor asyncTaskExecutor() {
         return new TaskExecutorAdapter(Executors
                                            .newVirtualThreadPerTaskExecutor());
@@ -63,13 +72,41 @@ public class CommonAutoConfiguration {
     /**
      * Customize the Protocol Handler on the TomCat Connector to
      * use Java virtual threads to handle all incoming HTTP requests.
+     * Setting "app.virtual-threads.enabled" to false uses platform
+     * threads instead.
      */
     @Bean
     @ConditionalOnMissingBean
+    @Conditional(VirtualThreads.class)
     public TomcatProtocolHandlerCustomizer<?> protocolHandlerVirtualThreadExecutorCustomizer() {
         return protocolHandler -> {
             protocolHandler
                 .setExecutor(Executors.newVirtualThreadPerTaskExecutor());
         };
     }
+
+    /**
+     * Matches if requests should be handled on virtual threads, i.e.,
+     * if "app.virtual-threads.enabled" isn't false and allocation
+     * accounting ("app.trace.allocations") is off, since the JDK
+     * can't measure the allocations of virtual threads.
+     */
+    static class VirtualThreads
+           extends AllNestedConditions {
+        /**
+         * Constructor evaluates the conditions when beans are
+         * registered.
+         */
+        VirtualThreads() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(value = "app.virtual-threads.enabled", matchIfMissing = true)
+        static class Enabled {
+        }
+
+        @ConditionalOnProperty(value = "app.trace.allocations", havingValue = "false", matchIfMissing = true)
+        static class NoAllocationAccounting {
+        }
+    }
 }
@@ -0,0 +1,67 @@
+package edu.vandy.recommender.common.autoconfigure;
+
+import edu.vandy.recommender.common.footprint.FootprintEndpoint;
+import edu.vandy.recommender.common.footprint.FootprintEstimator;
+import edu.vandy.recommender.common.footprint.FootprintRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+
+import java.util.List;
+
+/**
+ * This class auto-configures the actuator "footprint" endpoint, which
+ * estimates the retained heap size of the in-memory structures of a
+ * microservice.  The beans named by the "app.footprint.beans"
+ * property (the {@code movieMap} by default) are registered
+ * automatically, but only reported once they've been created, and
+ * the caches of all {@link CacheManager} beans are always reported.
+ * Other structures can be added to the {@link FootprintRegistry}.
+ */
+@AutoConfiguration
+public class FootprintAutoConfiguration {
+    /**
+     * @param beanFactory The factory of the beans to register
+     * @param beanNames The names of the beans to register
+     * @return A {@link FootprintRegistry} containing the named beans
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    FootprintRegistry footprintRegistry
+        (ConfigurableListableBeanFactory beanFactory,
+         @Value("${app.footprint.beans:movieMap}") List<String> beanNames) {
+        var registry = new FootprintRegistry();
+        for (var beanName : beanNames)
+            registry
+                // Don't create lazy beans just to report them.
+                .register(beanName,
+                          () -> beanFactory.containsSingleton(beanName)
+                          ? beanFactory.getSingleton(beanName)
+                          : null);
+        return registry;
+    }
+
+    /**
+     * @param registry The registered structures
+     * @param cacheManagers The cache managers whose caches are
+     *                      reported
+     * @param sampleSize The number of elements of each collection
+     *                   that are walked
+     * @return The actuator "footprint" endpoint
+     */
+    @Bean
+    @ConditionalOnAvailableEndpoint
+    FootprintEndpoint footprintEndpoint
+        (FootprintRegistry registry,
+         ObjectProvider<CacheManager> cacheManagers,
+         @Value("${app.footprint.sample-size:256}") int sampleSize) {
+        return new FootprintEndpoint(registry,
+                                     cacheManagers.orderedStream().toList(),
+                                     new FootprintEstimator(sampleSize));
+    }
+}
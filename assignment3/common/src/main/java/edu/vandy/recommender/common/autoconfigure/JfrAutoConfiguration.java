@@ -0,0 +1,82 @@
+package edu.vandy.recommender.common.autoconfigure;
+
+import edu.vandy.recommender.common.jfr.JfrEndpoint;
+import edu.vandy.recommender.common.jfr.JfrEventSummarizer;
+import edu.vandy.recommender.common.jfr.VirtualThreadDiagnostics;
+import edu.vandy.recommender.common.jfr.VirtualThreadsEndpoint;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+
+/**
+ * This class auto-configures the JDK Flight Recorder streams and the
+ * actuator endpoints that report them, each of which is enabled by a
+ * property since its stream keeps the events enabled:
+ *
+ * <ul>
+ *   <li>"app.jfr.enabled" enables the {@link JfrEventSummarizer} and
+ *   the "jfr" endpoint that reports the hottest custom events.</li>
+ *
+ *   <li>"app.virtual-threads.diagnostics.enabled" enables the {@link
+ *   VirtualThreadDiagnostics} and the "virtualthreads" endpoint that
+ *   reports where virtual threads pin their carriers.</li>
+ * </ul>
+ */
+@AutoConfiguration
+public class JfrAutoConfiguration {
+    /**
+     * @param maxAge How long the stream keeps events on disk
+     * @return A {@link JfrEventSummarizer} that's closed when the
+     *         application context closes
+     */
+    @Bean
+    @ConditionalOnProperty("app.jfr.enabled")
+    JfrEventSummarizer jfrEventSummarizer
+        (@Value("${app.jfr.max-age:1m}") Duration maxAge) {
+        return new JfrEventSummarizer(maxAge);
+    }
+
+    /**
+     * @param summarizer The summarizer of the events
+     * @return The actuator "jfr" endpoint
+     */
+    @Bean
+    @ConditionalOnProperty("app.jfr.enabled")
+    @ConditionalOnAvailableEndpoint
+    JfrEndpoint jfrEndpoint(JfrEventSummarizer summarizer) {
+        return new JfrEndpoint(summarizer);
+    }
+
+    /**
+     * @param pinnedThreshold The minimum time a virtual thread must
+     *                        block while pinned to be recorded
+     * @param countThreads True if virtual threads are counted
+     * @return A {@link VirtualThreadDiagnostics} that's closed when
+     *         the application context closes
+     */
+    @Bean
+    @ConditionalOnProperty("app.virtual-threads.diagnostics.enabled")
+    VirtualThreadDiagnostics virtualThreadDiagnostics
+        (@Value("${app.virtual-threads.diagnostics.pinned-threshold:20ms}")
+         Duration pinnedThreshold,
+         @Value("${app.virtual-threads.diagnostics.count-threads:true}")
+         boolean countThreads) {
+        return new VirtualThreadDiagnostics(pinnedThreshold, countThreads);
+    }
+
+    /**
+     * @param diagnostics The diagnostics of the virtual threads
+     * @return The actuator "virtualthreads" endpoint
+     */
+    @Bean
+    @ConditionalOnProperty("app.virtual-threads.diagnostics.enabled")
+    @ConditionalOnAvailableEndpoint
+    VirtualThreadsEndpoint virtualThreadsEndpoint
+        (VirtualThreadDiagnostics diagnostics) {
+        return new VirtualThreadsEndpoint(diagnostics);
+    }
+}
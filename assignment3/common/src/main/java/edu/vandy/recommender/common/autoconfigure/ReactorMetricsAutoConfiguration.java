@@ -0,0 +1,35 @@
+package edu.vandy.recommender.common.autoconfigure;
+
+import edu.vandy.recommender.common.metrics.SchedulerMetrics;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * This class auto-configures the Micrometer metrics of the Reactor
+ * schedulers (see {@link SchedulerMetrics}), which can be read via the
+ * actuator "metrics" endpoint, e.g., {@code
+ * /actuator/metrics/executor.execution?tag=reactor.scheduler.id:...}.
+ * Setting the "app.reactor.metrics.enabled" property to false
+ * disables them.
+ */
+@AutoConfiguration
+@ConditionalOnClass({Schedulers.class, ExecutorServiceMetrics.class})
+public class ReactorMetricsAutoConfiguration {
+    /**
+     * This method is static so the decorator is installed before any
+     * other bean is created.
+     *
+     * @return The {@link SchedulerMetrics} that instruments every new
+     *         scheduler executor
+     */
+    @Bean
+    @ConditionalOnProperty(value = "app.reactor.metrics.enabled",
+                           matchIfMissing = true)
+    static SchedulerMetrics schedulerMetrics() {
+        return new SchedulerMetrics();
+    }
+}
@@ -0,0 +1,76 @@
+package edu.vandy.recommender.common.autoconfigure;
+
+import edu.vandy.recommender.common.metrics.EndpointObservationConvention;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+/**
+ * This class auto-configures the Micrometer "http.server.requests"
+ * timers that Spring records for every request, so the normal
+ * endpoints are measured without the {@code RunTimer} and the
+ * {@code /timed} controllers.  The timers are tagged by {@link
+ * EndpointObservationConvention} and publish percentiles, and they
+ * can be read via the actuator "metrics" endpoint, e.g.,
+ * {@code /actuator/metrics/http.server.requests?tag=endpoint:search}.
+ */
+@AutoConfiguration
+@ConditionalOnClass(MeterFilter.class)
+@ConditionalOnWebApplication(type = SERVLET)
+public class RequestMetricsAutoConfiguration {
+    /**
+     * The name of the timers Spring records for every request.
+     */
+    private static final String HTTP_SERVER_REQUESTS =
+        "http.server.requests";
+
+    /**
+     * @param service The name of this microservice
+     * @param strategy The strategy this microservice uses
+     * @return The {@link ServerRequestObservationConvention} that
+     *         tags each request
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    ServerRequestObservationConvention endpointObservationConvention
+        (@Value("${spring.application.name:application}") String service,
+         @Value("${app.strategy:none}") String strategy) {
+        return new EndpointObservationConvention(service, strategy);
+    }
+
+    /**
+     * @return A {@link MeterFilter} that makes the request timers
+     *         publish their median, 90th, and 99th percentiles along
+     *         with a histogram that can be aggregated across
+     *         instances
+     */
+    @Bean
+    MeterFilter httpServerRequestsPercentiles() {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure
+                (Meter.Id id,
+                 DistributionStatisticConfig config) {
+                if (!id.getName().equals(HTTP_SERVER_REQUESTS))
+                    return config;
+
+                // Explicit "management.metrics" settings win.
+                return config
+                    .merge(DistributionStatisticConfig
+                           .builder()
+                           .percentiles(0.5, 0.9, 0.99)
+                           .percentilesHistogram(true)
+                           .build());
+            }
+        };
+    }
+}
@@ -0,0 +1,138 @@
+package edu.vandy.recommender.common.autoconfigure;
+
+import edu.vandy.recommender.common.RunTimer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * This class contains the "app.timer" properties that control how
+ * the {@link RunTimer} buffers and reports timings to the 'timer'
+ * microservice.
+ */
+@ConfigurationProperties("app.timer")
+public class RunTimerProperties {
+    /**
+     * The maximum number of timings buffered before new timings are
+     * dropped.
+     */
+    private int capacity = 8192;
+
+    /**
+     * The number of buffered timings that triggers an immediate
+     * flush.
+     */
+    private int batchSize = 256;
+
+    /**
+     * The maximum time a timing waits in the buffer before it is
+     * flushed.
+     */
+    private Duration flushInterval = Duration.ofSeconds(1);
+
+    /**
+     * The fraction of timings that are recorded (1.0 records every
+     * timing, 0.0 records none).
+     */
+    private double sampleRate = 1.0;
+
+    /**
+     * The path of the timer service's Unix domain socket, which is
+     * used instead of HTTP when the timer service is on this host.
+     */
+    private String socketPath;
+
+    /**
+     * The loopback UDP port of the timer service, which is used
+     * instead of HTTP when the timer service is on this host and no
+     * {@code socketPath} is given (0 disables UDP).
+     */
+    private int udpPort = 0;
+
+    /**
+     * @return The maximum number of buffered timings
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @param capacity The maximum number of buffered timings
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return The number of timings that triggers a flush
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize The number of timings that triggers a flush
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return The maximum time a timing is buffered
+     */
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    /**
+     * @param flushInterval The maximum time a timing is buffered
+     */
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * @return The fraction of timings that are recorded
+     */
+    public double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @param sampleRate The fraction of timings that are recorded
+     */
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return The path of the timer service's Unix domain socket, or
+     *         null if none
+     */
+    public String getSocketPath() {
+        return socketPath;
+    }
+
+    /**
+     * @param socketPath The path of the timer service's Unix domain
+     *                   socket
+     */
+    public void setSocketPath(String socketPath) {
+        this.socketPath = socketPath;
+    }
+
+    /**
+     * @return The loopback UDP port of the timer service, or 0 if
+     *         none
+     */
+    public int getUdpPort() {
+        return udpPort;
+    }
+
+    /**
+     * @param udpPort The loopback UDP port of the timer service
+     */
+    public void setUdpPort(int udpPort) {
+        this.udpPort = udpPort;
+    }
+}
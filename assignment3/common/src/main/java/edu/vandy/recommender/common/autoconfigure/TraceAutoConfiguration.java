@@ -0,0 +1,162 @@
+package edu.vandy.recommender.common.autoconfigure;
+
+import edu.vandy.recommender.common.RunTimer;
+import edu.vandy.recommender.common.trace.Allocations;
+import edu.vandy.recommender.common.trace.ServerTimingFilter;
+import edu.vandy.recommender.common.trace.TraceContext;
+import edu.vandy.recommender.common.trace.TraceContextFilter;
+import edu.vandy.recommender.common.trace.TraceContextInterceptor;
+import edu.vandy.recommender.common.trace.TraceExchangeFilter;
+import edu.vandy.recommender.common.trace.TraceResponseBodyAdvice;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.AnyNestedCondition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.Ordered;
+
+import static org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type.SERVLET;
+
+/**
+ * This class auto-configures W3C trace context propagation, the
+ * recording of per-stage spans (see {@link TraceContext}), and the
+ * optional "Server-Timing" response header.
+ *
+ * Setting the "app.trace.enabled" property to false disables tracing,
+ * which the timer service does so it doesn't trace the requests that
+ * deliver the spans.  Stages are still recorded for the
+ * "Server-Timing" header, which is enabled by setting
+ * "app.server-timing.enabled" to true.  If neither is enabled, no
+ * per-request trace context is created at all.  The bytes each request
+ * allocates are measured, and reported with its "request" span and
+ * the timing of its endpoint, if "app.trace.allocations" is true,
+ * which also makes Tomcat use platform request threads.  Only the fraction
+ * "app.trace.sample-rate" (10% by default) of the requests that
+ * arrive without a trace start a sampled one.
+ */
+@AutoConfiguration(after = CommonAutoConfiguration.class)
+public class TraceAutoConfiguration {
+    /**
+     * @return A {@link RestTemplateCustomizer} that propagates the
+     *         trace on every {@code RestTemplate} built by Spring
+     */
+    @Bean
+    @ConditionalOnProperty(value = "app.trace.enabled", matchIfMissing = true)
+    RestTemplateCustomizer traceRestTemplateCustomizer() {
+        return restTemplate -> restTemplate
+            .getInterceptors()
+            .add(new TraceContextInterceptor());
+    }
+
+    /**
+     * @return A {@link WebClientCustomizer} that propagates the trace
+     *         on every {@code WebClient} built by Spring
+     */
+    @Bean
+    @ConditionalOnProperty(value = "app.trace.enabled", matchIfMissing = true)
+    WebClientCustomizer traceWebClientCustomizer() {
+        return builder -> builder
+            .filter(new TraceExchangeFilter());
+    }
+
+    /**
+     * Register the {@link TraceContextFilter} ahead of all other
+     * filters so its spans cover the whole request.
+     *
+     * @param runTimer The {@link RunTimer} that sends the spans
+     * @param service The name of this microservice
+     * @param enabled True if the spans are sent to the timer service
+     * @param sampleRate The fraction of new traces that are sampled
+     * @return A {@link FilterRegistrationBean} for the filter
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = SERVLET)
+    @Conditional(TracingOrServerTiming.class)
+    FilterRegistrationBean<TraceContextFilter> traceContextFilter
+        (RunTimer runTimer,
+         @Value("${spring.application.name:application}") String service,
+         @Value("${app.trace.enabled:true}") boolean enabled,
+         @Value("${app.trace.sample-rate:0.1}") double sampleRate) {
+        var registration =
+            new FilterRegistrationBean<>(new TraceContextFilter(runTimer,
+                                                                service,
+                                                                enabled,
+                                                                sampleRate));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Install the Reactor schedule hook that charges requests with
+     * the bytes their scheduled tasks allocate.  The bean isn't lazy
+     * since nothing else depends on it.
+     *
+     * @return A {@link DisposableBean} that removes the hook when the
+     *         application context closes
+     */
+    @Bean
+    @Lazy(false)
+    @ConditionalOnProperty("app.trace.allocations")
+    DisposableBean allocationScheduleHook() {
+        Allocations.installScheduleHook();
+        return Allocations::removeScheduleHook;
+    }
+
+    /**
+     * Register the {@link ServerTimingFilter} just inside the {@link
+     * TraceContextFilter} so the trace is available when it adds the
+     * header.
+     *
+     * @return A {@link FilterRegistrationBean} for the filter
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = SERVLET)
+    @ConditionalOnProperty("app.server-timing.enabled")
+    FilterRegistrationBean<ServerTimingFilter> serverTimingFilter() {
+        var registration =
+            new FilterRegistrationBean<>(new ServerTimingFilter());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+
+    /**
+     * @return The {@link TraceResponseBodyAdvice} that marks the
+     *         start of the "serialize" stage
+     */
+    @Bean
+    @ConditionalOnWebApplication(type = SERVLET)
+    @Conditional(TracingOrServerTiming.class)
+    TraceResponseBodyAdvice traceResponseBodyAdvice() {
+        return new TraceResponseBodyAdvice();
+    }
+
+    /**
+     * Matches if tracing or the "Server-Timing" header is enabled,
+     * i.e., if anything uses the per-request {@link TraceContext}.
+     */
+    static class TracingOrServerTiming
+           extends AnyNestedCondition {
+        /**
+         * Constructor evaluates the conditions when beans are
+         * registered.
+         */
+        TracingOrServerTiming() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(value = "app.trace.enabled", matchIfMissing = true)
+        static class Tracing {
+        }
+
+        @ConditionalOnProperty("app.server-timing.enabled")
+        static class ServerTiming {
+        }
+    }
+}
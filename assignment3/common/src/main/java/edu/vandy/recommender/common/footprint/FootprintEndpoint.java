@@ -0,0 +1,122 @@
+package edu.vandy.recommender.common.footprint;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.cache.CacheManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This actuator endpoint estimates the retained heap size of the
+ * structures in the {@link FootprintRegistry} and of each cache of
+ * the {@link CacheManager} beans, e.g., {@code GET
+ * /actuator/footprint}.
+ */
+@Endpoint(id = "footprint")
+public class FootprintEndpoint {
+    /**
+     * The registered structures.
+     */
+    private final FootprintRegistry mRegistry;
+
+    /**
+     * The cache managers whose caches are reported.
+     */
+    private final List<CacheManager> mCacheManagers;
+
+    /**
+     * Estimates the size of each structure.
+     */
+    private final FootprintEstimator mEstimator;
+
+    /**
+     * Constructor initializes the fields.
+     *
+     * @param registry The registered structures
+     * @param cacheManagers The cache managers whose caches are
+     *                      reported
+     * @param estimator Estimates the size of each structure
+     */
+    public FootprintEndpoint(FootprintRegistry registry,
+                             List<CacheManager> cacheManagers,
+                             FootprintEstimator estimator) {
+        mRegistry = registry;
+        mCacheManagers = cacheManagers;
+        mEstimator = estimator;
+    }
+
+    /**
+     * @return The {@link StructureFootprint} of each structure that
+     *         exists
+     */
+    @ReadOperation
+    public List<StructureFootprint> footprints() {
+        List<StructureFootprint> footprints = new ArrayList<>();
+
+        mRegistry
+            .getStructures()
+            .forEach((name, structure) -> {
+                    var value = structure.get();
+                    if (value != null)
+                        footprints.add(footprint(name, value));
+                });
+
+        for (var cacheManager : mCacheManagers)
+            for (var cacheName : cacheManager.getCacheNames()) {
+                var cache = cacheManager.getCache(cacheName);
+                var entries = cache == null
+                    ? null
+                    : asMap(cache.getNativeCache());
+                if (entries != null)
+                    footprints.add(footprint("cache:" + cacheName,
+                                             entries));
+            }
+
+        return footprints;
+    }
+
+    /**
+     * @return The {@link StructureFootprint} of {@code structure}
+     */
+    private StructureFootprint footprint(String name, Object structure) {
+        var estimate = mEstimator.estimate(structure);
+
+        var footprint = new StructureFootprint();
+        footprint.name = name;
+        footprint.type = structure.getClass().getName();
+        footprint.entries = estimate.entries;
+        footprint.bytes = estimate.bytes;
+        footprint.bytesPerEntry = estimate.entries == 0
+            ? 0.0
+            : (double) estimate.bytes / estimate.entries;
+        footprint.vectorBytes = estimate.vectorBytes;
+        footprint.packedBytes = estimate.packedBytes();
+        return footprint;
+    }
+
+    /**
+     * Return the entries of a native cache, which is either a {@link
+     * Map} or has a public {@code asMap()} method (e.g., a Caffeine
+     * cache).
+     *
+     * @param nativeCache The native cache
+     * @return A {@link Map} view of the entries, or null if none
+     */
+    private static Map<?, ?> asMap(Object nativeCache) {
+        if (nativeCache instanceof Map<?, ?> map)
+            return map;
+
+        try {
+            return nativeCache
+                .getClass()
+                .getMethod("asMap")
+                .invoke(nativeCache) instanceof Map<?, ?> map
+                ? map
+                : null;
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,473 @@
+package edu.vandy.recommender.common.footprint;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * This class estimates the retained heap size of an object graph
+ * (e.g., the movie map or a cache) from a model of the HotSpot object
+ * layout, without the need for a Java agent.
+ *
+ * JDK collections can't be inspected reflectively, so their size is
+ * modeled from their public {@code size()} and the known sizes of
+ * their internal tables and entries.  Application objects are walked
+ * reflectively.  Only the first {@code sampleSize} elements of each
+ * collection are walked and the result is extrapolated, which keeps
+ * the cost low enough to call in production.
+ *
+ * It also tallies the bytes held by {@code List<Double>} vectors, so
+ * the savings of storing them as {@code double[]} can be reported.
+ */
+public class FootprintEstimator {
+    /**
+     * True if the JVM uses compressed object pointers.
+     */
+    private static final boolean sCompressedOops = compressedOops();
+
+    /**
+     * The size of a reference.
+     */
+    private static final int REFERENCE = sCompressedOops ? 4 : 8;
+
+    /**
+     * The size of an object header.
+     */
+    private static final int HEADER = sCompressedOops ? 12 : 16;
+
+    /**
+     * The size of an array header, including its length.
+     */
+    private static final int ARRAY_HEADER = sCompressedOops ? 16 : 24;
+
+    /**
+     * The shallow size of a boxed {@code long} or {@code double}.
+     */
+    private static final int BOXED_WIDE = align(HEADER + 8);
+
+    /**
+     * The shallow size of the other boxed primitives.
+     */
+    private static final int BOXED = align(HEADER + 4);
+
+    /**
+     * The shallow size of a {@link String}.
+     */
+    private static final int STRING = align(HEADER + REFERENCE + 4 + 2);
+
+    /**
+     * The number of elements of each collection that are walked.
+     */
+    private final int mSampleSize;
+
+    /**
+     * Constructor initializes the field.
+     *
+     * @param sampleSize The number of elements of each collection
+     *                   that are walked
+     */
+    public FootprintEstimator(int sampleSize) {
+        mSampleSize = sampleSize;
+    }
+
+    /**
+     * Estimate the retained size of the graph reachable from {@code
+     * root}.
+     *
+     * @param root The root of the object graph
+     * @return The {@link Footprint} of the graph
+     */
+    public Footprint estimate(Object root) {
+        var footprint = new Footprint();
+        footprint.entries = root instanceof Map<?, ?> map
+            ? map.size()
+            : root instanceof Collection<?> collection
+            ? collection.size()
+            : 1;
+        footprint.bytes = new Walk(footprint).size(root);
+        return footprint;
+    }
+
+    /**
+     * The estimated size of an object graph.
+     */
+    public static class Footprint {
+        /**
+         * The number of entries in the root collection, or 1.
+         */
+        public long entries;
+
+        /**
+         * The estimated retained size in bytes.
+         */
+        public long bytes;
+
+        /**
+         * The number of {@code List<Double>} vectors.
+         */
+        public long vectors;
+
+        /**
+         * The number of elements in the {@code List<Double>} vectors.
+         */
+        public long vectorElements;
+
+        /**
+         * The bytes retained by the {@code List<Double>} vectors.
+         */
+        public long vectorBytes;
+
+        /**
+         * @return The estimated size in bytes if each {@code
+         *         List<Double>} vector were a {@code double[]}
+         */
+        public long packedBytes() {
+            return bytes
+                - vectorBytes
+                + vectors * ARRAY_HEADER
+                + vectorElements * 8;
+        }
+    }
+
+    /**
+     * One walk of an object graph.
+     */
+    private class Walk {
+        /**
+         * The footprint whose vector tallies are updated.
+         */
+        private final Footprint mFootprint;
+
+        /**
+         * The objects that have already been counted.
+         */
+        private final Set<Object> mVisited =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+
+        /**
+         * Constructor initializes the field.
+         */
+        Walk(Footprint footprint) {
+            mFootprint = footprint;
+        }
+
+        /**
+         * @return The estimated retained size of {@code object} in
+         *         bytes, or 0 if it has already been counted
+         */
+        long size(Object object) {
+            if (object == null
+                || object instanceof Enum<?>
+                || object instanceof Class<?>
+                || !mVisited.add(object))
+                return 0;
+
+            if (object instanceof String string)
+                return STRING + array(string.length()
+                                      * (isLatin1(string) ? 1 : 2));
+
+            if (object instanceof Double || object instanceof Long)
+                return BOXED_WIDE;
+
+            if (object instanceof Number
+                || object instanceof Boolean
+                || object instanceof Character)
+                return BOXED;
+
+            if (object.getClass().isArray())
+                return arraySize(object);
+
+            if (object instanceof Map<?, ?> map)
+                return mapSize(map);
+
+            if (object instanceof Collection<?> collection)
+                return collectionSize(collection);
+
+            return objectSize(object);
+        }
+
+        /**
+         * @return The size of a {@link Map} and its sampled entries
+         */
+        private long mapSize(Map<?, ?> map) {
+            int size = map.size();
+            long entry;
+            long shell;
+
+            if (map instanceof LinkedHashMap<?, ?>) {
+                shell = align(HEADER + 6 * REFERENCE + 12) + table(size);
+                entry = align(HEADER + 6 * REFERENCE + 4);
+            } else if (map instanceof HashMap<?, ?>) {
+                shell = align(HEADER + 4 * REFERENCE + 16) + table(size);
+                entry = align(HEADER + 3 * REFERENCE + 4);
+            } else if (map instanceof ConcurrentHashMap<?, ?>) {
+                shell = align(HEADER + 6 * REFERENCE + 16) + table(size);
+                entry = align(HEADER + 3 * REFERENCE + 4);
+            } else if (map instanceof TreeMap<?, ?>) {
+                shell = align(HEADER + 5 * REFERENCE + 8);
+                entry = align(HEADER + 5 * REFERENCE + 1);
+            } else if (map instanceof ConcurrentSkipListMap<?, ?>) {
+                shell = align(HEADER + 6 * REFERENCE + 8);
+                entry = 2L * align(HEADER + 3 * REFERENCE);
+            } else {
+                shell = align(HEADER + 4 * REFERENCE + 8) + array((long) size * REFERENCE);
+                entry = align(HEADER + 2 * REFERENCE);
+            }
+
+            var tally = new Tally();
+            long sampled = 0;
+            long bytes = 0;
+            for (var mapEntry : map.entrySet()) {
+                if (sampled == mSampleSize)
+                    break;
+                sampled++;
+                bytes += entry
+                    + size(mapEntry.getKey())
+                    + size(mapEntry.getValue());
+            }
+            tally.extrapolate(sampled, size);
+
+            return shell + extrapolate(bytes, sampled, size);
+        }
+
+        /**
+         * @return The size of a {@link Collection} and its sampled
+         *         elements
+         */
+        private long collectionSize(Collection<?> collection) {
+            int size = collection.size();
+            long shell;
+            long element = 0;
+
+            if (collection instanceof LinkedList<?>) {
+                shell = align(HEADER + 2 * REFERENCE + 8);
+                element = align(HEADER + 3 * REFERENCE);
+            } else if (collection instanceof Set<?>) {
+                // Most sets are backed by a map.
+                shell = align(HEADER + REFERENCE)
+                    + align(HEADER + 4 * REFERENCE + 16)
+                    + table(size);
+                element = align(HEADER + 3 * REFERENCE + 4);
+            } else if (collection instanceof ArrayList<?>) {
+                shell = align(HEADER + REFERENCE + 8)
+                    + array((long) Math.max(size, 10) * REFERENCE);
+            } else {
+                // E.g., immutable and unmodifiable lists.
+                shell = align(HEADER + REFERENCE + 4)
+                    + array((long) size * REFERENCE);
+            }
+
+            var tally = new Tally();
+            long sampled = 0;
+            long bytes = 0;
+            boolean vector = collection instanceof List<?> && size > 0;
+            for (var item : collection) {
+                if (sampled == mSampleSize)
+                    break;
+                sampled++;
+                vector &= item instanceof Double;
+                bytes += element + size(item);
+            }
+            tally.extrapolate(sampled, size);
+
+            long total = shell + extrapolate(bytes, sampled, size);
+            if (vector) {
+                mFootprint.vectors++;
+                mFootprint.vectorElements += size;
+                mFootprint.vectorBytes += total;
+            }
+            return total;
+        }
+
+        /**
+         * @return The size of an array and its sampled elements
+         */
+        private long arraySize(Object array) {
+            int length = Array.getLength(array);
+            var component = array.getClass().getComponentType();
+
+            if (component.isPrimitive())
+                return array((long) length * primitiveSize(component));
+
+            var tally = new Tally();
+            long bytes = 0;
+            int sampled = Math.min(length, mSampleSize);
+            for (int i = 0; i < sampled; i++)
+                bytes += size(Array.get(array, i));
+            tally.extrapolate(sampled, length);
+
+            return array((long) length * REFERENCE)
+                + extrapolate(bytes, sampled, length);
+        }
+
+        /**
+         * Notes the vector tallies before a collection's elements are
+         * sampled, so those found within the sample can be scaled to
+         * the whole collection.
+         */
+        private class Tally {
+            /**
+             * The tallies before the sample.
+             */
+            private final long mVectors = mFootprint.vectors;
+            private final long mVectorElements = mFootprint.vectorElements;
+            private final long mVectorBytes = mFootprint.vectorBytes;
+
+            /**
+             * Scale the tallies found within the sample.
+             */
+            void extrapolate(long sampled, long size) {
+                mFootprint.vectors = mVectors
+                    + FootprintEstimator.extrapolate(mFootprint.vectors - mVectors,
+                                                     sampled, size);
+                mFootprint.vectorElements = mVectorElements
+                    + FootprintEstimator.extrapolate(mFootprint.vectorElements - mVectorElements,
+                                                     sampled, size);
+                mFootprint.vectorBytes = mVectorBytes
+                    + FootprintEstimator.extrapolate(mFootprint.vectorBytes - mVectorBytes,
+                                                     sampled, size);
+            }
+        }
+
+        /**
+         * @return The size of an application object and the objects
+         *         its fields refer to
+         */
+        private long objectSize(Object object) {
+            long shallow = HEADER;
+            long referred = 0;
+            boolean jdk = isJdk(object.getClass());
+
+            for (var type = object.getClass();
+                 type != null && type != Object.class;
+                 type = type.getSuperclass())
+                for (Field field : type.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers()))
+                        continue;
+
+                    var fieldType = field.getType();
+                    shallow += fieldType.isPrimitive()
+                        ? primitiveSize(fieldType)
+                        : REFERENCE;
+
+                    // JDK internals can't be accessed reflectively.
+                    if (jdk || fieldType.isPrimitive())
+                        continue;
+
+                    try {
+                        field.setAccessible(true);
+                        referred += size(field.get(object));
+                    } catch (RuntimeException | IllegalAccessException exception) {
+                        // Skip fields that can't be read.
+                    }
+                }
+
+            return align(shallow) + referred;
+        }
+    }
+
+    /**
+     * @return {@code bytes} measured for {@code sampled} elements
+     *         scaled to {@code size} elements
+     */
+    private static long extrapolate(long bytes, long sampled, long size) {
+        return sampled == 0 || sampled >= size
+            ? bytes
+            : bytes * size / sampled;
+    }
+
+    /**
+     * @return The size of a hash table with room for {@code size}
+     *         entries at the default load factor
+     */
+    private static long table(int size) {
+        if (size == 0)
+            return 0;
+
+        long capacity = 1;
+        while (capacity * 3 < size * 4L)
+            capacity <<= 1;
+        return array(capacity * REFERENCE);
+    }
+
+    /**
+     * @return The size of an array whose elements take {@code bytes}
+     */
+    private static long array(long bytes) {
+        return align(ARRAY_HEADER + bytes);
+    }
+
+    /**
+     * @return {@code size} rounded up to a multiple of 8 bytes
+     */
+    private static int align(long size) {
+        return (int) ((size + 7) & ~7L);
+    }
+
+    /**
+     * @return The size of a field or array element of primitive
+     *         {@code type}
+     */
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class)
+            return 8;
+        else if (type == int.class || type == float.class)
+            return 4;
+        else if (type == short.class || type == char.class)
+            return 2;
+        else
+            return 1;
+    }
+
+    /**
+     * @return True if the {@code string} is stored with one byte per
+     *         character
+     */
+    private static boolean isLatin1(String string) {
+        for (int i = 0; i < string.length(); i++)
+            if (string.charAt(i) > 0xFF)
+                return false;
+        return true;
+    }
+
+    /**
+     * @return True if {@code type} belongs to the JDK
+     */
+    private static boolean isJdk(Class<?> type) {
+        var name = type.getName();
+        return name.startsWith("java.")
+            || name.startsWith("javax.")
+            || name.startsWith("jdk.")
+            || name.startsWith("sun.");
+    }
+
+    /**
+     * @return True if the JVM uses compressed object pointers
+     */
+    private static boolean compressedOops() {
+        try {
+            return Boolean.parseBoolean(ManagementFactory
+                                        .getPlatformMXBean(HotSpotDiagnosticMXBean.class)
+                                        .getVMOption("UseCompressedOops")
+                                        .getValue());
+        } catch (RuntimeException exception) {
+            return true;
+        }
+    }
+}
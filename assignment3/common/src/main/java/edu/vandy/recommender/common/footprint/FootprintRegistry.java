@@ -0,0 +1,38 @@
+package edu.vandy.recommender.common.footprint;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * This class holds the in-memory structures (e.g., catalogs, caches,
+ * and indexes) whose footprint is reported by the actuator
+ * "footprint" endpoint.  Each structure is registered with a {@link
+ * Supplier} so structures that are created lazily aren't forced into
+ * existence by the report.
+ */
+public class FootprintRegistry {
+    /**
+     * Associates each name with a {@link Supplier} of its structure.
+     */
+    private final Map<String, Supplier<?>> mStructures =
+        new ConcurrentSkipListMap<>();
+
+    /**
+     * Register a structure.
+     *
+     * @param name The name of the structure
+     * @param structure Supplies the structure, or null if it doesn't
+     *                  exist (yet)
+     */
+    public void register(String name, Supplier<?> structure) {
+        mStructures.put(name, structure);
+    }
+
+    /**
+     * @return The registered structures ordered by name
+     */
+    public Map<String, Supplier<?>> getStructures() {
+        return mStructures;
+    }
+}
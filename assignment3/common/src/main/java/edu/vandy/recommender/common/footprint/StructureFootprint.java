@@ -0,0 +1,52 @@
+package edu.vandy.recommender.common.footprint;
+
+/**
+ * This Data Transfer Object (DTO) reports the estimated retained heap
+ * size of one in-memory structure (e.g., the movie map or a cache).
+ * It's returned by the actuator "footprint" endpoint.  All sizes are
+ * in bytes.
+ */
+public class StructureFootprint {
+    /**
+     * The name the structure was registered under, e.g., "movieMap"
+     * or "cache:moviesCache".
+     */
+    public String name;
+
+    /**
+     * The class of the structure.
+     */
+    public String type;
+
+    /**
+     * The number of entries in the structure.
+     */
+    public long entries;
+
+    /**
+     * The estimated retained size.
+     */
+    public long bytes;
+
+    /**
+     * The estimated retained size per entry.
+     */
+    public double bytesPerEntry;
+
+    /**
+     * The part of {@code bytes} held by {@code List<Double>} vectors.
+     */
+    public long vectorBytes;
+
+    /**
+     * The estimated retained size if each {@code List<Double>} vector
+     * were a {@code double[]}.
+     */
+    public long packedBytes;
+
+    /**
+     * A default constructor is needed for encoding/decoding.
+     */
+    public StructureFootprint() {
+    }
+}
@@ -0,0 +1,37 @@
+package edu.vandy.recommender.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This JDK Flight Recorder (JFR) event records the time taken to scan
+ * the movie catalog, i.e., to compute the similarity of every
+ * candidate movie, and the number of candidates that were scored.
+ */
+@Name(CatalogScanEvent.NAME)
+@Label("Catalog Scan")
+@Category({"Recommender"})
+@Description("Scores each candidate movie in the catalog")
+@StackTrace(false)
+public class CatalogScanEvent
+       extends jdk.jfr.Event {
+    /**
+     * The name of this event type.
+     */
+    public static final String NAME = "edu.vandy.recommender.CatalogScan";
+
+    /**
+     * The top-K selection strategy (e.g., "heap" or "sort").
+     */
+    @Label("Strategy")
+    public String strategy;
+
+    /**
+     * The number of candidate movies that were scored.
+     */
+    @Label("Candidate Count")
+    public long candidateCount;
+}
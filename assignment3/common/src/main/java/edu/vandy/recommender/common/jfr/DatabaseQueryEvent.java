@@ -0,0 +1,36 @@
+package edu.vandy.recommender.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This JDK Flight Recorder (JFR) event records the time taken by a
+ * database query and the number of rows it returned.
+ */
+@Name(DatabaseQueryEvent.NAME)
+@Label("Database Query")
+@Category({"Recommender"})
+@Description("Runs a query against the movie database")
+@StackTrace(false)
+public class DatabaseQueryEvent
+       extends jdk.jfr.Event {
+    /**
+     * The name of this event type.
+     */
+    public static final String NAME = "edu.vandy.recommender.DatabaseQuery";
+
+    /**
+     * The repository method that ran the query.
+     */
+    @Label("Query")
+    public String query;
+
+    /**
+     * The number of rows returned, or -1 if unknown.
+     */
+    @Label("Result Count")
+    public long resultCount;
+}
@@ -0,0 +1,37 @@
+package edu.vandy.recommender.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This JDK Flight Recorder (JFR) event records the time taken to load
+ * the movie dataset (e.g., from a resource file or the database
+ * microservice) and the number of movies that were loaded.
+ */
+@Name(DatasetLoadEvent.NAME)
+@Label("Dataset Load")
+@Category({"Recommender"})
+@Description("Loads the movie titles and cosine vectors")
+@StackTrace(false)
+public class DatasetLoadEvent
+       extends jdk.jfr.Event {
+    /**
+     * The name of this event type.
+     */
+    public static final String NAME = "edu.vandy.recommender.DatasetLoad";
+
+    /**
+     * Where the dataset was loaded from.
+     */
+    @Label("Dataset")
+    public String dataset;
+
+    /**
+     * The number of movies that were loaded.
+     */
+    @Label("Dataset Size")
+    public int datasetSize;
+}
@@ -0,0 +1,91 @@
+package edu.vandy.recommender.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.net.URI;
+
+/**
+ * This JDK Flight Recorder (JFR) event records an outbound HTTP call
+ * made by a microservice, e.g., to the database microservice via the
+ * gateway.  For a {@code WebClient} the event ends when the response
+ * headers arrive.
+ */
+@Name(HttpCallEvent.NAME)
+@Label("HTTP Call")
+@Category({"Recommender"})
+@Description("Makes an outbound HTTP request")
+@StackTrace(false)
+public class HttpCallEvent
+       extends jdk.jfr.Event {
+    /**
+     * The name of this event type.
+     */
+    public static final String NAME = "edu.vandy.recommender.HttpCall";
+
+    /**
+     * The HTTP method.
+     */
+    @Label("Method")
+    public String method;
+
+    /**
+     * The URI of the request without its query.
+     */
+    @Label("URI")
+    public String uri;
+
+    /**
+     * The HTTP status code, or 0 if the call failed.
+     */
+    @Label("Status")
+    public int status;
+
+    /**
+     * The number of bytes serialized into the request body, or -1 if
+     * unknown.
+     */
+    @Label("Request Bytes")
+    @DataAmount
+    public long requestBytes;
+
+    /**
+     * The length of the response body, or -1 if unknown.
+     */
+    @Label("Response Bytes")
+    @DataAmount
+    public long responseBytes;
+
+    /**
+     * Commit this event if it's enabled and took long enough.
+     *
+     * @param method The HTTP method
+     * @param uri The URI of the request
+     * @param status The HTTP status code, or 0 if the call failed
+     * @param requestBytes The length of the request body
+     * @param responseBytes The length of the response body
+     */
+    public void commit(String method,
+                       URI uri,
+                       int status,
+                       long requestBytes,
+                       long responseBytes) {
+        if (!shouldCommit())
+            return;
+
+        this.method = method;
+        // Drop the query to keep the number of distinct URIs small.
+        this.uri = uri.getScheme()
+            + "://"
+            + uri.getRawAuthority()
+            + uri.getRawPath();
+        this.status = status;
+        this.requestBytes = requestBytes;
+        this.responseBytes = responseBytes;
+        commit();
+    }
+}
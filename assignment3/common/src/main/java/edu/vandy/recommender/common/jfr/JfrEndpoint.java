@@ -0,0 +1,53 @@
+package edu.vandy.recommender.common.jfr;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+import java.util.List;
+
+/**
+ * This actuator endpoint returns the hottest custom JDK Flight
+ * Recorder events summarized by the {@link JfrEventSummarizer}, e.g.,
+ * {@code GET /actuator/jfr?limit=5}.  A {@code DELETE} clears them.
+ */
+@Endpoint(id = "jfr")
+public class JfrEndpoint {
+    /**
+     * The number of summaries returned by default.
+     */
+    private static final int DEFAULT_LIMIT = 20;
+
+    /**
+     * The summarizer of the events.
+     */
+    private final JfrEventSummarizer mSummarizer;
+
+    /**
+     * Constructor initializes the field.
+     *
+     * @param summarizer The summarizer of the events
+     */
+    public JfrEndpoint(JfrEventSummarizer summarizer) {
+        mSummarizer = summarizer;
+    }
+
+    /**
+     * @param limit The maximum number of summaries to return
+     * @return The summaries of the hottest event groups
+     */
+    @ReadOperation
+    public List<JfrEventSummary> hottest(@Nullable Integer limit) {
+        return mSummarizer
+            .getHottest(limit == null ? DEFAULT_LIMIT : limit);
+    }
+
+    /**
+     * Clears all previously summarized events.
+     */
+    @DeleteOperation
+    public void clear() {
+        mSummarizer.clear();
+    }
+}
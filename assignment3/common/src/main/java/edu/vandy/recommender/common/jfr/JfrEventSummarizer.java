@@ -0,0 +1,145 @@
+package edu.vandy.recommender.common.jfr;
+
+import edu.vandy.recommender.common.LatencyHistogram;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class consumes the custom JDK Flight Recorder (JFR) events of
+ * this microservice via a {@link RecordingStream} and aggregates their
+ * durations into one {@link LatencyHistogram} per event type and key,
+ * so the hottest code paths can be found in production without
+ * attaching external tools.
+ *
+ * The events cost next to nothing unless a recording (this stream or
+ * one started via {@code jcmd JFR.start}) enables them.
+ */
+public class JfrEventSummarizer
+       implements AutoCloseable {
+    /**
+     * Associates each event type with the field its events are
+     * grouped by.
+     */
+    private static final Map<String, String> sKeyFields = Map
+        .of(DatasetLoadEvent.NAME, "dataset",
+            CatalogScanEvent.NAME, "strategy",
+            TopKSelectionEvent.NAME, "strategy",
+            DatabaseQueryEvent.NAME, "query",
+            HttpCallEvent.NAME, "uri");
+
+    /**
+     * The stream that delivers the events.
+     */
+    private final RecordingStream mStream;
+
+    /**
+     * Associates each event type with the durations of its events in
+     * microseconds for each key.
+     */
+    private final Map<String, Map<String, LatencyHistogram>> mEvents =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Start streaming the custom events.
+     *
+     * @param maxAge How long the stream keeps events on disk
+     */
+    public JfrEventSummarizer(Duration maxAge) {
+        mStream = new RecordingStream();
+        mStream.setMaxAge(maxAge);
+
+        sKeyFields
+            .keySet()
+            .forEach(name -> {
+                    // Enable each event type regardless of its
+                    // duration.
+                    mStream.enable(name).withoutThreshold();
+                    mStream.onEvent(name, this::add);
+                });
+
+        mStream.startAsync();
+    }
+
+    /**
+     * Record one event.
+     *
+     * @param event The {@link RecordedEvent} to record
+     */
+    void add(RecordedEvent event) {
+        var name = event.getEventType().getName();
+        var key = event.getString(sKeyFields.get(name));
+
+        mEvents
+            // Atomically find or create the keys of this event type.
+            .computeIfAbsent(name, __ -> new ConcurrentHashMap<>())
+
+            // Atomically find or create the histogram of this key.
+            .computeIfAbsent(key == null ? "" : key,
+                             __ -> new LatencyHistogram())
+
+            // Record the duration in microseconds.
+            .recordNanos(event.getDuration().toNanos());
+    }
+
+    /**
+     * Return the summaries of the event groups that took the most
+     * time in total.
+     *
+     * @param limit The maximum number of summaries to return
+     * @return A {@link List} of {@link JfrEventSummary} objects
+     *         ordered from the most to the least total time
+     */
+    public List<JfrEventSummary> getHottest(int limit) {
+        List<JfrEventSummary> summaries = new ArrayList<>();
+
+        mEvents
+            .forEach((name, keys) -> keys
+                     .forEach((key, histogram) -> {
+                             var snapshot = histogram.snapshot();
+                             var summary = new JfrEventSummary();
+                             summary.event = name;
+                             summary.key = key;
+                             summary.count = snapshot.count();
+                             summary.total = snapshot.sum() / 1_000.0;
+                             summary.mean = snapshot.mean() / 1_000.0;
+                             summary.p99 = snapshot.percentile(99.0) / 1_000.0;
+                             summary.max = snapshot.max() / 1_000.0;
+                             summaries.add(summary);
+                         }));
+
+        return summaries
+            .stream()
+            // Order the groups from the most to the least total time.
+            .sorted(Comparator
+                    .comparingDouble((JfrEventSummary summary)
+                                     -> summary.total)
+                    .reversed())
+
+            // Only keep the hottest groups.
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * Clears all previously recorded events.
+     */
+    public void clear() {
+        mEvents.clear();
+    }
+
+    /**
+     * Stop streaming.  Spring calls this method when the application
+     * context closes.
+     */
+    @Override
+    public void close() {
+        mStream.close();
+    }
+}
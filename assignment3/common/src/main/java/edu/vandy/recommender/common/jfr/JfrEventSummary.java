@@ -0,0 +1,50 @@
+package edu.vandy.recommender.common.jfr;
+
+/**
+ * This Data Transfer Object (DTO) summarizes the JDK Flight Recorder
+ * events of one type that share a key (e.g., the {@link
+ * DatabaseQueryEvent} events of one query).  It's returned by the
+ * actuator "jfr" endpoint.  All durations are in milliseconds.
+ */
+public class JfrEventSummary {
+    /**
+     * The name of the event type.
+     */
+    public String event;
+
+    /**
+     * The value of the event field the events are grouped by.
+     */
+    public String key;
+
+    /**
+     * The number of events.
+     */
+    public long count;
+
+    /**
+     * The total duration of the events.
+     */
+    public double total;
+
+    /**
+     * The mean duration.
+     */
+    public double mean;
+
+    /**
+     * The 99th percentile duration.
+     */
+    public double p99;
+
+    /**
+     * The maximum duration.
+     */
+    public double max;
+
+    /**
+     * A default constructor is needed for encoding/decoding.
+     */
+    public JfrEventSummary() {
+    }
+}
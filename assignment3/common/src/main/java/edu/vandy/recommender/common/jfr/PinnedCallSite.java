@@ -0,0 +1,42 @@
+package edu.vandy.recommender.common.jfr;
+
+import java.util.List;
+
+/**
+ * This Data Transfer Object (DTO) summarizes the times virtual
+ * threads were pinned to their carrier threads at one call site,
+ * i.e., the first frame outside the JDK of the pinned stack.  All
+ * durations are in milliseconds.
+ */
+public class PinnedCallSite {
+    /**
+     * The call site, e.g., "org.h2.engine.SessionLocal.lock:1089".
+     */
+    public String callSite;
+
+    /**
+     * The number of times a virtual thread was pinned here.
+     */
+    public long count;
+
+    /**
+     * The total time virtual threads were pinned here.
+     */
+    public double total;
+
+    /**
+     * The maximum time a virtual thread was pinned here.
+     */
+    public double max;
+
+    /**
+     * The top frames of the first pinned stack seen here.
+     */
+    public List<String> stackTrace;
+
+    /**
+     * A default constructor is needed for encoding/decoding.
+     */
+    public PinnedCallSite() {
+    }
+}
@@ -0,0 +1,43 @@
+package edu.vandy.recommender.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * This JDK Flight Recorder (JFR) event records the time taken to
+ * select the {@code maxCount} most similar movies once the last
+ * candidate has been scored.
+ */
+@Name(TopKSelectionEvent.NAME)
+@Label("Top-K Selection")
+@Category({"Recommender"})
+@Description("Selects the most similar candidate movies")
+@StackTrace(false)
+public class TopKSelectionEvent
+       extends jdk.jfr.Event {
+    /**
+     * The name of this event type.
+     */
+    public static final String NAME = "edu.vandy.recommender.TopKSelection";
+
+    /**
+     * The top-K selection strategy (e.g., "heap" or "sort").
+     */
+    @Label("Strategy")
+    public String strategy;
+
+    /**
+     * The upper limit for the number of recommendations.
+     */
+    @Label("Max Count")
+    public int maxCount;
+
+    /**
+     * The number of candidate movies the top ones were selected from.
+     */
+    @Label("Candidate Count")
+    public long candidateCount;
+}
@@ -0,0 +1,348 @@
+package edu.vandy.recommender.common.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class finds the places where virtual threads pin their carrier
+ * threads, e.g., by blocking on JDBC I/O inside {@code synchronized}
+ * driver code, which caps the throughput of the microservices that
+ * handle each request on a virtual thread.
+ *
+ * It consumes the JDK's virtual thread events via a {@link
+ * RecordingStream}, aggregates the {@code jdk.VirtualThreadPinned}
+ * events by call site (the first frame outside the JDK), counts the
+ * virtual threads started and ended, and compares the number of
+ * carrier threads with the scheduler's parallelism to detect carrier
+ * starvation.
+ */
+public class VirtualThreadDiagnostics
+       implements AutoCloseable {
+    /**
+     * Emitted when a virtual thread blocks while pinned.
+     */
+    private static final String PINNED = "jdk.VirtualThreadPinned";
+
+    /**
+     * Emitted when a virtual thread starts.
+     */
+    private static final String START = "jdk.VirtualThreadStart";
+
+    /**
+     * Emitted when a virtual thread ends.
+     */
+    private static final String END = "jdk.VirtualThreadEnd";
+
+    /**
+     * Emitted when a virtual thread can't be scheduled.
+     */
+    private static final String SUBMIT_FAILED = "jdk.VirtualThreadSubmitFailed";
+
+    /**
+     * The class of the carrier threads.
+     */
+    private static final String CARRIER_THREAD =
+        "jdk.internal.misc.CarrierThread";
+
+    /**
+     * The number of frames kept for each call site.
+     */
+    private static final int STACK_DEPTH = 12;
+
+    /**
+     * The stream that delivers the events.
+     */
+    private final RecordingStream mStream;
+
+    /**
+     * The number of carrier threads the scheduler aims to keep busy.
+     */
+    private final int mParallelism =
+        Integer.getInteger("jdk.virtualThreadScheduler.parallelism",
+                           Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Associates each call site with its pinned events.
+     */
+    private final Map<String, CallSite> mCallSites =
+        new ConcurrentHashMap<>();
+
+    /**
+     * The number of virtual threads started since the last clear.
+     */
+    private final LongAdder mStarted = new LongAdder();
+
+    /**
+     * The number of virtual threads started but not yet ended.
+     */
+    private final AtomicLong mLive = new AtomicLong();
+
+    /**
+     * The number of virtual threads that couldn't be scheduled.
+     */
+    private final LongAdder mSubmitFailures = new LongAdder();
+
+    /**
+     * The time the statistics were last cleared.
+     */
+    private volatile long mSinceNanos = System.nanoTime();
+
+    /**
+     * Start streaming the virtual thread events.
+     *
+     * @param pinnedThreshold The minimum time a virtual thread must
+     *                        block while pinned to be recorded
+     * @param countThreads True if virtual threads are counted, which
+     *                     emits two events per virtual thread
+     */
+    public VirtualThreadDiagnostics(Duration pinnedThreshold,
+                                    boolean countThreads) {
+        mStream = new RecordingStream();
+        mStream.setMaxAge(Duration.ofMinutes(1));
+
+        mStream
+            .enable(PINNED)
+            .withThreshold(pinnedThreshold)
+            .withStackTrace();
+        mStream.onEvent(PINNED, this::pinned);
+
+        mStream.enable(SUBMIT_FAILED);
+        mStream.onEvent(SUBMIT_FAILED, __ -> mSubmitFailures.increment());
+
+        if (countThreads) {
+            mStream.enable(START);
+            mStream.onEvent(START, __ -> started());
+
+            mStream.enable(END);
+            mStream.onEvent(END, __ -> ended());
+        }
+
+        mStream.startAsync();
+    }
+
+    /**
+     * Record a pinned event.
+     *
+     * @param event A {@code jdk.VirtualThreadPinned} event
+     */
+    void pinned(RecordedEvent event) {
+        List<String> frames = new ArrayList<>();
+        String callSite = null;
+
+        var stackTrace = event.getStackTrace();
+        if (stackTrace != null)
+            for (var frame : stackTrace.getFrames()) {
+                var location = format(frame);
+                if (frames.size() < STACK_DEPTH)
+                    frames.add(location);
+
+                // The call site is the first frame outside the JDK.
+                if (callSite == null && !isJdk(frame))
+                    callSite = location;
+            }
+
+        if (callSite == null)
+            callSite = frames.isEmpty() ? "unknown" : frames.get(0);
+
+        mCallSites
+            // Atomically find or create the call site.
+            .computeIfAbsent(callSite, __ -> new CallSite(frames))
+
+            // Record the time the virtual thread was pinned.
+            .record(event.getDuration().toNanos());
+    }
+
+    /**
+     * Count a virtual thread that started.
+     */
+    void started() {
+        mStarted.increment();
+        mLive.incrementAndGet();
+    }
+
+    /**
+     * Count a virtual thread that ended.  A virtual thread that
+     * started before the stream can't be told apart from one that
+     * started after it, so the count is clamped at zero.
+     */
+    void ended() {
+        mLive.updateAndGet(live -> Math.max(0, live - 1));
+    }
+
+    /**
+     * Return a report of the virtual threads.
+     *
+     * @param limit The maximum number of call sites to return
+     * @return A {@link VirtualThreadReport}
+     */
+    public VirtualThreadReport getReport(int limit) {
+        var report = new VirtualThreadReport();
+        report.parallelism = mParallelism;
+        report.carrierThreads = countCarrierThreads();
+        report.startedVirtualThreads = mStarted.sum();
+        report.liveVirtualThreads = mLive.get();
+        report.submitFailures = mSubmitFailures.sum();
+
+        List<PinnedCallSite> callSites = new ArrayList<>();
+        long pinnedNanos = 0;
+        for (var entry : mCallSites.entrySet()) {
+            var callSite = entry.getValue().summarize(entry.getKey());
+            report.pinnedCount += callSite.count;
+            pinnedNanos += entry.getValue().mNanos.sum();
+            callSites.add(callSite);
+        }
+
+        report.pinnedTotal = pinnedNanos / 1_000_000.0;
+        long elapsed = System.nanoTime() - mSinceNanos;
+        report.pinnedCarrierRatio = elapsed <= 0
+            ? 0.0
+            : (double) pinnedNanos / ((double) mParallelism * elapsed);
+
+        report.callSites = callSites
+            .stream()
+            // Order the call sites from the most to the least time.
+            .sorted(Comparator
+                    .comparingDouble((PinnedCallSite callSite)
+                                     -> callSite.total)
+                    .reversed())
+
+            // Only keep the worst call sites.
+            .limit(limit)
+            .toList();
+
+        return report;
+    }
+
+    /**
+     * Clears all previously recorded statistics except for the
+     * number of live virtual threads.
+     */
+    public void clear() {
+        mCallSites.clear();
+        mStarted.reset();
+        mSubmitFailures.reset();
+        mSinceNanos = System.nanoTime();
+    }
+
+    /**
+     * Stop streaming.  Spring calls this method when the application
+     * context closes.
+     */
+    @Override
+    public void close() {
+        mStream.close();
+    }
+
+    /**
+     * @return The number of live carrier threads, which are found by
+     *         enumerating the root {@link ThreadGroup} rather than
+     *         capturing the stack of every thread
+     */
+    static int countCarrierThreads() {
+        var root = Thread.currentThread().getThreadGroup();
+        while (root.getParent() != null)
+            root = root.getParent();
+
+        // Grow the array until it holds all the threads.
+        Thread[] threads;
+        int count;
+        do {
+            threads = new Thread[root.activeCount() * 2 + 16];
+            count = root.enumerate(threads, true);
+        } while (count == threads.length);
+
+        int carriers = 0;
+        for (int i = 0; i < count; i++)
+            if (threads[i].getClass().getName().equals(CARRIER_THREAD))
+                carriers++;
+        return carriers;
+    }
+
+    /**
+     * @return True if the {@code frame} belongs to the JDK
+     */
+    private static boolean isJdk(RecordedFrame frame) {
+        var type = frame.getMethod().getType().getName();
+        return type.startsWith("java.")
+            || type.startsWith("jdk.")
+            || type.startsWith("sun.");
+    }
+
+    /**
+     * @return The {@code frame} as "class.method:line"
+     */
+    private static String format(RecordedFrame frame) {
+        var method = frame.getMethod();
+        return method.getType().getName()
+            + "."
+            + method.getName()
+            + ":"
+            + frame.getLineNumber();
+    }
+
+    /**
+     * The pinned events of one call site.
+     */
+    private static class CallSite {
+        /**
+         * The top frames of the first pinned stack.
+         */
+        private final List<String> mStackTrace;
+
+        /**
+         * The number of pinned events.
+         */
+        private final LongAdder mCount = new LongAdder();
+
+        /**
+         * The total time pinned in nanoseconds.
+         */
+        private final LongAdder mNanos = new LongAdder();
+
+        /**
+         * The longest time pinned in nanoseconds.
+         */
+        private final LongAccumulator mMaxNanos =
+            new LongAccumulator(Math::max, 0);
+
+        /**
+         * Constructor initializes the field.
+         */
+        CallSite(List<String> stackTrace) {
+            mStackTrace = stackTrace;
+        }
+
+        /**
+         * Record one pinned event.
+         */
+        void record(long nanos) {
+            mCount.increment();
+            mNanos.add(nanos);
+            mMaxNanos.accumulate(nanos);
+        }
+
+        /**
+         * @return A {@link PinnedCallSite} summarizing this call site
+         */
+        PinnedCallSite summarize(String callSite) {
+            var summary = new PinnedCallSite();
+            summary.callSite = callSite;
+            summary.count = mCount.sum();
+            summary.total = mNanos.sum() / 1_000_000.0;
+            summary.max = mMaxNanos.get() / 1_000_000.0;
+            summary.stackTrace = mStackTrace;
+            return summary;
+        }
+    }
+}
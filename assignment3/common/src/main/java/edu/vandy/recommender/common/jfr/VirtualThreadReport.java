@@ -0,0 +1,70 @@
+package edu.vandy.recommender.common.jfr;
+
+import java.util.List;
+
+/**
+ * This Data Transfer Object (DTO) reports the health of the virtual
+ * threads of a microservice since the {@link
+ * VirtualThreadDiagnostics} started or were last cleared.  It's
+ * returned by the actuator "virtualthreads" endpoint.  All durations
+ * are in milliseconds.
+ */
+public class VirtualThreadReport {
+    /**
+     * The number of carrier threads the virtual thread scheduler
+     * aims to keep busy.
+     */
+    public int parallelism;
+
+    /**
+     * The number of live carrier threads, which exceeds {@code
+     * parallelism} when the scheduler compensates for carriers that
+     * are blocked while pinned.
+     */
+    public int carrierThreads;
+
+    /**
+     * The number of virtual threads started.
+     */
+    public long startedVirtualThreads;
+
+    /**
+     * The number of virtual threads started but not yet ended.
+     */
+    public long liveVirtualThreads;
+
+    /**
+     * The number of virtual threads that couldn't be scheduled.
+     */
+    public long submitFailures;
+
+    /**
+     * The number of times a virtual thread blocked while pinned for
+     * longer than the threshold.
+     */
+    public long pinnedCount;
+
+    /**
+     * The total time virtual threads were blocked while pinned.
+     */
+    public double pinnedTotal;
+
+    /**
+     * The fraction of the carriers' capacity lost to pinning, i.e.,
+     * {@code pinnedTotal} divided by {@code parallelism} times the
+     * elapsed time.
+     */
+    public double pinnedCarrierRatio;
+
+    /**
+     * The call sites where virtual threads were pinned for the most
+     * time in total.
+     */
+    public List<PinnedCallSite> callSites;
+
+    /**
+     * A default constructor is needed for encoding/decoding.
+     */
+    public VirtualThreadReport() {
+    }
+}
@@ -0,0 +1,51 @@
+package edu.vandy.recommender.common.jfr;
+
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+
+/**
+ * This actuator endpoint returns the {@link VirtualThreadReport} of
+ * the {@link VirtualThreadDiagnostics}, e.g., {@code GET
+ * /actuator/virtualthreads?limit=5}.  A {@code DELETE} clears it.
+ */
+@Endpoint(id = "virtualthreads")
+public class VirtualThreadsEndpoint {
+    /**
+     * The number of call sites returned by default.
+     */
+    private static final int DEFAULT_LIMIT = 10;
+
+    /**
+     * The diagnostics of the virtual threads.
+     */
+    private final VirtualThreadDiagnostics mDiagnostics;
+
+    /**
+     * Constructor initializes the field.
+     *
+     * @param diagnostics The diagnostics of the virtual threads
+     */
+    public VirtualThreadsEndpoint(VirtualThreadDiagnostics diagnostics) {
+        mDiagnostics = diagnostics;
+    }
+
+    /**
+     * @param limit The maximum number of call sites to return
+     * @return The {@link VirtualThreadReport}
+     */
+    @ReadOperation
+    public VirtualThreadReport report(@Nullable Integer limit) {
+        return mDiagnostics
+            .getReport(limit == null ? DEFAULT_LIMIT : limit);
+    }
+
+    /**
+     * Clears all previously recorded statistics.
+     */
+    @DeleteOperation
+    public void clear() {
+        mDiagnostics.clear();
+    }
+}
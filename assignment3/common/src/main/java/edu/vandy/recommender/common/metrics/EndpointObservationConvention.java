@@ -0,0 +1,79 @@
+package edu.vandy.recommender.common.metrics;
+
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+import org.springframework.http.server.observation.DefaultServerRequestObservationConvention;
+import org.springframework.http.server.observation.ServerRequestObservationContext;
+
+import static edu.vandy.recommender.common.Constants.EndPoint.TIMED;
+
+/**
+ * This convention adds "service", "strategy", and "endpoint" tags to
+ * the "http.server.requests" timers that Spring records for every
+ * request, in addition to the default "uri", "method", "status", and
+ * "outcome" tags.  The "endpoint" tag is the first segment of the
+ * handler's path pattern (ignoring a leading "timed" segment), e.g.,
+ * "search" for both "/search/{query}" and "/timed/search/{query}", so
+ * timed and untimed requests are reported together.
+ */
+public class EndpointObservationConvention
+       extends DefaultServerRequestObservationConvention {
+    /**
+     * The value of the "endpoint" tag if no handler matched.
+     */
+    private static final String UNKNOWN = "UNKNOWN";
+
+    /**
+     * The "service" tag.
+     */
+    private final KeyValue mService;
+
+    /**
+     * The "strategy" tag.
+     */
+    private final KeyValue mStrategy;
+
+    /**
+     * Constructor initializes the fields.
+     *
+     * @param service The name of this microservice
+     * @param strategy The strategy this microservice uses to compute
+     *                 its results, e.g., "parallelflux"
+     */
+    public EndpointObservationConvention(String service,
+                                         String strategy) {
+        mService = KeyValue.of("service", service);
+        mStrategy = KeyValue.of("strategy", strategy);
+    }
+
+    /**
+     * @return The default tags plus the "service", "strategy", and
+     *         "endpoint" tags
+     */
+    @Override
+    public KeyValues getLowCardinalityKeyValues
+        (ServerRequestObservationContext context) {
+        return super
+            .getLowCardinalityKeyValues(context)
+            .and(mService,
+                 mStrategy,
+                 KeyValue.of("endpoint",
+                             endpoint(context.getPathPattern())));
+    }
+
+    /**
+     * @param pattern The path pattern of the handler, or null if no
+     *                handler matched
+     * @return The endpoint named by {@code pattern}
+     */
+    static String endpoint(String pattern) {
+        if (pattern == null)
+            return UNKNOWN;
+
+        for (var segment : pattern.split("/"))
+            if (!segment.isEmpty() && !segment.equals(TIMED))
+                return segment;
+
+        return "root";
+    }
+}
@@ -0,0 +1,146 @@
+package edu.vandy.recommender.common.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import reactor.core.Scannable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class instruments every executor that backs a Reactor {@link
+ * Scheduler} with Micrometer's {@link ExecutorServiceMetrics}, which
+ * is what the deprecated {@code Schedulers.enableMetrics()} did.
+ * Each executor is tagged with the name of its scheduler and its own
+ * index, e.g., {@code name=parallel(8,"parallel")-3}, so the
+ * "executor.execution", "executor.idle", "executor.completed", and
+ * "executor.queued" meters show how the tasks (e.g., the rails of a
+ * {@code ParallelFlux} run on the {@code parallel()} scheduler) are
+ * spread across the worker threads.
+ *
+ * The executors of the {@code boundedElastic()} schedulers aren't
+ * instrumented since they're created and discarded as their workers
+ * come and go, so each would leave behind its own set of meters.
+ *
+ * Only executors created after the decorator is installed are
+ * instrumented, so it's installed as a {@link
+ * BeanFactoryPostProcessor}, i.e., before any bean can create a
+ * scheduler.  The meters are registered with the global registry,
+ * which Spring Boot adds its own registry to.
+ */
+public class SchedulerMetrics
+       implements BeanFactoryPostProcessor, DisposableBean {
+    /**
+     * The key of the Reactor executor decorator.
+     */
+    private static final String DECORATOR_KEY =
+        SchedulerMetrics.class.getName();
+
+    /**
+     * The tag that identifies the scheduler of each executor.
+     */
+    private static final String SCHEDULER_TAG = "reactor.scheduler.id";
+
+    /**
+     * The prefix of the names of the {@code boundedElastic()}
+     * schedulers.
+     */
+    private static final String BOUNDED_ELASTIC = "boundedElastic";
+
+    /**
+     * The registry the meters are registered with.
+     */
+    private final MeterRegistry mRegistry;
+
+    /**
+     * Associates each scheduler name with the index of its next
+     * executor.
+     */
+    private final Map<String, AtomicInteger> mExecutorIndices =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Constructor registers the meters with the global registry.
+     */
+    public SchedulerMetrics() {
+        this(Metrics.globalRegistry);
+    }
+
+    /**
+     * Constructor initializes the field.
+     *
+     * @param registry The registry the meters are registered with
+     */
+    public SchedulerMetrics(MeterRegistry registry) {
+        mRegistry = registry;
+    }
+
+    /**
+     * Install the decorator before any other bean is created.
+     */
+    @Override
+    public void postProcessBeanFactory
+        (ConfigurableListableBeanFactory beanFactory) {
+        install();
+    }
+
+    /**
+     * Install the decorator that instruments each new executor.
+     */
+    public void install() {
+        Schedulers.setExecutorServiceDecorator(DECORATOR_KEY,
+                                               this::decorate);
+    }
+
+    /**
+     * Remove the decorator.  Spring calls this method when the
+     * application context closes.
+     */
+    @Override
+    public void destroy() {
+        Schedulers.removeExecutorServiceDecorator(DECORATOR_KEY);
+    }
+
+    /**
+     * Instrument one {@code executor} of a {@code scheduler}.
+     *
+     * @param scheduler The {@link Scheduler} that owns the executor
+     * @param executor The {@link ScheduledExecutorService} to
+     *                 instrument
+     * @return The instrumented {@link ScheduledExecutorService}, or
+     *         {@code executor} if it belongs to a {@code
+     *         boundedElastic()} scheduler
+     */
+    ScheduledExecutorService decorate(Scheduler scheduler,
+                                      ScheduledExecutorService executor) {
+        String schedulerName = Scannable
+            .from(scheduler)
+            .scanOrDefault(Scannable.Attr.NAME,
+                           scheduler.getClass().getName());
+
+        if (schedulerName.startsWith(BOUNDED_ELASTIC))
+            return executor;
+
+        int index = mExecutorIndices
+            // Atomically find or create the scheduler's counter.
+            .computeIfAbsent(schedulerName, __ -> new AtomicInteger())
+
+            // Assign this executor the next index.
+            .getAndIncrement();
+
+        return ExecutorServiceMetrics
+            .monitor(mRegistry,
+                     executor,
+                     schedulerName + "-" + index,
+                     Tags.of(SCHEDULER_TAG, schedulerName));
+    }
+}
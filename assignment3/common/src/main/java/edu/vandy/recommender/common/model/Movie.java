@@ -1,5 +1,6 @@
 package edu.vandy.recommender.common.model;
 
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
@@ -26,9 +27,10 @@ public class Movie
     public String id;
 
     /**
-     * The encoding of the movie properties.
+     * The encoding of the movie properties, which is stored in the
+     * packed binary form defined by {@link VectorCodec}.
      */
-    @SuppressWarnings("JpaAttributeTypeInspection")
+    @Convert(converter = PackedVectorConverter.class)
     public List<Double> vector;
 
     /**
@@ -0,0 +1,14 @@
+package edu.vandy.recommender.common.model;
+
+/**
+ * A closed interface projection of a {@link Movie} that only exposes
+ * its title, so the database microservices read and return the "id"
+ * column without the vector.  Its JSON form is also a valid {@link
+ * Movie} whose vector is null.
+ */
+public interface MovieTitle {
+    /**
+     * @return The movie name
+     */
+    String getId();
+}
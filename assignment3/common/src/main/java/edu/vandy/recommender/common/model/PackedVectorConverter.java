@@ -0,0 +1,31 @@
+package edu.vandy.recommender.common.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.List;
+
+/**
+ * This JPA {@link AttributeConverter} stores the {@link Movie} vector
+ * in the packed binary form defined by {@link VectorCodec} and reads
+ * it back as a {@link DoubleVector}.
+ */
+@Converter
+public class PackedVectorConverter
+       implements AttributeConverter<List<Double>, byte[]> {
+    /**
+     * Pack the vector before it's written to the database.
+     */
+    @Override
+    public byte[] convertToDatabaseColumn(List<Double> vector) {
+        return VectorCodec.pack(vector);
+    }
+
+    /**
+     * Unpack the vector after it's read from the database.
+     */
+    @Override
+    public List<Double> convertToEntityAttribute(byte[] packed) {
+        return VectorCodec.unpack(packed);
+    }
+}
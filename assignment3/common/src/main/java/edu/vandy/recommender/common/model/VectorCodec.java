@@ -0,0 +1,121 @@
+package edu.vandy.recommender.common.model;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * This Java utility class packs a {@link Movie} vector into the
+ * binary form stored in the {@code VARBINARY} "vector" column of the
+ * MOVIE table, i.e., 8 little-endian bytes per {@code double}, and
+ * unpacks it straight into a {@link DoubleVector}.  Unlike a {@code
+ * DOUBLE PRECISION ARRAY}, whose elements are materialized as boxed
+ * {@link Double} objects by the JDBC and R2DBC drivers, the packed
+ * form is read as a single {@code byte} array per movie.
+ */
+public final class VectorCodec {
+    /**
+     * The byte order of the packed vectors.
+     */
+    private static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private VectorCodec() {
+    }
+
+    /**
+     * Pack a vector.
+     *
+     * @param vector The vector to pack, which may be null
+     * @return The packed {@code vector}, or null if it's null
+     */
+    public static byte[] pack(List<Double> vector) {
+        if (vector == null)
+            return null;
+
+        var buffer = ByteBuffer
+            .allocate(vector.size() * Double.BYTES)
+            .order(ORDER);
+
+        if (vector instanceof DoubleVector doubleVector)
+            // Copy the primitive elements in bulk.
+            buffer.asDoubleBuffer().put(doubleVector.elements());
+        else
+            for (Double element : vector)
+                buffer.putDouble(element);
+
+        return buffer.array();
+    }
+
+    /**
+     * Pack the value of a {@code DOUBLE PRECISION ARRAY} column,
+     * which is how the H2 "PACK_VECTOR" function used by the schema
+     * migration calls this method.  A vector with a NULL element
+     * can't be packed, so it's rejected with an error that names
+     * the movie.
+     *
+     * @param id The id of the {@link Movie} that has the {@code
+     *           vector}
+     * @param vector The array to pack, which may be null
+     * @return The packed {@code vector}, or null if it's null
+     * @throws IllegalArgumentException If an element of {@code
+     *                                  vector} is null
+     */
+    public static byte[] packSqlArray(String id, Double[] vector) {
+        if (vector == null)
+            return null;
+
+        var buffer = ByteBuffer
+            .allocate(vector.length * Double.BYTES)
+            .order(ORDER);
+
+        for (int i = 0; i < vector.length; i++) {
+            if (vector[i] == null)
+                throw new IllegalArgumentException
+                    ("The vector of movie \"" + id
+                     + "\" has a NULL element at index " + i);
+            buffer.putDouble(vector[i]);
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Unpack a vector.
+     *
+     * @param packed The packed vector, which may be null
+     * @return A {@link DoubleVector} backed by a primitive array, or
+     *         null if {@code packed} is null
+     */
+    public static DoubleVector unpack(byte[] packed) {
+        return packed == null
+            ? null
+            : unpack(ByteBuffer.wrap(packed));
+    }
+
+    /**
+     * Unpack a vector, e.g., one read by an R2DBC driver.
+     *
+     * @param packed The packed vector, which may be null
+     * @return A {@link DoubleVector} backed by a primitive array, or
+     *         null if {@code packed} is null
+     */
+    public static DoubleVector unpack(ByteBuffer packed) {
+        if (packed == null)
+            return null;
+
+        var elements = new double[packed.remaining() / Double.BYTES];
+        packed
+            // Don't disturb the caller's buffer.
+            .duplicate()
+            .order(ORDER)
+
+            // Copy the elements in bulk.
+            .asDoubleBuffer()
+            .get(elements);
+
+        return new DoubleVector(elements);
+    }
+}
@@ -0,0 +1,216 @@
+package edu.vandy.recommender.common.trace;
+
+import reactor.core.scheduler.Schedulers;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * This Java utility class attributes the heap memory allocated by
+ * each thread to the {@link TraceContext} of the request it's working
+ * on, so the bytes allocated per request can be reported alongside
+ * its latency.
+ *
+ * The request thread is measured by the {@link TraceContextFilter}.
+ * Work that hops to a Reactor {@code Scheduler} (e.g., the rails of a
+ * {@code ParallelFlux}) is measured by a schedule hook that makes the
+ * {@link TraceContext} current while the task runs, so tasks it
+ * schedules in turn are also attributed to the request.  The {@code
+ * RunTimer} uses a {@link Measurement} to charge the bytes to the
+ * timing of each endpoint.
+ *
+ * Nothing is measured until {@link #installScheduleHook()} is called,
+ * which happens when "app.trace.allocations" is true.  The JDK can't
+ * measure virtual threads (it returns -1 for them), so enabling
+ * allocation accounting also makes Tomcat handle requests on platform
+ * threads (see {@code CommonAutoConfiguration}).
+ */
+public final class Allocations {
+    /**
+     * The key of the Reactor schedule hook.
+     */
+    private static final String HOOK_KEY = Allocations.class.getName();
+
+    /**
+     * Measures the allocations of each thread, or null if the JVM
+     * can't.
+     */
+    private static final com.sun.management.ThreadMXBean sThreadMXBean =
+        threadMXBean();
+
+    /**
+     * True while allocations are measured.
+     */
+    private static volatile boolean sEnabled;
+
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private Allocations() {
+    }
+
+    /**
+     * @return The number of bytes allocated by the current thread so
+     *         far, or -1 if it isn't measured or is a virtual thread
+     */
+    public static long currentThreadAllocatedBytes() {
+        return !sEnabled
+            ? -1
+            : sThreadMXBean.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * Return the bytes allocated by the current thread since {@code
+     * before} was measured.
+     *
+     * @param before The result of an earlier call to {@link
+     *               #currentThreadAllocatedBytes()} on this thread
+     * @return The bytes allocated since then, or 0 if they can't be
+     *         measured
+     */
+    public static long since(long before) {
+        if (before < 0)
+            return 0;
+
+        long now = currentThreadAllocatedBytes();
+        return now < before ? 0 : now - before;
+    }
+
+    /**
+     * Start measuring allocations and install the Reactor schedule
+     * hook that attributes the allocations of scheduled tasks to the
+     * request that scheduled them.
+     */
+    public static void installScheduleHook() {
+        if (sThreadMXBean != null) {
+            sEnabled = true;
+            Schedulers.onScheduleHook(HOOK_KEY, Allocations::propagate);
+        }
+    }
+
+    /**
+     * Remove the Reactor schedule hook and stop measuring.
+     */
+    public static void removeScheduleHook() {
+        sEnabled = false;
+        Schedulers.resetOnScheduleHook(HOOK_KEY);
+    }
+
+    /**
+     * Start measuring the bytes allocated by the current thread and
+     * charged to {@code trace}.
+     *
+     * @param trace The {@link TraceContext} of the request, or null
+     * @return A {@link Measurement} that returns the bytes allocated
+     *         since this call
+     */
+    public static Measurement measure(TraceContext trace) {
+        return sEnabled
+            ? new Measurement(trace)
+            : Measurement.NONE;
+    }
+
+    /**
+     * Wrap a {@code task} so it runs in the {@link
+     * TraceContext#current()} context of the thread that schedules
+     * it, which is charged with the bytes the task allocates.
+     *
+     * @param task The task being scheduled
+     * @return The wrapped task, or {@code task} if no request is
+     *         being traced
+     */
+    static Runnable propagate(Runnable task) {
+        var trace = TraceContext.current();
+        if (trace == null)
+            return task;
+
+        return () -> {
+            // A task run inline by its own request is already
+            // being measured.
+            if (TraceContext.current() == trace) {
+                task.run();
+                return;
+            }
+
+            long before = currentThreadAllocatedBytes();
+            try (var scope = trace.makeCurrent()) {
+                task.run();
+            } finally {
+                trace.addAllocatedBytes(since(before));
+            }
+        };
+    }
+
+    /**
+     * The bytes allocated by a timed piece of work, i.e., those
+     * allocated by the thread that started the measurement (if it
+     * also ends it) plus those charged to the request by tasks on
+     * other threads in the meantime.  A reactive result that ends on
+     * another thread is thus only charged with its scheduled tasks.
+     */
+    public static class Measurement {
+        /**
+         * The measurement used when allocations aren't measured.
+         */
+        static final Measurement NONE = new Measurement(null);
+
+        /**
+         * The thread that started the measurement.
+         */
+        private final Thread mThread;
+
+        /**
+         * The bytes allocated by {@code mThread} at the start.
+         */
+        private final long mThreadBefore;
+
+        /**
+         * The {@link TraceContext} of the request, or null.
+         */
+        private final TraceContext mTrace;
+
+        /**
+         * The bytes charged to {@code mTrace} at the start.
+         */
+        private final long mTraceBefore;
+
+        /**
+         * Constructor starts the measurement.
+         */
+        private Measurement(TraceContext trace) {
+            mThread = Thread.currentThread();
+            mThreadBefore = currentThreadAllocatedBytes();
+            mTrace = trace;
+            mTraceBefore = trace == null ? 0 : trace.allocatedBytes();
+        }
+
+        /**
+         * @return The bytes allocated since the measurement started,
+         *         or 0 if they can't be measured
+         */
+        public long bytes() {
+            if (this == NONE)
+                return 0;
+
+            long bytes = Thread.currentThread() == mThread
+                ? since(mThreadBefore)
+                : 0;
+            if (mTrace != null)
+                bytes += mTrace.allocatedBytes() - mTraceBefore;
+            return bytes;
+        }
+    }
+
+    /**
+     * @return The {@link com.sun.management.ThreadMXBean}, or null if
+     *         it can't measure allocations
+     */
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        if (!(ManagementFactory.getThreadMXBean()
+              instanceof com.sun.management.ThreadMXBean threadMXBean)
+            || !threadMXBean.isThreadAllocatedMemorySupported())
+            return null;
+
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        return threadMXBean;
+    }
+}
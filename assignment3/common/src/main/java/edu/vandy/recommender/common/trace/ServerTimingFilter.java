@@ -0,0 +1,99 @@
+package edu.vandy.recommender.common.trace;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+import org.springframework.web.util.WebUtils;
+
+import java.io.IOException;
+
+/**
+ * This servlet filter adds a W3C "Server-Timing" header to each
+ * response that reports the stages recorded in the request's {@link
+ * TraceContext} (e.g., "load", "score", and "top-K"), along with the
+ * time spent serializing the response body and the total time.
+ *
+ * Since headers must precede the body, the body is buffered until
+ * the request completes, so this filter is only meant to be enabled
+ * (via "app.server-timing.enabled") while debugging.  Requests that
+ * accept Server-Sent Events are passed through untouched so their
+ * streams aren't buffered.
+ */
+public class ServerTimingFilter
+       extends OncePerRequestFilter {
+    /**
+     * The name of the W3C header.
+     */
+    public static final String SERVER_TIMING = "Server-Timing";
+
+    /**
+     * Run again when a reactive result is dispatched, which is when
+     * its body is written.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    /**
+     * Buffer the response body and add the "Server-Timing" header
+     * once the request completes.
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+        throws ServletException, IOException {
+        var accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept != null
+            && accept.contains(MediaType.TEXT_EVENT_STREAM_VALUE)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Record the stages even if the trace isn't sampled.
+        if (request.getAttribute(TraceContextFilter.ATTRIBUTE)
+                instanceof TraceContext trace)
+            trace.reportServerTiming();
+
+        HttpServletResponse responseToUse = response;
+        if (!isAsyncDispatch(request)
+            && !(response instanceof ContentCachingResponseWrapper))
+            responseToUse = new ContentCachingResponseWrapper(response);
+
+        try {
+            filterChain.doFilter(request, responseToUse);
+        } finally {
+            // Reactive results are written by a later dispatch.
+            if (!isAsyncStarted(request))
+                complete(request, responseToUse);
+        }
+    }
+
+    /**
+     * Add the "Server-Timing" header and then write the buffered
+     * body.
+     */
+    private void complete(HttpServletRequest request,
+                          HttpServletResponse response)
+        throws IOException {
+        var wrapper = WebUtils
+            .getNativeResponse(response,
+                               ContentCachingResponseWrapper.class);
+        if (wrapper == null)
+            return;
+
+        if (request.getAttribute(TraceContextFilter.ATTRIBUTE)
+                instanceof TraceContext trace
+            && !wrapper.isCommitted())
+            wrapper.setHeader(SERVER_TIMING,
+                              trace.serverTiming(System.nanoTime()));
+
+        wrapper.copyBodyToResponse();
+    }
+}
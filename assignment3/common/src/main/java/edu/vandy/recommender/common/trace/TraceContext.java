@@ -0,0 +1,637 @@
+package edu.vandy.recommender.common.trace;
+
+import edu.vandy.recommender.common.Timer;
+import reactor.core.publisher.Flux;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * This class holds the W3C trace context of a request handled by this
+ * microservice, i.e., the span this service opened for the request,
+ * and collects the spans of the stages (e.g., load, score, top-K, and
+ * serialize) the request passes through.
+ *
+ * The context arrives in the "traceparent" header, and the request
+ * type (e.g., "parallelflux:/timed/postRecommendations") travels in
+ * our "rec" entry of the "tracestate" header, so every service can
+ * attribute its stages to the request that started the trace.  When
+ * the request finishes, {@link #finish(long)} turns the spans into
+ * {@link Timer} objects that the {@code RunTimer} sends to the timer
+ * service, which aggregates them per request type and stage.  Since
+ * the "tracestate" header comes from the client, a request type that
+ * doesn't look like one of ours is ignored, and new traces are only
+ * sampled at the configured rate.
+ *
+ * The context of the current request is kept in a {@link ThreadLocal}
+ * on the request thread and in the Reactor {@link Context} of timed
+ * reactive results (see {@link #propagate(TraceContext)}).
+ */
+public final class TraceContext {
+    /**
+     * The name of the W3C header that identifies the trace and the
+     * parent span.
+     */
+    public static final String TRACEPARENT = "traceparent";
+
+    /**
+     * The name of the W3C header that carries vendor-specific trace
+     * state.
+     */
+    public static final String TRACESTATE = "tracestate";
+
+    /**
+     * Our key in the "tracestate" header, whose value is the request
+     * type.
+     */
+    static final String STATE_KEY = "rec";
+
+    /**
+     * The longest request type accepted from a caller.
+     */
+    static final int MAX_REQUEST_TYPE_LENGTH = 128;
+
+    /**
+     * The form of the request types we send, i.e., a service name
+     * optionally followed by the path pattern of its handler.
+     */
+    private static final Pattern REQUEST_TYPE =
+        Pattern.compile("[\\w-]+(:/[\\w./{}*:+-]*)?");
+
+    /**
+     * The stage name of the span covering the whole request.
+     */
+    public static final String REQUEST = "request";
+
+    /**
+     * The stage name of the span that writes the response body.
+     */
+    public static final String SERIALIZE = "serialize";
+
+    /**
+     * The context of the request being handled by this thread.
+     */
+    private static final ThreadLocal<TraceContext> sCurrent =
+        new ThreadLocal<>();
+
+    /**
+     * Formats and parses trace and span ids.
+     */
+    private static final HexFormat sHex = HexFormat.of();
+
+    /**
+     * The trace id (32 hex digits).
+     */
+    private final String mTraceId;
+
+    /**
+     * The id of the span this service opened for the request (16 hex
+     * digits).
+     */
+    private final String mSpanId;
+
+    /**
+     * The id of the caller's span, or null if this span is the root.
+     */
+    private final String mParentId;
+
+    /**
+     * True if the spans of this trace should be recorded.
+     */
+    private final boolean mSampled;
+
+    /**
+     * True if the stages are reported in a "Server-Timing" header,
+     * so they're recorded even if the trace isn't sampled.
+     */
+    private volatile boolean mServerTiming;
+
+    /**
+     * The name of this microservice, which prefixes each stage.
+     */
+    private final String mService;
+
+    /**
+     * The "tracestate" entries of other vendors, which must be passed
+     * along unchanged.
+     */
+    private final String mOtherState;
+
+    /**
+     * Resolves the request type if the caller didn't supply one.
+     */
+    private final Supplier<String> mRequestTypeResolver;
+
+    /**
+     * The request type, or null if it hasn't been resolved yet.
+     */
+    private volatile String mRequestType;
+
+    /**
+     * The time the request started, in nanoseconds.
+     */
+    private final long mStartNanos;
+
+    /**
+     * The time the response body started being written, or 0 if it
+     * hasn't been.
+     */
+    private final AtomicLong mSerializeNanos = new AtomicLong();
+
+    /**
+     * The stage spans recorded so far.
+     */
+    private final Queue<Timer> mStages = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The bytes allocated by all threads on behalf of this request
+     * (see {@link Allocations}).
+     */
+    private final LongAdder mAllocatedBytes = new LongAdder();
+
+    /**
+     * Constructor initializes the fields.
+     */
+    private TraceContext(String traceId,
+                         String parentId,
+                         boolean sampled,
+                         String service,
+                         String requestType,
+                         String otherState,
+                         Supplier<String> requestTypeResolver) {
+        mTraceId = traceId;
+        mSpanId = newId();
+        mParentId = parentId;
+        mSampled = sampled;
+        mService = service;
+        mRequestType = requestType;
+        mOtherState = otherState;
+        mRequestTypeResolver = requestTypeResolver;
+        mStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Open this service's span for a request that arrived with the
+     * given headers, starting a new sampled trace if {@code
+     * traceparent} is missing or invalid.
+     *
+     * @param traceparent The "traceparent" header, or null
+     * @param tracestate The "tracestate" header, or null
+     * @param service The name of this microservice
+     * @param requestType Resolves the request type if {@code
+     *                    tracestate} doesn't contain one
+     * @return A new {@link TraceContext}
+     */
+    public static TraceContext fromHeaders(String traceparent,
+                                           String tracestate,
+                                           String service,
+                                           Supplier<String> requestType) {
+        return fromHeaders(traceparent, tracestate, service, requestType, 1.0);
+    }
+
+    /**
+     * Open this service's span for a request that arrived with the
+     * given headers, starting a new trace if {@code traceparent} is
+     * missing or invalid.
+     *
+     * @param traceparent The "traceparent" header, or null
+     * @param tracestate The "tracestate" header, or null
+     * @param service The name of this microservice
+     * @param requestType Resolves the request type if {@code
+     *                    tracestate} doesn't contain a valid one
+     * @param sampleRate The fraction of new traces that are sampled
+     * @return A new {@link TraceContext}
+     */
+    public static TraceContext fromHeaders(String traceparent,
+                                           String tracestate,
+                                           String service,
+                                           Supplier<String> requestType,
+                                           double sampleRate) {
+        // Split our entry from those of other vendors.
+        String ours = null;
+        List<String> others = new ArrayList<>();
+        if (tracestate != null)
+            for (var entry : tracestate.split(",")) {
+                var trimmed = entry.trim();
+                if (trimmed.startsWith(STATE_KEY + "="))
+                    ours = trimmed.substring(STATE_KEY.length() + 1);
+                else if (!trimmed.isEmpty())
+                    others.add(trimmed);
+            }
+
+        // The timer service keys its statistics by request type, so
+        // ignore one a caller made up.
+        if (ours != null && !isValidRequestType(ours))
+            ours = null;
+
+        if (!isValid(traceparent))
+            // Start a new trace, which discards any trace state.
+            return new TraceContext(newId() + newId(),
+                                    null,
+                                    ThreadLocalRandom.current().nextDouble()
+                                    < sampleRate,
+                                    service,
+                                    null,
+                                    "",
+                                    requestType);
+
+        return new TraceContext(traceparent.substring(3, 35),
+                                traceparent.substring(36, 52),
+                                (sHex.fromHexDigits(traceparent, 53, 55) & 1) != 0,
+                                service,
+                                ours,
+                                String.join(",", others),
+                                requestType);
+    }
+
+    /**
+     * @return True if {@code traceparent} is a valid version 00 (or
+     *         later) "traceparent" header
+     */
+    static boolean isValid(String traceparent) {
+        if (traceparent == null
+            || traceparent.length() < 55
+            || (traceparent.length() > 55 && traceparent.charAt(55) != '-')
+            || traceparent.charAt(2) != '-'
+            || traceparent.charAt(35) != '-'
+            || traceparent.charAt(52) != '-')
+            return false;
+
+        for (int i = 0; i < 55; i++)
+            if (i != 2 && i != 35 && i != 52
+                && !isLowerHexDigit(traceparent.charAt(i)))
+                return false;
+
+        return !traceparent.startsWith("ff")
+            && !traceparent.startsWith("0".repeat(32), 3)
+            && !traceparent.startsWith("0".repeat(16), 36);
+    }
+
+    /**
+     * @return True if {@code requestType} has the form of the request
+     *         types we send, e.g., "parallelflux:/timed/search"
+     */
+    static boolean isValidRequestType(String requestType) {
+        return requestType.length() <= MAX_REQUEST_TYPE_LENGTH
+            && REQUEST_TYPE.matcher(requestType).matches();
+    }
+
+    /**
+     * @return True if {@code c} is a lower-case hex digit
+     */
+    private static boolean isLowerHexDigit(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f');
+    }
+
+    /**
+     * @return A random non-zero 16 digit hex id
+     */
+    private static String newId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+
+        return sHex.toHexDigits(id);
+    }
+
+    /**
+     * @return The {@link TraceContext} of the request being handled
+     *         by this thread, or null if none
+     */
+    public static TraceContext current() {
+        return sCurrent.get();
+    }
+
+    /**
+     * Return the {@link TraceContext} in the Reactor {@code context},
+     * falling back to the {@link #current()} one.
+     *
+     * @param context A Reactor {@link ContextView}
+     * @return The {@link TraceContext}, or null if none
+     */
+    public static TraceContext from(ContextView context) {
+        return context.getOrDefault(TraceContext.class, current());
+    }
+
+    /**
+     * Return a function that adds {@code trace} to a Reactor {@link
+     * Context} for use with {@code contextWrite()}.
+     *
+     * @param trace A {@link TraceContext}, or null
+     * @return A {@link Function} that adds {@code trace} to a {@link
+     *         Context}, or leaves it unchanged if {@code trace} is
+     *         null
+     */
+    public static Function<Context, Context> propagate(TraceContext trace) {
+        return context -> trace == null
+            ? context
+            : context.put(TraceContext.class, trace);
+    }
+
+    /**
+     * Make this the {@link #current()} {@link TraceContext} until the
+     * returned {@link Scope} is closed.
+     *
+     * @return A {@link Scope} that restores the previous context
+     */
+    public Scope makeCurrent() {
+        var previous = sCurrent.get();
+        sCurrent.set(this);
+        return () -> sCurrent.set(previous);
+    }
+
+    /**
+     * Return a function that records a {@link Flux} as a stage of the
+     * {@link #current()} request, from subscription to termination.
+     * The current context is captured when this method is called,
+     * i.e., when the pipeline is assembled on the request thread.
+     *
+     * @param stage The name of the stage, e.g., "score"
+     * @return A {@link Function} for use with {@code transform()}
+     */
+    public static <T> Function<Flux<T>, Flux<T>> stage(String stage) {
+        var trace = current();
+        if (trace == null || !trace.isRecording())
+            return Function.identity();
+
+        return flux -> Flux
+            // Defer so each subscription is timed separately.
+            .defer(() -> {
+                    long start = System.nanoTime();
+                    return flux
+                        .doFinally(signal -> trace
+                                   .recordStage(stage,
+                                                start,
+                                                System.nanoTime()));
+                });
+    }
+
+    /**
+     * Run {@code supplier} as a stage of the {@link #current()}
+     * request.
+     *
+     * @param stage The name of the stage, e.g., "load"
+     * @param supplier The code to run
+     * @return The result of {@code supplier.get()}
+     */
+    public static <T> T stage(String stage, Supplier<T> supplier) {
+        var trace = current();
+        if (trace == null || !trace.isRecording())
+            return supplier.get();
+
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            trace.recordStage(stage, start, System.nanoTime());
+        }
+    }
+
+    /**
+     * Record the stages of this request even if the trace isn't
+     * sampled, so they can be reported in the "Server-Timing"
+     * header.
+     */
+    public void reportServerTiming() {
+        mServerTiming = true;
+    }
+
+    /**
+     * @return True if the stages of this request are recorded
+     */
+    private boolean isRecording() {
+        return mSampled || mServerTiming;
+    }
+
+    /**
+     * Record a span for a stage of this request, which does nothing
+     * unless the trace is sampled or the stages are reported in the
+     * "Server-Timing" header.
+     *
+     * @param stage The name of the stage, e.g., "score"
+     * @param startNanos When the stage started
+     * @param stopNanos When the stage stopped
+     */
+    public void recordStage(String stage,
+                            long startNanos,
+                            long stopNanos) {
+        if (!isRecording())
+            return;
+
+        var timer = span(stage, newId(), mSpanId);
+        timer.startTime = startNanos;
+        timer.stopTime = stopNanos;
+        mStages.offer(timer);
+    }
+
+    /**
+     * Charge this request with bytes allocated on its behalf.
+     *
+     * @param bytes The number of bytes allocated
+     */
+    public void addAllocatedBytes(long bytes) {
+        mAllocatedBytes.add(bytes);
+    }
+
+    /**
+     * @return The bytes allocated on behalf of this request so far
+     */
+    public long allocatedBytes() {
+        return mAllocatedBytes.sum();
+    }
+
+    /**
+     * Note that the response body started being written, which ends
+     * when the request finishes.  Only the first call has an effect.
+     */
+    public void markSerializing() {
+        mSerializeNanos.compareAndSet(0, System.nanoTime());
+    }
+
+    /**
+     * Close this service's span and return it along with the spans
+     * of all recorded stages.
+     *
+     * @param stopNanos When the request finished
+     * @return A {@link List} of stopped {@link Timer} objects, which
+     *         is empty if the trace isn't sampled
+     */
+    public List<Timer> finish(long stopNanos) {
+        if (!mSampled)
+            return List.of();
+
+        long serializing = mSerializeNanos.get();
+        if (serializing != 0)
+            recordStage(SERIALIZE, serializing, stopNanos);
+
+        var request = span(REQUEST, mSpanId, mParentId);
+        request.startTime = mStartNanos;
+        request.stopTime = stopNanos;
+        request.allocatedBytes = allocatedBytes();
+
+        List<Timer> spans = new ArrayList<>(mStages.size() + 1);
+        spans.add(request);
+        for (Timer timer; (timer = mStages.poll()) != null; )
+            spans.add(timer);
+
+        // Attribute all spans to the request type known by now.
+        var requestType = requestType();
+        for (var timer : spans)
+            timer.id = requestType;
+
+        return spans;
+    }
+
+    /**
+     * Return the value of a W3C "Server-Timing" header that reports
+     * the duration in milliseconds of each stage recorded so far, the
+     * "serialize" stage (if it has started), and the "total" time of
+     * this request in this microservice.  Durations of stages that
+     * ran more than once are summed.
+     *
+     * @param stopNanos The end of the "serialize" stage and the
+     *                  request
+     * @return The "Server-Timing" header value, e.g., "score;dur=12.5,
+     *         top-K;dur=0.8, serialize;dur=1.1, total;dur=15.2"
+     */
+    public String serverTiming(long stopNanos) {
+        Map<String, Long> durations = new LinkedHashMap<>();
+        int prefix = mService.length() + 1;
+
+        for (var timer : mStages)
+            durations.merge(timer.stage.substring(prefix),
+                            timer.stopTime - timer.startTime,
+                            Long::sum);
+
+        long serializing = mSerializeNanos.get();
+        if (serializing != 0)
+            durations.merge(SERIALIZE, stopNanos - serializing, Long::sum);
+
+        durations.put("total", stopNanos - mStartNanos);
+
+        var header = new StringBuilder();
+        durations
+            .forEach((stage, nanos) -> {
+                    if (!header.isEmpty())
+                        header.append(", ");
+                    header
+                        .append(stage)
+                        .append(";dur=")
+                        .append(nanos / 1_000 / 1_000.0);
+                });
+
+        return header.toString();
+    }
+
+    /**
+     * @return A new {@link Timer} for a span of this trace
+     */
+    private Timer span(String stage, String spanId, String parentId) {
+        var timer = new Timer();
+        timer.traceId = mTraceId;
+        timer.spanId = spanId;
+        timer.parentId = parentId;
+        timer.stage = mService + ":" + stage;
+        return timer;
+    }
+
+    /**
+     * Add the headers that propagate this trace to a downstream
+     * request.
+     *
+     * @param setter Sets a header given its name and value
+     */
+    public void inject(BiConsumer<String, String> setter) {
+        setter.accept(TRACEPARENT, traceparent());
+        setter.accept(TRACESTATE, tracestate());
+    }
+
+    /**
+     * @return The "traceparent" header for downstream requests
+     */
+    public String traceparent() {
+        return "00-" + mTraceId + "-" + mSpanId + (mSampled ? "-01" : "-00");
+    }
+
+    /**
+     * @return The "tracestate" header for downstream requests, which
+     *         puts our entry first as the W3C specification requires
+     */
+    public String tracestate() {
+        // A tracestate value can't contain ',' or '='.
+        var ours = STATE_KEY + "=" + requestType()
+            .replace(',', '_')
+            .replace('=', '_');
+        return mOtherState.isEmpty() ? ours : ours + "," + mOtherState;
+    }
+
+    /**
+     * @return The type of the request that started this trace
+     */
+    public String requestType() {
+        var requestType = mRequestType;
+        if (requestType == null) {
+            requestType = mRequestTypeResolver.get();
+
+            // Only remember a request type once the handler is known.
+            if (requestType != null)
+                mRequestType = requestType;
+            else
+                requestType = mService;
+        }
+        return requestType;
+    }
+
+    /**
+     * @return The trace id
+     */
+    public String traceId() {
+        return mTraceId;
+    }
+
+    /**
+     * @return The id of this service's span
+     */
+    public String spanId() {
+        return mSpanId;
+    }
+
+    /**
+     * @return The id of the caller's span, or null if none
+     */
+    public String parentId() {
+        return mParentId;
+    }
+
+    /**
+     * @return True if the spans of this trace are recorded
+     */
+    public boolean isSampled() {
+        return mSampled;
+    }
+
+    /**
+     * Restores the previous {@link TraceContext} when closed.
+     */
+    @FunctionalInterface
+    public interface Scope
+           extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,205 @@
+package edu.vandy.recommender.common.trace;
+
+import edu.vandy.recommender.common.RunTimer;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+import static edu.vandy.recommender.common.trace.TraceContext.TRACEPARENT;
+import static edu.vandy.recommender.common.trace.TraceContext.TRACESTATE;
+
+/**
+ * This servlet filter opens a {@link TraceContext} for each incoming
+ * request, makes it current while the request is handled, and (if
+ * tracing is enabled) sends its spans to the timer service via the
+ * {@link RunTimer} once the response is complete (including any
+ * asynchronous processing of reactive results).  The bytes allocated
+ * by the request threads are charged to the request (see {@link
+ * Allocations}).
+ *
+ * If the caller didn't send a valid request type in the "tracestate"
+ * header, the request type is this service's name followed by the
+ * path pattern of the handler, e.g.,
+ * "parallelflux:/timed/postRecommendations".  Requests without a
+ * "traceparent" header start a new trace, which is sampled at the
+ * configured rate.
+ */
+public class TraceContextFilter
+       extends OncePerRequestFilter {
+    /**
+     * The name of the request attribute that holds the {@link
+     * TraceContext}.
+     */
+    public static final String ATTRIBUTE = TraceContext.class.getName();
+
+    /**
+     * The {@link RunTimer} that sends the spans.
+     */
+    private final RunTimer mRunTimer;
+
+    /**
+     * The name of this microservice.
+     */
+    private final String mService;
+
+    /**
+     * True if the spans are sent to the timer service, else they're
+     * only used for the "Server-Timing" header.
+     */
+    private final boolean mPostSpans;
+
+    /**
+     * The fraction of new traces that are sampled.
+     */
+    private final double mSampleRate;
+
+    /**
+     * Constructor initializes the fields.
+     *
+     * @param runTimer The {@link RunTimer} that sends the spans
+     * @param service The name of this microservice
+     * @param postSpans True if the spans are sent to the timer
+     *                  service
+     * @param sampleRate The fraction of new traces that are sampled
+     */
+    public TraceContextFilter(RunTimer runTimer,
+                              String service,
+                              boolean postSpans,
+                              double sampleRate) {
+        mRunTimer = runTimer;
+        mService = service;
+        mPostSpans = postSpans;
+        mSampleRate = sampleRate;
+    }
+
+    /**
+     * Also run when a reactive result is written, which happens in an
+     * asynchronous dispatch on another thread.
+     */
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    /**
+     * Trace the {@code request}.
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+        throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            // The trace is finished by its FinishListener.
+            if (request.getAttribute(ATTRIBUTE) instanceof TraceContext trace)
+                doFilter(trace, request, response, filterChain);
+            else
+                filterChain.doFilter(request, response);
+            return;
+        }
+
+        var trace = TraceContext
+            .fromHeaders(request.getHeader(TRACEPARENT),
+                         request.getHeader(TRACESTATE),
+                         mService,
+                         // The handler is only known once the request
+                         // has been mapped.
+                         () -> request
+                         .getAttribute(HandlerMapping
+                                       .BEST_MATCHING_PATTERN_ATTRIBUTE)
+                             instanceof String pattern
+                         ? mService + ":" + pattern
+                         : null,
+                         mSampleRate);
+
+        // Let the response body advice find the trace.
+        request.setAttribute(ATTRIBUTE, trace);
+
+        try {
+            doFilter(trace, request, response, filterChain);
+        } finally {
+            if (request.isAsyncStarted())
+                // Finish when the reactive result has been written.
+                request
+                    .getAsyncContext()
+                    .addListener(new FinishListener(trace));
+            else
+                finish(trace);
+        }
+    }
+
+    /**
+     * Pass the request down the {@code filterChain} with the {@code
+     * trace} current, charging it with the bytes allocated by this
+     * thread.
+     */
+    private static void doFilter(TraceContext trace,
+                                 HttpServletRequest request,
+                                 HttpServletResponse response,
+                                 FilterChain filterChain)
+        throws ServletException, IOException {
+        long before = Allocations.currentThreadAllocatedBytes();
+        try (var scope = trace.makeCurrent()) {
+            filterChain.doFilter(request, response);
+        } finally {
+            trace.addAllocatedBytes(Allocations.since(before));
+        }
+    }
+
+    /**
+     * Send the spans of the {@code trace} to the timer service.
+     */
+    private void finish(TraceContext trace) {
+        if (!mPostSpans)
+            return;
+
+        trace
+            .finish(System.nanoTime())
+            .forEach(mRunTimer::post);
+    }
+
+    /**
+     * Finishes a trace when its asynchronous request completes, which
+     * the servlet container also signals after errors and timeouts.
+     */
+    private class FinishListener
+            implements AsyncListener {
+        /**
+         * The trace to finish.
+         */
+        private final TraceContext mTrace;
+
+        /**
+         * Constructor initializes the field.
+         */
+        FinishListener(TraceContext trace) {
+            mTrace = trace;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            finish(mTrace);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            // Keep listening if the request is dispatched again.
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package edu.vandy.recommender.common.trace;
+
+import edu.vandy.recommender.common.jfr.HttpCallEvent;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+
+/**
+ * This {@link RestTemplate} interceptor propagates the {@link
+ * TraceContext#current()} trace to downstream services, e.g., for the
+ * requests made via {@code WebUtils}, and records each request as an
+ * {@link HttpCallEvent}.
+ */
+public class TraceContextInterceptor
+       implements ClientHttpRequestInterceptor {
+    /**
+     * Add the trace headers to the {@code request}.
+     */
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request,
+                                        byte[] body,
+                                        ClientHttpRequestExecution execution)
+        throws IOException {
+        var trace = TraceContext.current();
+        if (trace != null)
+            trace.inject(request.getHeaders()::set);
+
+        var event = new HttpCallEvent();
+        event.begin();
+
+        ClientHttpResponse response;
+        try {
+            response = execution.execute(request, body);
+        } catch (IOException | RuntimeException exception) {
+            event.commit(request.getMethod().name(),
+                         request.getURI(),
+                         0,
+                         body.length,
+                         -1);
+            throw exception;
+        }
+
+        if (event.shouldCommit())
+            event.commit(request.getMethod().name(),
+                         request.getURI(),
+                         response.getStatusCode().value(),
+                         body.length,
+                         response.getHeaders().getContentLength());
+        return response;
+    }
+}
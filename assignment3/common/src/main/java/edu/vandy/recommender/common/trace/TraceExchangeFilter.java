@@ -0,0 +1,67 @@
+package edu.vandy.recommender.common.trace;
+
+import edu.vandy.recommender.common.jfr.HttpCallEvent;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+/**
+ * This {@link WebClient} filter propagates the trace in the Reactor
+ * context (or the {@link TraceContext#current()} one) to downstream
+ * services, and records each request as an {@link HttpCallEvent}.
+ */
+public class TraceExchangeFilter
+       implements ExchangeFilterFunction {
+    /**
+     * Add the trace headers to the {@code request} when it's sent.
+     */
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request,
+                                       ExchangeFunction next) {
+        return Mono
+            // Look up the trace when the request is subscribed to.
+            .deferContextual(context -> {
+                    var trace = TraceContext.from(context);
+                    var traced = trace == null
+                        ? request
+                        : ClientRequest
+                        // Copy the request.
+                        .from(request)
+
+                        // Add the trace headers.
+                        .headers(headers -> trace
+                                 .inject(headers::set))
+                        .build();
+
+                    var event = new HttpCallEvent();
+                    if (!event.isEnabled())
+                        return next.exchange(traced);
+
+                    event.begin();
+                    long requestBytes = request.headers().getContentLength();
+                    return next
+                        .exchange(traced)
+
+                        // Record the call when the response headers
+                        // arrive.
+                        .doOnNext(response -> event
+                                  .commit(request.method().name(),
+                                          request.url(),
+                                          response.statusCode().value(),
+                                          requestBytes,
+                                          response.headers().contentLength()
+                                          .orElse(-1)))
+
+                        // Record failed calls too.
+                        .doOnError(__ -> event
+                                   .commit(request.method().name(),
+                                           request.url(),
+                                           0,
+                                           requestBytes,
+                                           -1));
+                });
+    }
+}
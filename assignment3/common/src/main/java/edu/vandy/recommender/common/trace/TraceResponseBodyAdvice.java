@@ -0,0 +1,51 @@
+package edu.vandy.recommender.common.trace;
+
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * This advice marks the start of the "serialize" stage of a traced
+ * request, i.e., the point where the handler's result is handed to a
+ * message converter to be written as the response body.  The stage
+ * ends when the {@link TraceContextFilter} sees the response
+ * complete.
+ */
+@ControllerAdvice
+public class TraceResponseBodyAdvice
+       implements ResponseBodyAdvice<Object> {
+    /**
+     * Advise every response body.
+     */
+    @Override
+    public boolean supports(MethodParameter returnType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    /**
+     * Mark the start of the "serialize" stage and return the {@code
+     * body} unchanged.
+     */
+    @Override
+    public Object beforeBodyWrite(Object body,
+                                  MethodParameter returnType,
+                                  MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request,
+                                  ServerHttpResponse response) {
+        if (request instanceof ServletServerHttpRequest servletRequest
+            && servletRequest
+                .getServletRequest()
+                .getAttribute(TraceContextFilter.ATTRIBUTE)
+               instanceof TraceContext trace)
+            trace.markSerializing();
+
+        return body;
+    }
+}
@@ -0,0 +1,69 @@
+package edu.vandy.recommender.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.data.Offset
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+
+class LatencyHistogramTest : AssignmentTests() {
+    @Test
+    fun `small values are recorded exactly`() {
+        val h = LatencyHistogram()
+        (0L..15L).forEach { h.record(it) }
+        val s = h.snapshot()
+        assertThat(s.count()).isEqualTo(16)
+        assertThat(s.percentile(50.0)).isEqualTo(7)
+        assertThat(s.max()).isEqualTo(15)
+    }
+
+    @Test
+    fun `percentiles are within the relative error bound`() {
+        val h = LatencyHistogram()
+        (1L..100_000L).forEach { h.record(it) }
+        val s = h.snapshot()
+        listOf(50.0, 90.0, 99.0, 99.9).forEach {
+            val expected = it / 100.0 * 100_000
+            assertThat(s.percentile(it).toDouble())
+                .isCloseTo(expected, Offset.offset(expected / 16))
+        }
+        assertThat(s.percentile(100.0)).isEqualTo(100_000)
+        assertThat(s.mean()).isCloseTo(50_000.5, Offset.offset(0.01))
+    }
+
+    @Test
+    fun `every bucket contains the values mapped to it`() {
+        listOf(16L, 31L, 32L, 1_000L, 123_456L, 1L shl 40).forEach {
+            val index = LatencyHistogram.indexOf(it)
+            assertThat(LatencyHistogram.highestValueOf(index))
+                .isGreaterThanOrEqualTo(it)
+            if (index > 0)
+                assertThat(LatencyHistogram.highestValueOf(index - 1))
+                    .isLessThan(it)
+        }
+        assertThat(LatencyHistogram.indexOf(Long.MAX_VALUE))
+            .isEqualTo(LatencyHistogram.BUCKET_COUNT - 1)
+    }
+
+    @Test
+    fun `coordinated omission is back-filled`() {
+        val h = LatencyHistogram()
+        h.recordWithExpectedInterval(1_000, 100)
+        val s = h.snapshot()
+        assertThat(s.count()).isEqualTo(10)
+        assertThat(s.max()).isEqualTo(1_000)
+    }
+
+    @Test
+    fun `histograms and snapshots merge`() {
+        val a = LatencyHistogram().apply { record(10); record(20) }
+        val b = LatencyHistogram().apply { record(30) }
+        val merged = a.snapshot().merge(b.snapshot())
+        assertThat(merged.count()).isEqualTo(3)
+        assertThat(merged.sum()).isEqualTo(60)
+        assertThat(merged.max()).isEqualTo(30)
+        a.add(b)
+        assertThat(a.snapshot().count()).isEqualTo(3)
+        a.reset()
+        assertThat(a.snapshot().count()).isEqualTo(0)
+    }
+}
@@ -0,0 +1,159 @@
+package edu.vandy.recommender.common
+
+import edu.vandy.recommender.common.autoconfigure.RunTimerProperties
+import io.mockk.every
+import io.mockk.mockk
+import io.mockk.slot
+import io.mockk.verify
+import io.mockk.verifyOrder
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.springframework.http.HttpEntity
+import org.springframework.http.ResponseEntity
+import org.springframework.web.client.RestTemplate
+import reactor.core.publisher.Flux
+import reactor.test.StepVerifier
+import test.admin.AssignmentTests
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.nio.ByteBuffer
+import java.nio.channels.DatagramChannel
+import java.time.Duration
+import java.util.function.Supplier
+
+class RunTimerTest : AssignmentTests() {
+    private val restTemplate = mockk<RestTemplate>(relaxed = true)
+
+    private fun runTimer(capacity: Int = 2, sampleRate: Double = 1.0) =
+        RunTimer(restTemplate, RunTimerProperties().apply {
+            this.capacity = capacity
+            batchSize = 100
+            flushInterval = Duration.ofHours(1)
+            this.sampleRate = sampleRate
+        })
+
+    @Test
+    fun `timings are buffered and overflow is dropped`() {
+        runTimer().use { runTimer ->
+            repeat(5) { runTimer.stopAndPost(runTimer.start(Timer("t"))) }
+
+            assertThat(runTimer.bufferedCount).isEqualTo(2)
+            assertThat(runTimer.droppedCount).isEqualTo(3)
+            verify(exactly = 0) {
+                restTemplate.postForObject(any<String>(), any(), Int::class.javaObjectType)
+            }
+
+            runTimer.flush()
+
+            assertThat(runTimer.bufferedCount).isEqualTo(0)
+            assertThat(runTimer.sentCount).isEqualTo(2)
+            verify(exactly = 1) {
+                restTemplate.postForObject(any<String>(), any(), Int::class.javaObjectType)
+            }
+        }
+    }
+
+    @Test
+    fun `sampled out timings are never buffered`() {
+        runTimer(sampleRate = 0.0).use { runTimer ->
+            repeat(3) { runTimer.stopAndPost(runTimer.start(Timer("t"))) }
+
+            assertThat(runTimer.bufferedCount).isEqualTo(0)
+            assertThat(runTimer.sampledOutCount).isEqualTo(3)
+        }
+    }
+
+    @Test
+    fun `reactive results are timed when subscribed`() {
+        runTimer().use { runTimer ->
+            val flux = runTimer.runAndRecordTime("flux", Supplier {
+                Flux.just(1, 2, 3)
+            })
+
+            assertThat(runTimer.bufferedCount).isEqualTo(0)
+
+            StepVerifier.create(flux).expectNext(1, 2, 3).verifyComplete()
+
+            assertThat(runTimer.bufferedCount).isEqualTo(1)
+
+            val entity = slot<HttpEntity<ByteArray>>()
+            runTimer.flush()
+            verify {
+                restTemplate.postForObject(any<String>(), capture(entity), Int::class.javaObjectType)
+            }
+            val timer = TimerBatchCodec.decode(entity.captured.body).single()
+            assertThat(timer.elementCount).isEqualTo(3)
+            assertThat(timer.firstElementTime)
+                .isBetween(timer.startTime, timer.stopTime)
+        }
+    }
+
+    @Test
+    fun `a batch that fails with any exception doesn't stop the others`() {
+        every {
+            restTemplate.postForObject(any<String>(), any(), Int::class.javaObjectType)
+        } throws IllegalStateException("boom") andThen 1
+
+        RunTimer(restTemplate, RunTimerProperties().apply {
+            batchSize = 1
+            flushInterval = Duration.ofHours(1)
+        }).use { runTimer ->
+            repeat(2) { runTimer.post(runTimer.stop(runTimer.start(Timer("t")))) }
+
+            runTimer.flush()
+
+            assertThat(runTimer.failedCount).isEqualTo(1)
+            assertThat(runTimer.sentCount).isEqualTo(1)
+        }
+    }
+
+    @Test
+    fun `timings sent via UDP are counted as unacknowledged`() {
+        DatagramChannel.open().use { listener ->
+            listener.bind(InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+            val port = (listener.localAddress as InetSocketAddress).port
+
+            RunTimer(restTemplate, RunTimerProperties().apply {
+                udpPort = port
+                flushInterval = Duration.ofHours(1)
+            }).use { runTimer ->
+                runTimer.post(runTimer.stop(runTimer.start(Timer("t"))))
+                runTimer.flush()
+
+                assertThat(runTimer.unacknowledgedCount).isEqualTo(1)
+                assertThat(runTimer.sentCount).isEqualTo(0)
+
+                val datagram = ByteBuffer.allocate(SocketTimingTransport.MAX_DATAGRAM)
+                listener.receive(datagram)
+                assertThat(TimerBatchCodec.decode(datagram.flip().array().copyOf(datagram.limit())))
+                    .extracting("id").containsExactly("t")
+            }
+        }
+    }
+
+    @Test
+    fun `getTimings sends the buffered timings via HTTP before reading them`() {
+        every {
+            restTemplate.getForEntity(any<String>(), String::class.java)
+        } returns ResponseEntity.ok("results")
+
+        DatagramChannel.open().use { listener ->
+            listener.bind(InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+
+            RunTimer(restTemplate, RunTimerProperties().apply {
+                udpPort = (listener.localAddress as InetSocketAddress).port
+                flushInterval = Duration.ofHours(1)
+            }).use { runTimer ->
+                runTimer.post(runTimer.stop(runTimer.start(Timer("t"))))
+
+                assertThat(runTimer.timings).isEqualTo("results")
+                assertThat(runTimer.sentCount).isEqualTo(1)
+                assertThat(runTimer.unacknowledgedCount).isEqualTo(0)
+                verifyOrder {
+                    restTemplate.postForObject(any<String>(), any(), Int::class.javaObjectType)
+                    restTemplate.getForEntity(any<String>(), String::class.java)
+                }
+            }
+        }
+    }
+}
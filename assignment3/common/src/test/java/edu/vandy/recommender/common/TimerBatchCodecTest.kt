@@ -0,0 +1,90 @@
+package edu.vandy.recommender.common
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.nio.ByteBuffer
+
+class TimerBatchCodecTest : AssignmentTests() {
+    private fun timer(id: String, start: Long, stop: Long, first: Long = 0, count: Long = 0) =
+        Timer(id).apply {
+            startTime = start
+            stopTime = stop
+            firstElementTime = first
+            elementCount = count
+        }
+
+    @Test
+    fun `batches round trip`() {
+        val timers = listOf(
+            timer("a", 100, 250),
+            timer("b", 1_000, 9_000, 1_500, 42),
+            timer("a", -5, 5)
+        )
+
+        val decoded = TimerBatchCodec.decode(TimerBatchCodec.encode(timers))
+
+        assertThat(decoded).hasSize(3)
+        decoded.zip(timers).forEach { (d, t) ->
+            assertThat(d.id).isEqualTo(t.id)
+            assertThat(d.startTime).isEqualTo(t.startTime)
+            assertThat(d.stopTime).isEqualTo(t.stopTime)
+            assertThat(d.firstElementTime).isEqualTo(t.firstElementTime)
+            assertThat(d.elementCount).isEqualTo(t.elementCount)
+        }
+    }
+
+    @Test
+    fun `spans round trip`() {
+        val span = timer("parallelflux:/timed/search/{query}", 10, 20).apply {
+            traceId = "4bf92f3577b34da6a3ce929d0e0e4736"
+            spanId = "00f067aa0ba902b7"
+            parentId = "b7ad6b7169203331"
+            stage = "database:load"
+        }
+        val root = timer("parallelflux:/timed/search/{query}", 5, 30).apply {
+            traceId = "4bf92f3577b34da6a3ce929d0e0e4736"
+            spanId = "fedcba9876543210"
+            stage = "parallelflux:request"
+            allocatedBytes = 123_456
+        }
+
+        val decoded = TimerBatchCodec.decode(
+            TimerBatchCodec.encode(listOf(span, timer("a", 1, 2), root))
+        )
+
+        assertThat(decoded[0].id).isEqualTo(span.id)
+        assertThat(decoded[0].traceId).isEqualTo(span.traceId)
+        assertThat(decoded[0].spanId).isEqualTo(span.spanId)
+        assertThat(decoded[0].parentId).isEqualTo(span.parentId)
+        assertThat(decoded[0].stage).isEqualTo(span.stage)
+        assertThat(decoded[1].traceId).isNull()
+        assertThat(decoded[1].stage).isNull()
+        assertThat(decoded[2].parentId).isNull()
+        assertThat(decoded[2].stage).isEqualTo(root.stage)
+        assertThat(decoded[2].allocatedBytes).isEqualTo(123_456)
+    }
+
+    @Test
+    fun `malformed batches are rejected`() {
+        assertThatThrownBy { TimerBatchCodec.decode(byteArrayOf(1, 2, 3)) }
+            .isInstanceOf(IllegalArgumentException::class.java)
+    }
+
+    @Test
+    fun `lengths that don't fit the batch are rejected before allocating`() {
+        fun batch(idCount: Int, count: Int) = ByteBuffer.allocate(16)
+            .putInt(TimerBatchCodec.MAGIC)
+            .putInt(idCount)
+            .apply { if (idCount == 0) putInt(count) }
+            .array()
+
+        for (bytes in listOf(batch(-1, 0),
+                             batch(Int.MAX_VALUE, 0),
+                             batch(0, -1),
+                             batch(0, Int.MAX_VALUE)))
+            assertThatThrownBy { TimerBatchCodec.decode(bytes) }
+                .isInstanceOf(IllegalArgumentException::class.java)
+    }
+}
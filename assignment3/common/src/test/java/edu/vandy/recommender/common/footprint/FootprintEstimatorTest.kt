@@ -0,0 +1,43 @@
+package edu.vandy.recommender.common.footprint
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.data.Percentage
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.util.TreeMap
+
+class FootprintEstimatorTest : AssignmentTests() {
+    private val movies = TreeMap<String, List<Double>>().apply {
+        repeat(1_000) { i -> put("Movie $i", List(100) { it / 100.0 + i }) }
+    }
+
+    @Test
+    fun `vectors are tallied and their packed size is smaller`() {
+        val footprint = FootprintEstimator(1_000).estimate(movies)
+
+        assertThat(footprint.entries).isEqualTo(1_000)
+        assertThat(footprint.vectors).isEqualTo(1_000)
+        assertThat(footprint.vectorElements).isEqualTo(100_000)
+        assertThat(footprint.vectorBytes).isLessThan(footprint.bytes)
+        // Each boxed Double takes far more than the 8 bytes of a double.
+        assertThat(footprint.packedBytes()).isLessThan(footprint.bytes / 2)
+    }
+
+    @Test
+    fun `sampled estimates are extrapolated`() {
+        val full = FootprintEstimator(1_000).estimate(movies)
+        val sampled = FootprintEstimator(10).estimate(movies)
+
+        assertThat(sampled.vectors).isEqualTo(full.vectors)
+        assertThat(sampled.vectorElements).isEqualTo(full.vectorElements)
+        assertThat(sampled.bytes.toDouble()).isCloseTo(full.bytes.toDouble(), Percentage.withPercentage(5.0))
+    }
+
+    @Test
+    fun `shared objects are counted once`() {
+        val shared = List(100) { it.toDouble() }
+        val footprint = FootprintEstimator(100).estimate(listOf(shared, shared))
+
+        assertThat(footprint.vectors).isEqualTo(1)
+    }
+}
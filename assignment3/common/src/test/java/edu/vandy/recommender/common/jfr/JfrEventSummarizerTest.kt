@@ -0,0 +1,39 @@
+package edu.vandy.recommender.common.jfr
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.time.Duration
+
+class JfrEventSummarizerTest : AssignmentTests() {
+    @Test
+    fun `streamed events are summarized by key`() {
+        JfrEventSummarizer(Duration.ofSeconds(10)).use { summarizer ->
+            repeat(3) {
+                val event = DatabaseQueryEvent()
+                event.begin()
+                Thread.sleep(1)
+                event.query = "findAll"
+                event.resultCount = 10
+                event.commit()
+            }
+
+            // Events are delivered about once a second.
+            val deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos()
+            var summaries = summarizer.getHottest(10)
+            while (summaries.sumOf { it.count } < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(100)
+                summaries = summarizer.getHottest(10)
+            }
+
+            assertThat(summaries).hasSize(1)
+            assertThat(summaries[0].event).isEqualTo(DatabaseQueryEvent.NAME)
+            assertThat(summaries[0].key).isEqualTo("findAll")
+            assertThat(summaries[0].count).isEqualTo(3)
+            assertThat(summaries[0].total).isGreaterThanOrEqualTo(3.0)
+
+            summarizer.clear()
+            assertThat(summarizer.getHottest(10)).isEmpty()
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package edu.vandy.recommender.common.jfr
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.time.Duration
+
+class VirtualThreadDiagnosticsTest : AssignmentTests() {
+    private val lock = Object()
+
+    @Test
+    fun `pinned virtual threads are aggregated by call site`() {
+        VirtualThreadDiagnostics(Duration.ofMillis(1), true).use { diagnostics ->
+            (1..3)
+                .map {
+                    Thread.ofVirtual().start {
+                        // Sleeping while holding a monitor pins the carrier.
+                        synchronized(lock) { Thread.sleep(20) }
+                    }
+                }
+                .forEach { it.join() }
+
+            // Events are delivered about once a second.
+            val deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos()
+            var report = diagnostics.getReport(5)
+            while (report.pinnedCount < 3 && System.nanoTime() < deadline) {
+                Thread.sleep(100)
+                report = diagnostics.getReport(5)
+            }
+
+            assertThat(report.pinnedCount).isEqualTo(3)
+            // Each event only covers the park inside the sleep, which
+            // is a little shorter than the sleep itself.
+            assertThat(report.pinnedTotal).isBetween(30.0, 5_000.0)
+            assertThat(report.pinnedCarrierRatio).isGreaterThan(0.0)
+            assertThat(report.carrierThreads).isGreaterThan(0)
+            assertThat(report.callSites).hasSize(1)
+            assertThat(report.callSites[0].callSite)
+                .startsWith(VirtualThreadDiagnosticsTest::class.java.name)
+
+            diagnostics.clear()
+            assertThat(diagnostics.getReport(5).callSites).isEmpty()
+        }
+    }
+
+    @Test
+    fun `threads that started before the stream don't make the live count negative`() {
+        VirtualThreadDiagnostics(Duration.ofMillis(1), false).use { diagnostics ->
+            diagnostics.ended()
+            assertThat(diagnostics.getReport(5).liveVirtualThreads).isEqualTo(0)
+
+            diagnostics.started()
+            diagnostics.started()
+            diagnostics.ended()
+            assertThat(diagnostics.getReport(5).liveVirtualThreads).isEqualTo(1)
+            assertThat(diagnostics.getReport(5).startedVirtualThreads).isEqualTo(2)
+        }
+    }
+
+    @Test
+    fun `carrier threads are counted`() {
+        Thread.ofVirtual().start { }.join()
+
+        assertThat(VirtualThreadDiagnostics.countCarrierThreads())
+            .isBetween(1, Runtime.getRuntime().availableProcessors() + 256)
+    }
+}
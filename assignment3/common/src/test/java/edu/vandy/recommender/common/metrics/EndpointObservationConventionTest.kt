@@ -0,0 +1,21 @@
+package edu.vandy.recommender.common.metrics
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+
+class EndpointObservationConventionTest : AssignmentTests() {
+    @Test
+    fun `timed and untimed patterns share an endpoint`() {
+        assertThat(EndpointObservationConvention.endpoint("/search/{query}")).isEqualTo("search")
+        assertThat(EndpointObservationConvention.endpoint("/timed/search/{query}")).isEqualTo("search")
+        assertThat(EndpointObservationConvention.endpoint("/timed/postRecommendations"))
+            .isEqualTo("postRecommendations")
+    }
+
+    @Test
+    fun `unmatched and root patterns are named`() {
+        assertThat(EndpointObservationConvention.endpoint(null)).isEqualTo("UNKNOWN")
+        assertThat(EndpointObservationConvention.endpoint("/")).isEqualTo("root")
+    }
+}
@@ -0,0 +1,34 @@
+package edu.vandy.recommender.common.metrics
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import reactor.core.publisher.Mono
+import reactor.core.scheduler.Schedulers
+import test.admin.AssignmentTests
+
+class SchedulerMetricsTest : AssignmentTests() {
+    @Test
+    fun `bounded elastic executors are not instrumented`() {
+        val registry = SimpleMeterRegistry()
+        val metrics = SchedulerMetrics(registry).apply { install() }
+        val parallel = Schedulers.newParallel("rails", 2)
+        val elastic = Schedulers.newBoundedElastic(2, 10, "blocking")
+
+        try {
+            for (scheduler in listOf(parallel, elastic))
+                Mono.fromCallable { 1 }.subscribeOn(scheduler).block()
+
+            val schedulers = registry.meters
+                .mapNotNull { it.id.getTag("reactor.scheduler.id") }
+                .toSet()
+
+            assertThat(schedulers).isNotEmpty
+            assertThat(schedulers).allMatch { it.startsWith("parallel") }
+        } finally {
+            parallel.dispose()
+            elastic.dispose()
+            metrics.destroy()
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package edu.vandy.recommender.common.trace
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Test
+import reactor.core.publisher.Mono
+import reactor.core.scheduler.Schedulers
+import test.admin.AssignmentTests
+
+class AllocationsTest : AssignmentTests() {
+    @AfterEach
+    fun removeHook() {
+        Allocations.removeScheduleHook()
+    }
+
+    @Test
+    fun `scheduled tasks are charged to the request that scheduled them`() {
+        Allocations.installScheduleHook()
+        val trace = TraceContext.fromHeaders(null, null, "parallelflux") { null }
+
+        val size = trace.makeCurrent().use {
+            Mono
+                .fromCallable { ByteArray(1_000_000).size }
+                .subscribeOn(Schedulers.parallel())
+                .block()
+        }
+
+        // The task is charged just after it emits its result.
+        val deadline = System.nanoTime() + 5_000_000_000
+        while (trace.allocatedBytes() == 0L && System.nanoTime() < deadline)
+            Thread.sleep(1)
+
+        assertThat(size).isEqualTo(1_000_000)
+        assertThat(trace.allocatedBytes()).isGreaterThanOrEqualTo(1_000_000)
+        assertThat(trace.finish(System.nanoTime())[0].allocatedBytes)
+            .isEqualTo(trace.allocatedBytes())
+    }
+
+    @Test
+    fun `measurements include the thread and the tasks charged to the request`() {
+        Allocations.installScheduleHook()
+        val trace = TraceContext.fromHeaders(null, null, "database") { null }
+        val measurement = Allocations.measure(trace)
+
+        val size = ByteArray(1_000_000).size
+        trace.addAllocatedBytes(500_000)
+
+        assertThat(size).isEqualTo(1_000_000)
+        assertThat(measurement.bytes()).isGreaterThanOrEqualTo(1_500_000)
+    }
+
+    @Test
+    fun `nothing is measured unless the hook is installed`() {
+        val measurement = Allocations.measure(null)
+        ByteArray(1_000_000)
+
+        assertThat(Allocations.currentThreadAllocatedBytes()).isEqualTo(-1)
+        assertThat(measurement.bytes()).isEqualTo(0)
+    }
+
+    @Test
+    fun `untraced tasks are not wrapped`() {
+        val task = Runnable { }
+
+        assertThat(Allocations.propagate(task)).isSameAs(task)
+    }
+}
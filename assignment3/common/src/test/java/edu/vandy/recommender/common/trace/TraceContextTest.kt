@@ -0,0 +1,118 @@
+package edu.vandy.recommender.common.trace
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import reactor.core.publisher.Flux
+import test.admin.AssignmentTests
+
+class TraceContextTest : AssignmentTests() {
+    private val traceparent = "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"
+
+    @Test
+    fun `incoming traces are continued`() {
+        val trace = TraceContext.fromHeaders(traceparent, "rec=parallelflux:/x,other=1", "database") { null }
+
+        assertThat(trace.traceId()).isEqualTo("4bf92f3577b34da6a3ce929d0e0e4736")
+        assertThat(trace.parentId()).isEqualTo("00f067aa0ba902b7")
+        assertThat(trace.spanId()).hasSize(16).isNotEqualTo(trace.parentId())
+        assertThat(trace.isSampled()).isTrue
+        assertThat(trace.requestType()).isEqualTo("parallelflux:/x")
+        assertThat(trace.traceparent())
+            .isEqualTo("00-4bf92f3577b34da6a3ce929d0e0e4736-${trace.spanId()}-01")
+        assertThat(trace.tracestate()).isEqualTo("rec=parallelflux:/x,other=1")
+    }
+
+    @Test
+    fun `invalid headers start a new trace`() {
+        listOf(
+            null,
+            "00-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7",
+            "00-00000000000000000000000000000000-00f067aa0ba902b7-01",
+            "00-4bf92f3577b34da6a3ce929d0e0e4736-0000000000000000-01",
+            "00-4BF92F3577B34DA6A3CE929D0E0E4736-00f067aa0ba902b7-01",
+            "ff-4bf92f3577b34da6a3ce929d0e0e4736-00f067aa0ba902b7-01"
+        ).forEach {
+            val trace = TraceContext.fromHeaders(it, "rec=stale", "database") { "database:/movies" }
+
+            assertThat(trace.parentId()).isNull()
+            assertThat(trace.traceId()).hasSize(32).isNotEqualTo("4bf92f3577b34da6a3ce929d0e0e4736")
+            assertThat(trace.requestType()).isEqualTo("database:/movies")
+        }
+    }
+
+    @Test
+    fun `request types that aren't ours are ignored`() {
+        listOf("x y", "parallelflux:/<script>", "a".repeat(TraceContext.MAX_REQUEST_TYPE_LENGTH + 1)).forEach {
+            val trace = TraceContext.fromHeaders(traceparent, "rec=$it", "database") { "database:/movies" }
+
+            assertThat(trace.requestType()).isEqualTo("database:/movies")
+        }
+    }
+
+    @Test
+    fun `new traces are sampled at the given rate`() {
+        assertThat(TraceContext.fromHeaders(null, null, "database", { null }, 0.0).isSampled()).isFalse
+        assertThat(TraceContext.fromHeaders(null, null, "database", { null }, 1.0).isSampled()).isTrue
+        assertThat(TraceContext.fromHeaders(traceparent, null, "database", { null }, 0.0).isSampled()).isTrue
+    }
+
+    @Test
+    fun `finished traces return all spans for the request type`() {
+        val trace = TraceContext.fromHeaders(traceparent, null, "parallelflux") { "parallelflux:/timed/search" }
+        trace.recordStage("score", 10, 20)
+        trace.markSerializing()
+
+        val spans = trace.finish(System.nanoTime())
+
+        assertThat(spans.map { it.stage })
+            .containsExactly("parallelflux:request", "parallelflux:score", "parallelflux:serialize")
+        assertThat(spans).allSatisfy {
+            assertThat(it.id).isEqualTo("parallelflux:/timed/search")
+            assertThat(it.traceId).isEqualTo(trace.traceId())
+        }
+        assertThat(spans[0].spanId).isEqualTo(trace.spanId())
+        assertThat(spans[0].parentId).isEqualTo("00f067aa0ba902b7")
+        assertThat(spans[1].parentId).isEqualTo(trace.spanId())
+    }
+
+    @Test
+    fun `unsampled traces record nothing`() {
+        val trace = TraceContext.fromHeaders(traceparent.dropLast(1) + "0", null, "database") { null }
+        trace.recordStage("load", 1, 2)
+
+        assertThat(trace.isSampled()).isFalse
+        assertThat(trace.finish(3)).isEmpty()
+        assertThat(trace.traceparent()).endsWith("-00")
+    }
+
+    @Test
+    fun `server timing sums the durations of each stage`() {
+        val trace = TraceContext.fromHeaders(traceparent.dropLast(1) + "0", null, "database") { null }
+        trace.reportServerTiming()
+        trace.recordStage("load", 0, 1_500_000)
+        trace.recordStage("load", 0, 500_000)
+
+        assertThat(trace.serverTiming(System.nanoTime()))
+            .startsWith("load;dur=2.0, total;dur=")
+    }
+
+    @Test
+    fun `unsampled traces skip stages unless server timing is reported`() {
+        val trace = TraceContext.fromHeaders(traceparent.dropLast(1) + "0", null, "database") { null }
+        trace.recordStage("load", 0, 1_500_000)
+
+        assertThat(trace.serverTiming(System.nanoTime())).startsWith("total;dur=")
+        trace.makeCurrent().use {
+            assertThat(TraceContext.stage<Int>("score")).isSameAs(java.util.function.Function.identity<Flux<Int>>())
+        }
+    }
+
+    @Test
+    fun `the current trace is scoped`() {
+        val trace = TraceContext.fromHeaders(null, null, "database") { null }
+
+        trace.makeCurrent().use { assertThat(TraceContext.current()).isSameAs(trace) }
+
+        assertThat(TraceContext.current()).isNull()
+    }
+}
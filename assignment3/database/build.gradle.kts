@@ -4,11 +4,12 @@ dependencies {
     implementation("org.springframework.boot:spring-boot-starter-webflux")
     implementation("org.springframework.cloud:spring-cloud-starter-netflix-eureka-client")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
+    implementation("org.springframework.boot:spring-boot-starter-cache")
     implementation("com.github.ben-manes.caffeine:caffeine")
     implementation("org.springframework:spring-test")
     implementation ("org.junit.jupiter:junit-jupiter")
     implementation("org.springframework.boot:spring-boot-configuration-processor")
     testImplementation ("org.springframework.boot:spring-boot-starter-test")
-    runtimeOnly("com.h2database:h2")
+    implementation("com.h2database:h2")
     implementation("commons-dbcp:commons-dbcp:1.4")
 }
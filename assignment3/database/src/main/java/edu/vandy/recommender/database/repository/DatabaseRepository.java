@@ -1,6 +1,7 @@
 package edu.vandy.recommender.database.repository;
 
 import edu.vandy.recommender.common.model.Movie;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -18,7 +19,9 @@ import java.util.List;
 @Repository
 public interface DatabaseRepository
        extends JpaRepository<Movie, String>,
-    MultiQueryRepository {
+    MultiQueryRepository,
+    TitleSearchRepository,
+    MovieStreamRepository {
 
     /**
      * @return A {@link List} of all {@link Movie} objects in the
@@ -37,4 +40,20 @@ public interface DatabaseRepository
      *         order
      */
     // TODO -- you fill in here.
+
+    /**
+     * Find one page of the {@link Movie} objects whose id (movie
+     * title) follows the {@code after} id sorted in ascending order
+     * by id.  The page is read from the primary key index, and the
+     * {@code pageable} must request its first page, so no rows are
+     * skipped via an OFFSET.
+     *
+     * @param after The last id of the previous page, or an empty
+     *              {@link String} for the first page
+     * @param pageable The first page of the requested size
+     * @return Up to the requested number of {@link Movie} objects
+     *         sorted in ascending order by id
+     */
+    List<Movie> findByIdGreaterThanOrderByIdAsc(String after,
+                                                Pageable pageable);
 }
@@ -0,0 +1,24 @@
+package edu.vandy.recommender.database.repository;
+
+import edu.vandy.recommender.common.model.Movie;
+
+import java.util.stream.Stream;
+
+/**
+ * This repository fragment streams all the {@link Movie} objects
+ * without materializing them in a {@link java.util.List} or a
+ * persistence context, so reading the whole catalog only needs memory
+ * for the rows of one JDBC fetch at a time.
+ */
+public interface MovieStreamRepository {
+    /**
+     * Stream all the {@link Movie} objects in the database sorted in
+     * ascending order by id (movie title).  The caller must close the
+     * {@link Stream}, e.g., via try-with-resources, to release its
+     * database session.
+     *
+     * @return A read-only {@link Stream} of all {@link Movie} objects
+     *         sorted in ascending order by id
+     */
+    Stream<Movie> streamAllByOrderByIdAsc();
+}
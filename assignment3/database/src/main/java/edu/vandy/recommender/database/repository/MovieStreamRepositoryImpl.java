@@ -0,0 +1,113 @@
+package edu.vandy.recommender.database.repository;
+
+import edu.vandy.recommender.common.model.Movie;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.springframework.beans.factory.annotation.Value;
+
+import java.util.stream.Stream;
+
+/**
+ * This implementation of {@link MovieStreamRepository} reads the
+ * {@link Movie} objects via a Hibernate {@link
+ * org.hibernate.StatelessSession}, which has no persistence context,
+ * so the rows are neither cached nor snapshotted for dirty checking
+ * while they're streamed, and each {@link Movie} can be garbage
+ * collected as soon as the caller is done with it.
+ *
+ * H2 materializes the whole result of a query before returning its
+ * first row unless LAZY_QUERY_EXECUTION is enabled, so it's enabled
+ * on the session's connection while the movies are streamed.  The
+ * session holds its connection until it's closed, so the setting is
+ * reset before the connection is returned to the pool and no other
+ * query ever runs with it.
+ */
+public class MovieStreamRepositoryImpl
+       implements MovieStreamRepository {
+    /**
+     * The query that reads all the movies in ascending order.
+     */
+    private static final String ALL_MOVIES =
+        "select m from Movie m order by m.id";
+
+    /**
+     * The H2 statements that enable and disable lazy query execution
+     * for the current connection.
+     */
+    private static final String LAZY_ON =
+        "SET LAZY_QUERY_EXECUTION TRUE";
+    private static final String LAZY_OFF =
+        "SET LAZY_QUERY_EXECUTION FALSE";
+
+    /**
+     * Opens the stateless sessions.
+     */
+    @PersistenceUnit
+    private EntityManagerFactory mEntityManagerFactory;
+
+    /**
+     * The number of rows the JDBC driver fetches per round trip.
+     */
+    @Value("${app.database.fetch-size:500}")
+    private int mFetchSize;
+
+    /**
+     * Stream all the {@link Movie} objects in the database sorted in
+     * ascending order by id.
+     */
+    @Override
+    public Stream<Movie> streamAllByOrderByIdAsc() {
+        var session = mEntityManagerFactory
+            .unwrap(SessionFactory.class)
+            .openStatelessSession();
+
+        try {
+            // Make H2 return the rows as they're read.
+            execute(session, LAZY_ON);
+
+            return session
+                // Read the entities without a persistence context.
+                .createQuery(ALL_MOVIES, Movie.class)
+
+                // Bound the rows held by the JDBC result set.
+                .setFetchSize(mFetchSize)
+                .setReadOnly(true)
+
+                // Scroll through the results lazily.
+                .getResultStream()
+
+                // Release the session when the Stream is closed,
+                // which runs after the results have been closed.
+                .onClose(() -> close(session));
+        } catch (RuntimeException e) {
+            close(session);
+            throw e;
+        }
+    }
+
+    /**
+     * Reset lazy query execution on the connection of {@code
+     * session} and then close it.
+     */
+    private static void close(StatelessSession session) {
+        try {
+            execute(session, LAZY_OFF);
+        } finally {
+            session.close();
+        }
+    }
+
+    /**
+     * Execute the {@code sql} statement on the connection of {@code
+     * session}.
+     */
+    private static void execute(StatelessSession session, String sql) {
+        session.doWork(connection -> {
+                try (var statement = connection.createStatement()) {
+                    statement.execute(sql);
+                }
+            });
+    }
+}
@@ -0,0 +1,66 @@
+package edu.vandy.recommender.database.repository;
+
+import org.h2.tools.TriggerAdapter;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * This H2 trigger keeps the MOVIE_TRIGRAM table in sync with the
+ * MOVIE table, i.e., it indexes the {@link TitleTrigrams} of each
+ * title that's inserted and removes those of each title that's
+ * deleted (an update of the title does both, an update of anything
+ * else does neither).  It's created by schema.sql, so the titles
+ * loaded by data.sql are indexed as they're inserted.
+ */
+public class MovieTrigramTrigger
+       extends TriggerAdapter {
+    /**
+     * Removes the trigrams of a title.
+     */
+    private static final String DELETE =
+        "delete from MOVIE_TRIGRAM where id = ?";
+
+    /**
+     * Adds one trigram of a title.
+     */
+    private static final String INSERT =
+        "insert into MOVIE_TRIGRAM (trigram, id) values (?, ?)";
+
+    /**
+     * Update the trigrams of the changed row.
+     *
+     * @param connection The connection of the changing transaction
+     * @param oldRow The row before the change, or null if inserted
+     * @param newRow The row after the change, or null if deleted
+     */
+    @Override
+    public void fire(Connection connection,
+                     ResultSet oldRow,
+                     ResultSet newRow) throws SQLException {
+        // Don't reindex a title that didn't change, e.g., when
+        // pack-vectors.sql rewrites the vectors of all the movies.
+        if (oldRow != null
+            && newRow != null
+            && oldRow.getString("ID").equals(newRow.getString("ID")))
+            return;
+
+        if (oldRow != null)
+            try (var delete = connection.prepareStatement(DELETE)) {
+                delete.setString(1, oldRow.getString("ID"));
+                delete.executeUpdate();
+            }
+
+        if (newRow != null)
+            try (var insert = connection.prepareStatement(INSERT)) {
+                String id = newRow.getString("ID");
+                for (String trigram : TitleTrigrams.of(id)) {
+                    insert.setString(1, trigram);
+                    insert.setString(2, id);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+            }
+    }
+}
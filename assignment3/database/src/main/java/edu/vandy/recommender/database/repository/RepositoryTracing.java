@@ -0,0 +1,112 @@
+package edu.vandy.recommender.database.repository;
+
+import edu.vandy.recommender.common.jfr.DatabaseQueryEvent;
+import edu.vandy.recommender.common.trace.TraceContext;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * This {@link BeanPostProcessor} wraps the {@link DatabaseRepository}
+ * so the time each query takes is recorded as the "load" stage of
+ * the current traced request, if any.  Queries answered by the movie
+ * cache never reach the repository, so they record no "load" stage.
+ * Each query is also recorded as a {@link DatabaseQueryEvent}.  A
+ * query that returns a {@link Stream} is recorded when the {@link
+ * Stream} is closed, so the stage covers scrolling through its rows
+ * and the event counts them.
+ */
+@Component
+public class RepositoryTracing
+       implements BeanPostProcessor {
+    /**
+     * The stage that loads {@link edu.vandy.recommender.common.model.Movie}
+     * objects from the database.
+     */
+    private static final String LOAD = "load";
+
+    /**
+     * Wrap the {@link DatabaseRepository} in a proxy that traces
+     * each call.
+     */
+    @Override
+    public Object postProcessAfterInitialization(Object bean,
+                                                 String beanName) {
+        if (!(bean instanceof DatabaseRepository))
+            return bean;
+
+        var factory = new ProxyFactory(bean);
+        factory.addAdvice((MethodInterceptor) invocation -> {
+                var trace = TraceContext.current();
+                var event = new DatabaseQueryEvent();
+                if (trace == null && !event.isEnabled())
+                    return invocation.proceed();
+
+                event.begin();
+                long start = System.nanoTime();
+                Object result;
+                try {
+                    result = invocation.proceed();
+                } catch (Throwable t) {
+                    record(trace, event, invocation, start, -1);
+                    throw t;
+                }
+
+                if (result instanceof Stream<?> rows) {
+                    var count = new AtomicLong();
+                    return rows
+                        // Count the rows as they're scrolled.
+                        .peek(__ -> count.incrementAndGet())
+
+                        // Record the query once the caller is done.
+                        .onClose(() -> record(trace,
+                                              event,
+                                              invocation,
+                                              start,
+                                              count.get()));
+                }
+
+                record(trace,
+                       event,
+                       invocation,
+                       start,
+                       result instanceof Collection<?> rows
+                       ? rows.size()
+                       : -1);
+                return result;
+            });
+
+        return factory.getProxy();
+    }
+
+    /**
+     * Record a query as the "load" stage of {@code trace} and as
+     * {@code event}.
+     *
+     * @param trace The {@link TraceContext} of the request, or null
+     * @param event The {@link DatabaseQueryEvent} begun by the query
+     * @param invocation The repository call that ran the query
+     * @param start The {@link System#nanoTime} the query started
+     * @param resultCount The number of rows, or -1 if unknown
+     */
+    private static void record(TraceContext trace,
+                               DatabaseQueryEvent event,
+                               MethodInvocation invocation,
+                               long start,
+                               long resultCount) {
+        if (trace != null)
+            trace.recordStage(LOAD, start, System.nanoTime());
+
+        if (event.shouldCommit()) {
+            event.query = invocation.getMethod().getName();
+            event.resultCount = resultCount;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package edu.vandy.recommender.database.repository;
+
+import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MovieTitle;
+
+import java.util.List;
+
+/**
+ * This repository fragment searches the {@link Movie} titles via the
+ * MOVIE_TRIGRAM index (see {@link TitleTrigrams}) rather than
+ * scanning and lower-casing every title of the MOVIE table.  Queries
+ * shorter than {@link TitleTrigrams#LENGTH} characters have no
+ * trigrams, so they're still answered by a scan.
+ */
+public interface TitleSearchRepository {
+    /**
+     * Find all {@link Movie} objects whose title contains the {@code
+     * query} (ignoring case) sorted in ascending order.
+     *
+     * @param query The {@link String} query to search for
+     * @return A {@link List} of {@link Movie} objects containing the
+     *         {@code query} sorted in ascending order
+     */
+    List<Movie> findAllByTitleContaining(String query);
+
+    /**
+     * Find all {@link Movie} objects whose title contains all the
+     * {@code queries} (ignoring case) sorted in ascending order.
+     *
+     * @param queries The {@link List} of queries to search for
+     * @return A {@link List} of {@link Movie} objects containing all
+     *         the {@code queries} sorted in ascending order, which is
+     *         empty if there are no {@code queries}
+     */
+    List<Movie> findAllByTitleContainingAll(List<String> queries);
+
+    /**
+     * Find all {@link Movie} objects whose title contains any of the
+     * {@code queries} (ignoring case) sorted in ascending order, all
+     * via a single SQL statement.
+     *
+     * @param queries The {@link List} of queries to search for
+     * @return A {@link List} of {@link Movie} objects containing any
+     *         of the {@code queries} sorted in ascending order without
+     *         duplicates, which is empty if there are no {@code
+     *         queries}
+     */
+    List<Movie> findAllByTitleContainingAny(List<String> queries);
+
+    /**
+     * Find the titles of all {@link Movie} objects whose title
+     * contains the {@code query} (ignoring case) sorted in ascending
+     * order, without reading their vectors.
+     *
+     * @param query The {@link String} query to search for
+     * @return A {@link List} of {@link MovieTitle} projections
+     *         containing the {@code query} sorted in ascending order
+     */
+    List<MovieTitle> findTitlesContaining(String query);
+
+    /**
+     * Find the titles of all {@link Movie} objects whose title
+     * contains all the {@code queries} (ignoring case) sorted in
+     * ascending order, without reading their vectors.
+     *
+     * @param queries The {@link List} of queries to search for
+     * @return A {@link List} of {@link MovieTitle} projections
+     *         containing all the {@code queries} sorted in ascending
+     *         order, which is empty if there are no {@code queries}
+     */
+    List<MovieTitle> findTitlesContainingAll(List<String> queries);
+
+    /**
+     * Find the titles of all {@link Movie} objects whose title
+     * contains any of the {@code queries} (ignoring case) sorted in
+     * ascending order, without reading their vectors.
+     *
+     * @param queries The {@link List} of queries to search for
+     * @return A {@link List} of {@link MovieTitle} projections
+     *         containing any of the {@code queries} sorted in
+     *         ascending order, which is empty if there are no {@code
+     *         queries}
+     */
+    List<MovieTitle> findTitlesContainingAny(List<String> queries);
+
+    /**
+     * Find one page of the {@link Movie} objects whose title contains
+     * all the {@code queries} (ignoring case) sorted in ascending
+     * order.  The page starts right after the {@code after} title in
+     * the primary key index, so no rows are skipped via an OFFSET.
+     *
+     * @param queries The {@link List} of queries to search for
+     * @param after The last title of the previous page, or null for
+     *              the first page
+     * @param limit The largest number of {@link Movie} objects to
+     *              return
+     * @return Up to {@code limit} {@link Movie} objects containing
+     *         all the {@code queries} sorted in ascending order
+     */
+    List<Movie> findPageByTitleContainingAll(List<String> queries,
+                                             String after,
+                                             int limit);
+
+    /**
+     * Find one page of the {@link Movie} objects whose title contains
+     * any of the {@code queries} (ignoring case) sorted in ascending
+     * order.  The page starts right after the {@code after} title in
+     * the primary key index, so no rows are skipped via an OFFSET.
+     *
+     * @param queries The {@link List} of queries to search for
+     * @param after The last title of the previous page, or null for
+     *              the first page
+     * @param limit The largest number of {@link Movie} objects to
+     *              return
+     * @return Up to {@code limit} {@link Movie} objects containing
+     *         any of the {@code queries} sorted in ascending order
+     */
+    List<Movie> findPageByTitleContainingAny(List<String> queries,
+                                             String after,
+                                             int limit);
+
+    /**
+     * @param queries The {@link List} of queries to search for
+     * @return The number of {@link Movie} objects whose title
+     *         contains all the {@code queries} (ignoring case)
+     */
+    long countByTitleContainingAll(List<String> queries);
+
+    /**
+     * @param queries The {@link List} of queries to search for
+     * @return The number of {@link Movie} objects whose title
+     *         contains any of the {@code queries} (ignoring case)
+     */
+    long countByTitleContainingAny(List<String> queries);
+}
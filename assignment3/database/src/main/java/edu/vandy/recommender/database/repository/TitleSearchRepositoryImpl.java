@@ -0,0 +1,460 @@
+package edu.vandy.recommender.database.repository;
+
+import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MovieTitle;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.data.projection.ProjectionFactory;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This implementation of {@link TitleSearchRepository} narrows each
+ * search to the titles that contain all the trigrams of its queries,
+ * which the MOVIE_TRIGRAM primary key index finds without a table
+ * scan, and then checks the candidates with a {@code LIKE} predicate
+ * to eliminate titles whose trigrams match in a different order.
+ * Each search runs as a single SQL statement, however many queries
+ * it has.
+ */
+public class TitleSearchRepositoryImpl
+       implements TitleSearchRepository {
+    /**
+     * This field represents a session with the database.
+     */
+    @PersistenceContext
+    private EntityManager mEntityManager;
+
+    /**
+     * Creates the {@link MovieTitle} projections in the same way as
+     * Spring Data does for the derived query methods.
+     */
+    private final ProjectionFactory mProjectionFactory =
+        new SpelAwareProxyProjectionFactory();
+
+    /**
+     * Find all {@link Movie} objects whose title contains the {@code
+     * query} (ignoring case) sorted in ascending order.
+     */
+    @Override
+    public List<Movie> findAllByTitleContaining(String query) {
+        return findAllByTitleContainingAll(List.of(query));
+    }
+
+    /**
+     * Find all {@link Movie} objects whose title contains all the
+     * {@code queries} (ignoring case) sorted in ascending order.
+     */
+    @Override
+    public List<Movie> findAllByTitleContainingAll(List<String> queries) {
+        return queries.isEmpty()
+            ? List.of()
+            : getResultList(TitleQuery.containingAll(queries));
+    }
+
+    /**
+     * Find all {@link Movie} objects whose title contains any of the
+     * {@code queries} (ignoring case) sorted in ascending order.
+     */
+    @Override
+    public List<Movie> findAllByTitleContainingAny(List<String> queries) {
+        return queries.isEmpty()
+            ? List.of()
+            : getResultList(TitleQuery.containingAny(queries));
+    }
+
+    /**
+     * Find the titles of all {@link Movie} objects whose title
+     * contains the {@code query} (ignoring case) sorted in ascending
+     * order.
+     */
+    @Override
+    public List<MovieTitle> findTitlesContaining(String query) {
+        return findTitlesContainingAll(List.of(query));
+    }
+
+    /**
+     * Find the titles of all {@link Movie} objects whose title
+     * contains all the {@code queries} (ignoring case) sorted in
+     * ascending order.
+     */
+    @Override
+    public List<MovieTitle> findTitlesContainingAll(List<String> queries) {
+        return queries.isEmpty()
+            ? List.of()
+            : getTitleList(TitleQuery.containingAll(queries).titlesOnly());
+    }
+
+    /**
+     * Find the titles of all {@link Movie} objects whose title
+     * contains any of the {@code queries} (ignoring case) sorted in
+     * ascending order.
+     */
+    @Override
+    public List<MovieTitle> findTitlesContainingAny(List<String> queries) {
+        return queries.isEmpty()
+            ? List.of()
+            : getTitleList(TitleQuery.containingAny(queries).titlesOnly());
+    }
+
+    /**
+     * Find one page of the {@link Movie} objects whose title contains
+     * all the {@code queries} (ignoring case) sorted in ascending
+     * order.
+     */
+    @Override
+    public List<Movie> findPageByTitleContainingAll(List<String> queries,
+                                                    String after,
+                                                    int limit) {
+        return queries.isEmpty()
+            ? List.of()
+            : getResultList(TitleQuery.containingAll(queries).page(after, limit));
+    }
+
+    /**
+     * Find one page of the {@link Movie} objects whose title contains
+     * any of the {@code queries} (ignoring case) sorted in ascending
+     * order.
+     */
+    @Override
+    public List<Movie> findPageByTitleContainingAny(List<String> queries,
+                                                    String after,
+                                                    int limit) {
+        return queries.isEmpty()
+            ? List.of()
+            : getResultList(TitleQuery.containingAny(queries).page(after, limit));
+    }
+
+    /**
+     * Count the {@link Movie} objects whose title contains all the
+     * {@code queries} (ignoring case).
+     */
+    @Override
+    public long countByTitleContainingAll(List<String> queries) {
+        return queries.isEmpty()
+            ? 0
+            : getCount(TitleQuery.containingAll(queries).count());
+    }
+
+    /**
+     * Count the {@link Movie} objects whose title contains any of the
+     * {@code queries} (ignoring case).
+     */
+    @Override
+    public long countByTitleContainingAny(List<String> queries) {
+        return queries.isEmpty()
+            ? 0
+            : getCount(TitleQuery.containingAny(queries).count());
+    }
+
+    /**
+     * Run the {@code titleQuery} as a native query.
+     *
+     * @param titleQuery The {@link TitleQuery} to run
+     * @return The {@link Movie} objects it found
+     */
+    @SuppressWarnings("unchecked")
+    private List<Movie> getResultList(TitleQuery titleQuery) {
+        return createNativeQuery(titleQuery, Movie.class)
+            .getResultList();
+    }
+
+    /**
+     * Run the {@code titleQuery}, which only selects the titles, as a
+     * native query.
+     *
+     * @param titleQuery The {@link TitleQuery} to run
+     * @return The {@link MovieTitle} projections of the titles it
+     *         found
+     */
+    @SuppressWarnings("unchecked")
+    private List<MovieTitle> getTitleList(TitleQuery titleQuery) {
+        List<String> titles = createNativeQuery(titleQuery, String.class)
+            .getResultList();
+
+        return titles
+            // Convert List to Stream.
+            .stream()
+
+            // Project each title without loading its Movie.
+            .map(title -> mProjectionFactory
+                 .createProjection(MovieTitle.class,
+                                   Map.of("id", title)))
+
+            // Convert Stream to List.
+            .toList();
+    }
+
+    /**
+     * Run the {@code titleQuery}, which counts rows, as a native
+     * query.
+     *
+     * @param titleQuery The {@link TitleQuery} to run
+     * @return The number of rows it counted
+     */
+    private long getCount(TitleQuery titleQuery) {
+        return ((Number) createNativeQuery(titleQuery, Long.class)
+                .getSingleResult())
+            .longValue();
+    }
+
+    /**
+     * Create a native query for the {@code titleQuery} and bind its
+     * parameters.
+     *
+     * @param titleQuery The {@link TitleQuery} to create
+     * @param resultClass The type of each row of the result
+     * @return The {@link Query}
+     */
+    private Query createNativeQuery(TitleQuery titleQuery,
+                                    Class<?> resultClass) {
+        var query = mEntityManager
+            .createNativeQuery(titleQuery.sql(), resultClass);
+
+        var parameters = titleQuery.parameters();
+        for (int i = 0; i < parameters.size(); i++)
+            query.setParameter(i + 1, parameters.get(i));
+
+        return query;
+    }
+
+    /**
+     * A native SQL query and its positional parameters.
+     */
+    static class TitleQuery {
+        /**
+         * The character that escapes the wildcards of a query.
+         */
+        private static final char ESCAPE = '\\';
+
+        /**
+         * The start of a query that selects whole movies.
+         */
+        private static final String MOVIES =
+            "select m.id, m.vector from MOVIE m where ";
+
+        /**
+         * The start of a query that only selects the titles.
+         */
+        private static final String TITLES =
+            "select m.id from MOVIE m where ";
+
+        /**
+         * The start of a query that counts the matching movies.
+         */
+        private static final String COUNT =
+            "select count(*) from MOVIE m where ";
+
+        /**
+         * The order of the results, which the primary key index
+         * provides without sorting.
+         */
+        private static final String ORDER = " order by m.id";
+
+        /**
+         * The select clause, which ends with "where ".
+         */
+        private final String mSelect;
+
+        /**
+         * The predicate of the where clause.
+         */
+        private final String mWhere;
+
+        /**
+         * The order by clause and any limit.
+         */
+        private final String mOrder;
+
+        /**
+         * The values of the placeholders.
+         */
+        private final List<Object> mParameters;
+
+        /**
+         * Constructor initializes the fields.
+         */
+        private TitleQuery(String select,
+                           String where,
+                           String order,
+                           List<Object> parameters) {
+            mSelect = select;
+            mWhere = where;
+            mOrder = order;
+            mParameters = parameters;
+        }
+
+        /**
+         * Build a query that finds the titles containing all the
+         * {@code queries} (ignoring case).
+         *
+         * @param queries A non-empty {@link List} of queries
+         * @return The {@link TitleQuery}
+         */
+        static TitleQuery containingAll(List<String> queries) {
+            List<Object> parameters = new ArrayList<>();
+            var where = new StringBuilder();
+
+            var trigrams = TitleTrigrams.of(queries);
+            if (!trigrams.isEmpty()) {
+                // Only titles containing every trigram are candidates.
+                where.append("m.id in (");
+                appendTitlesWithAll(where, parameters, trigrams);
+                where.append(") and ");
+            }
+
+            // Check the order of the trigrams in each candidate.
+            appendLikes(where, parameters, queries, " and ");
+
+            return new TitleQuery(MOVIES, where.toString(), ORDER, parameters);
+        }
+
+        /**
+         * Build a query that finds the titles containing any of the
+         * {@code queries} (ignoring case).
+         *
+         * @param queries A non-empty {@link List} of queries
+         * @return The {@link TitleQuery}
+         */
+        static TitleQuery containingAny(List<String> queries) {
+            List<Object> parameters = new ArrayList<>();
+            var where = new StringBuilder();
+
+            // A query without trigrams could match any title, so the
+            // candidates can only be narrowed if every query has some.
+            var trigrams = queries
+                .stream()
+                .map(TitleTrigrams::of)
+                .toList();
+            if (trigrams.stream().noneMatch(Set::isEmpty)) {
+                // Titles containing every trigram of some query are
+                // candidates.
+                where.append("m.id in (");
+                for (int i = 0; i < trigrams.size(); i++) {
+                    where.append(i == 0 ? "" : " union ");
+                    appendTitlesWithAll(where, parameters, trigrams.get(i));
+                }
+                where.append(") and ");
+            }
+
+            // Check the order of the trigrams in each candidate.
+            where.append("(");
+            appendLikes(where, parameters, queries, " or ");
+            where.append(")");
+
+            return new TitleQuery(MOVIES, where.toString(), ORDER, parameters);
+        }
+
+        /**
+         * Append a subquery that selects the ids of the titles
+         * containing all the {@code trigrams}.
+         */
+        private static void appendTitlesWithAll(StringBuilder sql,
+                                                List<Object> parameters,
+                                                Set<String> trigrams) {
+            sql.append("select t.id from MOVIE_TRIGRAM t where t.trigram in (");
+            for (int i = 0; i < trigrams.size(); i++)
+                sql.append(i == 0 ? "?" : ", ?")
+                    .append(parameters.size() + i + 1);
+            parameters.addAll(trigrams);
+
+            parameters.add(trigrams.size());
+            sql.append(") group by t.id having count(*) = ?")
+                .append(parameters.size());
+        }
+
+        /**
+         * Append a {@code LIKE} predicate for each of the {@code
+         * queries} joined by the {@code conjunction}.
+         */
+        private static void appendLikes(StringBuilder sql,
+                                        List<Object> parameters,
+                                        List<String> queries,
+                                        String conjunction) {
+            for (int i = 0; i < queries.size(); i++) {
+                parameters.add("%" + escape(TitleTrigrams.normalize(queries.get(i))) + "%");
+                sql.append(i == 0 ? "" : conjunction)
+                    .append("lower(m.id) like ?")
+                    .append(parameters.size())
+                    .append(" escape '")
+                    .append(ESCAPE)
+                    .append("'");
+            }
+        }
+
+        /**
+         * @return The {@code query} with its {@code LIKE} wildcards
+         *         escaped
+         */
+        private static String escape(String query) {
+            var escaped = new StringBuilder(query.length());
+            for (char c : query.toCharArray()) {
+                if (c == ESCAPE || c == '%' || c == '_')
+                    escaped.append(ESCAPE);
+                escaped.append(c);
+            }
+            return escaped.toString();
+        }
+
+        /**
+         * @return The same query, but only selecting the titles
+         */
+        TitleQuery titlesOnly() {
+            return new TitleQuery(TITLES, mWhere, mOrder, mParameters);
+        }
+
+        /**
+         * @return A query that counts the movies this query finds
+         */
+        TitleQuery count() {
+            return new TitleQuery(COUNT, mWhere, "", mParameters);
+        }
+
+        /**
+         * Restrict this query to one page of its results, which
+         * starts right after the {@code after} title in the primary
+         * key index instead of skipping an OFFSET of rows.
+         *
+         * @param after The last title of the previous page, or null
+         *              for the first page
+         * @param limit The largest number of rows of the page
+         * @return The same query restricted to the page
+         */
+        TitleQuery page(String after, int limit) {
+            List<Object> parameters = new ArrayList<>(mParameters);
+            var where = new StringBuilder(mWhere);
+            if (after != null) {
+                parameters.add(after);
+                where.append(" and m.id > ?").append(parameters.size());
+            }
+
+            parameters.add(limit);
+            return new TitleQuery(mSelect,
+                                  where.toString(),
+                                  ORDER
+                                  + " fetch first ?"
+                                  + parameters.size()
+                                  + " rows only",
+                                  parameters);
+        }
+
+        /**
+         * @return The SQL with "?1", "?2", etc. placeholders
+         */
+        String sql() {
+            return mSelect + mWhere + mOrder;
+        }
+
+        /**
+         * @return The values of the placeholders
+         */
+        List<Object> parameters() {
+            return mParameters;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package edu.vandy.recommender.database.repository;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * This Java utility class splits {@link String} objects into their
+ * lower-cased trigrams, i.e., the substrings of three consecutive
+ * characters.  A title contains a query only if it contains all the
+ * query's trigrams, so the MOVIE_TRIGRAM table maintained by the
+ * {@link MovieTrigramTrigger} finds the candidate titles of a query
+ * via its primary key index instead of scanning the MOVIE table.
+ */
+public final class TitleTrigrams {
+    /**
+     * The length of a trigram, which is also the shortest query
+     * that can be answered via the MOVIE_TRIGRAM table.
+     */
+    public static final int LENGTH = 3;
+
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private TitleTrigrams() {
+    }
+
+    /**
+     * @param string A title or a query
+     * @return The {@code string} lower-cased in the same way as the
+     *         titles are indexed
+     */
+    public static String normalize(String string) {
+        return string.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param string A title or a query
+     * @return The distinct lower-cased trigrams of the {@code string},
+     *         which is empty if it's shorter than {@link #LENGTH}
+     */
+    public static Set<String> of(String string) {
+        return of(Set.of(string));
+    }
+
+    /**
+     * @param strings Titles or queries
+     * @return The distinct lower-cased trigrams of all the {@code
+     *         strings}
+     */
+    public static Set<String> of(Collection<String> strings) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (String string : strings) {
+            var normalized = normalize(string);
+            for (int i = 0; i + LENGTH <= normalized.length(); i++)
+                trigrams.add(normalized.substring(i, i + LENGTH));
+        }
+        return trigrams;
+    }
+}
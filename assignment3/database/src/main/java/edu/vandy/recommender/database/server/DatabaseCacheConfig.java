@@ -0,0 +1,183 @@
+package edu.vandy.recommender.database.server;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MovieTitle;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static edu.vandy.recommender.common.Constants.Params.MOVIES_CACHE;
+import static edu.vandy.recommender.common.Constants.Params.SEARCH_CACHE;
+
+/**
+ * This class configures the Caffeine caches of the {@link
+ * DatabaseService}.  Each cache has its own size and expiration
+ * policy, given as a Caffeine spec by the "app.cache.movies.spec"
+ * and "app.cache.search.spec" properties, and records statistics.
+ * The {@code SEARCH_CACHE} is bounded by the estimated bytes of its
+ * results (see {@link #weigh}) rather than by their number, since a
+ * short query can match most of the movies and their vectors, so its
+ * spec normally sets a "maximumWeight" in bytes.  A spec that sets
+ * "maximumSize" instead bounds it by the number of results.
+ *
+ * Spring Boot binds the "cache.gets" (tagged by hit or miss),
+ * "cache.puts", "cache.evictions", "cache.load" (tagged by success or
+ * failure), and "cache.load.duration" meters of each cache, and this
+ * class adds a "cache.hit.ratio" gauge, all of which can be read via
+ * the actuator "metrics" endpoint, e.g., {@code
+ * /actuator/metrics/cache.hit.ratio?tag=cache:searchCache}.
+ */
+@Configuration
+public class DatabaseCacheConfig {
+    /**
+     * The estimated bytes of a cache entry, i.e., its node, key, and
+     * result {@link List}.
+     */
+    private static final int ENTRY_BYTES = 128;
+
+    /**
+     * The estimated bytes of each result, i.e., the {@link Movie} or
+     * {@link MovieTitle} object and its title {@link String}.
+     */
+    private static final int RESULT_BYTES = 64;
+
+    /**
+     * @param moviesSpec The Caffeine spec of the {@code MOVIES_CACHE}
+     * @param searchSpec The Caffeine spec of the {@code SEARCH_CACHE}
+     * @return A {@link CacheManager} containing the Caffeine caches
+     */
+    @Bean
+    public CacheManager cacheManager
+        (@Value("${app.cache.movies.spec:maximumSize=1,expireAfterWrite=1h}")
+         String moviesSpec,
+         @Value("${app.cache.search.spec:maximumWeight=33554432,expireAfterWrite=10m}")
+         String searchSpec) {
+        var cacheManager = new CaffeineCacheManager();
+
+        // Only the configured caches exist.
+        cacheManager.setCacheNames(List.of(MOVIES_CACHE, SEARCH_CACHE));
+        cacheManager
+            .registerCustomCache(MOVIES_CACHE,
+                                 build(Caffeine.from(moviesSpec)));
+        var search = Caffeine.from(searchSpec);
+        if (hasMaximumWeight(searchSpec))
+            // Weigh the results by their size.
+            search.weigher(DatabaseCacheConfig::weigh);
+        cacheManager.registerCustomCache(SEARCH_CACHE, build(search));
+
+        return cacheManager;
+    }
+
+    /**
+     * @param cacheManager The {@link CacheManager} whose caches are
+     *                     measured
+     * @return A {@link MeterBinder} that adds the hit ratio of each
+     *         Caffeine cache
+     */
+    @Bean
+    public MeterBinder cacheHitRatioMetrics(CacheManager cacheManager) {
+        return registry -> cacheManager
+            .getCacheNames()
+            .forEach(name -> {
+                    if (!(cacheManager.getCache(name)
+                          instanceof CaffeineCache cache))
+                        return;
+
+                    Gauge
+                        .builder("cache.hit.ratio",
+                                 cache.getNativeCache(),
+                                 c -> c.stats().hitRate())
+                        .tag("cache", name)
+                        .description("The ratio of requests that hit the cache")
+                        .register(registry);
+                });
+    }
+
+    /**
+     * Warm the {@code MOVIES_CACHE} at startup, so the first request
+     * doesn't pay for loading all the movies.
+     *
+     * @param service The {@link DatabaseService} whose cache is warmed
+     * @return An {@link ApplicationRunner} that warms the cache
+     */
+    @Bean
+    @ConditionalOnProperty(value = "app.cache.warm", matchIfMissing = true)
+    public ApplicationRunner warmMoviesCache(DatabaseService service) {
+        return args -> {
+            long start = System.nanoTime();
+            var movies = service.getMoviesMap();
+            System.out.println("Warmed "
+                               + MOVIES_CACHE
+                               + " with "
+                               + (movies == null ? 0 : movies.size())
+                               + " movies in "
+                               + (System.nanoTime() - start) / 1_000_000
+                               + " msecs");
+        };
+    }
+
+    /**
+     * Estimate the bytes a {@code SEARCH_CACHE} entry retains, i.e.,
+     * its titles and the packed vectors of its {@link Movie} results.
+     *
+     * @param key The key of the entry
+     * @param value The cached search results
+     * @return The estimated bytes of the entry
+     */
+    static int weigh(Object key, Object value) {
+        long bytes = ENTRY_BYTES;
+
+        if (value instanceof Collection<?> results)
+            for (var result : results) {
+                bytes += RESULT_BYTES;
+
+                if (result instanceof Movie movie) {
+                    if (movie.id != null)
+                        bytes += movie.id.length();
+                    if (movie.vector != null)
+                        bytes += (long) movie.vector.size() * Double.BYTES;
+                } else if (result instanceof MovieTitle title
+                           && title.getId() != null)
+                    bytes += title.getId().length();
+            }
+
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param spec A Caffeine spec, e.g., "maximumWeight=1000"
+     * @return True if {@code spec} bounds the cache by weight, which
+     *         Caffeine only allows with a weigher
+     */
+    static boolean hasMaximumWeight(String spec) {
+        return Stream
+            .of(spec.split(","))
+            .map(option -> option.split("=", 2)[0].trim())
+            .anyMatch("maximumWeight"::equals);
+    }
+
+    /**
+     * @param builder A Caffeine builder created from a spec, e.g.,
+     *                "maximumSize=100"
+     * @return A Caffeine cache that records its statistics
+     */
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object>
+        build(Caffeine<Object, Object> builder) {
+        return builder
+            // The statistics back the cache metrics.
+            .recordStats()
+            .build();
+    }
+}
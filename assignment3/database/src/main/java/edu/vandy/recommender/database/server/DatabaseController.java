@@ -1,16 +1,22 @@
 package edu.vandy.recommender.database.server;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MovieCursor;
+import edu.vandy.recommender.common.model.MoviePage;
+import edu.vandy.recommender.common.model.MovieTitle;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 import java.util.Map;
 
 import static edu.vandy.recommender.common.Constants.EndPoint.*;
+import static edu.vandy.recommender.common.Constants.Params.*;
 
 /**
  * The Spring controller for the {@link DatabaseService}, whose
@@ -133,4 +139,156 @@ public class DatabaseController {
             // Forward to the service.
             .searchEx(queries);
     }
+
+    /**
+     * Search for movie titles in the database containing the given
+     * query {@link String} without returning their vectors.
+     *
+     * @param query The search query
+     * @return A {@link List} of movie titles containing the query
+     *         represented as {@link MovieTitle} objects
+     */
+    @GetMapping(GET_SEARCH_TITLES + "/" + SEARCH_QUERY)
+    public List<MovieTitle> searchTitles(@PathVariable String query) {
+        return mService
+            // Forward to the service.
+            .searchTitles(query);
+    }
+
+    /**
+     * Search for movie titles in the database containing any given
+     * {@link String} queries without returning their vectors.
+     *
+     * @param queries The search queries
+     * @return A {@link List} of movie titles containing any queries
+     *         represented as {@link MovieTitle} objects
+     */
+    @PostMapping(POST_SEARCHES_TITLES)
+    public List<MovieTitle> searchTitles(@RequestBody List<String> queries) {
+        return mService
+            // Forward to the service.
+            .searchTitles(queries);
+    }
+
+    /**
+     * Search for movie titles in the database containing all given
+     * {@link String} queries without returning their vectors.
+     *
+     * @param queries The search queries
+     * @return A {@link List} of movie titles containing all queries
+     *         represented as {@link MovieTitle} objects
+     */
+    @PostMapping(POST_SEARCHES_EX_TITLES)
+    public List<MovieTitle> searchExTitles(@RequestBody List<String> queries) {
+        return mService
+            // Forward to the service.
+            .searchExTitles(queries);
+    }
+
+    /**
+     * Returns one page of all movies in the database, which is read
+     * from the primary key index starting right after the {@code
+     * after} cursor.
+     *
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for {@link
+     *              MoviePage#DEFAULT_LIMIT}
+     * @param count True if the total number of movies is requested
+     * @return The {@link MoviePage}
+     */
+    @GetMapping(GET_ALL_MOVIES_PAGE)
+    public MoviePage getMoviesPage
+        (@RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mService
+            // Forward to the service.
+            .getMoviesPage(decode(after), MoviePage.limit(limit), count);
+    }
+
+    /**
+     * Search for one page of the movie titles in the database
+     * containing the given query {@link String}.
+     *
+     * @param query The search query
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for {@link
+     *              MoviePage#DEFAULT_LIMIT}
+     * @param count True if the total number of matches is requested
+     * @return The {@link MoviePage}
+     */
+    @GetMapping(GET_SEARCH_PAGE + "/" + SEARCH_QUERY)
+    public MoviePage searchPage
+        (@PathVariable String query,
+         @RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mService
+            // Forward to the service.
+            .searchPage(query, decode(after), MoviePage.limit(limit), count);
+    }
+
+    /**
+     * Search for one page of the movie titles in the database
+     * containing any given {@link String} queries.
+     *
+     * @param queries The search queries
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for {@link
+     *              MoviePage#DEFAULT_LIMIT}
+     * @param count True if the total number of matches is requested
+     * @return The {@link MoviePage}
+     */
+    @PostMapping(POST_SEARCHES_PAGE)
+    public MoviePage searchPage
+        (@RequestBody List<String> queries,
+         @RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mService
+            // Forward to the service.
+            .searchPage(queries, decode(after), MoviePage.limit(limit), count);
+    }
+
+    /**
+     * Search for one page of the movie titles in the database
+     * containing all given {@link String} queries.
+     *
+     * @param queries The search queries
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for {@link
+     *              MoviePage#DEFAULT_LIMIT}
+     * @param count True if the total number of matches is requested
+     * @return The {@link MoviePage}
+     */
+    @PostMapping(POST_SEARCHES_EX_PAGE)
+    public MoviePage searchExPage
+        (@RequestBody List<String> queries,
+         @RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mService
+            // Forward to the service.
+            .searchExPage(queries, decode(after), MoviePage.limit(limit), count);
+    }
+
+    /**
+     * @param cursor A {@link MoviePage#next} cursor, or null
+     * @return The last title of the page the {@code cursor} follows,
+     *         or null if it's null
+     * @throws ResponseStatusException If the {@code cursor} is
+     *                                 malformed
+     */
+    private static String decode(String cursor) {
+        try {
+            return MovieCursor.decode(cursor);
+        } catch (IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                              "Malformed cursor: " + cursor);
+        }
+    }
 }
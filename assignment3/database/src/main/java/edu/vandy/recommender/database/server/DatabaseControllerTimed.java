@@ -2,7 +2,10 @@ package edu.vandy.recommender.database.server;
 
 import edu.vandy.recommender.common.RunTimer;
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MoviePage;
+import edu.vandy.recommender.common.model.MovieTitle;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.web.bind.annotation.*;
 
@@ -10,6 +13,7 @@ import java.util.List;
 import java.util.Map;
 
 import static edu.vandy.recommender.common.Constants.EndPoint.*;
+import static edu.vandy.recommender.common.Constants.Params.*;
 
 /**
  * The Spring controller for the {@link DatabaseService}, whose timed
@@ -25,9 +29,15 @@ import static edu.vandy.recommender.common.Constants.EndPoint.*;
  * The {@code ComponentScan} annotation instructs Spring to scan for
  * components that are within the "edu.vandy.recommender.database"
  * package.
+ *
+ * Every request to the normal endpoints is already measured by the
+ * Micrometer "http.server.requests" timers, so this controller can be
+ * disabled by setting "app.timed-controllers.enabled" to false.
  */
 @RestController
 @RequestMapping(TIMED)
+@ConditionalOnProperty(value = "app.timed-controllers.enabled",
+                       matchIfMissing = true)
 @ComponentScan("edu.vandy.recommender.database")
 public class DatabaseControllerTimed {
     /**
@@ -139,4 +149,180 @@ public class DatabaseControllerTimed {
                               + POST_SEARCHES_EX,
                               () -> mController.searchEx(queries));
     }
+
+    /**
+     * Search for movie titles in the database containing the given
+     * query {@link String} without returning their vectors.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param query The search query
+     * @return A {@link List} of movie titles containing the query
+     *         represented as {@link MovieTitle} objects
+     */
+    @GetMapping(GET_SEARCH_TITLES + "/" + SEARCH_QUERY)
+    public List<MovieTitle> searchTitlesTimed(@PathVariable String query) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + GET_SEARCH_TITLES,
+                              () -> mController.searchTitles(query));
+    }
+
+    /**
+     * Search for movie titles in the database containing any given
+     * {@link String} queries without returning their vectors.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param queries The search queries
+     * @return A {@link List} of movie titles containing any queries
+     *         represented as {@link MovieTitle} objects
+     */
+    @PostMapping(POST_SEARCHES_TITLES)
+    public List<MovieTitle> searchTitlesTimed(@RequestBody List<String> queries) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + POST_SEARCHES_TITLES,
+                              () -> mController.searchTitles(queries));
+    }
+
+    /**
+     * Search for movie titles in the database containing all given
+     * {@link String} queries without returning their vectors.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param queries The search queries
+     * @return A {@link List} of movie titles containing all queries
+     *         represented as {@link MovieTitle} objects
+     */
+    @PostMapping(POST_SEARCHES_EX_TITLES)
+    public List<MovieTitle> searchExTitlesTimed(@RequestBody List<String> queries) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + POST_SEARCHES_EX_TITLES,
+                              () -> mController.searchExTitles(queries));
+    }
+
+    /**
+     * Returns one page of all movies in the database.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              default
+     * @param count True if the total number of movies is requested
+     * @return The {@link MoviePage}
+     */
+    @GetMapping(GET_ALL_MOVIES_PAGE)
+    public MoviePage getMoviesPageTimed
+        (@RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + GET_ALL_MOVIES_PAGE,
+                              () -> mController.getMoviesPage(after, limit, count));
+    }
+
+    /**
+     * Search for one page of the movie titles in the database
+     * containing the given query {@link String}.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param query The search query
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              default
+     * @param count True if the total number of matches is requested
+     * @return The {@link MoviePage}
+     */
+    @GetMapping(GET_SEARCH_PAGE + "/" + SEARCH_QUERY)
+    public MoviePage searchPageTimed
+        (@PathVariable String query,
+         @RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + GET_SEARCH_PAGE,
+                              () -> mController.searchPage(query, after, limit, count));
+    }
+
+    /**
+     * Search for one page of the movie titles in the database
+     * containing any given {@link String} queries.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param queries The search queries
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              default
+     * @param count True if the total number of matches is requested
+     * @return The {@link MoviePage}
+     */
+    @PostMapping(POST_SEARCHES_PAGE)
+    public MoviePage searchPageTimed
+        (@RequestBody List<String> queries,
+         @RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + POST_SEARCHES_PAGE,
+                              () -> mController.searchPage(queries, after, limit, count));
+    }
+
+    /**
+     * Search for one page of the movie titles in the database
+     * containing all given {@link String} queries.
+     *
+     * This endpoint also records the execution run time of this call
+     * in the {@code Timer} microservice.
+     *
+     * @param queries The search queries
+     * @param after The {@link MoviePage#next} cursor of the previous
+     *              page, or null for the first page
+     * @param limit The number of movies per page, or null for the
+     *              default
+     * @param count True if the total number of matches is requested
+     * @return The {@link MoviePage}
+     */
+    @PostMapping(POST_SEARCHES_EX_PAGE)
+    public MoviePage searchExPageTimed
+        (@RequestBody List<String> queries,
+         @RequestParam(name = AFTER_PARAM, required = false) String after,
+         @RequestParam(name = LIMIT_PARAM, required = false) Integer limit,
+         @RequestParam(name = COUNT_PARAM, defaultValue = "false") boolean count) {
+        return mRunTimer
+            // Forward request.
+            .runAndRecordTime(mController.getId()
+                              + ":"
+                              + POST_SEARCHES_EX_PAGE,
+                              () -> mController.searchExPage(queries, after, limit, count));
+    }
 }
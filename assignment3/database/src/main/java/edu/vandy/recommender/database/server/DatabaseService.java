@@ -1,9 +1,12 @@
 package edu.vandy.recommender.database.server;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.model.MoviePage;
+import edu.vandy.recommender.common.model.MovieTitle;
 import edu.vandy.recommender.database.repository.DatabaseRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -11,6 +14,7 @@ import java.util.Map;
 import java.util.TreeMap;
 
 import static edu.vandy.recommender.common.Constants.Params.MOVIES_CACHE;
+import static edu.vandy.recommender.common.Constants.Params.SEARCH_CACHE;
 import static java.util.stream.Collectors.toMap;
 
 /**
@@ -21,7 +25,9 @@ import static java.util.stream.Collectors.toMap;
  *
  * This class implements the methods forwarded by the {@link
  * DatabaseController} using the Java streams framework and
- * the JPA.
+ * the JPA.  The results are cached in the Caffeine caches configured
+ * by {@link DatabaseCacheConfig}, and the search results are keyed by
+ * their normalized queries (see {@link SearchKeyGenerator}).
  *
  * This class is annotated as a Spring {@code @Service}, which enables
  * the automatic detection and wiring of dependent implementation
@@ -44,7 +50,7 @@ public class DatabaseService {
     // TODO -- you fill in here, making the getMovies() method
     // cacheable in the MOVIES_CACHE.
     // START-SOLUTION
-    @Cacheable(MOVIES_CACHE)
+    @Cacheable(cacheNames = MOVIES_CACHE, sync = true)
     // END_SOLUTION
     public Map<String, List<Double>> getMoviesMap() {
         System.out.println("DatabaseService.getMoviesMap()");
@@ -52,25 +58,24 @@ public class DatabaseService {
         // contains all the Movie titles and cosine similarity
         // vectors as follows:
         //
-        // 1. Use mRepository to get a List of all the Movies.
-        // 2. Convert List to a Stream.
-        // 3. Collect the results into a TreeMap.
+        // 1. Use mRepository to get a Stream of all the Movies.
+        // 2. Collect the results into a TreeMap.
+        // 3. Close the Stream.
 
         // TODO -- you fill in here, replacing 'return null' with
         // the proper code.
         // SOLUTION-BEGIN
-        return mRepository
-            // Get a List of all the Movies.
-            .findAllByOrderByIdAsc()
-
-            // Convert List to Stream.
-            .stream()
-
-            // Collect the results into TreeMap.
-            .collect(toMap(m -> m.id,
-                           m -> m.vector,
-                           (v1, v2) -> v1,
-                           TreeMap::new));
+        try (var movies = mRepository
+             // Stream the Movies without materializing a List or a
+             // persistence context, so the TreeMap is the only copy.
+             .streamAllByOrderByIdAsc()) {
+            return movies
+                // Collect the results into TreeMap.
+                .collect(toMap(m -> m.id,
+                               m -> m.vector,
+                               (v1, v2) -> v1,
+                               TreeMap::new));
+        }
         // SOLUTION-END return null;
     }
 
@@ -96,52 +101,42 @@ public class DatabaseService {
      *         the {@code query} sorted in ascending order by
      *         the {@link Movie} title (id)
      */
+    @Cacheable(cacheNames = SEARCH_CACHE,
+               keyGenerator = SearchKeyGenerator.NAME,
+               sync = true)
     public List<Movie> search(String query) {
         // Forward to the repository.
         // TODO -- you fill in here, replacing 'return null' with
         // the proper code.
         // SOLUTION-START
         return mRepository
-            .findByIdContainingIgnoreCaseOrderByIdAsc(query);
+            // Use the trigram index instead of scanning all titles.
+            .findAllByTitleContaining(query);
         // SOLUTION-END return null;
     }
 
     /**
-     * Search for movie titles in the database containing the given
-     * {@link String} queries using Java parallel streams.
+     * Search for movie titles in the database containing any of the
+     * given {@link String} queries using a single SQL query.
      *
      * @param queries The {@link List} of search queries
      * @return A {@link List} of {@link Movie} objects containing the
      *         queries sorted in ascending order by the {@link Movie}
      *         title (id)
      */
-
+    @Cacheable(cacheNames = SEARCH_CACHE,
+               keyGenerator = SearchKeyGenerator.NAME,
+               sync = true)
     public List<Movie> search(List<String> queries) {
-        // Use Java parallel streams and JPA to locate all movies
-        // whose 'id' matches the List of 'queries' and return them
-        // as a List of Movie objects.
+        // Use JPA to locate all movies whose 'id' matches any of the
+        // List of 'queries' and return them as a sorted List of Movie
+        // objects that contain no duplicates.
         // TODO -- you fill in here.
         // SOLUTION-START
-        return queries
-            // Convert the List to a Stream.
-            .parallelStream()
-                                
-            // Flatten the Stream of Streams into a Stream.
-            .flatMap(query ->
-                     // Forward to the search() method
-                     search(query)
-
-                     // Convert List to a Stream.
-                     .stream())
-
-            // Eliminate any duplicates.
-            .distinct()
-
-            // Sort the Movies.
-            .sorted()
-
-            // Convert Stream to a List.
-            .toList();
+        return mRepository
+            // Match all the queries in one round trip, which also
+            // eliminates duplicates and sorts in the database.
+            .findAllByTitleContainingAny(queries);
         // SOLUTION-END return null;
     }
 
@@ -154,6 +149,9 @@ public class DatabaseService {
      *         queries sorted in ascending order by the {@link Movie}
      *         title (id)
      */
+    @Cacheable(cacheNames = SEARCH_CACHE,
+               keyGenerator = SearchKeyGenerator.NAME,
+               sync = true)
     public List<Movie> searchEx(List<String> queries) {
         // Use a custom SQL query to find all movies whose 'id'
         // matches the List of 'queries' and return them as a sorted
@@ -162,7 +160,150 @@ public class DatabaseService {
         // TODO -- you fill in here.
         // SOLUTION-START
         return mRepository
-            .findAllByIdContainingInOrderByAsc(queries);
+            // Use the trigram index instead of scanning all titles.
+            .findAllByTitleContainingAll(queries);
         // SOLUTION-END return null;
     }
+
+    /**
+     * Search for movie titles containing the given query {@link
+     * String} without reading their vectors.
+     *
+     * @param query The search query
+     * @return A {@link List} of {@link MovieTitle} projections
+     *         containing the {@code query} sorted in ascending order
+     */
+    @Cacheable(cacheNames = SEARCH_CACHE,
+               keyGenerator = SearchKeyGenerator.NAME,
+               sync = true)
+    public List<MovieTitle> searchTitles(String query) {
+        return mRepository
+            // Only select the title column.
+            .findTitlesContaining(query);
+    }
+
+    /**
+     * Search for movie titles containing any of the given {@link
+     * String} queries without reading their vectors.
+     *
+     * @param queries The {@link List} of search queries
+     * @return A {@link List} of {@link MovieTitle} projections
+     *         containing any of the {@code queries} sorted in
+     *         ascending order
+     */
+    @Cacheable(cacheNames = SEARCH_CACHE,
+               keyGenerator = SearchKeyGenerator.NAME,
+               sync = true)
+    public List<MovieTitle> searchTitles(List<String> queries) {
+        return mRepository
+            // Only select the title column.
+            .findTitlesContainingAny(queries);
+    }
+
+    /**
+     * Search for movie titles containing all the given {@link
+     * String} queries without reading their vectors.
+     *
+     * @param queries The {@link List} of search queries
+     * @return A {@link List} of {@link MovieTitle} projections
+     *         containing all the {@code queries} sorted in ascending
+     *         order
+     */
+    @Cacheable(cacheNames = SEARCH_CACHE,
+               keyGenerator = SearchKeyGenerator.NAME,
+               sync = true)
+    public List<MovieTitle> searchExTitles(List<String> queries) {
+        return mRepository
+            // Only select the title column.
+            .findTitlesContainingAll(queries);
+    }
+
+    /**
+     * Get one page of all the {@link Movie} database entries sorted
+     * in ascending order by the {@link Movie} title (id).
+     *
+     * @param after The last title of the previous page, or null for
+     *              the first page
+     * @param limit The number of {@link Movie} objects per page
+     * @param count True if the total number of movies is requested
+     * @return The {@link MoviePage}
+     */
+    public MoviePage getMoviesPage(String after,
+                                   int limit,
+                                   boolean count) {
+        return MoviePage
+            .of(mRepository
+                // Read one extra row to find out if there's a next
+                // page.
+                .findByIdGreaterThanOrderByIdAsc(after == null ? "" : after,
+                                                 PageRequest.ofSize(limit + 1)),
+                limit,
+                count ? mRepository.count() : null);
+    }
+
+    /**
+     * Get one page of the movies whose title contains the given query
+     * {@link String} sorted in ascending order by title.
+     *
+     * @param query The search query
+     * @param after The last title of the previous page, or null for
+     *              the first page
+     * @param limit The number of {@link Movie} objects per page
+     * @param count True if the total number of matches is requested
+     * @return The {@link MoviePage}
+     */
+    public MoviePage searchPage(String query,
+                                String after,
+                                int limit,
+                                boolean count) {
+        return searchExPage(List.of(query), after, limit, count);
+    }
+
+    /**
+     * Get one page of the movies whose title contains any of the
+     * given {@link String} queries sorted in ascending order by title.
+     *
+     * @param queries The {@link List} of search queries
+     * @param after The last title of the previous page, or null for
+     *              the first page
+     * @param limit The number of {@link Movie} objects per page
+     * @param count True if the total number of matches is requested
+     * @return The {@link MoviePage}
+     */
+    public MoviePage searchPage(List<String> queries,
+                                String after,
+                                int limit,
+                                boolean count) {
+        return MoviePage
+            .of(mRepository
+                // Read one extra row to find out if there's a next
+                // page.
+                .findPageByTitleContainingAny(queries, after, limit + 1),
+                limit,
+                count ? mRepository.countByTitleContainingAny(queries) : null);
+    }
+
+    /**
+     * Get one page of the movies whose title contains all the given
+     * {@link String} queries sorted in ascending order by title.
+     *
+     * @param queries The {@link List} of search queries
+     * @param after The last title of the previous page, or null for
+     *              the first page
+     * @param limit The number of {@link Movie} objects per page
+     * @param count True if the total number of matches is requested
+     * @return The {@link MoviePage}
+     */
+    public MoviePage searchExPage(List<String> queries,
+                                  String after,
+                                  int limit,
+                                  boolean count) {
+        return MoviePage
+            .of(mRepository
+                // Read one extra row to find out if there's a next
+                // page.
+                .findPageByTitleContainingAll(queries, after, limit + 1),
+                limit,
+                count ? mRepository.countByTitleContainingAll(queries) : null);
+    }
 }
@@ -0,0 +1,66 @@
+package edu.vandy.recommender.database.server;
+
+import org.springframework.cache.interceptor.KeyGenerator;
+import org.springframework.cache.interceptor.SimpleKey;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * This {@link KeyGenerator} normalizes the queries passed to the
+ * {@link DatabaseService} search methods, so requests that only
+ * differ in the case of their queries (the searches ignore case) or,
+ * for multiple queries, in their order or duplicates (the results are
+ * sorted and distinct) share one entry of the {@code SEARCH_CACHE}.
+ * The name of the method is part of each key, so the methods never
+ * share entries.
+ */
+@Component(SearchKeyGenerator.NAME)
+public class SearchKeyGenerator
+       implements KeyGenerator {
+    /**
+     * The name of this bean, which is referenced by the {@code
+     * @Cacheable} annotations.
+     */
+    public static final String NAME = "searchKeyGenerator";
+
+    /**
+     * Generate a key for one search.
+     */
+    @Override
+    public Object generate(Object target,
+                           Method method,
+                           Object... params) {
+        Object[] key = new Object[params.length + 1];
+        key[0] = method.getName();
+        for (int i = 0; i < params.length; i++)
+            key[i + 1] = normalize(params[i]);
+
+        return new SimpleKey(key);
+    }
+
+    /**
+     * @param param A query or a {@link Collection} of queries
+     * @return The normalized {@code param}
+     */
+    static Object normalize(Object param) {
+        if (param instanceof String query)
+            return query.toLowerCase(Locale.ROOT);
+
+        if (param instanceof Collection<?> queries)
+            return queries
+                .stream()
+                // Normalize each query.
+                .map(SearchKeyGenerator::normalize)
+
+                // The results don't depend on duplicates or order.
+                .distinct()
+                .map(String::valueOf)
+                .sorted()
+                .toList();
+
+        return param;
+    }
+}
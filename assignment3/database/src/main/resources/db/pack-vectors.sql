@@ -0,0 +1,11 @@
+-- Migrate the MOVIE table from the DOUBLE PRECISION ARRAY vectors
+-- loaded by data.sql (or stored by an older version of this
+-- microservice) to the packed VARBINARY vectors read by the
+-- PackedVectorConverter, i.e., 8 little-endian bytes per element.
+create alias if not exists PACK_VECTOR
+    for 'edu.vandy.recommender.common.model.VectorCodec.packSqlArray';
+alter table MOVIE add column packed varbinary;
+update MOVIE set packed = PACK_VECTOR(id, vector);
+alter table MOVIE drop column vector;
+alter table MOVIE alter column packed rename to vector;
+drop alias PACK_VECTOR;
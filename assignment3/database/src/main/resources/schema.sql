@@ -1,6 +1,22 @@
+drop table if exists MOVIE_TRIGRAM;
 drop table if exists MOVIE;
+
+-- The vectors are loaded as arrays and then packed into VARBINARY
+-- by db/pack-vectors.sql.
 create table MOVIE (
     id varchar(255) not null,
     vector double precision array,
     primary key (id)
 );
+
+-- The trigrams of each lower-cased title, which the title searches
+-- use instead of scanning the MOVIE table.  MovieTrigramTrigger keeps
+-- them in sync with the MOVIE table.
+create table MOVIE_TRIGRAM (
+    trigram varchar(3) not null,
+    id varchar(255) not null,
+    primary key (trigram, id)
+);
+create trigger MOVIE_TRIGRAM_SYNC after insert, update, delete on MOVIE
+    for each row
+    call 'edu.vandy.recommender.database.repository.MovieTrigramTrigger';
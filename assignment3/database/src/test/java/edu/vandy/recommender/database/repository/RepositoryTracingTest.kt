@@ -0,0 +1,39 @@
+package edu.vandy.recommender.database.repository
+
+import edu.vandy.recommender.common.model.Movie
+import edu.vandy.recommender.common.trace.TraceContext
+import io.mockk.every
+import io.mockk.mockk
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.util.concurrent.TimeUnit
+import java.util.stream.Stream
+
+class RepositoryTracingTest : AssignmentTests() {
+    @Test
+    fun `streamed queries are recorded when the stream is closed`() {
+        val repository = mockk<DatabaseRepository>()
+        every { repository.streamAllByOrderByIdAsc() } answers {
+            Stream.of(Movie("A", null), Movie("B", null), Movie("C", null))
+        }
+        val traced = RepositoryTracing()
+            .postProcessAfterInitialization(repository, "repository") as DatabaseRepository
+        val trace = TraceContext.fromHeaders(null, null, "database") { "database:/movies" }
+
+        trace.makeCurrent().use {
+            traced.streamAllByOrderByIdAsc().use { movies ->
+                assertThat(movies.peek { TimeUnit.MILLISECONDS.sleep(10) }.toList())
+                    .hasSize(3)
+
+                // Nothing is recorded until the stream is closed.
+                assertThat(trace.finish(System.nanoTime()).map { it.stage })
+                    .doesNotContain("database:load")
+            }
+        }
+
+        val load = trace.finish(System.nanoTime()).single { it.stage == "database:load" }
+        assertThat(load.stopTime - load.startTime)
+            .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(30))
+    }
+}
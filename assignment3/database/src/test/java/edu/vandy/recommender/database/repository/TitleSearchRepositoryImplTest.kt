@@ -0,0 +1,185 @@
+package edu.vandy.recommender.database.repository
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.BeforeEach
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.sql.Connection
+import java.sql.DriverManager
+
+class TitleSearchRepositoryImplTest : AssignmentTests() {
+    private lateinit var connection: Connection
+
+    private val titles = listOf(
+        "The Matrix", "The Matrix Reloaded", "Xirtam", "Godzilla", "100% Love", "A_B"
+    )
+
+    @BeforeEach
+    fun createDatabase() {
+        connection = DriverManager.getConnection("jdbc:h2:mem:titles")
+        runScript("/schema.sql")
+        connection.createStatement().use { statement ->
+            titles.forEach { statement.execute("insert into MOVIE values ('$it', ARRAY[1.0])") }
+        }
+        runScript("/db/pack-vectors.sql")
+    }
+
+    @AfterEach
+    fun closeDatabase() {
+        connection.close()
+    }
+
+    @Test
+    fun `titles are found via the trigram index`() {
+        assertThat(search("matrix")).containsExactly("The Matrix", "The Matrix Reloaded")
+        assertThat(search("MAT", "load")).containsExactly("The Matrix Reloaded")
+        assertThat(search("rix", "the")).containsExactly("The Matrix", "The Matrix Reloaded")
+        assertThat(search("0% l")).containsExactly("100% Love")
+        assertThat(search("a_b")).containsExactly("A_B")
+    }
+
+    @Test
+    fun `short queries fall back to the like predicate`() {
+        assertThat(search("zi")).containsExactly("Godzilla")
+    }
+
+    @Test
+    fun `titles containing any query are found once in order`() {
+        assertThat(searchAny("reloaded", "GOD", "xirt"))
+            .containsExactly("Godzilla", "The Matrix Reloaded", "Xirtam")
+        assertThat(searchAny("matrix", "the")).containsExactly("The Matrix", "The Matrix Reloaded")
+        assertThat(searchAny("zi", "a_b")).containsExactly("A_B", "Godzilla")
+    }
+
+    @Test
+    fun `any query uses one statement with the trigram index`() {
+        val query = TitleSearchRepositoryImpl.TitleQuery.containingAny(listOf("matrix", "god", "love"))
+        val plan = explain(query)
+
+        assertThat(query.sql()).containsOnlyOnce("select m.id")
+        assertThat(plan).doesNotContain("tableScan")
+        assertThat(plan).containsPattern("PRIMARY_KEY_\\w+: ID IN\\(")
+    }
+
+    @Test
+    fun `title queries only select the id column`() {
+        val query = TitleSearchRepositoryImpl.TitleQuery.containingAny(listOf("matrix", "god")).titlesOnly()
+
+        assertThat(query.sql()).startsWith("select m.id from MOVIE m where ")
+        assertThat(titles(query)).containsExactly("Godzilla", "The Matrix", "The Matrix Reloaded")
+        connection.prepareStatement(query.sql()).use { statement ->
+            query.parameters().forEachIndexed { i, value -> statement.setObject(i + 1, value) }
+            statement.executeQuery().use { assertThat(it.metaData.columnCount).isEqualTo(1) }
+        }
+    }
+
+    @Test
+    fun `pages follow each other without gaps and count all matches`() {
+        connection.createStatement().use { statement ->
+            ('a'..'t').forEach { statement.execute("insert into MOVIE values ('Matrix $it', X'00')") }
+        }
+        val query = TitleSearchRepositoryImpl.TitleQuery.containingAny(listOf("matrix", "god"))
+
+        val pages = mutableListOf<List<String>>()
+        var after: String? = null
+        do {
+            val page = titles(query.page(after, 6))
+            pages.add(page)
+            after = if (page.size == 6) page.last() else null
+        } while (after != null)
+
+        assertThat(pages.map { it.size }).containsExactly(6, 6, 6, 5)
+        assertThat(pages.flatten()).isEqualTo(titles(query))
+        assertThat(titles(query.count())).containsExactly("23")
+    }
+
+    @Test
+    fun `pages seek the primary key instead of skipping rows`() {
+        val plan = explain(TitleSearchRepositoryImpl.TitleQuery.containingAll(listOf("zi")).page("Matrix c", 3))
+
+        assertThat(plan).containsPattern("PRIMARY_KEY_\\w+: ID > \\?")
+        assertThat(plan).doesNotContain("OFFSET")
+    }
+
+    @Test
+    fun `queries of three or more characters do not scan the tables`() {
+        listOf(listOf("matrix"), listOf("god"), listOf("MAT", "load"), listOf("the", "zi")).forEach {
+            val plan = explain(it)
+
+            assertThat(plan).doesNotContain("tableScan")
+            assertThat(plan).containsPattern("PRIMARY_KEY_\\w+: TRIGRAM (IN\\(|=)")
+            assertThat(plan).containsPattern("PRIMARY_KEY_\\w+: ID IN\\(")
+        }
+    }
+
+    @Test
+    fun `the trigger keeps the trigrams in sync`() {
+        connection.createStatement().use {
+            it.execute("update MOVIE set id = 'Mothra' where id = 'Godzilla'")
+            it.execute("delete from MOVIE where id = 'Xirtam'")
+        }
+
+        assertThat(search("god")).isEmpty()
+        assertThat(search("moth")).containsExactly("Mothra")
+        assertThat(search("xir")).isEmpty()
+        assertThat(count("select count(*) from MOVIE_TRIGRAM where id = 'Xirtam'")).isZero()
+    }
+
+    @Test
+    fun `updates that keep the title do not reindex it`() {
+        val rows = "select count(*) from MOVIE_TRIGRAM"
+        val lastRow = "select max(_ROWID_) from MOVIE_TRIGRAM"
+        val trigrams = count(rows)
+        val last = count(lastRow)
+
+        connection.createStatement().use {
+            it.execute("update MOVIE set vector = vector")
+        }
+
+        assertThat(count(rows)).isEqualTo(trigrams)
+        assertThat(count(lastRow)).isEqualTo(last)
+        assertThat(search("matrix")).containsExactly("The Matrix", "The Matrix Reloaded")
+    }
+
+    private fun search(vararg queries: String) =
+        titles(TitleSearchRepositoryImpl.TitleQuery.containingAll(queries.toList()))
+
+    private fun searchAny(vararg queries: String) =
+        titles(TitleSearchRepositoryImpl.TitleQuery.containingAny(queries.toList()))
+
+    private fun titles(query: TitleSearchRepositoryImpl.TitleQuery): List<String> {
+        return connection.prepareStatement(query.sql()).use { statement ->
+            query.parameters().forEachIndexed { i, value -> statement.setObject(i + 1, value) }
+            statement.executeQuery().use { rows ->
+                generateSequence { if (rows.next()) rows.getString(1) else null }.toList()
+            }
+        }
+    }
+
+    private fun explain(queries: List<String>) =
+        explain(TitleSearchRepositoryImpl.TitleQuery.containingAll(queries))
+
+    private fun explain(query: TitleSearchRepositoryImpl.TitleQuery): String {
+        return connection.prepareStatement("explain " + query.sql()).use { statement ->
+            query.parameters().forEachIndexed { i, value -> statement.setObject(i + 1, value) }
+            statement.executeQuery().use { rows -> rows.next(); rows.getString(1) }
+        }
+    }
+
+    private fun count(sql: String) =
+        connection.createStatement().use { it.executeQuery(sql).use { rows -> rows.next(); rows.getInt(1) } }
+
+    private fun runScript(resource: String) {
+        val script = javaClass.getResource(resource)!!.readText()
+        connection.createStatement().use { statement ->
+            script
+                .lines()
+                .filterNot { it.trimStart().startsWith("--") }
+                .joinToString("\n")
+                .split(";")
+                .filter { it.isNotBlank() }
+                .forEach { statement.execute(it) }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package edu.vandy.recommender.database.server
+
+import com.github.benmanes.caffeine.cache.Cache
+import edu.vandy.recommender.common.Constants.Params.SEARCH_CACHE
+import edu.vandy.recommender.common.model.Movie
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.springframework.cache.caffeine.CaffeineCache
+import test.admin.AssignmentTests
+
+class DatabaseCacheConfigTest : AssignmentTests() {
+    private fun searchCache(spec: String) =
+        (DatabaseCacheConfig()
+            .cacheManager("maximumSize=1", spec)
+            .getCache(SEARCH_CACHE) as CaffeineCache)
+            .nativeCache
+
+    private fun movies(count: Int, dimensions: Int) =
+        (1..count).map { Movie("Movie $it", List(dimensions) { 1.0 }) }
+
+    @Test
+    fun `search results are weighed by their titles and vectors`() {
+        val titles = DatabaseCacheConfig.weigh("q", movies(10, 0))
+        val vectors = DatabaseCacheConfig.weigh("q", movies(10, 100))
+
+        assertThat(vectors - titles).isEqualTo(10 * 100 * 8)
+        assertThat(DatabaseCacheConfig.weigh("q", emptyList<Movie>()))
+            .isPositive()
+    }
+
+    @Test
+    fun `the search cache is bounded by weight rather than by count`() {
+        val cache: Cache<Any, Any> = searchCache("maximumWeight=1000000")
+
+        // Many small results fit.
+        (1..2_000).forEach { cache.put("small$it", movies(1, 0)) }
+        cache.cleanUp()
+        assertThat(cache.estimatedSize()).isEqualTo(2_000)
+
+        // A few large results evict them.
+        (1..2).forEach { cache.put("large$it", movies(1_000, 50)) }
+        cache.cleanUp()
+        assertThat(cache.policy().eviction().get().weightedSize().asLong)
+            .isLessThanOrEqualTo(1_000_000)
+        assertThat(cache.estimatedSize()).isLessThan(2_000)
+    }
+
+    @Test
+    fun `a search spec with a maximum size is bounded by count`() {
+        val cache: Cache<Any, Any> = searchCache("maximumSize=10")
+
+        (1..20).forEach { cache.put("q$it", movies(1_000, 50)) }
+        cache.cleanUp()
+        assertThat(cache.estimatedSize()).isEqualTo(10)
+        assertThat(DatabaseCacheConfig.hasMaximumWeight(" maximumWeight = 5,expireAfterWrite=1m"))
+            .isTrue()
+        assertThat(DatabaseCacheConfig.hasMaximumWeight("maximumSize=5")).isFalse()
+    }
+}
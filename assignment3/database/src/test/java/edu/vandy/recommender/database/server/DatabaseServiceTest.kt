@@ -13,7 +13,6 @@ import org.junit.jupiter.api.Test
 import test.admin.AssignmentTests
 import test.admin.injectInto
 import java.util.*
-import java.util.function.Function
 import java.util.stream.Stream
 
 class DatabaseServiceTest : AssignmentTests() {
@@ -60,39 +59,22 @@ class DatabaseServiceTest : AssignmentTests() {
 
     @Test
     fun `search is implemented correctly`() {
-        every { r.findByIdContainingIgnoreCaseOrderByIdAsc(any()) } returns lm
+        every { r.findAllByTitleContaining(any()) } returns lm
         assertThat(s.search("")).isSameAs(lm)
         verify {
             s.search("")
-            r.findByIdContainingIgnoreCaseOrderByIdAsc(any())
+            r.findAllByTitleContaining("")
         }
         doConfirmVerified()
     }
 
     @Test
     fun `search(list) is implemented correctly`() {
-        every { ls.parallelStream() } answers { ss }
-        every { ss.flatMap<Movie>(any()) } answers {
-            firstArg<Function<String, Stream<Movie>>>().apply("")
-            sm
-        }
-        every { lm.stream() } answers { sm }
-        every { sm.sorted() } answers { sm }
-        every { s.search(any<String>()) } answers { lm }
-        every { sm.distinct() } answers { sm }
-        every { sm.toList() } answers { lm }
-
+        every { r.findAllByTitleContainingAny(any()) } returns lm
         assertThat(s.search(ls)).isSameAs(lm)
-
-        verify(exactly = 1) {
-            s.search(any<String>())
-            ls.parallelStream()
-            ss.flatMap<Movie>(any())
-            lm.stream()
-            sm.sorted()
-            sm.distinct()
-            sm.toList()
-            s.search(any<List<String>>())
+        verify {
+            s.search(ls)
+            r.findAllByTitleContainingAny(ls)
         }
         doConfirmVerified()
     }
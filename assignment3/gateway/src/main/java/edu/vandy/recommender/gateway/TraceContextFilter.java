@@ -0,0 +1,107 @@
+package edu.vandy.recommender.gateway;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This filter starts a W3C trace for each request that arrives at the
+ * gateway without a "traceparent" header, so the spans recorded by
+ * all the microservices the request reaches share one trace id.
+ * Requests that already carry a trace are routed unchanged, since the
+ * gateway forwards all headers.  Only the fraction
+ * "app.trace.sample-rate" (10% by default) of the new traces are
+ * sampled, i.e., have their spans recorded.
+ */
+@Component
+public class TraceContextFilter
+       implements GlobalFilter, Ordered {
+    /**
+     * The name of the W3C header that identifies the trace and the
+     * parent span.
+     */
+    private static final String TRACEPARENT = "traceparent";
+
+    /**
+     * The name of the W3C header that carries vendor-specific trace
+     * state.
+     */
+    private static final String TRACESTATE = "tracestate";
+
+    /**
+     * Formats trace and span ids.
+     */
+    private static final HexFormat sHex = HexFormat.of();
+
+    /**
+     * The fraction of new traces that are sampled.
+     */
+    private final double mSampleRate;
+
+    /**
+     * Constructor initializes the field.
+     *
+     * @param sampleRate The fraction of new traces that are sampled
+     */
+    public TraceContextFilter(@Value("${app.trace.sample-rate:0.1}")
+                              double sampleRate) {
+        mSampleRate = sampleRate;
+    }
+
+    /**
+     * Add a new "traceparent" header if the request has none.
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange,
+                             GatewayFilterChain chain) {
+        if (exchange.getRequest().getHeaders().containsKey(TRACEPARENT))
+            return chain.filter(exchange);
+
+        var request = exchange
+            .getRequest()
+            .mutate()
+            // Start a new trace whose parent is the gateway.
+            .header(TRACEPARENT,
+                    "00-" + newId() + newId() + "-" + newId()
+                    + (ThreadLocalRandom.current().nextDouble() < mSampleRate
+                       ? "-01"
+                       : "-00"))
+
+            // Trace state only makes sense within its trace.
+            .headers(headers -> headers.remove(TRACESTATE))
+            .build();
+
+        return chain
+            .filter(exchange
+                    .mutate()
+                    .request(request)
+                    .build());
+    }
+
+    /**
+     * Run before the routing filters.
+     */
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    /**
+     * @return A random non-zero 16 digit hex id
+     */
+    private static String newId() {
+        long id;
+        do {
+            id = ThreadLocalRandom.current().nextLong();
+        } while (id == 0);
+
+        return sHex.toHexDigits(id);
+    }
+}
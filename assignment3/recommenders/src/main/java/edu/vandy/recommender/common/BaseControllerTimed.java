@@ -11,6 +11,11 @@ import static edu.vandy.recommender.common.Constants.EndPoint.*;
 /**
  * A common controller implementation that computes the time needed to
  * perform the endpoint handler methods defined below.
+ *
+ * When {@code T} is a {@code Flux} or {@code Mono} the {@link
+ * RunTimer} measures each response from subscription to completion
+ * (along with the time to its first element and its element count)
+ * rather than the time needed to assemble the reactive pipeline.
  */
 public abstract class BaseControllerTimed<T> {
     /**
@@ -1,18 +1,48 @@
 package edu.vandy.recommender.common;
 
+import edu.vandy.recommender.common.jfr.CatalogScanEvent;
+import edu.vandy.recommender.common.jfr.TopKSelectionEvent;
 import edu.vandy.recommender.common.model.Ranking;
+import edu.vandy.recommender.common.trace.TraceContext;
 import edu.vandy.recommender.utils.GetTopK;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.ParallelFlux;
 
 import java.util.Comparator;
+import java.util.function.Function;
 
 /**
  * This Java utility class provides static methods that use the
  * Project Reactor {@link Flux} class to get the top {@code maxCount}
  * recommendations via either a Heap or by sorting.
+ *
+ * If the request is traced, the time spent computing the {@link
+ * Ranking} objects and the time spent selecting the top ones are
+ * recorded as its "score" and "top-K" stages.  They are also recorded
+ * as {@link CatalogScanEvent} and {@link TopKSelectionEvent} JFR
+ * events when a recording enables them.
  */
 public class GetTopRecommendationsFlux {
+    /**
+     * The stage that computes the {@link Ranking} objects.
+     */
+    private static final String SCORE = "score";
+
+    /**
+     * The stage that selects the top {@link Ranking} objects.
+     */
+    private static final String TOP_K = "top-K";
+
+    /**
+     * The top-K strategy that uses a Heap.
+     */
+    private static final String HEAP = "heap";
+
+    /**
+     * The top-K strategy that sorts the {@link Ranking} objects.
+     */
+    private static final String SORT = "sort";
+
     /**
      * A Java utility class should have a private constructor.
      */
@@ -33,9 +63,12 @@ public class GetTopRecommendationsFlux {
     public static Flux<Ranking> getTopRecommendationsHeap
         (Flux<Ranking> rankingFlux,
          int maxCount) {
-        return rankingFlux
-            // Collect the top maxCount entries into a Flux.
-            .transform(GetTopK.getTopK(maxCount));
+        return traceStages(rankingFlux,
+                           HEAP,
+                           maxCount,
+                           // Collect the top maxCount entries into a
+                           // Flux.
+                           GetTopK.getTopK(maxCount));
     }
 
     /**
@@ -55,14 +88,90 @@ public class GetTopRecommendationsFlux {
     public static Flux<Ranking> getTopRecommendationsSort
         (Flux<Ranking> rankingFlux,
          int maxCount) {
-        return rankingFlux
-            // Sort the stream in reverse order.
-            .sort(Comparator.reverseOrder())
+        return traceStages(rankingFlux,
+                           SORT,
+                           maxCount,
+                           rankings -> rankings
+                           // Sort the stream in reverse order.
+                           .sort(Comparator.reverseOrder())
+
+                           // Remove duplicates (but keeps the first
+                           // one).
+                           .distinct()
+
+                           // Limit the results to just maxCount.
+                           .take(maxCount));
+    }
+
+    /**
+     * Apply {@code topK} to the {@code rankingFlux}, recording the
+     * time until the last {@link Ranking} is computed as the "score"
+     * stage and the rest of the time as the "top-K" stage of the
+     * current traced request, if any, and as JFR events.
+     *
+     * @param rankingFlux A {@link Flux} of {@link Ranking} objects
+     * @param strategy The name of the top-K strategy
+     * @param maxCount The upper limit for the number of
+     *                 recommendations returned
+     * @param topK Selects the top {@link Ranking} objects
+     * @return A {@link Flux} of the top {@link Ranking} objects
+     */
+    private static Flux<Ranking> traceStages
+        (Flux<Ranking> rankingFlux,
+         String strategy,
+         int maxCount,
+         Function<Flux<Ranking>, Flux<Ranking>> topK) {
+        // The trace is captured while the pipeline is assembled on
+        // the request thread.
+        var trace = TraceContext.current();
+        if (trace == null && !new CatalogScanEvent().isEnabled())
+            return rankingFlux.transform(topK);
+
+        return Flux
+            // Defer so each subscription is traced separately.
+            .defer(() -> {
+                    var scan = new CatalogScanEvent();
+                    var select = new TopKSelectionEvent();
+                    long start = System.nanoTime();
+                    long[] scored = {start, 0};
+
+                    scan.begin();
+                    return rankingFlux
+                        // Count the candidates.
+                        .doOnNext(__ -> scored[1]++)
+
+                        // Note when the last Ranking is computed.
+                        .doOnComplete(() -> {
+                                scored[0] = System.nanoTime();
+                                if (trace != null)
+                                    trace.recordStage(SCORE, start, scored[0]);
+
+                                if (scan.shouldCommit()) {
+                                    scan.strategy = strategy;
+                                    scan.candidateCount = scored[1];
+                                    scan.commit();
+                                }
+                                select.begin();
+                            })
+
+                        // Select the top Ranking objects.
+                        .transform(topK)
 
-            // Remove duplicates (but keeps the first one).
-            .distinct()
+                        // The top Ranking objects can only be emitted
+                        // after the last one is computed.
+                        .doOnComplete(() -> {
+                                if (trace != null)
+                                    trace.recordStage(TOP_K,
+                                                      scored[0],
+                                                      System.nanoTime());
 
-            // Limit the results to just maxCount.
-            .take(maxCount);
+                                if (select.shouldCommit()) {
+                                    select.strategy = strategy;
+                                    select.maxCount = maxCount;
+                                    select.candidateCount = scored[1];
+                                    select.commit();
+                                }
+                            });
+                });
     }
 }
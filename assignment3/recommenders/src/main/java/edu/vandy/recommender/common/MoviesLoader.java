@@ -1,7 +1,9 @@
 package edu.vandy.recommender.common;
 
 import edu.vandy.recommender.common.model.Movie;
+import edu.vandy.recommender.common.trace.TraceContextInterceptor;
 import edu.vandy.recommender.utils.WebUtils;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.RestTemplate;
 
@@ -36,10 +38,13 @@ public class MoviesLoader {
 
     /**
      * This {@link RestTemplate} is used to connect to the database
-     * microservice.
+     * microservice.  It propagates the trace of the request that
+     * triggers the (lazy) load.
      */
     private static final RestTemplate sRestTemplate =
-        new RestTemplate();
+        new RestTemplateBuilder()
+        .additionalInterceptors(new TraceContextInterceptor())
+        .build();
 
     /**
      * Load the movie titles and vectors from the database
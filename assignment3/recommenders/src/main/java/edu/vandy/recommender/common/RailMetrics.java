@@ -0,0 +1,396 @@
+package edu.vandy.recommender.common;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.reactivestreams.Subscription;
+import reactor.core.CoreSubscriber;
+import reactor.core.Scannable;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.ParallelFlux;
+import reactor.util.context.Context;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * This Java utility class measures how evenly the work of a {@link
+ * ParallelFlux} is spread across its rails, which shows whether the
+ * number of rails, the prefetch, or the partitioning of the movies
+ * should change.  It's applied via {@code
+ * parallelFlux.transform(RailMetrics.measure("score"))} after the
+ * {@code runOn()}, or to every {@code runOn()} via {@link
+ * #installAssemblyHook}, and it records these Micrometer meters once
+ * all the rails of a subscription complete:
+ *
+ * <ul>
+ *   <li>"recommender.rail.elements" - the elements each rail emitted,</li>
+ *   <li>"recommender.rail.busy" - the time from each rail's first
+ *       element to its completion, which includes the work of the
+ *       operators after it on the same rail,</li>
+ *   <li>"recommender.rail.skew" - the time between the first and the
+ *       last rail to complete, and</li>
+ *   <li>"recommender.rail.imbalance" - the elements of the busiest
+ *       rail divided by the mean elements per rail.</li>
+ * </ul>
+ *
+ * The "rail" tag is the index of the rail, so the number of meters
+ * is bounded by the parallelism.  Each subscription gets its own
+ * rails, so concurrent requests are measured separately.
+ */
+public final class RailMetrics {
+    /**
+     * The prefix of the meter names.
+     */
+    private static final String PREFIX = "recommender.rail.";
+
+    /**
+     * The key of the Reactor assembly hook.
+     */
+    private static final String HOOK_KEY = RailMetrics.class.getName();
+
+    /**
+     * A Java utility class should have a private constructor.
+     */
+    private RailMetrics() {
+    }
+
+    /**
+     * Measure the rails of a {@link ParallelFlux}, registering the
+     * meters with the global registry.
+     *
+     * @param name The name tag of the meters, e.g., the stage
+     * @return A function that measures the rails of the {@link
+     *         ParallelFlux} it's applied to
+     */
+    public static <T> Function<ParallelFlux<T>, ParallelFlux<T>> measure
+        (String name) {
+        return measure(name, Metrics.globalRegistry);
+    }
+
+    /**
+     * Measure the rails of a {@link ParallelFlux}.
+     *
+     * @param name The name tag of the meters, e.g., the stage
+     * @param registry The registry the meters are registered with
+     * @return A function that measures the rails of the {@link
+     *         ParallelFlux} it's applied to
+     */
+    public static <T> Function<ParallelFlux<T>, ParallelFlux<T>> measure
+        (String name,
+         MeterRegistry registry) {
+        return parallelFlux ->
+            new MeasuredParallelFlux<>(parallelFlux, name, registry);
+    }
+
+    /**
+     * Install a Reactor hook that measures the rails of every {@link
+     * ParallelFlux} assembled by a {@code runOn()}, which is the only
+     * parallel operator that runs its rails asynchronously.
+     *
+     * @param name The name tag of the meters
+     * @param registry The registry the meters are registered with
+     */
+    public static void installAssemblyHook(String name,
+                                           MeterRegistry registry) {
+        Function<ParallelFlux<Object>, ParallelFlux<Object>> measure =
+            measure(name, registry);
+
+        Hooks.onEachOperator(HOOK_KEY, publisher ->
+            publisher instanceof ParallelFlux<Object> parallelFlux
+                && Scannable.from(parallelFlux)
+                   .scan(Scannable.Attr.RUN_STYLE)
+                   == Scannable.Attr.RunStyle.ASYNC
+            ? measure.apply(parallelFlux)
+            : publisher);
+    }
+
+    /**
+     * Remove the Reactor assembly hook.
+     */
+    public static void removeAssemblyHook() {
+        Hooks.resetOnEachOperator(HOOK_KEY);
+    }
+
+    /**
+     * A {@link ParallelFlux} that creates new {@link Rails} for each
+     * subscription.
+     */
+    private static class MeasuredParallelFlux<T>
+            extends ParallelFlux<T>
+            implements Scannable {
+        /**
+         * The {@link ParallelFlux} whose rails are measured.
+         */
+        private final ParallelFlux<T> mSource;
+
+        /**
+         * The name tag of the meters.
+         */
+        private final String mName;
+
+        /**
+         * The registry the meters are registered with.
+         */
+        private final MeterRegistry mRegistry;
+
+        /**
+         * Constructor initializes the fields.
+         */
+        MeasuredParallelFlux(ParallelFlux<T> source,
+                             String name,
+                             MeterRegistry registry) {
+            mSource = source;
+            mName = name;
+            mRegistry = registry;
+        }
+
+        @Override
+        public int parallelism() {
+            return mSource.parallelism();
+        }
+
+        @Override
+        public int getPrefetch() {
+            return mSource.getPrefetch();
+        }
+
+        @Override
+        public void subscribe(CoreSubscriber<? super T>[] subscribers) {
+            if (!validate(subscribers))
+                return;
+
+            var rails = new Rails(mName, subscribers.length, mRegistry);
+
+            @SuppressWarnings("unchecked")
+            CoreSubscriber<? super T>[] measured =
+                new CoreSubscriber[subscribers.length];
+
+            for (int i = 0; i < subscribers.length; i++)
+                measured[i] = new RailSubscriber<>(subscribers[i],
+                                                   rails,
+                                                   rails.mRails[i]);
+
+            mSource.subscribe(measured);
+        }
+
+        @Override
+        public Object scanUnsafe(Attr key) {
+            if (key == Attr.PARENT)
+                return mSource;
+            if (key == Attr.PREFETCH)
+                return getPrefetch();
+            if (key == Attr.RUN_STYLE)
+                return Attr.RunStyle.SYNC;
+            return null;
+        }
+    }
+
+    /**
+     * Counts the elements of one rail on their way downstream.  It
+     * hides the upstream {@link Subscription} so the downstream
+     * operator can't fuse with it and bypass {@link #onNext}.
+     */
+    private static class RailSubscriber<T>
+            implements CoreSubscriber<T>, Subscription {
+        /**
+         * The downstream subscriber.
+         */
+        private final CoreSubscriber<? super T> mActual;
+
+        /**
+         * The rails of the subscription.
+         */
+        private final Rails mRails;
+
+        /**
+         * The rail this subscriber measures.
+         */
+        private final Rail mRail;
+
+        /**
+         * The upstream subscription.
+         */
+        private Subscription mUpstream;
+
+        /**
+         * Constructor initializes the fields.
+         */
+        RailSubscriber(CoreSubscriber<? super T> actual,
+                       Rails rails,
+                       Rail rail) {
+            mActual = actual;
+            mRails = rails;
+            mRail = rail;
+        }
+
+        @Override
+        public Context currentContext() {
+            return mActual.currentContext();
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            mUpstream = subscription;
+            mActual.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T element) {
+            mRail.next();
+            mActual.onNext(element);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            mActual.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            // Record the meters before the downstream completes.
+            mRails.completed(mRail);
+            mActual.onComplete();
+        }
+
+        @Override
+        public void request(long n) {
+            mUpstream.request(n);
+        }
+
+        @Override
+        public void cancel() {
+            mUpstream.cancel();
+        }
+    }
+
+    /**
+     * The rails of one subscription to a {@link ParallelFlux}.
+     */
+    private static class Rails {
+        /**
+         * The name tag of the meters.
+         */
+        private final String mName;
+
+        /**
+         * The registry the meters are registered with.
+         */
+        private final MeterRegistry mRegistry;
+
+        /**
+         * The rails, indexed by their position in the {@link
+         * ParallelFlux}.
+         */
+        private final Rail[] mRails;
+
+        /**
+         * The number of rails that completed.
+         */
+        private final AtomicInteger mCompleted = new AtomicInteger();
+
+        /**
+         * Constructor initializes the fields.
+         */
+        Rails(String name, int parallelism, MeterRegistry registry) {
+            mName = name;
+            mRegistry = registry;
+            mRails = new Rail[parallelism];
+
+            for (int i = 0; i < parallelism; i++)
+                mRails[i] = new Rail();
+        }
+
+        /**
+         * Called on the {@code rail}'s thread when it completes.
+         *
+         * @param rail The {@link Rail} that completed
+         */
+        void completed(Rail rail) {
+            rail.mCompleteNanos = System.nanoTime();
+
+            // The last rail to complete sees the other rails' counts.
+            if (mCompleted.incrementAndGet() == mRails.length)
+                record();
+        }
+
+        /**
+         * Record the meters.
+         */
+        private void record() {
+            long total = 0;
+            long maxElements = 0;
+            long firstComplete = Long.MAX_VALUE;
+            long lastComplete = Long.MIN_VALUE;
+
+            for (int i = 0; i < mRails.length; i++) {
+                var rail = mRails[i];
+                String railIndex = Integer.toString(i);
+
+                DistributionSummary
+                    .builder(PREFIX + "elements")
+                    .tags("name", mName, "rail", railIndex)
+                    .register(mRegistry)
+                    .record(rail.mElements);
+
+                Timer
+                    .builder(PREFIX + "busy")
+                    .tags("name", mName, "rail", railIndex)
+                    .register(mRegistry)
+                    .record(rail.mElements == 0
+                            ? 0
+                            : rail.mCompleteNanos - rail.mFirstNanos,
+                            TimeUnit.NANOSECONDS);
+
+                total += rail.mElements;
+                maxElements = Math.max(maxElements, rail.mElements);
+                firstComplete = Math.min(firstComplete, rail.mCompleteNanos);
+                lastComplete = Math.max(lastComplete, rail.mCompleteNanos);
+            }
+
+            Timer
+                .builder(PREFIX + "skew")
+                .tags("name", mName)
+                .register(mRegistry)
+                .record(lastComplete - firstComplete,
+                        TimeUnit.NANOSECONDS);
+
+            if (total > 0)
+                DistributionSummary
+                    .builder(PREFIX + "imbalance")
+                    .tags("name", mName)
+                    .register(mRegistry)
+                    .record((double) maxElements * mRails.length / total);
+        }
+    }
+
+    /**
+     * One rail, which is only updated by the thread it runs on.
+     */
+    private static class Rail {
+        /**
+         * The number of elements emitted.
+         */
+        long mElements;
+
+        /**
+         * The time the first element was emitted.
+         */
+        long mFirstNanos;
+
+        /**
+         * The time the rail completed.
+         */
+        long mCompleteNanos;
+
+        /**
+         * Called when the rail emits an element.
+         */
+        void next() {
+            if (mElements++ == 0)
+                mFirstNanos = System.nanoTime();
+        }
+    }
+}
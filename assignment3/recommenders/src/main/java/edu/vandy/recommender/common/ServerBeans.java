@@ -1,5 +1,6 @@
 package edu.vandy.recommender.common;
 
+import edu.vandy.recommender.common.jfr.DatasetLoadEvent;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Lazy;
@@ -21,7 +22,8 @@ import java.util.TreeMap;
 public class ServerBeans {
     /**
      * Constructs a {@link TreeMap} Bean that contains the movie titles
-     * and cosine vectors.
+     * and cosine vectors.  The load is recorded as a {@link
+     * DatasetLoadEvent}.
      *
      * @return A {@link Map} containing all movie titles and associated
      *         cosine vectors.
@@ -30,9 +32,20 @@ public class ServerBeans {
     @Bean("movieMap")
     public Map<String, List<Double>> getMovieMap
         (@Value("${app.dataset}") final String dataset) {
+        var event = new DatasetLoadEvent();
+        event.begin();
+
         try {
             // return LoadVectors.loadVectors(dataset);
-            return MoviesLoader.loadMoviesFromDatabase();
+            var movieMap = MoviesLoader.loadMoviesFromDatabase();
+
+            if (event.shouldCommit()) {
+                event.dataset = "database";
+                event.datasetSize = movieMap.size();
+                event.commit();
+            }
+
+            return movieMap;
         } catch (Exception e) {
             System.out.println(
                 "ERROR! Unable to retrieve movie cosine"
@@ -1,10 +1,17 @@
 package edu.vandy.recommender.microservice.parallelflux;
 
 import edu.vandy.recommender.common.BaseApplication;
+import edu.vandy.recommender.common.RailMetrics;
 import edu.vandy.recommender.common.ServerBeans;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Lazy;
 import reactor.core.publisher.ParallelFlux;
 
 import static edu.vandy.recommender.common.BaseApplication.run;
@@ -67,6 +74,24 @@ public class ParallelFluxApplication extends BaseApplication {
 //        return pkg.substring(pkg.lastIndexOf('.') + 1);
 //    }
 
+    /**
+     * Measure the rails of every {@link ParallelFlux} the service
+     * runs on a scheduler (see {@link RailMetrics}).  The bean isn't
+     * lazy since nothing else depends on it.
+     *
+     * @return A {@link DisposableBean} that removes the hook when the
+     *         application context closes
+     */
+    @Bean
+    @Lazy(false)
+    @ConditionalOnProperty(value = "app.reactor.metrics.enabled",
+                           matchIfMissing = true)
+    DisposableBean railMetricsHook
+        (@Value("${spring.application.name:application}") String name) {
+        RailMetrics.installAssemblyHook(name, Metrics.globalRegistry);
+        return RailMetrics::removeAssemblyHook;
+    }
+
     /**
      * The static main() entry point runs this Spring application.
      */
@@ -2,6 +2,7 @@ package edu.vandy.recommender.microservice.parallelflux;
 
 import edu.vandy.recommender.common.BaseControllerTimed;
 import edu.vandy.recommender.common.model.Ranking;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
@@ -11,9 +12,15 @@ import static edu.vandy.recommender.common.Constants.EndPoint.TIMED;
 /**
  * The Spring WebFlux controller for the {@link ParallelFluxService}
  * that handles timed method invocations.
+ *
+ * Every request to the normal endpoints is already measured by the
+ * Micrometer "http.server.requests" timers, so this controller can be
+ * disabled by setting "app.timed-controllers.enabled" to false.
  */
 @RestController
 @RequestMapping(TIMED)
+@ConditionalOnProperty(value = "app.timed-controllers.enabled",
+                       matchIfMissing = true)
 public class ParallelFluxControllerTimed
     extends BaseControllerTimed<Flux<Ranking>> {
 }
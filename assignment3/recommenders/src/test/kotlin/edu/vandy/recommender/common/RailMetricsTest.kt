@@ -0,0 +1,105 @@
+package edu.vandy.recommender.common
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import reactor.core.publisher.Flux
+import reactor.core.scheduler.Schedulers
+import test.admin.AssignmentTests
+
+class RailMetricsTest : AssignmentTests() {
+    @Test
+    fun `rails are measured once all of them complete`() {
+        val registry = SimpleMeterRegistry()
+        val scheduler = Schedulers.newParallel("rails", 4)
+
+        try {
+            val count = Flux
+                .range(0, 1_000)
+                .parallel(4)
+                .runOn(scheduler)
+                .map { it * 2 }
+                .transform(RailMetrics.measure("score", registry))
+                .sequential()
+                .count()
+                .block()
+
+            val elements = registry
+                .find("recommender.rail.elements")
+                .tag("name", "score")
+                .summaries()
+
+            assertThat(count).isEqualTo(1_000)
+            assertThat(elements.map { it.id.getTag("rail") })
+                .containsExactlyInAnyOrder("0", "1", "2", "3")
+            assertThat(elements.sumOf { it.totalAmount() }).isEqualTo(1_000.0)
+            assertThat(registry.find("recommender.rail.busy").timers())
+                .hasSize(4)
+            assertThat(registry.get("recommender.rail.skew").timer().count())
+                .isEqualTo(1)
+            assertThat(registry.get("recommender.rail.imbalance").summary().max())
+                .isGreaterThanOrEqualTo(1.0)
+        } finally {
+            scheduler.dispose()
+        }
+    }
+
+    @Test
+    fun `each subscription is measured separately`() {
+        val registry = SimpleMeterRegistry()
+        val scheduler = Schedulers.newParallel("rails", 2)
+
+        try {
+            val flux = Flux
+                .range(0, 100)
+                .parallel(2)
+                .runOn(scheduler)
+                .transform(RailMetrics.measure("score", registry))
+                .sequential()
+
+            Flux.merge(flux, flux, flux).count().block()
+
+            val elements = registry
+                .find("recommender.rail.elements")
+                .summaries()
+
+            assertThat(elements).hasSize(2)
+            assertThat(elements).allMatch { it.count() == 3L }
+            assertThat(elements.sumOf { it.totalAmount() }).isEqualTo(300.0)
+            assertThat(registry.get("recommender.rail.skew").timer().count())
+                .isEqualTo(3)
+        } finally {
+            scheduler.dispose()
+        }
+    }
+
+    @Test
+    fun `the assembly hook measures every runOn`() {
+        val registry = SimpleMeterRegistry()
+        val scheduler = Schedulers.newParallel("rails", 3)
+
+        RailMetrics.installAssemblyHook("parallelflux", registry)
+        try {
+            val count = Flux
+                .range(0, 300)
+                .parallel(3)
+                .runOn(scheduler)
+                .filter { it % 2 == 0 }
+                .sequential()
+                .count()
+                .block()
+
+            val elements = registry
+                .find("recommender.rail.elements")
+                .tag("name", "parallelflux")
+                .summaries()
+
+            assertThat(count).isEqualTo(150)
+            assertThat(elements).hasSize(3)
+            assertThat(elements.sumOf { it.totalAmount() }).isEqualTo(300.0)
+        } finally {
+            RailMetrics.removeAssemblyHook()
+            scheduler.dispose()
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package edu.vandy.recommender.timer.server;
+
+import edu.vandy.recommender.common.LatencyHistogram;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class renders the timings recorded by the {@link
+ * TimerService} in the OpenMetrics text format so that any
+ * Prometheus-compatible scraper can collect them.
+ *
+ * Each metric family is written straight to the response {@link
+ * Writer} while iterating the timings map, so rendering never copies
+ * or sorts the whole map.  The latency histogram uses the fixed
+ * {@code le} bounds in {@code BOUNDS_SECONDS}, whose counts are
+ * derived from the log-linear {@link LatencyHistogram} buckets (so
+ * they're accurate to within its relative error).
+ */
+class OpenMetricsWriter {
+    /**
+     * The content type of the OpenMetrics text format.
+     */
+    static final String CONTENT_TYPE =
+        "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+    /**
+     * The upper bounds of the exported histogram buckets in seconds.
+     */
+    private static final double[] BOUNDS_SECONDS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05,
+        0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0
+    };
+
+    /**
+     * The windows exported as gauges.
+     */
+    private static final List<Duration> WINDOWS = List
+        .of(Duration.ofMinutes(1),
+            Duration.ofMinutes(5),
+            Duration.ofMinutes(15));
+
+    /**
+     * The {@link Writer} the metrics are rendered to.
+     */
+    private final Writer mOut;
+
+    /**
+     * Constructor initializes the {@link Writer}.
+     */
+    OpenMetricsWriter(Writer out) {
+        mOut = out;
+    }
+
+    /**
+     * Render all metrics.
+     *
+     * @param timings The {@link Map} of identifiers to {@link
+     *                TimerService.Timing} objects
+     * @param log The durable {@link TimingLog}, whose dropped
+     *            timings and failures are counted
+     */
+    void write(Map<String, TimerService.Timing> timings,
+               TimingLog log) throws IOException {
+        writeLatencies(timings);
+        writeWindows(timings);
+
+        counter("timer_log_dropped",
+                "Timings the durable log dropped.",
+                log.getDroppedCount());
+        counter("timer_log_failures",
+                "Failed writes, compactions, and closes of the durable log.",
+                log.getFailureCount());
+        counter("timer_log_quarantined",
+                "Unreadable files the durable log quarantined.",
+                log.getQuarantinedCount());
+
+        mOut.write("# EOF\n");
+        mOut.flush();
+    }
+
+    /**
+     * Render the lifetime latency histogram of each identifier.
+     */
+    private void writeLatencies(Map<String, TimerService.Timing> timings)
+        throws IOException {
+        mOut.write("# TYPE timer_latency_seconds histogram\n");
+        mOut.write("# UNIT timer_latency_seconds seconds\n");
+        mOut.write("# HELP timer_latency_seconds Elapsed time of each timed call.\n");
+
+        for (var entry : timings.entrySet()) {
+            var labels = "endpoint=\"" + escape(entry.getKey()) + "\"";
+            var snapshot = entry.getValue().snapshot();
+
+            for (double bound : BOUNDS_SECONDS)
+                sample("timer_latency_seconds_bucket",
+                       labels + ",le=\"" + plain(bound) + "\"",
+                       Long.toString(snapshot
+                                     .countAtOrBelow((long) (bound * 1_000_000))));
+
+            sample("timer_latency_seconds_bucket",
+                   labels + ",le=\"+Inf\"",
+                   Long.toString(snapshot.count()));
+            sample("timer_latency_seconds_sum",
+                   labels,
+                   Double.toString(snapshot.sum() / 1_000_000.0));
+            sample("timer_latency_seconds_count",
+                   labels,
+                   Long.toString(snapshot.count()));
+        }
+    }
+
+    /**
+     * Render the throughput and latency percentiles of each
+     * identifier over each of the {@code WINDOWS}.
+     */
+    private void writeWindows(Map<String, TimerService.Timing> timings)
+        throws IOException {
+        long now = System.currentTimeMillis();
+
+        // Compute each window once, then render both families.
+        Map<String, RollingHistogram.Window[]> windows = new HashMap<>();
+        for (var entry : timings.entrySet()) {
+            var perWindow = new RollingHistogram.Window[WINDOWS.size()];
+            for (int i = 0; i < perWindow.length; i++)
+                perWindow[i] = entry.getValue().window(WINDOWS.get(i), now);
+            windows.put(entry.getKey(), perWindow);
+        }
+
+        mOut.write("# TYPE timer_window_rate gauge\n");
+        mOut.write("# HELP timer_window_rate Calls per second over each window.\n");
+        for (var entry : windows.entrySet())
+            for (int i = 0; i < WINDOWS.size(); i++)
+                sample("timer_window_rate",
+                       labels(entry.getKey(), i),
+                       Double.toString(entry.getValue()[i].throughput()));
+
+        mOut.write("# TYPE timer_window_latency_seconds gauge\n");
+        mOut.write("# UNIT timer_window_latency_seconds seconds\n");
+        mOut.write("# HELP timer_window_latency_seconds Latency percentiles over each window.\n");
+        for (var entry : windows.entrySet())
+            for (int i = 0; i < WINDOWS.size(); i++) {
+                var snapshot = entry.getValue()[i].snapshot();
+                if (snapshot.count() == 0)
+                    continue;
+
+                // The "quantile" label is reserved for summaries, so
+                // the percentile is given in its own label.
+                for (double percentile : new double[] {50.0, 90.0, 99.0})
+                    sample("timer_window_latency_seconds",
+                           labels(entry.getKey(), i)
+                           + ",percentile=\"" + plain(percentile) + "\"",
+                           Double.toString(snapshot.percentile(percentile)
+                                           / 1_000_000.0));
+            }
+    }
+
+    /**
+     * @return The labels for {@code id} and the window at {@code index}
+     */
+    private static String labels(String id, int index) {
+        return "endpoint=\"" + escape(id)
+            + "\",window=\"" + WINDOWS.get(index).toMinutes() + "m\"";
+    }
+
+    /**
+     * Write a counter family with a single unlabeled sample.
+     */
+    private void counter(String name,
+                         String help,
+                         long value) throws IOException {
+        mOut.write("# TYPE " + name + " counter\n");
+        mOut.write("# HELP " + name + " " + help + "\n");
+        mOut.write(name + "_total " + value + "\n");
+    }
+
+    /**
+     * Write a single sample line.
+     */
+    private void sample(String name,
+                        String labels,
+                        String value) throws IOException {
+        mOut.write(name);
+        mOut.write('{');
+        mOut.write(labels);
+        mOut.write("} ");
+        mOut.write(value);
+        mOut.write('\n');
+    }
+
+    /**
+     * @return {@code value} without an exponent, e.g., "0.0005"
+     */
+    private static String plain(double value) {
+        return BigDecimal.valueOf(value).toPlainString();
+    }
+
+    /**
+     * Escape a label value as required by the OpenMetrics format.
+     */
+    private static String escape(String value) {
+        return value
+            .replace("\\", "\\\\")
+            .replace("\"", "\\\"")
+            .replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,261 @@
+package edu.vandy.recommender.timer.server;
+
+import edu.vandy.recommender.common.LatencyHistogram;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class keeps {@link LatencyHistogram} objects for recent time
+ * slots in two fixed-size rings so the timer service can report
+ * statistics over sliding windows using bounded memory.
+ *
+ * The first ring holds one histogram per second for the last
+ * minute, which answers 1 minute queries exactly.  The second ring
+ * holds one histogram per minute, which answers longer queries (up
+ * to 15 minutes) at minute granularity.  Each slot is stamped with
+ * the epoch second (or minute) it holds, and the first writer that
+ * finds a stale stamp claims the slot with a CAS and resets it, so
+ * writers never block.  A writer racing with a reset may have its
+ * value discarded, which is an acceptable loss for monitoring data.
+ *
+ * Each slot's histogram is only allocated the first time a value is
+ * recorded in it, so an identifier that's rarely called only holds
+ * the slots it actually used rather than all 76 of them.  Windows
+ * longer than {@link #MAX_WINDOW} are rejected rather than silently
+ * shortened.
+ */
+public class RollingHistogram {
+    /**
+     * The number of 1-second slots.
+     */
+    static final int SECOND_SLOTS = 60;
+
+    /**
+     * The longest window that can be queried in minutes.
+     */
+    static final int MAX_MINUTES = 15;
+
+    /**
+     * The number of 1-minute slots, which includes one extra slot so
+     * the oldest minute in the longest window is never being reset.
+     */
+    static final int MINUTE_SLOTS = MAX_MINUTES + 1;
+
+    /**
+     * The longest window that can be queried.
+     */
+    public static final Duration MAX_WINDOW =
+        Duration.ofMinutes(MAX_MINUTES);
+
+    /**
+     * The 1-second slots, each of which is null until it's used.
+     */
+    private final AtomicReferenceArray<Slot> mSeconds =
+        new AtomicReferenceArray<>(SECOND_SLOTS);
+
+    /**
+     * The 1-minute slots, each of which is null until it's used.
+     */
+    private final AtomicReferenceArray<Slot> mMinutes =
+        new AtomicReferenceArray<>(MINUTE_SLOTS);
+
+    /**
+     * Check that {@code window} can be queried.
+     *
+     * @param window The length of a window
+     * @return The {@code window}
+     * @throws IllegalArgumentException If {@code window} isn't
+     *                                  positive or is longer than
+     *                                  {@link #MAX_WINDOW}
+     */
+    public static Duration checkWindow(Duration window) {
+        if (window.isNegative()
+            || window.isZero()
+            || window.compareTo(MAX_WINDOW) > 0)
+            throw new IllegalArgumentException
+                ("Window " + window + " must be positive and at most "
+                 + MAX_WINDOW);
+        return window;
+    }
+
+    /**
+     * Record {@code micros} in the current second and minute slots.
+     *
+     * @param micros The value to record in microseconds
+     * @param nowMillis The current wall-clock time in milliseconds
+     */
+    public void record(long micros, long nowMillis) {
+        long second = nowMillis / 1_000;
+        long minute = second / 60;
+
+        var slot = slotFor(mSeconds, second);
+        if (slot != null)
+            slot.record(micros);
+
+        slot = slotFor(mMinutes, minute);
+        if (slot != null)
+            slot.record(micros);
+    }
+
+    /**
+     * Return the statistics for the {@code window} ending at {@code
+     * nowMillis}.
+     *
+     * @param window The length of the window (at most {@link
+     *               #MAX_WINDOW})
+     * @param nowMillis The current wall-clock time in milliseconds
+     * @return A {@link Window} containing the merged statistics
+     * @throws IllegalArgumentException If {@code window} can't be
+     *                                  queried
+     */
+    public Window snapshot(Duration window, long nowMillis) {
+        long second = nowMillis / 1_000;
+        long seconds = Math.max(1, checkWindow(window).toSeconds());
+        var snapshot = LatencyHistogram.Snapshot.empty();
+
+        if (seconds <= SECOND_SLOTS) {
+            // Merge the 1-second slots within the window.
+            for (long s = second - seconds + 1; s <= second; s++)
+                snapshot = merge(mSeconds, s, snapshot);
+
+            return new Window(snapshot, seconds);
+        }
+
+        // Merge the 1-minute slots within the window.
+        long minute = second / 60;
+        long minutes = (seconds + 59) / 60;
+        for (long m = minute - minutes + 1; m <= minute; m++)
+            snapshot = merge(mMinutes, m, snapshot);
+
+        // The window covers the completed minutes plus the elapsed
+        // part of the current one.
+        return new Window(snapshot,
+                          (minutes - 1) * 60 + second % 60 + 1);
+    }
+
+    /**
+     * Merge the slot holding {@code epoch}, if any, into {@code
+     * snapshot}.
+     */
+    private static LatencyHistogram.Snapshot merge
+        (AtomicReferenceArray<Slot> slots,
+         long epoch,
+         LatencyHistogram.Snapshot snapshot) {
+        var slot = slots.get(index(epoch, slots.length()));
+        return slot == null
+            ? snapshot
+            : slot.snapshot(epoch, snapshot);
+    }
+
+    /**
+     * Return the slot for {@code epoch}, allocating it if it's never
+     * been used and claiming and resetting it first if it still holds
+     * an older epoch.
+     *
+     * @return The slot for {@code epoch}, or null if {@code epoch} is
+     *         too old to be held by the ring any more
+     */
+    private static Slot slotFor(AtomicReferenceArray<Slot> slots,
+                                long epoch) {
+        int index = index(epoch, slots.length());
+        var slot = slots.get(index);
+        if (slot == null) {
+            // Only the first writer's slot is kept.
+            slots.compareAndSet(index, null, new Slot());
+            slot = slots.get(index);
+        }
+
+        long stamp = slot.mEpoch.get();
+        if (stamp < epoch
+            && slot.mEpoch.compareAndSet(stamp, epoch))
+            slot.mHistogram.reset();
+
+        return slot.mEpoch.get() == epoch ? slot : null;
+    }
+
+    /**
+     * @return The index of {@code epoch} in a ring of {@code length}
+     */
+    private static int index(long epoch, int length) {
+        return (int) Math.floorMod(epoch, (long) length);
+    }
+
+    /**
+     * A histogram stamped with the epoch second or minute it holds.
+     */
+    private static class Slot {
+        /**
+         * The epoch second or minute held by this slot.
+         */
+        final AtomicLong mEpoch = new AtomicLong(-1);
+
+        /**
+         * The values recorded during {@code mEpoch}.
+         */
+        final LatencyHistogram mHistogram = new LatencyHistogram();
+
+        /**
+         * Record {@code micros} in this slot.
+         */
+        void record(long micros) {
+            mHistogram.record(micros);
+        }
+
+        /**
+         * Merge this slot into {@code snapshot} if it holds {@code
+         * epoch}.
+         */
+        LatencyHistogram.Snapshot snapshot(long epoch,
+                                           LatencyHistogram.Snapshot snapshot) {
+            return mEpoch.get() == epoch
+                ? snapshot.merge(mHistogram.snapshot())
+                : snapshot;
+        }
+    }
+
+    /**
+     * The statistics for one window.
+     */
+    public static class Window {
+        /**
+         * The merged histogram of the window.
+         */
+        private final LatencyHistogram.Snapshot mSnapshot;
+
+        /**
+         * The number of seconds covered by the window.
+         */
+        private final long mSeconds;
+
+        /**
+         * Constructor initializes the fields.
+         */
+        Window(LatencyHistogram.Snapshot snapshot, long seconds) {
+            mSnapshot = snapshot;
+            mSeconds = seconds;
+        }
+
+        /**
+         * @return The merged histogram of the window
+         */
+        public LatencyHistogram.Snapshot snapshot() {
+            return mSnapshot;
+        }
+
+        /**
+         * @return The number of seconds covered by the window
+         */
+        public long seconds() {
+            return mSeconds;
+        }
+
+        /**
+         * @return The number of values recorded per second
+         */
+        public double throughput() {
+            return (double) mSnapshot.count() / mSeconds;
+        }
+    }
+}
@@ -1,15 +1,28 @@
 package edu.vandy.recommender.timer.server;
 
 import edu.vandy.recommender.common.Timer;
+import edu.vandy.recommender.common.TimerBatchCodec;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.convert.DurationStyle;
 import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 
 import static edu.vandy.recommender.common.Constants.EndPoint.*;
 import static edu.vandy.recommender.common.Constants.Service.TIMER;
@@ -88,6 +101,41 @@ public class TimerController {
             .addTimer(timer);
     }
 
+    /**
+     * Record the execution times in a JSON array of {@link Timer}
+     * objects, which costs one request for the whole batch.
+     *
+     * @param timers A {@link List} of {@link Timer} instances
+     * @return The number of {@link Timer} objects recorded
+     */
+    @PostMapping(value = POST_TIMINGS,
+                 consumes = MediaType.APPLICATION_JSON_VALUE)
+    public int recordTimings(@RequestBody List<Timer> timers) {
+        return mService
+            // Forward to the service.
+            .addTimers(timers);
+    }
+
+    /**
+     * Record the execution times in a binary batch of {@link Timer}
+     * objects encoded by {@link TimerBatchCodec}.
+     *
+     * @param batch The encoded batch
+     * @return The number of {@link Timer} objects recorded
+     */
+    @PostMapping(value = POST_TIMINGS,
+                 consumes = TimerBatchCodec.MEDIA_TYPE)
+    public int recordTimings(@RequestBody byte[] batch) {
+        try {
+            return mService
+                // Forward the decoded batch to the service.
+                .addTimers(TimerBatchCodec.decode(batch));
+        } catch (IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                              exception.getMessage());
+        }
+    }
+
     /**
      * Clears all previously recorded timings.
      */
@@ -108,4 +156,118 @@ public class TimerController {
             // Forward request to the service.
             .getTimingResults();
     }
+
+    /**
+     * Return the timing results over recent sliding windows.
+     *
+     * @param windows The window lengths to report, e.g., "1m", "5m",
+     *                and "15m" (each at most 15 minutes)
+     * @return A {@link String} containing the count, throughput, and
+     *         latency percentiles of each method over each window
+     * @throws ResponseStatusException If a window is malformed or
+     *                                 longer than 15 minutes
+     */
+    @GetMapping(GET_WINDOWED_TIMINGS)
+    public String getWindowedTimings(@RequestParam(defaultValue = "1m,5m,15m")
+                                     List<String> windows) {
+        List<Duration> durations;
+        try {
+            durations = windows
+                // Convert List to a Stream.
+                .stream()
+
+                // Parse each window length.
+                .map(DurationStyle::detectAndParse)
+
+                // Reject windows longer than the rings hold.
+                .map(RollingHistogram::checkWindow)
+
+                // Collect the results.
+                .toList();
+        } catch (IllegalArgumentException exception) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                                              exception.getMessage());
+        }
+
+        return mService
+            // Forward request to the service.
+            .getWindowedTimingResults(durations);
+    }
+
+    /**
+     * Return the timing results between {@code from} and {@code to},
+     * including timings recorded before the timer service was last
+     * restarted.
+     *
+     * @param from The ISO-8601 start of the window (defaults to one
+     *             hour before {@code to})
+     * @param to The ISO-8601 end of the window (defaults to now)
+     * @return A {@link String} containing the count, throughput, and
+     *         latency percentiles of each method within the window
+     */
+    @GetMapping(GET_TIMING_HISTORY)
+    public String getTimingHistory(@RequestParam(required = false) Instant from,
+                                   @RequestParam(required = false) Instant to) {
+        var end = to != null ? to : Instant.now();
+
+        return mService
+            // Forward request to the service.
+            .getTimingHistory(from != null
+                              ? from
+                              : end.minus(Duration.ofHours(1)),
+                              end);
+    }
+
+    /**
+     * Return the time spent in each stage (e.g., "database:load" or
+     * "parallelflux:score") of each type of traced request.
+     *
+     * @return A {@link String} containing the stages of each request
+     *         type ordered from slowest to fastest
+     */
+    @GetMapping(GET_TRACE_BREAKDOWN)
+    public String getTraceBreakdown() {
+        return mService
+            // Forward request to the service.
+            .getTraceBreakdown();
+    }
+
+    /**
+     * Stream the windowed timing results as Server-Sent Events, which
+     * lets load tests watch latency and throughput evolve live rather
+     * than polling {@link #getWindowedTimings(List)}.
+     *
+     * @return A {@link Flux} that emits a "timings" event containing
+     *         a {@link List} of {@link TimingSummary} objects once per
+     *         second
+     */
+    @GetMapping(value = STREAM_TIMINGS,
+                produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<List<TimingSummary>>> streamTimings() {
+        return mService
+            // Forward request to the service.
+            .streamTimings()
+
+            // Wrap each list of summaries in an event.
+            .map(summaries -> ServerSentEvent
+                 .builder(summaries)
+                 .event("timings")
+                 .build());
+    }
+
+    /**
+     * Export all timings in the OpenMetrics text format, which can be
+     * scraped by Prometheus-compatible collectors.
+     *
+     * @param response The {@link HttpServletResponse} the metrics
+     *                 are written to
+     */
+    @GetMapping(METRICS)
+    public void metrics(HttpServletResponse response) throws IOException {
+        response.setContentType(OpenMetricsWriter.CONTENT_TYPE);
+
+        mService
+            // Forward request to the service.
+            .writeMetrics(response.getWriter());
+    }
 }
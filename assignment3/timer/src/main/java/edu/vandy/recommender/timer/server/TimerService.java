@@ -1,15 +1,26 @@
 package edu.vandy.recommender.timer.server;
 
+import edu.vandy.recommender.common.LatencyHistogram;
 import edu.vandy.recommender.common.Timer;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This class defines implementation methods that are called by the
@@ -32,42 +43,147 @@ public class TimerService {
     @Autowired
     private ConcurrentHashMap<String, Timing> mResultsMap;
 
+    /**
+     * The durable log that preserves timings across restarts.
+     */
+    @Autowired
+    private TimingLog mTimingLog;
+
+    /**
+     * Aggregates the spans of traced requests.
+     */
+    @Autowired
+    private TraceCollector mTraceCollector;
+
+    /**
+     * The windows summarized by {@link #streamTimings()}.
+     */
+    private static final List<Duration> STREAM_WINDOWS = List
+        .of(Duration.ofSeconds(10),
+            Duration.ofMinutes(1),
+            Duration.ofMinutes(5));
+
+    /**
+     * Emits the summaries of all identifiers once per second.  The
+     * summaries are computed once per tick on Reactor's parallel
+     * {@code Scheduler} and shared by all subscribers, so neither the
+     * cost of computing them nor a slow subscriber affects the
+     * threads recording timings.
+     */
+    private final Flux<List<TimingSummary>> mSummaries = Flux
+        // Tick once per second.
+        .interval(Duration.ofSeconds(1))
+
+        // Skip a tick if the summaries are still being computed.
+        .onBackpressureDrop()
+
+        // Summarize the recent windows of every identifier.
+        .map(tick -> summarize(STREAM_WINDOWS,
+                               System.currentTimeMillis()))
+
+        // Share the ticks among all subscribers and stop ticking
+        // when the last one cancels.
+        .publish()
+        .refCount();
+
+    /**
+     * Recover the timings logged before this service last stopped.
+     */
+    @PostConstruct
+    void recoverTimings() {
+        mTimingLog
+            .open(// Merge each compacted snapshot into the totals.
+                  (id, snapshot) -> timing(id).histogram.add(snapshot),
+
+                  // Replay each raw record.
+                  record -> timing(record.id)
+                  .record(record.micros,
+                          record.firstElementMicros,
+                          record.elementCount,
+                          record.wallMillis));
+    }
+
+    /**
+     * @return The {@link Timing} for {@code id}, which is atomically
+     *         created if it doesn't exist yet
+     */
+    private Timing timing(String id) {
+        return mResultsMap.computeIfAbsent(id, __ -> new Timing());
+    }
+
     /**
      * Keep a record the passed {@link Timer}.
      *
      * @param timer A {@link Timer} instance.
      */
     public Timer addTimer(Timer timer) {
-        // Compute the elapsed time in microseconds.
-        long elapsedTime = (timer.stopTime - timer.startTime) 
-            / 1_000_000;
-
-        // Lookup the TimingRecord associated with methodName.
-        Timing timing = mResultsMap.get(timer.id);
-
-        // This handles the case where methodName wasn't in the Map.
-        if (timing == null) {
-            timing = new Timing(elapsedTime);
-
-            // Put the methodName and timingRecord into the results
-            // Map.
-            mResultsMap.put(timer.id, timing);
-        } else {
-            // Increment the invocation count.
-            timing.invocationCount.incrementAndGet();
-
-            // Update the average time.
-            timing
-                .averageTime
-                .set((timing.invocationCount.get()
-                      * timing.averageTime.get()
-                      + elapsedTime)
-                     / (timing.invocationCount.get()));
+        // Spans of traced requests are aggregated separately.
+        if (timer.stage != null) {
+            mTraceCollector.add(timer);
+            return timer;
         }
 
+        // Atomically find or create the Timing for this id so
+        // concurrent first calls can't lose a result.
+        record(timing(timer.id), timer, System.currentTimeMillis());
+
         return timer;
     }
 
+    /**
+     * Keep a record of all the passed {@link Timer} objects in a
+     * single pass.
+     *
+     * @param timers A {@link List} of {@link Timer} instances
+     * @return The number of {@link Timer} objects recorded
+     */
+    public int addTimers(List<Timer> timers) {
+        // A batch usually contains many timings for a few ids, so
+        // look up each id in the shared map only once.
+        Map<String, Timing> timings = new HashMap<>();
+        long now = System.currentTimeMillis();
+
+        for (var timer : timers)
+            if (timer.stage != null)
+                // Spans of traced requests are aggregated separately.
+                mTraceCollector.add(timer);
+            else
+                record(timings.computeIfAbsent(timer.id, this::timing),
+                       timer,
+                       now);
+
+        return timers.size();
+    }
+
+    /**
+     * Record the elapsed time (and any reactive statistics) of {@code
+     * timer} in {@code timing} and append it to the durable log.
+     *
+     * @param timing The {@link Timing} for {@code timer.id}
+     * @param timer A {@link Timer} instance
+     * @param nowMillis The time {@code timer} was received
+     */
+    private void record(Timing timing, Timer timer, long nowMillis) {
+        long micros = (timer.stopTime - timer.startTime) / 1_000;
+        long firstElementMicros = timer.firstElementTime == 0
+            ? -1
+            : (timer.firstElementTime - timer.startTime) / 1_000;
+
+        timing.record(micros,
+                      firstElementMicros,
+                      timer.elementCount,
+                      nowMillis);
+        if (timer.allocatedBytes > 0)
+            timing.allocations.record(timer.allocatedBytes);
+
+        // Appending only enqueues the timing for the log's writer.
+        mTimingLog.append(timer.id,
+                          nowMillis,
+                          micros,
+                          firstElementMicros,
+                          timer.elementCount);
+    }
+
     /**
      * @return A {@link String} containing the timing results for all
      *         the method runs ordered from fastest to slowest
@@ -92,23 +208,44 @@ public class TimerService {
             // Convert the entrySet into a stream.
             .stream()
 
-            // Create a SimpleEntry containing the timing results
-            // (value) followed by the test name (key).
+            // Create a SimpleEntry containing a snapshot of the
+            // timing results (key) followed by the entry (value).
+            // Each histogram is snapshotted once, since its live
+            // mean changes while other requests record timings and
+            // would break the sort's contract.
             .map(entry
-                 -> new SimpleEntry<>(entry.getValue(),
-                                      entry.getKey()))
+                 -> new SimpleEntry<>(entry.getValue().snapshot(),
+                                      entry))
 
-            // Sort the stream by the timing results (key).
-            .sorted(Comparator.comparing(SimpleEntry::getKey))
+            // Sort the stream by the mean of the snapshots (key).
+            .sorted(Map.Entry
+                    .comparingByKey(Comparator
+                                    .comparingDouble(LatencyHistogram.Snapshot::mean)))
 
             // Append the entries in the sorted stream.
-            .forEach(entry -> stringBuffer
-                     .append(entry.getKey().invocationCount)
-                     .append(" call(s) to ")
-                     .append(entry.getValue())
-                     .append(" executed in an average of ")
-                     .append(entry.getKey().averageTime)
-                     .append(" msecs\n"));
+            .forEach(entry -> {
+                    var snapshot = entry.getKey();
+                    stringBuffer
+                        .append(snapshot.count())
+                        .append(" call(s) to ")
+                        .append(entry.getValue().getKey())
+                        .append(" executed in an average of ")
+                        .append(msecs(Math.round(snapshot.mean())))
+                        .append(" msecs [p50 ")
+                        .append(msecs(snapshot.percentile(50.0)))
+                        .append(", p90 ")
+                        .append(msecs(snapshot.percentile(90.0)))
+                        .append(", p99 ")
+                        .append(msecs(snapshot.percentile(99.0)))
+                        .append(", p99.9 ")
+                        .append(msecs(snapshot.percentile(99.9)))
+                        .append(", max ")
+                        .append(msecs(snapshot.max()))
+                        .append(" msecs]")
+                        .append(entry.getValue().getValue().elementsSummary())
+                        .append(entry.getValue().getValue().allocationsSummary())
+                        .append("\n");
+                });
 
         // Convert stringBuffer to a String and return it.
         var results = stringBuffer.toString();
@@ -117,53 +254,313 @@ public class TimerService {
     }
 
     /**
-     * Clears all previously recorded timings.
+     * Return the statistics for each identifier over the last {@code
+     * windows}, which lets callers see whether latency regressed
+     * recently rather than since the timings were last cleared.
+     *
+     * @param windows The {@link List} of window lengths to report
+     *                (each at most 15 minutes)
+     * @return A {@link String} containing the windowed timing results
+     *         for all identifiers ordered by identifier
+     */
+    public String getWindowedTimingResults(List<Duration> windows) {
+        if (mResultsMap.isEmpty()) {
+            return "No timings have been recorded.";
+        }
+
+        long now = System.currentTimeMillis();
+        StringBuilder stringBuffer =
+            new StringBuilder();
+
+        // Print the windowed statistics of each identifier.
+        new TreeMap<>(mResultsMap)
+            .forEach((id, timing) -> {
+                    stringBuffer
+                        .append("\n")
+                        .append(id)
+                        .append("\n");
+
+                    for (var window : windows) {
+                        var stats = timing.window(window, now);
+                        var snapshot = stats.snapshot();
+                        stringBuffer
+                            .append(String
+                                    .format("  last %-8s %8d call(s) %10.2f/sec",
+                                            window.toString().substring(2)
+                                                .toLowerCase(),
+                                            snapshot.count(),
+                                            stats.throughput()));
+                        if (snapshot.count() > 0)
+                            stringBuffer
+                                .append(" mean ")
+                                .append(msecs(Math.round(snapshot.mean())))
+                                .append(" [p50 ")
+                                .append(msecs(snapshot.percentile(50.0)))
+                                .append(", p99 ")
+                                .append(msecs(snapshot.percentile(99.0)))
+                                .append(", max ")
+                                .append(msecs(snapshot.max()))
+                                .append(" msecs]");
+                        stringBuffer.append("\n");
+                    }
+                });
+
+        return stringBuffer.toString();
+    }
+
+    /**
+     * Return the statistics of each identifier between {@code from}
+     * and {@code to} from the durable log, which includes timings
+     * recorded before this service was last restarted.
+     *
+     * @param from The start of the window (inclusive)
+     * @param to The end of the window (exclusive)
+     * @return A {@link String} containing the historical timing
+     *         results for all identifiers ordered by identifier
+     */
+    public String getTimingHistory(Instant from, Instant to) {
+        if (!mTimingLog.isEnabled()) {
+            return "The timing log is disabled.";
+        }
+
+        double seconds = Math.max(1, Duration.between(from, to).toSeconds());
+        StringBuilder stringBuffer =
+            new StringBuilder("\nTimings from " + from + " to " + to + "\n");
+
+        mTimingLog
+            // Merge the logged timings within the window.
+            .history(from.toEpochMilli(), to.toEpochMilli())
+
+            // Append the statistics of each identifier.
+            .forEach((id, snapshot) -> stringBuffer
+                     .append(String
+                             .format("%8d call(s) to %s (%.2f/sec) executed in an average of ",
+                                     snapshot.count(),
+                                     id,
+                                     snapshot.count() / seconds))
+                     .append(msecs(Math.round(snapshot.mean())))
+                     .append(" msecs [p50 ")
+                     .append(msecs(snapshot.percentile(50.0)))
+                     .append(", p90 ")
+                     .append(msecs(snapshot.percentile(90.0)))
+                     .append(", p99 ")
+                     .append(msecs(snapshot.percentile(99.0)))
+                     .append(", max ")
+                     .append(msecs(snapshot.max()))
+                     .append(" msecs]\n"));
+
+        return stringBuffer.toString();
+    }
+
+    /**
+     * Return a stream that pushes the summaries of every identifier
+     * over the last 10 seconds, 1 minute, and 5 minutes once per
+     * second.  Each subscriber only keeps the latest summaries it
+     * hasn't consumed, so a slow subscriber skips intermediate
+     * frames instead of buffering them or holding up the others.
+     *
+     * @return A {@link Flux} that emits a {@link List} of {@link
+     *         TimingSummary} objects once per second
+     */
+    public Flux<List<TimingSummary>> streamTimings() {
+        return mSummaries
+            // Drop intermediate frames for slow subscribers.
+            .onBackpressureLatest();
+    }
+
+    /**
+     * Summarize the statistics for each identifier over the last
+     * {@code windows}.
+     *
+     * @param windows The {@link List} of window lengths to summarize
+     *                (each at most 15 minutes)
+     * @param nowMillis The end of the windows in milliseconds
+     * @return A {@link List} of {@link TimingSummary} objects ordered
+     *         by identifier and then by {@code windows}
+     */
+    private List<TimingSummary> summarize(List<Duration> windows,
+                                          long nowMillis) {
+        List<TimingSummary> summaries =
+            new ArrayList<>(mResultsMap.size() * windows.size());
+
+        new TreeMap<>(mResultsMap)
+            .forEach((id, timing) -> {
+                    for (var window : windows) {
+                        var stats = timing.window(window, nowMillis);
+                        var snapshot = stats.snapshot();
+
+                        var summary = new TimingSummary();
+                        summary.id = id;
+                        summary.window = window.toString()
+                            .substring(2).toLowerCase();
+                        summary.count = snapshot.count();
+                        summary.throughput = stats.throughput();
+                        summary.mean = snapshot.mean() / 1_000.0;
+                        summary.p50 = snapshot.percentile(50.0) / 1_000.0;
+                        summary.p90 = snapshot.percentile(90.0) / 1_000.0;
+                        summary.p99 = snapshot.percentile(99.0) / 1_000.0;
+                        summary.max = snapshot.max() / 1_000.0;
+                        summaries.add(summary);
+                    }
+                });
+
+        return summaries;
+    }
+
+    /**
+     * Format a value in microseconds as milliseconds.
+     *
+     * @param micros A value in microseconds
+     * @return A {@link String} containing {@code micros} in
+     *         milliseconds with microsecond precision
+     */
+    private static String msecs(long micros) {
+        return String.format("%.3f", micros / 1_000.0);
+    }
+
+    /**
+     * Write all timings to {@code out} in the OpenMetrics text format.
+     * The timings map is rendered as it's iterated, i.e., without
+     * copying or sorting it.
+     *
+     * @param out The {@link Writer} to render the metrics to
+     */
+    public void writeMetrics(Writer out) throws IOException {
+        new OpenMetricsWriter(out)
+            .write(mResultsMap, mTimingLog);
+    }
+
+    /**
+     * @return A {@link String} containing the time spent in each
+     *         stage of each type of traced request
+     */
+    public String getTraceBreakdown() {
+        return mTraceCollector.getBreakdown();
+    }
+
+    /**
+     * Clears all previously recorded timings and spans, including
+     * those in the durable log.
      */
     public void clearTimings() {
         mResultsMap.clear();
+        mTraceCollector.clear();
+        mTimingLog.clear();
     }
 
     /**
-     * This class records the execution time of timing requests.
+     * This class records the execution time of timing requests in a
+     * {@link LatencyHistogram} with microsecond resolution.  All
+     * updates are lock-free, so any number of requests can record
+     * timings for the same identifier concurrently.
      */
-    public static class Timing
-           implements Comparable<Timing> {
+    public static class Timing {
         /**
-         * The average time of all the computations for a given
-         * identifier.
+         * The distribution of elapsed times in microseconds.
          */
-        final AtomicLong averageTime;
+        final LatencyHistogram histogram = new LatencyHistogram();
 
         /**
-         * The total number of invocations for a given identifier.
+         * The distribution of elapsed times over recent windows.
          */
-        final AtomicLong invocationCount;
+        final RollingHistogram windows = new RollingHistogram();
 
         /**
-         * Constructor initializes the fields.
+         * The total time in microseconds from subscription to the
+         * first element for reactive results.
          */
-        public Timing(long elapsedTime) {
-            this.averageTime = new AtomicLong(elapsedTime);
-            this.invocationCount = new AtomicLong(1);
-        }
+        final LongAdder firstElementTime = new LongAdder();
+
+        /**
+         * The number of reactive results that emitted an element.
+         */
+        final LongAdder firstElementCount = new LongAdder();
+
+        /**
+         * The total number of elements emitted by reactive results.
+         */
+        final LongAdder elementCount = new LongAdder();
 
         /**
-         * Compares this {@link Timing} with the specified {@link
-         * Timing} for order using the {@code averageTime()} method.
-         * Returns a negative integer, zero, or a positive integer as
-         * this {@link Timing} is less than, equal to, or greater than
-         * the specified {@link Timing}.
+         * The distribution of bytes allocated per call, for the
+         * services that measure them.
+         */
+        final LatencyHistogram allocations = new LatencyHistogram();
+
+        /**
+         * Record an elapsed time, time-to-first-element, and element
+         * count.
          *
-         * @param that The {@link Timing} to be compared
-         * @return A negative integer, zero, or a positive integer as
-         *         this {@link Timing}'s average time is less than,
-         *         equal to, or greater than the specified {@link
-         *         Timing}
+         * @param micros The elapsed time in microseconds
+         * @param firstElementMicros The time to the first element in
+         *                           microseconds, or -1 if none
+         * @param elements The number of elements emitted
+         * @param nowMillis The time the timing was received
+         */
+        void record(long micros,
+                    long firstElementMicros,
+                    long elements,
+                    long nowMillis) {
+            histogram.record(micros);
+            windows.record(micros, nowMillis);
+
+            if (firstElementMicros >= 0) {
+                firstElementTime.add(firstElementMicros);
+                firstElementCount.increment();
+            }
+            elementCount.add(elements);
+        }
+
+        /**
+         * @return A point-in-time {@link LatencyHistogram.Snapshot}
+         *         of the elapsed times
+         */
+        LatencyHistogram.Snapshot snapshot() {
+            return histogram.snapshot();
+        }
+
+        /**
+         * @param window The length of the window
+         * @param nowMillis The end of the window in milliseconds
+         * @return The statistics for the {@code window} ending at
+         *         {@code nowMillis}
          */
-        @Override
-        public int compareTo(Timing that) {
-            return (int) (this.averageTime.get()
-                          - that.averageTime.get());
+        RollingHistogram.Window window(Duration window, long nowMillis) {
+            return windows.snapshot(window, nowMillis);
+        }
+
+        /**
+         * @return A {@link String} summarizing the time-to-first-element
+         *         and element counts, or an empty {@link String} if
+         *         no elements were recorded
+         */
+        String elementsSummary() {
+            long results = firstElementCount.sum();
+            if (results == 0)
+                return "";
+
+            return String
+                .format(" (first element after an average of %.3f msecs,"
+                        + " %.1f elements on average)",
+                        firstElementTime.sum() / 1_000.0 / results,
+                        (double) elementCount.sum()
+                        / Math.max(1, histogram.count()));
+        }
+
+        /**
+         * @return A {@link String} summarizing the bytes allocated per
+         *         call, or an empty {@link String} if none were
+         *         measured
+         */
+        String allocationsSummary() {
+            var bytes = allocations.snapshot();
+            if (bytes.count() == 0)
+                return "";
+
+            return String
+                .format(" (alloc mean %.1f [p99 %.1f] KB/call)",
+                        bytes.mean() / 1_024.0,
+                        bytes.percentile(99.0) / 1_024.0);
         }
     }
 }
@@ -0,0 +1,1124 @@
+package edu.vandy.recommender.timer.server;
+
+import edu.vandy.recommender.common.LatencyHistogram;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE_NEW;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * This class persists timings so the timer service's performance
+ * history survives restarts.
+ *
+ * Timings are appended as raw {@link Record} objects to memory-mapped
+ * segment files.  The ingestion path merely offers each {@link
+ * Record} to a lock-free queue, and a single writer thread copies
+ * them into the current segment, so no request waits for disk I/O.
+ * The writer seals the current segment every {@code
+ * compactionInterval} (or when it fills) and compacts the sealed
+ * segments into a snapshot file containing one {@link
+ * LatencyHistogram} per identifier per minute, which is far smaller
+ * than the raw records.  The snapshots of each past hour are then
+ * rolled up into a single hour file, and the hour files of each past
+ * day into a single day file, so the number of files listed and
+ * read by each history query grows with the retention period in
+ * days rather than in minutes.  Rolling up keeps the resolution of
+ * one minute.
+ *
+ * A segment file starts with a magic number and the offset just past
+ * its last complete record, which the writer updates after each
+ * batch, so a crash loses at most the records written since then.
+ * Each snapshot lists the sequence numbers of the files it replaces,
+ * so if a crash leaves them behind after the snapshot is published,
+ * recovery deletes them instead of counting their timings twice.
+ * Files that can't be read are moved to a quarantine directory
+ * instead of failing the recovery, and all failures are counted so
+ * they show up in the exported metrics.
+ */
+@Component
+public class TimingLog
+       implements AutoCloseable {
+    /**
+     * The magic number ("TLSG") at the start of each segment.
+     */
+    private static final int SEGMENT_MAGIC = 0x544C5347;
+
+    /**
+     * The magic number ("TLSN") at the start of each snapshot.
+     */
+    private static final int SNAPSHOT_MAGIC = 0x544C534E;
+
+    /**
+     * The size of a segment header, i.e., the magic number and the
+     * offset just past the last complete record.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * The size of a snapshot header, i.e., the magic number, the
+     * oldest and newest minutes, and the number of entries.
+     */
+    private static final int SNAPSHOT_HEADER_SIZE = 4 + 2 * Long.BYTES + 4;
+
+    /**
+     * The file name suffix of snapshots that are still being written.
+     */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * The size of a record excluding its id.
+     */
+    private static final int RECORD_SIZE = 2 + 4 * Long.BYTES;
+
+    /**
+     * The file name prefix and suffix of segment files.
+     */
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * The file name prefix and suffix of snapshot files.
+     */
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    /**
+     * The file name prefixes of the snapshots rolled up by hour and
+     * by day.
+     */
+    private static final String HOUR_PREFIX = "hour-";
+    private static final String DAY_PREFIX = "day-";
+
+    /**
+     * The file name prefixes of all snapshot files.
+     */
+    private static final List<String> SNAPSHOT_PREFIXES =
+        List.of(SNAPSHOT_PREFIX, HOUR_PREFIX, DAY_PREFIX);
+
+    /**
+     * The subdirectory that files which can't be read are moved to.
+     */
+    private static final String QUARANTINE_DIRECTORY = "corrupt";
+
+    /**
+     * How long {@link #clear()} waits for the writer thread.
+     */
+    private static final long CLEAR_TIMEOUT_SECONDS = 10;
+
+    /**
+     * The properties that configure this log.
+     */
+    private final TimingLogProperties mProperties;
+
+    /**
+     * The records waiting to be written.
+     */
+    private final Queue<Record> mQueue = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The number of records in {@code mQueue}.
+     */
+    private final AtomicInteger mQueued = new AtomicInteger();
+
+    /**
+     * The number of records dropped because the queue was full.
+     */
+    private final LongAdder mDropped = new LongAdder();
+
+    /**
+     * The number of times writing, compacting, or closing the log
+     * failed.
+     */
+    private final LongAdder mFailures = new LongAdder();
+
+    /**
+     * The number of files moved to the quarantine directory.
+     */
+    private final LongAdder mQuarantined = new LongAdder();
+
+    /**
+     * Compaction holds the write lock while it replaces segments
+     * with a snapshot, so history queries never miss data.
+     */
+    private final ReadWriteLock mFilesLock = new ReentrantReadWriteLock();
+
+    /**
+     * The directory containing the log files.
+     */
+    private Path mDirectory;
+
+    /**
+     * The writer thread, which is the only thread that modifies
+     * files.
+     */
+    private volatile Thread mWriter;
+
+    /**
+     * Set to true when this log is closed.
+     */
+    private volatile boolean mClosed;
+
+    /**
+     * The sequence number of the next file (writer thread only).
+     */
+    private long mNextSequence;
+
+    /**
+     * The current segment, or null if none is open (writer thread
+     * only).
+     */
+    private MappedByteBuffer mSegment;
+
+    /**
+     * The path of the current segment.
+     */
+    private volatile Path mSegmentPath;
+
+    /**
+     * The time the current segment was opened (writer thread only).
+     */
+    private long mSegmentOpened;
+
+    /**
+     * Constructor initializes the properties.
+     */
+    @Autowired
+    public TimingLog(TimingLogProperties properties) {
+        mProperties = properties;
+    }
+
+    /**
+     * @return True if timings are logged
+     */
+    public boolean isEnabled() {
+        return mProperties.isEnabled();
+    }
+
+    /**
+     * Recover the timings logged by earlier runs and then start the
+     * writer thread.
+     *
+     * @param snapshots Called with each compacted per-minute {@link
+     *                  LatencyHistogram.Snapshot}
+     * @param records Called with each {@link Record} that hasn't been
+     *                compacted yet
+     */
+    public void open(BiConsumer<String, LatencyHistogram.Snapshot> snapshots,
+                     Consumer<Record> records) {
+        if (!isEnabled())
+            return;
+
+        try {
+            mDirectory = Files
+                .createDirectories(Paths.get(mProperties.getDirectory()));
+
+            // Delete the snapshots that were never published.
+            for (var path : list("", TEMP_SUFFIX))
+                Files.deleteIfExists(path);
+
+            // A snapshot is only trusted once it's been read in full,
+            // so a corrupt one is skipped as a whole.
+            Set<Long> replaced = new HashSet<>();
+            for (var path : listSnapshots())
+                if (isReadable(path))
+                    replaced.addAll(replacedBy(path));
+
+            // Finish the replacements interrupted by a crash, whose
+            // files are already counted by their snapshot.
+            for (var path : Stream
+                     .concat(listSnapshots().stream(),
+                             list(SEGMENT_PREFIX, SEGMENT_SUFFIX).stream())
+                     .toList())
+                if (replaced.contains(sequenceOf(path)))
+                    Files.deleteIfExists(path);
+
+            // Replay the snapshot files and then the segment files.
+            for (var path : listSnapshots())
+                readSnapshot(path, Long.MIN_VALUE, Long.MAX_VALUE,
+                             (id, minute, snapshot) ->
+                             snapshots.accept(id, snapshot));
+            for (var path : list(SEGMENT_PREFIX, SEGMENT_SUFFIX))
+                try {
+                    readSegment(path, records);
+                } catch (IOException | RuntimeException exception) {
+                    quarantine(path, exception);
+                }
+
+            // Never reuse the sequence number of an existing file.
+            mNextSequence = Stream
+                .concat(listSnapshots().stream(),
+                        list(SEGMENT_PREFIX, SEGMENT_SUFFIX).stream())
+                .mapToLong(TimingLog::sequenceOf)
+                .max()
+                .orElse(0) + 1;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        System.out.println("Recovered timings from " + mDirectory);
+
+        mWriter = Thread
+            // The writer blocks on file I/O, so it gets its own
+            // platform thread.
+            .ofPlatform()
+            .daemon()
+            .name("TimingLog-writer")
+            .start(this::writeLoop);
+    }
+
+    /**
+     * Append a timing to the log without blocking.  The timing is
+     * dropped (and counted) if the writer has fallen too far behind.
+     *
+     * @param id The identifier of what was timed
+     * @param wallMillis The time the timing was received
+     * @param micros The elapsed time in microseconds
+     * @param firstElementMicros The time to the first element in
+     *                           microseconds, or -1 if none
+     * @param elementCount The number of elements emitted
+     */
+    public void append(String id,
+                       long wallMillis,
+                       long micros,
+                       long firstElementMicros,
+                       long elementCount) {
+        if (mWriter == null)
+            return;
+
+        if (mQueued.incrementAndGet() > mProperties.getCapacity()) {
+            mQueued.decrementAndGet();
+            mDropped.increment();
+            return;
+        }
+
+        mQueue.offer(new Record(id,
+                                wallMillis,
+                                micros,
+                                firstElementMicros,
+                                elementCount));
+    }
+
+    /**
+     * @return The number of records dropped because the writer fell
+     *         behind or their id was too long to store
+     */
+    public long getDroppedCount() {
+        return mDropped.sum();
+    }
+
+    /**
+     * @return The number of times writing, compacting, or closing
+     *         the log failed
+     */
+    public long getFailureCount() {
+        return mFailures.sum();
+    }
+
+    /**
+     * @return The number of files that couldn't be read and were
+     *         moved to the quarantine directory
+     */
+    public long getQuarantinedCount() {
+        return mQuarantined.sum();
+    }
+
+    /**
+     * Delete all logged timings.  The timings appended before this
+     * call are deleted and those appended after it are kept, since
+     * the writer thread deletes the files when it dequeues the
+     * request.  This method waits (for a bounded time) until the
+     * writer has done so, so a subsequent history query doesn't
+     * return the deleted timings.
+     */
+    public void clear() {
+        if (mWriter == null || mClosed)
+            return;
+
+        // The request is never dropped, even if the queue is full.
+        var clear = new Clear();
+        mQueued.incrementAndGet();
+        mQueue.offer(clear);
+        LockSupport.unpark(mWriter);
+
+        try {
+            if (!clear.done.await(CLEAR_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                System.out.println("TimingLog clear is still pending");
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Return the merged statistics of each identifier for all
+     * timings received between {@code fromMillis} (inclusive) and
+     * {@code toMillis} (exclusive).  Compacted timings are only
+     * resolved to the minute.
+     *
+     * @param fromMillis The start of the window
+     * @param toMillis The end of the window
+     * @return A {@link Map} of each identifier to its {@link
+     *         LatencyHistogram.Snapshot} ordered by identifier
+     */
+    public Map<String, LatencyHistogram.Snapshot> history(long fromMillis,
+                                                         long toMillis) {
+        Map<String, LatencyHistogram> results = new HashMap<>();
+
+        if (mDirectory != null) {
+            mFilesLock.readLock().lock();
+            try {
+                long fromMinute = fromMillis / 60_000;
+                long toMinute = (toMillis - 1) / 60_000;
+
+                for (var path : listSnapshots())
+                    try {
+                        readSnapshot(path, fromMinute, toMinute,
+                                     (id, minute, snapshot) -> results
+                                     .computeIfAbsent(id,
+                                                      __ -> new LatencyHistogram())
+                                     .add(snapshot));
+                    } catch (IOException | RuntimeException exception) {
+                        // Skip a snapshot that was damaged after
+                        // it was checked on startup.
+                        System.out.println("TimingLog skipped " + path
+                                           + ": " + exception);
+                    }
+
+                for (var path : list(SEGMENT_PREFIX, SEGMENT_SUFFIX))
+                    try {
+                        readSegment(path, record -> {
+                                if (record.wallMillis >= fromMillis
+                                    && record.wallMillis < toMillis)
+                                    results
+                                        .computeIfAbsent(record.id,
+                                                         __ -> new LatencyHistogram())
+                                        .record(record.micros);
+                            });
+                    } catch (IOException | RuntimeException exception) {
+                        // Skip a segment the writer is still creating
+                        // or that compaction will quarantine.
+                        System.out.println("TimingLog skipped " + path
+                                           + ": " + exception);
+                    }
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            } finally {
+                mFilesLock.readLock().unlock();
+            }
+        }
+
+        Map<String, LatencyHistogram.Snapshot> snapshots = new TreeMap<>();
+        results.forEach((id, histogram) ->
+                        snapshots.put(id, histogram.snapshot()));
+        return snapshots;
+    }
+
+    /**
+     * Stop the writer thread after it writes all queued records.
+     * Spring calls this method when the application context closes.
+     */
+    @Override
+    public void close() {
+        mClosed = true;
+
+        if (mWriter != null) {
+            LockSupport.unpark(mWriter);
+            try {
+                mWriter.join();
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * The body of the writer thread.
+     */
+    private void writeLoop() {
+        long flushNanos = mProperties.getFlushInterval().toNanos();
+        long compactionMillis = mProperties
+            .getCompactionInterval()
+            .toMillis();
+
+        // Compact any segments left over from an earlier run.
+        compact();
+
+        while (!mClosed || !mQueue.isEmpty()) {
+            try {
+                // Copy all queued records into the current segment.
+                for (Record record; (record = mQueue.poll()) != null; ) {
+                    mQueued.decrementAndGet();
+                    if (record instanceof Clear clear)
+                        truncate(clear);
+                    else
+                        write(record);
+                }
+                publish();
+
+                // Periodically seal and compact the current segment.
+                if (mSegment != null
+                    && System.currentTimeMillis() - mSegmentOpened
+                       >= compactionMillis) {
+                    seal();
+                    compact();
+                }
+            } catch (IOException | RuntimeException exception) {
+                mFailures.increment();
+                System.out.println("TimingLog write failed: " + exception);
+            }
+
+            if (mQueue.isEmpty() && !mClosed)
+                LockSupport.parkNanos(this, flushNanos);
+        }
+
+        try {
+            seal();
+        } catch (IOException exception) {
+            mFailures.increment();
+            System.out.println("TimingLog close failed: " + exception);
+        }
+    }
+
+    /**
+     * Copy {@code record} into the current segment, opening a new
+     * segment if there isn't one or it's full.
+     */
+    private void write(Record record) throws IOException {
+        byte[] id = record.id.getBytes(StandardCharsets.UTF_8);
+        if (id.length > Short.MAX_VALUE) {
+            // The length of the id is stored as a short.
+            mDropped.increment();
+            return;
+        }
+
+        if (mSegment != null
+            && mSegment.remaining() < RECORD_SIZE + id.length)
+            seal();
+
+        if (mSegment == null)
+            openSegment();
+
+        mSegment
+            .putShort((short) id.length)
+            .put(id)
+            .putLong(record.wallMillis)
+            .putLong(record.micros)
+            .putLong(record.firstElementMicros)
+            .putLong(record.elementCount);
+    }
+
+    /**
+     * Make the records written so far visible to readers by storing
+     * the offset past the last complete record in the header.
+     */
+    private void publish() {
+        if (mSegment != null)
+            mSegment.putInt(4, mSegment.position());
+    }
+
+    /**
+     * Open a new memory-mapped segment.
+     */
+    private void openSegment() throws IOException {
+        var path = mDirectory
+            .resolve(SEGMENT_PREFIX + mNextSequence++ + SEGMENT_SUFFIX);
+
+        try (var channel = FileChannel.open(path, CREATE_NEW, READ, WRITE)) {
+            // The mapping stays valid after the channel is closed.
+            mSegment = channel
+                .map(FileChannel.MapMode.READ_WRITE,
+                     0,
+                     mProperties.getSegmentSize().toBytes());
+        }
+
+        mSegment
+            .putInt(SEGMENT_MAGIC)
+            .putInt(HEADER_SIZE);
+        mSegmentPath = path;
+        mSegmentOpened = System.currentTimeMillis();
+    }
+
+    /**
+     * Flush the current segment to disk and close it so it can be
+     * compacted.
+     */
+    private void seal() throws IOException {
+        if (mSegment == null)
+            return;
+
+        publish();
+        mSegment.force();
+        mSegment = null;
+        mSegmentPath = null;
+    }
+
+    /**
+     * Delete the current segment and all other log files, and then
+     * release the thread waiting in {@link #clear()}.
+     */
+    private void truncate(Clear clear) throws IOException {
+        mFilesLock.writeLock().lock();
+        try {
+            // Drop the current segment so the next record opens a
+            // new one.
+            mSegment = null;
+            mSegmentPath = null;
+
+            for (var path : list(SEGMENT_PREFIX, SEGMENT_SUFFIX))
+                Files.deleteIfExists(path);
+            for (var path : listSnapshots())
+                Files.deleteIfExists(path);
+        } finally {
+            mFilesLock.writeLock().unlock();
+            clear.done.countDown();
+        }
+    }
+
+    /**
+     * Replace all sealed segments with a single snapshot file, roll
+     * up the snapshots of past hours and days, and delete snapshots
+     * older than the retention period.
+     */
+    private void compact() {
+        try {
+            var segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            segments.remove(mSegmentPath);
+
+            // Aggregate the records into per-minute histograms.
+            Map<String, Map<Long, LatencyHistogram>> minutes = new TreeMap<>();
+            for (var path : List.copyOf(segments))
+                try {
+                    readSegment(path, record -> minutes
+                                .computeIfAbsent(record.id, __ -> new TreeMap<>())
+                                .computeIfAbsent(record.wallMillis / 60_000,
+                                                 __ -> new LatencyHistogram())
+                                .record(record.micros));
+                } catch (IOException | RuntimeException exception) {
+                    quarantine(path, exception);
+                    segments.remove(path);
+                }
+
+            try (var snapshot = new SnapshotWriter(SNAPSHOT_PREFIX,
+                                                   segments)) {
+                for (var perId : minutes.entrySet())
+                    for (var perMinute : perId.getValue().entrySet())
+                        snapshot.write(perId.getKey(),
+                                       perMinute.getKey(),
+                                       perMinute.getValue().snapshot());
+                replace(segments, snapshot);
+            }
+
+            rollUp(SNAPSHOT_PREFIX, HOUR_PREFIX, 60);
+            rollUp(HOUR_PREFIX, DAY_PREFIX, 24 * 60);
+            deleteExpiredSnapshots();
+        } catch (IOException | RuntimeException exception) {
+            mFailures.increment();
+            System.out.println("TimingLog compaction failed: " + exception);
+        }
+    }
+
+    /**
+     * Merge the {@code from} snapshots whose minutes all precede the
+     * current period of {@code periodMinutes} into a single {@code
+     * to} snapshot.  The entries are copied as they're read, so
+     * rolling up takes little memory, and a minute split across
+     * several snapshots is merged by the readers as usual.
+     */
+    private void rollUp(String from,
+                        String to,
+                        long periodMinutes) throws IOException {
+        long periodStart = System.currentTimeMillis()
+            / 60_000 / periodMinutes * periodMinutes;
+
+        List<Path> inputs = new ArrayList<>();
+        for (var path : list(from, SNAPSHOT_SUFFIX))
+            try {
+                if (maxMinuteOf(path) < periodStart)
+                    inputs.add(path);
+            } catch (IOException exception) {
+                quarantine(path, exception);
+            }
+
+        if (inputs.isEmpty())
+            return;
+
+        try (var snapshot = new SnapshotWriter(to, inputs)) {
+            for (var path : inputs)
+                try {
+                    readSnapshot(path, Long.MIN_VALUE, Long.MAX_VALUE,
+                                 snapshot::write);
+                } catch (IOException | RuntimeException exception) {
+                    // Roll up the remaining inputs next time.
+                    quarantine(path, exception);
+                    return;
+                }
+            replace(inputs, snapshot);
+        }
+    }
+
+    /**
+     * Replace the {@code replaced} files with {@code snapshot} while
+     * holding the write lock, so history queries never see both or
+     * neither.  If the process dies after the snapshot is published
+     * but before all the {@code replaced} files are deleted, {@link
+     * #open} deletes the rest, since the snapshot lists them.
+     */
+    private void replace(List<Path> replaced,
+                         SnapshotWriter snapshot) throws IOException {
+        mFilesLock.writeLock().lock();
+        try {
+            if (!snapshot.isEmpty())
+                snapshot.publish();
+
+            for (var path : replaced)
+                Files.deleteIfExists(path);
+        } finally {
+            mFilesLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Delete the snapshots whose newest minute is older than the
+     * retention period.
+     */
+    private void deleteExpiredSnapshots() throws IOException {
+        long oldest = (System.currentTimeMillis()
+                       - mProperties.getRetention().toMillis()) / 60_000;
+
+        mFilesLock.writeLock().lock();
+        try {
+            for (var path : listSnapshots())
+                try {
+                    if (maxMinuteOf(path) < oldest)
+                        Files.deleteIfExists(path);
+                } catch (IOException exception) {
+                    quarantine(path, exception);
+                }
+        } finally {
+            mFilesLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return True if the snapshot at {@code path} can be read in
+     *         full, otherwise it's quarantined
+     */
+    private boolean isReadable(Path path) {
+        try {
+            readSnapshot(path, Long.MIN_VALUE, Long.MAX_VALUE,
+                         (id, minute, snapshot) -> {});
+            return true;
+        } catch (IOException | RuntimeException exception) {
+            quarantine(path, exception);
+            return false;
+        }
+    }
+
+    /**
+     * Move the file at {@code path}, which couldn't be read because
+     * of {@code cause}, to the quarantine directory so it can be
+     * examined but is no longer read.
+     */
+    private void quarantine(Path path, Exception cause) {
+        mQuarantined.increment();
+        System.out.println("TimingLog quarantined " + path + ": " + cause);
+
+        try {
+            var directory = Files
+                .createDirectories(mDirectory.resolve(QUARANTINE_DIRECTORY));
+            Files.move(path,
+                       directory.resolve(path.getFileName()),
+                       REPLACE_EXISTING);
+        } catch (IOException exception) {
+            mFailures.increment();
+            System.out.println("TimingLog quarantine failed: " + exception);
+        }
+    }
+
+    /**
+     * @return The newest minute in the snapshot at {@code path}
+     */
+    private static long maxMinuteOf(Path path) throws IOException {
+        try (var in = new DataInputStream(Files.newInputStream(path))) {
+            if (in.readInt() != SNAPSHOT_MAGIC)
+                throw new IOException("Not a snapshot: " + path);
+
+            in.readLong();
+            return in.readLong();
+        }
+    }
+
+    /**
+     * @return The sequence numbers of the files the snapshot at
+     *         {@code path} replaced
+     */
+    private static List<Long> replacedBy(Path path) throws IOException {
+        try (var in = new DataInputStream
+             (new BufferedInputStream(Files.newInputStream(path)))) {
+            in.skipNBytes(SNAPSHOT_HEADER_SIZE);
+            return readReplaced(in, path);
+        }
+    }
+
+    /**
+     * @return The sequence numbers of the replaced files, which
+     *         follow the header of the snapshot at {@code path}
+     */
+    private static List<Long> readReplaced(DataInputStream in,
+                                           Path path) throws IOException {
+        int count = in.readInt();
+        if (count < 0)
+            throw new IOException("Corrupt snapshot: " + path);
+
+        List<Long> replaced = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            replaced.add(in.readLong());
+        return replaced;
+    }
+
+    /**
+     * A listener for the entries of a snapshot file.
+     */
+    private interface SnapshotEntryConsumer {
+        void accept(String id,
+                    long minute,
+                    LatencyHistogram.Snapshot snapshot) throws IOException;
+    }
+
+    /**
+     * Pass each entry of the snapshot at {@code path} whose minute is
+     * between {@code fromMinute} and {@code toMinute} (inclusive) to
+     * {@code consumer}.
+     */
+    private static void readSnapshot(Path path,
+                                     long fromMinute,
+                                     long toMinute,
+                                     SnapshotEntryConsumer consumer)
+        throws IOException {
+        try (var in = new DataInputStream
+             (new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC)
+                throw new IOException("Not a snapshot: " + path);
+
+            long minMinute = in.readLong();
+            long maxMinute = in.readLong();
+            int entries = in.readInt();
+            if (maxMinute < fromMinute || minMinute > toMinute)
+                return;
+
+            readReplaced(in, path);
+            for (; entries > 0; entries--) {
+                var id = in.readUTF();
+                long minute = in.readLong();
+                var snapshot = LatencyHistogram.Snapshot.readFrom(in);
+                if (minute >= fromMinute && minute <= toMinute)
+                    consumer.accept(id, minute, snapshot);
+            }
+        } catch (NoSuchFileException exception) {
+            // The snapshot expired after it was listed.
+        }
+    }
+
+    /**
+     * Pass each complete {@link Record} in the segment at {@code
+     * path} to {@code consumer}.
+     *
+     * @throws IOException If the file is too short or doesn't start
+     *                     with the segment magic number
+     */
+    private static void readSegment(Path path,
+                                    Consumer<Record> consumer)
+        throws IOException {
+        ByteBuffer segment;
+        try (var channel = FileChannel.open(path, READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY,
+                                  0,
+                                  channel.size());
+        } catch (NoSuchFileException exception) {
+            // The segment was compacted after it was listed.
+            return;
+        }
+
+        if (segment.limit() < HEADER_SIZE
+            || segment.getInt(0) != SEGMENT_MAGIC)
+            throw new IOException("Not a segment: " + path);
+
+        // Ignore anything past the last published record.
+        segment
+            .limit(Math.max(HEADER_SIZE,
+                            Math.min(segment.limit(), segment.getInt(4))))
+            .position(HEADER_SIZE);
+
+        while (segment.remaining() >= RECORD_SIZE) {
+            int length = segment.getShort();
+            if (length < 0
+                || segment.remaining() < length + RECORD_SIZE - 2)
+                break;
+
+            var id = new byte[length];
+            segment.get(id);
+            consumer.accept(new Record(new String(id, StandardCharsets.UTF_8),
+                                       segment.getLong(),
+                                       segment.getLong(),
+                                       segment.getLong(),
+                                       segment.getLong()));
+        }
+    }
+
+    /**
+     * @return The files in the log directory with the given {@code
+     *         prefix} and {@code suffix} ordered by sequence number
+     */
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (var files = Files.list(mDirectory)) {
+            return files
+                // Only keep the matching files.
+                .filter(path -> {
+                        var name = path.getFileName().toString();
+                        return name.startsWith(prefix)
+                            && name.endsWith(suffix);
+                    })
+
+                // Order the files by sequence number.
+                .sorted((a, b) -> Long.compare(sequenceOf(a),
+                                               sequenceOf(b)))
+
+                // Collect the results into a mutable List.
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * @return All snapshot files ordered by sequence number
+     */
+    private List<Path> listSnapshots() throws IOException {
+        List<Path> snapshots = new ArrayList<>();
+        for (var prefix : SNAPSHOT_PREFIXES)
+            snapshots.addAll(list(prefix, SNAPSHOT_SUFFIX));
+
+        snapshots.sort((a, b) -> Long.compare(sequenceOf(a), sequenceOf(b)));
+        return snapshots;
+    }
+
+    /**
+     * @return The sequence number in the name of the file at {@code
+     *         path}
+     */
+    private static long sequenceOf(Path path) {
+        var name = path.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1,
+                                             name.indexOf('.')));
+    }
+
+    /**
+     * A raw timing as stored in a segment.
+     */
+    public static class Record {
+        /**
+         * The identifier of what was timed.
+         */
+        public final String id;
+
+        /**
+         * The time the timing was received in milliseconds.
+         */
+        public final long wallMillis;
+
+        /**
+         * The elapsed time in microseconds.
+         */
+        public final long micros;
+
+        /**
+         * The time to the first element in microseconds, or -1.
+         */
+        public final long firstElementMicros;
+
+        /**
+         * The number of elements emitted.
+         */
+        public final long elementCount;
+
+        /**
+         * Constructor initializes the fields.
+         */
+        Record(String id,
+               long wallMillis,
+               long micros,
+               long firstElementMicros,
+               long elementCount) {
+            this.id = id;
+            this.wallMillis = wallMillis;
+            this.micros = micros;
+            this.firstElementMicros = firstElementMicros;
+            this.elementCount = elementCount;
+        }
+    }
+
+    /**
+     * A request to delete all logged timings, which is queued like a
+     * {@link Record} so it's ordered with respect to them.
+     */
+    private static class Clear
+                   extends Record {
+        /**
+         * Released when the timings have been deleted.
+         */
+        final CountDownLatch done = new CountDownLatch(1);
+
+        /**
+         * Constructor initializes the superclass.
+         */
+        Clear() {
+            super("", 0, 0, -1, 0);
+        }
+    }
+
+    /**
+     * This class writes a snapshot file to a temporary file and then
+     * atomically renames it, so only complete snapshots ever become
+     * visible.  The header is filled in last, once the oldest and
+     * newest minutes and the number of entries are known.  It's
+     * followed by the sequence numbers of the files the snapshot
+     * replaces and then the entries (writer thread only).
+     */
+    private class SnapshotWriter
+            implements AutoCloseable {
+        /**
+         * The path of the published snapshot.
+         */
+        private final Path mPath;
+
+        /**
+         * The path of the temporary file.
+         */
+        private final Path mTemp;
+
+        /**
+         * The stream that writes the temporary file.
+         */
+        private final DataOutputStream mOut;
+
+        /**
+         * The oldest and newest minutes written so far.
+         */
+        private long mMinMinute = Long.MAX_VALUE;
+        private long mMaxMinute = Long.MIN_VALUE;
+
+        /**
+         * The number of entries written so far.
+         */
+        private int mEntries;
+
+        /**
+         * Constructor creates the temporary file of a snapshot whose
+         * name starts with {@code prefix} and that replaces the
+         * {@code replaced} files.
+         */
+        SnapshotWriter(String prefix,
+                       List<Path> replaced) throws IOException {
+            var name = prefix + mNextSequence++ + SNAPSHOT_SUFFIX;
+            mPath = mDirectory.resolve(name);
+            mTemp = mDirectory.resolve(name + TEMP_SUFFIX);
+            mOut = new DataOutputStream
+                (new BufferedOutputStream(Files.newOutputStream(mTemp)));
+
+            // Leave room for the header.
+            mOut.write(new byte[SNAPSHOT_HEADER_SIZE]);
+
+            mOut.writeInt(replaced.size());
+            for (var path : replaced)
+                mOut.writeLong(sequenceOf(path));
+        }
+
+        /**
+         * Append an entry to the snapshot.
+         */
+        void write(String id,
+                   long minute,
+                   LatencyHistogram.Snapshot snapshot) throws IOException {
+            mOut.writeUTF(id);
+            mOut.writeLong(minute);
+            snapshot.writeTo(mOut);
+
+            mMinMinute = Math.min(mMinMinute, minute);
+            mMaxMinute = Math.max(mMaxMinute, minute);
+            mEntries++;
+        }
+
+        /**
+         * @return True if no entries were written
+         */
+        boolean isEmpty() {
+            return mEntries == 0;
+        }
+
+        /**
+         * Write the header and atomically make the snapshot visible.
+         */
+        void publish() throws IOException {
+            mOut.close();
+
+            try (var channel = FileChannel.open(mTemp, WRITE)) {
+                channel.write(ByteBuffer
+                              .allocate(SNAPSHOT_HEADER_SIZE)
+                              .putInt(SNAPSHOT_MAGIC)
+                              .putLong(mMinMinute)
+                              .putLong(mMaxMinute)
+                              .putInt(mEntries)
+                              .flip(),
+                              0);
+                channel.force(true);
+            }
+
+            Files.move(mTemp, mPath, ATOMIC_MOVE);
+        }
+
+        /**
+         * Delete the temporary file unless it was published.
+         */
+        @Override
+        public void close() throws IOException {
+            mOut.close();
+            Files.deleteIfExists(mTemp);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package edu.vandy.recommender.timer.server;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * This class contains the "app.timer.log" properties that configure
+ * the durable {@link TimingLog}.
+ */
+@Component
+@ConfigurationProperties("app.timer.log")
+public class TimingLogProperties {
+    /**
+     * True if timings should be logged and recovered on startup.
+     */
+    private boolean enabled = false;
+
+    /**
+     * The directory containing the segment and snapshot files.
+     */
+    private String directory = "timer-log";
+
+    /**
+     * The size of each memory-mapped segment file.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(8);
+
+    /**
+     * How often the current segment is sealed and compacted.
+     */
+    private Duration compactionInterval = Duration.ofMinutes(1);
+
+    /**
+     * How often the writer thread checks for new timings when idle.
+     */
+    private Duration flushInterval = Duration.ofMillis(100);
+
+    /**
+     * The maximum number of timings waiting to be written before
+     * new timings are dropped.
+     */
+    private int capacity = 65_536;
+
+    /**
+     * How long compacted snapshots are kept.
+     */
+    private Duration retention = Duration.ofDays(7);
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public DataSize getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(DataSize segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public Duration getCompactionInterval() {
+        return compactionInterval;
+    }
+
+    public void setCompactionInterval(Duration compactionInterval) {
+        this.compactionInterval = compactionInterval;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+}
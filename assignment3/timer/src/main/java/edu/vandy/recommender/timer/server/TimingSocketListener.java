@@ -0,0 +1,267 @@
+package edu.vandy.recommender.timer.server;
+
+import edu.vandy.recommender.common.SocketTimingTransport;
+import edu.vandy.recommender.common.TimerBatchCodec;
+import edu.vandy.recommender.common.autoconfigure.RunTimerProperties;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class lets services on the same host report timings to the
+ * {@link TimerService} without HTTP by listening on a Unix domain
+ * socket ("app.timer.socket-path") and/or a loopback UDP port
+ * ("app.timer.udp-port").  Both carry {@link TimerBatchCodec}
+ * batches written by a {@link SocketTimingTransport}: a Unix domain
+ * socket carries length-prefixed frames and each UDP datagram holds
+ * one batch.
+ *
+ * Each connection is served by its own Java virtual thread.
+ */
+@Component
+public class TimingSocketListener
+       implements AutoCloseable {
+    /**
+     * The largest frame accepted from a Unix domain socket.
+     */
+    private static final int MAX_FRAME = 16 * 1024 * 1024;
+
+    /**
+     * The service that records the timings.
+     */
+    @Autowired
+    private TimerService mService;
+
+    /**
+     * The properties shared with the {@code RunTimer} clients.
+     */
+    @Autowired
+    private RunTimerProperties mProperties;
+
+    /**
+     * The number of malformed batches that were discarded.
+     */
+    private final LongAdder mMalformed = new LongAdder();
+
+    /**
+     * The open channels, which are closed on shutdown.
+     */
+    private final List<Channel> mChannels =
+        new ArrayList<>();
+
+    /**
+     * The Unix domain socket file, which is deleted on shutdown.
+     */
+    private Path mSocketPath;
+
+    /**
+     * Start listening if a socket path or UDP port is configured.
+     */
+    @PostConstruct
+    void start() throws IOException {
+        var socketPath = mProperties.getSocketPath();
+        if (socketPath != null && !socketPath.isBlank())
+            listenUnixDomain(Path.of(socketPath));
+
+        if (mProperties.getUdpPort() > 0)
+            listenUdp(mProperties.getUdpPort());
+    }
+
+    /**
+     * @return The number of malformed batches that were discarded
+     */
+    public long getMalformedCount() {
+        return mMalformed.sum();
+    }
+
+    /**
+     * Stop listening.  Spring calls this method when the application
+     * context closes.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        for (var channel : mChannels)
+            channel.close();
+        mChannels.clear();
+
+        if (mSocketPath != null)
+            Files.deleteIfExists(mSocketPath);
+    }
+
+    /**
+     * @return True if a process accepts connections on the Unix
+     *         domain socket at {@code path}
+     */
+    private static boolean isListening(Path path) {
+        if (!Files.exists(path))
+            return false;
+
+        try (var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+            return channel.connect(UnixDomainSocketAddress.of(path));
+        } catch (IOException exception) {
+            // The socket is stale.
+            return false;
+        }
+    }
+
+    /**
+     * Accept connections on the Unix domain socket at {@code path}.
+     */
+    private void listenUnixDomain(Path path) throws IOException {
+        // Leave the socket of another timer service alone, in which
+        // case timings are only accepted via HTTP.
+        if (isListening(path)) {
+            System.out.println("Another timer service is listening on "
+                               + path);
+            return;
+        }
+
+        // Remove the socket file left behind by an earlier run.
+        Files.deleteIfExists(path);
+
+        var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(path));
+        register(server);
+        mSocketPath = path;
+
+        System.out.println("Listening for timings on " + path);
+
+        Thread
+            .ofVirtual()
+            .name("TimingSocketListener-accept")
+            .start(() -> {
+                    try {
+                        for (;;) {
+                            var client = server.accept();
+                            register(client);
+                            Thread
+                                .ofVirtual()
+                                .start(() -> readFrames(client));
+                        }
+                    } catch (ClosedChannelException exception) {
+                        // The listener was closed.
+                    } catch (IOException exception) {
+                        System.out.println("Timing socket failed: "
+                                           + exception);
+                    }
+                });
+    }
+
+    /**
+     * Record each length-prefixed batch sent by {@code client} until
+     * it disconnects.
+     */
+    private void readFrames(SocketChannel client) {
+        try (client) {
+            var length = ByteBuffer.allocate(Integer.BYTES);
+            for (;;) {
+                readFully(client, length.clear());
+                int size = length.flip().getInt();
+                if (size < 0 || size > MAX_FRAME) {
+                    // The stream is out of sync, so give up on it.
+                    mMalformed.increment();
+                    return;
+                }
+
+                var frame = ByteBuffer.allocate(size);
+                readFully(client, frame);
+                record(frame.array());
+            }
+        } catch (EOFException | ClosedChannelException exception) {
+            // The client disconnected or the listener was closed.
+        } catch (IOException exception) {
+            System.out.println("Timing connection failed: " + exception);
+        } finally {
+            unregister(client);
+        }
+    }
+
+    /**
+     * Receive batches on the loopback UDP {@code port}.
+     */
+    private void listenUdp(int port) throws IOException {
+        var channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                                           port));
+        register(channel);
+
+        System.out.println("Listening for timings on UDP port " + port);
+
+        Thread
+            .ofVirtual()
+            .name("TimingSocketListener-udp")
+            .start(() -> {
+                    var datagram = ByteBuffer
+                        .allocate(SocketTimingTransport.MAX_DATAGRAM);
+                    try {
+                        for (;;) {
+                            channel.receive(datagram.clear());
+                            datagram.flip();
+                            record(Arrays.copyOf(datagram.array(),
+                                                 datagram.limit()));
+                        }
+                    } catch (ClosedChannelException exception) {
+                        // The listener was closed.
+                    } catch (IOException exception) {
+                        System.out.println("Timing datagram socket failed: "
+                                           + exception);
+                    }
+                });
+    }
+
+    /**
+     * Decode {@code batch} and forward it to the {@link
+     * TimerService}.
+     */
+    private void record(byte[] batch) {
+        try {
+            mService.addTimers(TimerBatchCodec.decode(batch));
+        } catch (IllegalArgumentException exception) {
+            mMalformed.increment();
+        }
+    }
+
+    /**
+     * Fill {@code buffer} from {@code channel}.
+     */
+    private static void readFully(ReadableByteChannel channel,
+                                  ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0)
+                throw new EOFException();
+    }
+
+    /**
+     * Remember {@code channel} so it's closed on shutdown.
+     */
+    private synchronized void register(Channel channel) {
+        mChannels.add(channel);
+    }
+
+    /**
+     * Forget {@code channel} after it has been closed.
+     */
+    private synchronized void unregister(Channel channel) {
+        mChannels.remove(channel);
+    }
+}
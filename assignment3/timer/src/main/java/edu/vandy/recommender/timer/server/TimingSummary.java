@@ -0,0 +1,60 @@
+package edu.vandy.recommender.timer.server;
+
+/**
+ * This Data Transfer Object (DTO) summarizes the timings of one
+ * identifier over one recent window.  It's pushed to subscribers of
+ * the {@code Constants.EndPoint.STREAM_TIMINGS} endpoint.  All
+ * latencies are in milliseconds.
+ */
+public class TimingSummary {
+    /**
+     * The identifier whose timings are summarized.
+     */
+    public String id;
+
+    /**
+     * The length of the window, e.g., "10s" or "1m".
+     */
+    public String window;
+
+    /**
+     * The number of timings recorded within the window.
+     */
+    public long count;
+
+    /**
+     * The number of timings recorded per second within the window.
+     */
+    public double throughput;
+
+    /**
+     * The mean latency.
+     */
+    public double mean;
+
+    /**
+     * The median latency.
+     */
+    public double p50;
+
+    /**
+     * The 90th percentile latency.
+     */
+    public double p90;
+
+    /**
+     * The 99th percentile latency.
+     */
+    public double p99;
+
+    /**
+     * The maximum latency.
+     */
+    public double max;
+
+    /**
+     * A default constructor is needed for encoding/decoding.
+     */
+    public TimingSummary() {
+    }
+}
@@ -0,0 +1,164 @@
+package edu.vandy.recommender.timer.server;
+
+import edu.vandy.recommender.common.LatencyHistogram;
+import edu.vandy.recommender.common.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This class aggregates the spans of traced requests sent by the
+ * microservices, i.e., {@link Timer} objects whose {@code stage} is
+ * set, into one {@link LatencyHistogram} per request type and stage.
+ * It shows where the time of each type of request is spent (e.g., in
+ * the database "load" stage or the recommender "score" stage) without
+ * needing an external tracing backend.  The bytes allocated per call
+ * are aggregated per endpoint by the {@link TimerService} instead.
+ *
+ * The request type comes from the "tracestate" header of the request
+ * that started the trace, so the number of request types is capped
+ * and the spans of any further types are aggregated as {@code
+ * OTHER}.
+ */
+@Component
+public class TraceCollector {
+    /**
+     * The suffix of the stage that covers a whole request within one
+     * microservice.
+     */
+    private static final String REQUEST = ":request";
+
+    /**
+     * The maximum number of request types that are kept apart.
+     */
+    static final int MAX_REQUEST_TYPES = 256;
+
+    /**
+     * The request type of the spans of all further types.
+     */
+    static final String OTHER = "other";
+
+    /**
+     * Associates each request type with the elapsed times of its
+     * stages in microseconds.
+     */
+    private final Map<String, Map<String, LatencyHistogram>> mRequestTypes =
+        new ConcurrentHashMap<>();
+
+    /**
+     * Record a span.
+     *
+     * @param span A {@link Timer} whose {@code id} is the request type
+     *             and whose {@code stage} is set
+     */
+    public void add(Timer span) {
+        var requestType = requestTypeOf(span);
+
+        mRequestTypes
+            // Atomically find or create the stages of this type.
+            .computeIfAbsent(requestType, __ -> new ConcurrentHashMap<>())
+
+            // Atomically find or create the histogram of this stage.
+            .computeIfAbsent(span.stage, __ -> new LatencyHistogram())
+
+            // Record the elapsed time in microseconds.
+            .record((span.stopTime - span.startTime) / 1_000);
+    }
+
+    /**
+     * @return The request type {@code span} is aggregated under,
+     *         which is {@link #OTHER} once {@link #MAX_REQUEST_TYPES}
+     *         are known (concurrent spans may exceed the cap slightly)
+     */
+    private String requestTypeOf(Timer span) {
+        return mRequestTypes.containsKey(span.id)
+            || mRequestTypes.size() < MAX_REQUEST_TYPES
+            ? span.id
+            : OTHER;
+    }
+
+    /**
+     * Return the elapsed times of the stages of each request type
+     * ordered from slowest to fastest.  Each stage's share is its
+     * mean relative to the mean of the outermost "request" stage,
+     * i.e., the first microservice the request reached.
+     *
+     * @return A {@link String} containing the breakdown of each
+     *         request type
+     */
+    public String getBreakdown() {
+        if (mRequestTypes.isEmpty()) {
+            return "No traces have been recorded.";
+        }
+
+        StringBuilder stringBuffer =
+            new StringBuilder();
+
+        new TreeMap<>(mRequestTypes)
+            .forEach((requestType, stages) -> {
+                    // Snapshot each stage once.
+                    Map<String, LatencyHistogram.Snapshot> snapshots =
+                        new TreeMap<>();
+                    stages.forEach((stage, histogram) -> snapshots
+                                   .put(stage, histogram.snapshot()));
+
+                    // The outermost request is the slowest one.
+                    double total = snapshots
+                        .entrySet()
+                        .stream()
+                        .filter(entry -> entry.getKey().endsWith(REQUEST))
+                        .mapToDouble(entry -> entry.getValue().mean())
+                        .max()
+                        .orElse(0.0);
+
+                    stringBuffer
+                        .append("\n")
+                        .append(requestType)
+                        .append("\n");
+
+                    snapshots
+                        .entrySet()
+                        .stream()
+
+                        // Order stages from slowest to fastest.
+                        .sorted(Comparator
+                                .comparingDouble((Map.Entry<String, LatencyHistogram.Snapshot> entry)
+                                                 -> entry.getValue().mean())
+                                .reversed())
+
+                        // Append the statistics of each stage.
+                        .forEach(entry -> {
+                                var snapshot = entry.getValue();
+                                stringBuffer
+                                    .append(String
+                                            .format("  %-32s %8d span(s) mean %10.3f [p50 %.3f, p99 %.3f, max %.3f] msecs",
+                                                    entry.getKey(),
+                                                    snapshot.count(),
+                                                    snapshot.mean() / 1_000.0,
+                                                    snapshot.percentile(50.0) / 1_000.0,
+                                                    snapshot.percentile(99.0) / 1_000.0,
+                                                    snapshot.max() / 1_000.0));
+                                if (total > 0)
+                                    stringBuffer
+                                        .append(String
+                                                .format(" %5.1f%%",
+                                                        100.0 * snapshot.mean()
+                                                        / total));
+
+                                stringBuffer.append("\n");
+                            });
+                });
+
+        return stringBuffer.toString();
+    }
+
+    /**
+     * Clears all previously recorded spans.
+     */
+    public void clear() {
+        mRequestTypes.clear();
+    }
+}
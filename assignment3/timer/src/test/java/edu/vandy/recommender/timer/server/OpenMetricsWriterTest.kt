@@ -0,0 +1,86 @@
+package edu.vandy.recommender.timer.server
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import test.admin.AssignmentTests
+import java.io.StringWriter
+import java.nio.file.Path
+
+class OpenMetricsWriterTest : AssignmentTests() {
+    @TempDir
+    lateinit var dir: Path
+
+    private fun render(timings: Map<String, TimerService.Timing>,
+                       log: TimingLog = TimingLog(TimingLogProperties())) =
+        StringWriter().also { OpenMetricsWriter(it).write(timings, log) }
+            .toString()
+
+    private fun timing(vararg micros: Long) = TimerService.Timing().apply {
+        val now = System.currentTimeMillis()
+        micros.forEach { record(it, -1, 0, now) }
+    }
+
+    @Test
+    fun `latencies are rendered as a cumulative histogram in seconds`() {
+        val text = render(mapOf("search" to timing(500, 2_000, 2_000_000)))
+        val labels = "endpoint=\"search\""
+
+        assertThat(text).contains(
+            "# TYPE timer_latency_seconds histogram\n",
+            "timer_latency_seconds_bucket{$labels,le=\"0.001\"} 1\n",
+            "timer_latency_seconds_bucket{$labels,le=\"0.0025\"} 2\n",
+            "timer_latency_seconds_bucket{$labels,le=\"1.0\"} 2\n",
+            "timer_latency_seconds_bucket{$labels,le=\"+Inf\"} 3\n",
+            "timer_latency_seconds_count{$labels} 3\n"
+        )
+        assertThat(text).endsWith("# EOF\n")
+    }
+
+    @Test
+    fun `windows are rendered for each identifier`() {
+        val text = render(mapOf("a" to timing(1_000, 1_000, 1_000)))
+
+        assertThat(text).contains(
+            "timer_window_rate{endpoint=\"a\",window=\"1m\"} 0.05\n",
+            "timer_window_rate{endpoint=\"a\",window=\"5m\"} ",
+            "timer_window_rate{endpoint=\"a\",window=\"15m\"} ",
+            "timer_window_latency_seconds{endpoint=\"a\",window=\"1m\",percentile=\"99.0\"} "
+        )
+    }
+
+    @Test
+    fun `empty windows have no percentiles`() {
+        val text = render(mapOf("a" to TimerService.Timing()))
+
+        assertThat(text).contains("timer_window_rate{endpoint=\"a\",window=\"1m\"} 0.0\n")
+        assertThat(text).doesNotContain("percentile=")
+    }
+
+    @Test
+    fun `label values are escaped`() {
+        val text = render(mapOf("a\"b\\c\nd" to timing(1)))
+
+        assertThat(text).contains("timer_latency_seconds_count{endpoint=\"a\\\"b\\\\c\\nd\"} 1\n")
+    }
+
+    @Test
+    fun `log counters include ids too long to store`() {
+        val log = TimingLog(TimingLogProperties().apply {
+            isEnabled = true
+            directory = dir.toString()
+        })
+        log.open({ _, _ -> }, { })
+        log.append("x".repeat(Short.MAX_VALUE + 1), 0, 1, -1, 0)
+        log.close()
+
+        val text = render(emptyMap(), log)
+
+        assertThat(text).contains(
+            "# TYPE timer_log_dropped counter\n",
+            "timer_log_dropped_total 1\n",
+            "timer_log_failures_total 0\n",
+            "timer_log_quarantined_total 0\n"
+        )
+    }
+}
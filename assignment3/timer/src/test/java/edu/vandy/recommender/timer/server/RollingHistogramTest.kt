@@ -0,0 +1,87 @@
+package edu.vandy.recommender.timer.server
+
+import org.assertj.core.api.Assertions.assertThat
+import org.assertj.core.api.Assertions.assertThatThrownBy
+import org.junit.jupiter.api.Test
+import test.admin.AssignmentTests
+import java.time.Duration
+
+class RollingHistogramTest : AssignmentTests() {
+    /**
+     * The start of an arbitrary minute.
+     */
+    private val start = 60_000L * 28_000_000
+
+    private fun seconds(n: Long) = start + n * 1_000
+
+    @Test
+    fun `windows only merge the values recorded within them`() {
+        val h = RollingHistogram()
+        h.record(100, seconds(0))
+        h.record(200, seconds(1))
+        h.record(300, seconds(30))
+
+        val minute = h.snapshot(Duration.ofMinutes(1), seconds(30))
+        assertThat(minute.snapshot().count()).isEqualTo(3)
+        assertThat(minute.seconds()).isEqualTo(60)
+
+        val tenSeconds = h.snapshot(Duration.ofSeconds(10), seconds(30))
+        assertThat(tenSeconds.snapshot().count()).isEqualTo(1)
+        assertThat(tenSeconds.snapshot().sum()).isEqualTo(300)
+    }
+
+    @Test
+    fun `longer windows use the minute slots`() {
+        val h = RollingHistogram()
+        h.record(100, seconds(0))
+        h.record(200, seconds(90))
+
+        // The 1-second slots no longer hold the first value.
+        assertThat(h.snapshot(Duration.ofMinutes(1), seconds(120))
+                       .snapshot().count()).isEqualTo(1)
+
+        val window = h.snapshot(Duration.ofMinutes(5), seconds(150))
+        assertThat(window.snapshot().count()).isEqualTo(2)
+        assertThat(window.seconds()).isEqualTo(4 * 60 + 30 + 1)
+
+        assertThat(h.snapshot(Duration.ofMinutes(15), seconds(15 * 60))
+                       .snapshot().count()).isEqualTo(1)
+        assertThat(h.snapshot(Duration.ofMinutes(15), seconds(16 * 60))
+                       .snapshot().count()).isEqualTo(0)
+    }
+
+    @Test
+    fun `throughput is per second of the window`() {
+        val h = RollingHistogram()
+        for (s in 0L until 60)
+            repeat(2) { h.record(100, seconds(s)) }
+
+        assertThat(h.snapshot(Duration.ofMinutes(1), seconds(59)).throughput())
+            .isEqualTo(2.0)
+    }
+
+    @Test
+    fun `values older than their slot are discarded`() {
+        val h = RollingHistogram()
+        h.record(100, seconds(60))
+
+        // Second 0 maps to the same slot as second 60.
+        h.record(200, seconds(0))
+
+        val window = h.snapshot(Duration.ofSeconds(1), seconds(60))
+        assertThat(window.snapshot().count()).isEqualTo(1)
+        assertThat(window.snapshot().sum()).isEqualTo(100)
+    }
+
+    @Test
+    fun `windows must be positive and at most 15 minutes`() {
+        assertThat(RollingHistogram.checkWindow(RollingHistogram.MAX_WINDOW))
+            .isEqualTo(Duration.ofMinutes(15))
+
+        for (window in listOf(Duration.ZERO,
+                              Duration.ofSeconds(-1),
+                              Duration.ofMinutes(16)))
+            assertThatThrownBy { RollingHistogram().snapshot(window, start) }
+                .isInstanceOf(IllegalArgumentException::class.java)
+    }
+}
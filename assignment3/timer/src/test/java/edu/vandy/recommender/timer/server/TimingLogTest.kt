@@ -0,0 +1,127 @@
+package edu.vandy.recommender.timer.server
+
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import org.springframework.util.unit.DataSize
+import test.admin.AssignmentTests
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+
+class TimingLogTest : AssignmentTests() {
+    @TempDir
+    lateinit var dir: Path
+
+    private val now = System.currentTimeMillis()
+
+    private fun log() = TimingLog(TimingLogProperties().apply {
+        isEnabled = true
+        directory = dir.toString()
+        segmentSize = DataSize.ofKilobytes(64)
+        flushInterval = Duration.ofMillis(10)
+        compactionInterval = Duration.ofHours(1)
+    })
+
+    /**
+     * Open a [TimingLog], append [count] timings of "a" received at
+     * [wallMillis], and close it again.
+     *
+     * @return The number of timings recovered when it was opened
+     */
+    private fun run(count: Int = 0, wallMillis: Long = now): Long {
+        var recovered = 0L
+        val log = log()
+        log.open({ _, snapshot -> recovered += snapshot.count() },
+                 { recovered++ })
+        repeat(count) { log.append("a", wallMillis, 100L + it, -1, 0) }
+        log.close()
+        return recovered
+    }
+
+    private fun files(glob: String) =
+        Files.newDirectoryStream(dir, glob).use { it.toList() }
+
+    @Test
+    fun `timings are recovered after a restart`() {
+        assertThat(run(3)).isEqualTo(0)
+
+        val log = log()
+        var records = 0
+        log.open({ _, _ -> }, { record ->
+            assertThat(record.id).isEqualTo("a")
+            records++
+        })
+        log.close()
+
+        assertThat(records).isEqualTo(3)
+        assertThat(log.history(now, now + 1)["a"]!!.count()).isEqualTo(3)
+    }
+
+    @Test
+    fun `compaction keeps the counts`() {
+        // Timings from two days ago are rolled up into a day file.
+        run(5, now - Duration.ofDays(2).toMillis())
+
+        // The writer compacts the segment when it starts.
+        assertThat(run()).isEqualTo(5)
+        assertThat(files("segment-*.log")).isEmpty()
+        assertThat(files("day-*.bin")).hasSize(1)
+
+        val log = log()
+        log.open({ _, _ -> }, { })
+        log.close()
+        assertThat(log.history(0, Long.MAX_VALUE)["a"]!!.count())
+            .isEqualTo(5)
+    }
+
+    @Test
+    fun `corrupt and truncated files are quarantined`() {
+        Files.write(dir.resolve("segment-1.log"), ByteArray(64) { 7 })
+        Files.write(dir.resolve("segment-2.log"), ByteArray(3))
+        Files.write(dir.resolve("snapshot-3.bin"), ByteArray(64) { 7 })
+
+        val log = log()
+        log.open({ _, _ -> }, { })
+        log.close()
+
+        assertThat(log.quarantinedCount).isEqualTo(3)
+        assertThat(files("*.log") + files("*.bin")).isEmpty()
+        assertThat(Files.list(dir.resolve("corrupt")).use { it.count() })
+            .isEqualTo(3)
+
+        // The log still works after the recovery.
+        run(2)
+        assertThat(run()).isEqualTo(2)
+    }
+
+    @Test
+    fun `a crash between publishing a snapshot and deleting its inputs is recovered`() {
+        run(3)
+        val segment = files("segment-*.log").single()
+        val bytes = Files.readAllBytes(segment)
+
+        // Compact the segment, then put it back as if the process
+        // died before deleting it, and leave an unpublished snapshot.
+        assertThat(run()).isEqualTo(3)
+        Files.write(segment, bytes)
+        Files.write(dir.resolve("snapshot-99.bin.tmp"), ByteArray(16))
+
+        assertThat(run()).isEqualTo(3)
+        assertThat(segment).doesNotExist()
+        assertThat(dir.resolve("snapshot-99.bin.tmp")).doesNotExist()
+        assertThat(run()).isEqualTo(3)
+    }
+
+    @Test
+    fun `ids too long to store are dropped and counted`() {
+        val log = log()
+        log.open({ _, _ -> }, { })
+        log.append("x".repeat(Short.MAX_VALUE + 1), now, 1, -1, 0)
+        log.append("a", now, 1, -1, 0)
+        log.close()
+
+        assertThat(log.droppedCount).isEqualTo(1)
+        assertThat(run()).isEqualTo(1)
+    }
+}
@@ -0,0 +1,161 @@
+package edu.vandy.recommender.timer.server
+
+import edu.vandy.recommender.common.SocketTimingTransport
+import edu.vandy.recommender.common.Timer
+import edu.vandy.recommender.common.TimerBatchCodec
+import edu.vandy.recommender.common.autoconfigure.RunTimerProperties
+import org.assertj.core.api.Assertions.assertThat
+import org.junit.jupiter.api.AfterEach
+import org.junit.jupiter.api.Test
+import org.junit.jupiter.api.io.TempDir
+import test.admin.AssignmentTests
+import test.admin.injectInto
+import java.net.DatagramSocket
+import java.net.InetAddress
+import java.net.InetSocketAddress
+import java.net.StandardProtocolFamily
+import java.net.UnixDomainSocketAddress
+import java.nio.ByteBuffer
+import java.nio.channels.DatagramChannel
+import java.nio.channels.SocketChannel
+import java.nio.file.Files
+import java.nio.file.Path
+import java.util.concurrent.LinkedBlockingQueue
+import java.util.concurrent.TimeUnit
+
+class TimingSocketListenerTest : AssignmentTests() {
+    @TempDir
+    lateinit var dir: Path
+
+    /**
+     * A [TimerService] that just keeps the batches it's given.
+     */
+    class Recorder : TimerService() {
+        val batches = LinkedBlockingQueue<List<Timer>>()
+
+        override fun addTimers(timers: List<Timer>) =
+            timers.size.also { batches.add(timers) }
+    }
+
+    private val service = Recorder()
+
+    private val listeners = mutableListOf<TimingSocketListener>()
+
+    private val batch = TimerBatchCodec.encode(listOf(Timer("a").apply {
+        startTime = 100
+        stopTime = 250
+    }))
+
+    private fun listener(configure: RunTimerProperties.() -> Unit) =
+        TimingSocketListener().also {
+            (service as TimerService).injectInto(it)
+            RunTimerProperties().apply(configure).injectInto(it)
+            it.start()
+            listeners += it
+        }
+
+    @AfterEach
+    fun after() {
+        listeners.forEach { it.close() }
+    }
+
+    /**
+     * Wait for the next batch and check it's the one that was sent.
+     */
+    private fun awaitBatch() {
+        assertThat(service.batches.poll(5, TimeUnit.SECONDS)?.map { it.id })
+            .containsExactly("a")
+    }
+
+    /**
+     * Wait until the [listener] has counted [count] malformed batches.
+     */
+    private fun awaitMalformed(listener: TimingSocketListener, count: Long) {
+        val deadline = System.currentTimeMillis() + 5_000
+        while (listener.malformedCount < count
+               && System.currentTimeMillis() < deadline)
+            Thread.sleep(10)
+        assertThat(listener.malformedCount).isEqualTo(count)
+    }
+
+    @Test
+    fun `batches are received over a Unix domain socket`() {
+        val path = dir.resolve("timer.sock")
+        val listener = listener { socketPath = path.toString() }
+
+        SocketTimingTransport.unixDomain(path).use {
+            assertThat(it.send(batch)).isEqualTo(SocketTimingTransport.Result.SENT)
+            assertThat(it.send(batch)).isEqualTo(SocketTimingTransport.Result.SENT)
+        }
+
+        awaitBatch()
+        awaitBatch()
+
+        listener.close()
+        assertThat(path).doesNotExist()
+    }
+
+    @Test
+    fun `malformed frames are counted`() {
+        val path = dir.resolve("timer.sock")
+        val listener = listener { socketPath = path.toString() }
+
+        SocketChannel.open(StandardProtocolFamily.UNIX).use {
+            it.connect(UnixDomainSocketAddress.of(path))
+
+            // A frame that isn't a batch is skipped.
+            it.write(ByteBuffer.allocate(8).putInt(4).putInt(0).flip())
+            awaitMalformed(listener, 1)
+
+            // A bad length ends the connection.
+            it.write(ByteBuffer.allocate(4).putInt(-1).flip())
+            awaitMalformed(listener, 2)
+        }
+
+        assertThat(service.batches).isEmpty()
+    }
+
+    @Test
+    fun `batches are received over UDP`() {
+        val port = DatagramSocket(0).use { it.localPort }
+        val listener = listener { udpPort = port }
+
+        SocketTimingTransport.udp(port).use {
+            assertThat(it.send(batch))
+                .isEqualTo(SocketTimingTransport.Result.UNACKNOWLEDGED)
+        }
+        awaitBatch()
+
+        DatagramChannel.open().use {
+            it.send(ByteBuffer.wrap(byteArrayOf(1, 2, 3)),
+                    InetSocketAddress(InetAddress.getLoopbackAddress(), port))
+        }
+        awaitMalformed(listener, 1)
+    }
+
+    @Test
+    fun `the socket of another listener is left alone`() {
+        val path = dir.resolve("timer.sock")
+        listener { socketPath = path.toString() }
+        listener { socketPath = path.toString() }.close()
+
+        // The first listener still accepts batches.
+        assertThat(path).exists()
+        SocketTimingTransport.unixDomain(path).use {
+            assertThat(it.send(batch)).isEqualTo(SocketTimingTransport.Result.SENT)
+        }
+        awaitBatch()
+    }
+
+    @Test
+    fun `a stale socket file is replaced`() {
+        val path = dir.resolve("timer.sock")
+        Files.createFile(path)
+
+        listener { socketPath = path.toString() }
+        SocketTimingTransport.unixDomain(path).use {
+            assertThat(it.send(batch)).isEqualTo(SocketTimingTransport.Result.SENT)
+        }
+        awaitBatch()
+    }
+}